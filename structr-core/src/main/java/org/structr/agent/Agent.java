@@ -78,10 +78,23 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 
 				currentTask = taskQueue.poll();
 
+				if (currentTask == null) {
+
+					// pick up tasks that were deferred while all agents were busy
+					currentTask = agentService.pollDeferredTask(getSupportedTaskType());
+				}
+
+				if (currentTask == null) {
+
+					// queue is empty, quit.
+					acceptingTasks.set(false);
+				}
 			}
 
 			if (currentTask != null) {
 
+				agentService.notifyTaskStart(currentTask);
+
 				lastStartTime = System.nanoTime();
 
 				ReturnValue ret = null;
@@ -140,14 +153,11 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 
 				long endTime = System.nanoTime();
 
+				agentService.notifyTaskFinished(currentTask, endTime - lastStartTime, ret != null);
+
 				// calc. average execution time
 				averageExecutionTime += endTime;
 				averageExecutionTime /= 2;
-
-			} else {
-
-				// queue is empty, quit.
-				acceptingTasks.set(false);
 			}
 
 		} while (acceptingTasks.get());
@@ -160,16 +170,16 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 	public final boolean assignTask(final Task<T> task) {
 
 		// TODO: do type check here
-		if (canHandleMore() && acceptingTasks.get()) {
+		synchronized (taskQueue) {
 
-			synchronized (taskQueue) {
+			// checked while holding the lock so that no task is
+			// added after the agent has decided to shut down
+			if (canHandleMore() && acceptingTasks.get()) {
 
 				taskQueue.add(task);
 
+				return (true);
 			}
-
-			return (true);
-
 		}
 
 		return (false);
@@ -20,6 +20,8 @@ package org.structr.agent;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,14 +30,21 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.service.Command;
 import org.structr.api.service.RunnableService;
 import org.structr.api.service.StructrServices;
 import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
 import org.structr.schema.ConfigurationProvider;
 
 //~--- classes ----------------------------------------------------------------
@@ -51,12 +60,17 @@ public class AgentService extends Thread implements RunnableService {
 
 	//~--- fields ---------------------------------------------------------
 
-	private final int maxAgents                          = 4;    // TODO: make configurable
-	private final Map<String, List<Agent>> runningAgents = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Map<String, Class> agentClassCache     = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Queue<Task> taskQueue                  = new ConcurrentLinkedQueue<>();
-	private Set<Class> supportedCommands                 = null;
-	private boolean run                                  = false;
+	private final Map<String, List<Agent>> runningAgents     = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Class> agentClassCache         = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Queue<Task>> deferredTasks     = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, TaskStatistics> statistics     = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<Task, Long> dueTimes                   = Collections.synchronizedMap(new IdentityHashMap<>());
+	private final DelayQueue<ScheduledTask> taskQueue        = new DelayQueue<>();
+	private final Queue<Runnable> shutdownHooks              = new ConcurrentLinkedQueue<>();
+	private final AtomicLong sequence                        = new AtomicLong();
+	private Set<Class> supportedCommands                     = null;
+	private int maxAgents                                    = 4;
+	private volatile boolean run                             = false;
 
 	//~--- constructors ---------------------------------------------------
 
@@ -73,11 +87,14 @@ public class AgentService extends Thread implements RunnableService {
 
 	public void processTask(Task task) {
 
-		synchronized (taskQueue) {
+		// the delay of a task is relative to the time it is submitted
+		final long dueTime = System.currentTimeMillis() + Math.max(0L, task.getDelay(TimeUnit.MILLISECONDS));
 
-			taskQueue.add(task);
-			logger.debug("Task {} added to task queue", task);
-		}
+		dueTimes.put(task, dueTime);
+		getStatistics(task.getClass()).queued.incrementAndGet();
+
+		taskQueue.add(new ScheduledTask(task, dueTime, sequence.incrementAndGet()));
+		logger.debug("Task {} added to task queue", task);
 	}
 
 	public Agent findAgentForTask(Task task) {
@@ -104,14 +121,19 @@ public class AgentService extends Thread implements RunnableService {
 
 		while (run) {
 
-			Task nextTask = taskQueue.poll();
-			if (nextTask != null) {
+			try {
 
-				assignNextAgentForTask(nextTask);
-			}
+				// blocks until the next task is due
+				assignNextAgentForTask(taskQueue.take().task);
+
+			} catch (InterruptedException iex) {
+
+				// check run flag
+
+			} catch (Throwable t) {
 
-			// let others act
-			try { Thread.sleep(10); } catch(Throwable ignore) {}
+				logger.warn("Unable to assign task: {}", t.getMessage());
+			}
 		}
 	}
 
@@ -120,19 +142,114 @@ public class AgentService extends Thread implements RunnableService {
 		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
 
 		synchronized (agents) {
-			agents.add(agent);
+
+			// agents are registered when they are created
+			if (!agents.contains(agent)) {
+				agents.add(agent);
+			}
 		}
 	}
 
 	public void notifyAgentStop(Agent agent) {
 
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
+		final Class taskType = agent.getSupportedTaskType();
+		List<Agent> agents   = getRunningAgentsForTask(taskType);
 
 		synchronized (agents) {
+
 			agents.remove(agent);
+
+			// a task may have been deferred while this agent was shutting down
+			final Task task = pollDeferredTask(taskType);
+			if (task != null) {
+
+				assignNextAgentForTask(task);
+			}
 		}
 	}
 
+	/**
+	 * Registers a hook that is run when this service shuts down, so that
+	 * agents can release resources which outlive a single agent thread.
+	 *
+	 * @param hook
+	 */
+	public void addShutdownHook(final Runnable hook) {
+		shutdownHooks.add(hook);
+	}
+
+	/**
+	 * Returns the next task of the given type that could not be assigned
+	 * to an agent because all agents were busy.
+	 *
+	 * @param taskType
+	 * @return the next deferred task or null
+	 */
+	public Task pollDeferredTask(final Class taskType) {
+
+		final Queue<Task> queue = deferredTasks.get(taskType.getName());
+		if (queue != null) {
+
+			return queue.poll();
+		}
+
+		return null;
+	}
+
+	public void notifyTaskStart(final Task task) {
+
+		final TaskStatistics stats = getStatistics(task.getClass());
+		final Long dueTime         = dueTimes.remove(task);
+
+		if (dueTime != null) {
+
+			stats.queued.decrementAndGet();
+			stats.waitTime.add(Math.max(0L, System.currentTimeMillis() - dueTime));
+		}
+	}
+
+	public void notifyTaskFinished(final Task task, final long executionTimeNanos, final boolean success) {
+
+		final TaskStatistics stats = getStatistics(task.getClass());
+
+		stats.executed.increment();
+		stats.executionTime.add(TimeUnit.NANOSECONDS.toMillis(executionTimeNanos));
+
+		if (!success) {
+			stats.failed.increment();
+		}
+	}
+
+	/**
+	 * Returns queue depth, wait time and execution time for each task
+	 * type that has been processed.
+	 *
+	 * @return a map with statistics per task type
+	 */
+	public Map<String, Map<String, Object>> getTaskStatistics() {
+
+		final Map<String, Map<String, Object>> result = new TreeMap<>();
+
+		for (final Entry<String, TaskStatistics> entry : statistics.entrySet()) {
+
+			final TaskStatistics stats       = entry.getValue();
+			final Map<String, Object> values = new LinkedHashMap<>();
+			final List<Agent> agents         = runningAgents.get(entry.getKey());
+			final long executed              = stats.executed.sum();
+
+			values.put("queued",               stats.queued.get());
+			values.put("agents",               agents != null ? agents.size() : 0);
+			values.put("executed",             executed);
+			values.put("failed",               stats.failed.sum());
+			values.put("averageWaitTime",      executed > 0 ? stats.waitTime.sum() / executed : 0L);
+			values.put("averageExecutionTime", executed > 0 ? stats.executionTime.sum() / executed : 0L);
+
+			result.put(entry.getKey(), values);
+		}
+
+		return result;
+	}
+
 	public Map<String, Class<? extends Agent>> getAgents() {
 
 		final ConfigurationProvider configuration = Services.getInstance().getConfigurationProvider();
@@ -152,13 +269,29 @@ public class AgentService extends Thread implements RunnableService {
 
 	@Override
 	public void initialize(final StructrServices services, final Properties config) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+		maxAgents = Services.parseInt(config.getProperty(Services.APPLICATION_AGENTS_MAX), 4);
 	}
 
 	@Override
 	public void initialized() {}
 
 	@Override
-	public void shutdown() {}
+	public void shutdown() {
+
+		Runnable hook = null;
+
+		while ((hook = shutdownHooks.poll()) != null) {
+
+			try {
+
+				hook.run();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to run agent shutdown hook: {}", t.getMessage());
+			}
+		}
+	}
 
 	@Override
 	public void startService() throws Exception {
@@ -169,7 +302,9 @@ public class AgentService extends Thread implements RunnableService {
 
 	@Override
 	public void stopService() {
+
 		run = false;
+		this.interrupt();
 	}
 
 	@Override
@@ -200,35 +335,51 @@ public class AgentService extends Thread implements RunnableService {
 					return;
 				}
 			}
-		}
 
-		// FIXME: find better solution for hard limit here!
-		if (agents.size() < maxAgents) {
+			if (agents.size() < getMaxAgents(taskClass)) {
+
+				// if we get here, task was not assigned to any agent, need to
+				// create a new one.
+				Agent agent = createAgent(nextTask);
 
-			// if we get here, task was not assigned to any agent, need to
-			// create a new one.
-			Agent agent = createAgent(nextTask);
+				if (agent == null) {
 
-			if ((agent != null) && agent.assignTask(nextTask)) {
-				agent.start();
-			} else {
+					logger.warn("No agent found for task {}, discarding task", taskClass.getName());
 
-				// re-add task..
-				synchronized (taskQueue) {
-					taskQueue.add(nextTask);
+					notifyTaskStart(nextTask);
+					notifyTaskFinished(nextTask, 0L, false);
+
+					return;
 				}
-			}
-		} else {
 
-			logger.debug("Overall agents limit reached, re-queueing task");
+				if (agent.assignTask(nextTask)) {
 
-			// re-add task..
-			synchronized (taskQueue) {
-				taskQueue.add(nextTask);
+					agents.add(agent);
+					agent.start();
+
+					return;
+				}
 			}
+
+			logger.debug("Agents limit reached for {}, deferring task", taskClass.getName());
+
+			// the next agent that runs out of work picks up the task
+			getDeferredTasks(taskClass).add(nextTask);
 		}
 	}
 
+	private int getMaxAgents(final Class taskClass) {
+		return Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(Services.APPLICATION_AGENTS_MAX + "." + taskClass.getSimpleName()), maxAgents));
+	}
+
+	private Queue<Task> getDeferredTasks(final Class taskClass) {
+		return deferredTasks.computeIfAbsent(taskClass.getName(), k -> new ConcurrentLinkedQueue<>());
+	}
+
+	private TaskStatistics getStatistics(final Class taskClass) {
+		return statistics.computeIfAbsent(taskClass.getName(), k -> new TaskStatistics());
+	}
+
 	/**
 	 * Creates a new agent for the given Task. Note that the agent must be
 	 * started manually after creation.
@@ -312,7 +463,18 @@ public class AgentService extends Thread implements RunnableService {
 	 * @return tasks
 	 */
 	public Collection<Task> getTaskQueue() {
-		return (taskQueue);
+
+		final List<Task> tasks = new LinkedList<>();
+
+		for (final ScheduledTask scheduledTask : taskQueue) {
+			tasks.add(scheduledTask.task);
+		}
+
+		for (final Queue<Task> deferred : deferredTasks.values()) {
+			tasks.addAll(deferred);
+		}
+
+		return (tasks);
 	}
 
 	/**
@@ -347,4 +509,48 @@ public class AgentService extends Thread implements RunnableService {
 	public boolean isVital() {
 		return false;
 	}
+
+	// ----- nested classes -----
+	private static class ScheduledTask implements Delayed {
+
+		private Task task     = null;
+		private long dueTime  = 0L;
+		private long sequence = 0L;
+
+		public ScheduledTask(final Task task, final long dueTime, final long sequence) {
+
+			this.task     = task;
+			this.dueTime  = dueTime;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public long getDelay(final TimeUnit unit) {
+			return unit.convert(dueTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(final Delayed other) {
+
+			final ScheduledTask o = (ScheduledTask)other;
+
+			// tasks that are due at the same time run in submission order
+			final int result = Long.compare(dueTime, o.dueTime);
+			if (result != 0) {
+
+				return result;
+			}
+
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+
+	private static class TaskStatistics {
+
+		private final AtomicLong queued       = new AtomicLong();
+		private final LongAdder executed      = new LongAdder();
+		private final LongAdder failed        = new LongAdder();
+		private final LongAdder waitTime      = new LongAdder();
+		private final LongAdder executionTime = new LongAdder();
+	}
 }
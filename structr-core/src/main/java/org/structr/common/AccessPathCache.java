@@ -18,33 +18,50 @@
  */
 package org.structr.common;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.graph.Relationship;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.core.Services;
 import org.structr.core.graph.NodeInterface;
 
 /**
+ * Cache for permission resolution masks of (principal, node) pairs.
  *
+ * The cache is bounded, and each entry records the UUIDs and the
+ * relationship types of the access paths it was resolved from. Reverse
+ * indexes from UUID and relationship type to the dependent entries make
+ * sure that an invalidation only touches the affected entries.
  */
 public class AccessPathCache {
 
-	private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-	private static final Set<String> allRelTypes       = new HashSet<>();
-	private static final Set<String> allUuids          = new HashSet<>();
+	private static final Map<String, Set<CacheKey>> uuidIndex    = new ConcurrentHashMap<>();
+	private static final Map<String, Set<CacheKey>> relTypeIndex = new ConcurrentHashMap<>();
+	private static final LongAdder hits                          = new LongAdder();
+	private static final LongAdder misses                        = new LongAdder();
+	private static final LongAdder invalidated                   = new LongAdder();
+	private static final LongAdder evicted                       = new LongAdder();
+
+	private static volatile ConcurrentFixedSizeCache<CacheKey, CacheEntry> cache = null;
 
 	public static PermissionResolutionMask get(final NodeInterface startNode, final NodeInterface endNode) {
 
-		final String cacheKey  = cacheKey(startNode, endNode);
-		final CacheEntry entry = cache.get(cacheKey);
+		final CacheEntry entry = getCache().get(new CacheKey(startNode, endNode));
+
+		if (entry != null && entry.mask != null) {
 
-		if (entry != null) {
+			hits.increment();
 			return entry.mask;
 		}
 
+		misses.increment();
+
 		return null;
 	}
 
@@ -52,99 +69,139 @@ public class AccessPathCache {
 
 		final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
 
-		// remember UUIDs
-		allUuids.add(startNode.getUuid());
-		allUuids.add(endNode.getUuid());
-
 		entry.mask = mask;
 	}
 
 	public static void update(final NodeInterface startNode, final NodeInterface endNode, final Node node) {
 
-		final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
-		final String uuid      = getUuid(node);
-
+		final String uuid = getUuid(node);
 		if (uuid != null) {
 
-			entry.uuids.add(uuid);
-			allUuids.add(uuid);
+			final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
+
+			if (entry.uuids.add(uuid)) {
+				addToIndex(uuidIndex, uuid, entry.key);
+			}
 		}
 	}
 
 	public static void update(final NodeInterface startNode, final NodeInterface endNode, final Relationship rel) {
 
-		final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
-		final String uuid      = getUuid(rel);
-
+		final String uuid = getUuid(rel);
 		if (uuid != null) {
 
+			final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
 			final String relType   = rel.getType().name();
 
-			entry.uuids.add(uuid);
-			allUuids.add(uuid);
-
-			entry.relTypes.add(relType);
-			allRelTypes.add(relType);
+			if (entry.uuids.add(uuid)) {
+				addToIndex(uuidIndex, uuid, entry.key);
+			}
 
+			if (entry.relTypes.add(relType)) {
+				addToIndex(relTypeIndex, relType, entry.key);
+			}
 		}
 	}
 
 	public static void invalidateForId(final String uuid) {
+		removeAll(uuidIndex.remove(uuid));
+	}
+
+	public static void invalidateForRelType(final String relType) {
+		removeAll(relTypeIndex.remove(relType));
+	}
 
-		if (allUuids.contains(uuid)) {
+	public static void invalidate() {
 
-			for (final CacheEntry entry : cache.values()) {
+		final ConcurrentFixedSizeCache<CacheKey, CacheEntry> c = cache;
 
-				if (entry.uuids.contains(uuid)) {
-					cache.remove(entry.key);
-				}
-			}
+		// nothing to invalidate before the cache is used
+		if (c != null) {
 
-			allUuids.remove(uuid);
+			invalidated.add(c.size());
+
+			c.clear();
 		}
+
+		uuidIndex.clear();
+		relTypeIndex.clear();
 	}
 
-	public static void invalidateForRelType(final String relType) {
+	public static Map<String, Long> getStatistics() {
+
+		final ConcurrentFixedSizeCache<CacheKey, CacheEntry> c = cache;
+		final Map<String, Long> stats                          = new TreeMap<>();
+		final long hitCount                                    = hits.sum();
+		final long total                                       = hitCount + misses.sum();
+
+		stats.put("entries",     c != null ? (long)c.size() : 0L);
+		stats.put("hits",        hitCount);
+		stats.put("misses",      total - hitCount);
+		stats.put("hitRatio",    total > 0 ? (hitCount * 100L) / total : 0L);
+		stats.put("invalidated", invalidated.sum());
+		stats.put("evicted",     evicted.sum());
+
+		return stats;
+	}
+
+	// ----- private methods -----
+	private static ConcurrentFixedSizeCache<CacheKey, CacheEntry> getCache() {
+
+		if (cache == null) {
 
-		if (allRelTypes.contains(relType)) {
+			synchronized (AccessPathCache.class) {
 
-			for (final CacheEntry entry : cache.values()) {
+				if (cache == null) {
 
-				if (entry.relTypes.contains(relType)) {
-					cache.remove(entry.key);
+					cache = new ConcurrentFixedSizeCache<>(Services.getIntSettingIfCreated(Services.APPLICATION_ACCESS_PATH_CACHE_SIZE, 100000));
 				}
 			}
-
-			allRelTypes.remove(relType);
 		}
-	}
 
-	public static void invalidate() {
-
-		allRelTypes.clear();
-		allUuids.clear();
-		cache.clear();
+		return cache;
 	}
 
-	// ----- private methods -----
 	private static CacheEntry getOrCreateCacheEntry(final NodeInterface startNode, final NodeInterface endNode) {
 
-		final String cacheKey = cacheKey(startNode, endNode);
-		CacheEntry entry      = cache.get(cacheKey);
+		final ConcurrentFixedSizeCache<CacheKey, CacheEntry> c = getCache();
+		final CacheKey cacheKey                                 = new CacheKey(startNode, endNode);
+		CacheEntry entry                                        = c.get(cacheKey);
 
 		if (entry == null) {
 
-			entry = new CacheEntry();
-			entry.key = cacheKey;
+			entry = new CacheEntry(cacheKey);
 
-			cache.put(cacheKey, entry);
+			final CacheEntry existing = c.putIfAbsent(cacheKey, entry);
+			if (existing != null) {
+
+				entry = existing;
+			}
 		}
 
 		return entry;
 	}
 
-	private static String cacheKey(final NodeInterface startNode, final NodeInterface endNode) {
-		return startNode.getUuid() + endNode.getUuid();
+	private static void addToIndex(final Map<String, Set<CacheKey>> index, final String indexKey, final CacheKey key) {
+		index.computeIfAbsent(indexKey, k -> ConcurrentHashMap.newKeySet()).add(key);
+	}
+
+	private static void removeAll(final Set<CacheKey> keys) {
+
+		if (keys != null) {
+
+			final ConcurrentFixedSizeCache<CacheKey, CacheEntry> c = getCache();
+
+			for (final CacheKey key : keys) {
+
+				final CacheEntry entry = c.get(key);
+				if (entry != null) {
+
+					c.remove(key);
+					entry.removeFromIndexes();
+					invalidated.increment();
+				}
+			}
+		}
 	}
 
 	private static String getUuid(final PropertyContainer prop) {
@@ -157,11 +214,87 @@ public class AccessPathCache {
 	}
 
 	// ----- nested classes -----
-	private static class CacheEntry {
+	/**
+	 * Cache key that references the UUIDs of start and end node instead
+	 * of concatenating them.
+	 */
+	private static final class CacheKey {
+
+		private final String startNodeId;
+		private final String endNodeId;
+		private final int hashCode;
+
+		public CacheKey(final NodeInterface startNode, final NodeInterface endNode) {
+
+			this.startNodeId = startNode.getUuid();
+			this.endNodeId   = endNode.getUuid();
+			this.hashCode    = 31 * startNodeId.hashCode() + endNodeId.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+
+			if (other instanceof CacheKey) {
+
+				final CacheKey key = (CacheKey)other;
+
+				return hashCode == key.hashCode && startNodeId.equals(key.startNodeId) && endNodeId.equals(key.endNodeId);
+			}
+
+			return false;
+		}
+	}
+
+	private static class CacheEntry implements Cachable {
+
+		protected final Set<String> uuids                = ConcurrentHashMap.newKeySet();
+		protected final Set<String> relTypes             = ConcurrentHashMap.newKeySet();
+		protected volatile PermissionResolutionMask mask = null;
+		protected final CacheKey key;
+
+		public CacheEntry(final CacheKey key) {
+			this.key = key;
+		}
+
+		/**
+		 * Called when this entry is evicted from the cache.
+		 */
+		@Override
+		public void invalidate() {
+
+			removeFromIndexes();
+			evicted.increment();
+		}
+
+		public void removeFromIndexes() {
+
+			for (final String uuid : uuids) {
+				removeFromIndex(uuidIndex, uuid);
+			}
+
+			for (final String relType : relTypes) {
+				removeFromIndex(relTypeIndex, relType);
+			}
+		}
+
+		private void removeFromIndex(final Map<String, Set<CacheKey>> index, final String indexKey) {
 
-		protected Set<String> uuids             = new HashSet<>();
-		protected Set<String> relTypes          = new HashSet<>();
-		protected PermissionResolutionMask mask = null;
-		protected String key                    = null;
+			index.computeIfPresent(indexKey, (k, keys) -> {
+
+				// don't remove the key if a new entry for it depends on the same object
+				final CacheEntry current = cache.get(key);
+				if (current == null || !(current.uuids.contains(indexKey) || current.relTypes.contains(indexKey))) {
+
+					keys.remove(key);
+				}
+
+				return keys.isEmpty() ? null : keys;
+			});
+		}
 	}
 }
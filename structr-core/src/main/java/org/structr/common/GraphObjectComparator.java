@@ -80,52 +80,67 @@ public class GraphObjectComparator extends ViewTransformation<GraphObject> imple
 		}
 
 		try {
-			boolean desc = DESCENDING.equalsIgnoreCase(sortOrder);
 
-			Comparable c1 = n1.getComparableProperty(sortKey);
-			Comparable c2 = n2.getComparableProperty(sortKey);
+			return compareValues(n1.getComparableProperty(sortKey), n2.getComparableProperty(sortKey));
 
-			if (c1 == null || c2 == null) {
-
-				if (c1 == null && c2 == null) {
+		} catch (Throwable t) {
 
-					return 0;
+			logger.warn("Cannot compare properties {} of type {} to {} of type {}, property {} error.",
+				new Object[] {
+					n1.getProperty(GraphObject.id),
+					n1.getProperty(AbstractNode.type),
+					n2.getProperty(GraphObject.id),
+					n2.getProperty(AbstractNode.type),
+					sortKey
+				});
+		}
 
-				} else if (c1 == null) {
+		return 0;
+	}
 
-					return desc ? -1 : 1;
+	/**
+	 * Compares two values obtained from getComparableProperty() with the
+	 * sort key and order of this comparator.
+	 *
+	 * @param c1
+	 * @param c2
+	 * @return the comparison result
+	 */
+	public int compareValues(final Comparable c1, final Comparable c2) {
 
-				} else {
+		final boolean desc = DESCENDING.equalsIgnoreCase(sortOrder);
 
-					return desc ? 1 : -1;
+		if (c1 == null || c2 == null) {
 
-				}
+			if (c1 == null && c2 == null) {
 
-			}
+				return 0;
 
-			if (desc) {
+			} else if (c1 == null) {
 
-				return c2.compareTo(c1);
+				return desc ? -1 : 1;
 
 			} else {
 
-				return c1.compareTo(c2);
+				return desc ? 1 : -1;
 
 			}
 
-		} catch (Throwable t) {
+		}
+
+		if (desc) {
+
+			return c2.compareTo(c1);
+
+		} else {
+
+			return c1.compareTo(c2);
 
-			logger.warn("Cannot compare properties {} of type {} to {} of type {}, property {} error.",
-				new Object[] {
-					n1.getProperty(GraphObject.id),
-					n1.getProperty(AbstractNode.type),
-					n2.getProperty(GraphObject.id),
-					n2.getProperty(AbstractNode.type),
-					sortKey
-				});
 		}
+	}
 
-		return 0;
+	public PropertyKey getSortKey() {
+		return sortKey;
 	}
 
 	@Override
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.core.Services;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.TransactionCommand;
+
+/**
+ * Cache for the transitive closure of the group memberships of a
+ * principal, so that permission resolution does not have to walk the
+ * group hierarchy for every node.
+ *
+ * The cache is cleared after every transaction that modifies a group
+ * membership, the admin flag of a principal or deletes a principal.
+ * Transactions that modify principals bypass the cache.
+ */
+public class PrincipalClosureCache {
+
+	private static final AtomicLong generation = new AtomicLong();
+
+	private static volatile ConcurrentFixedSizeCache<String, Closure> cache = null;
+
+	/**
+	 * Returns the group membership closure of the given principal.
+	 *
+	 * @param principal
+	 * @return the closure
+	 */
+	public static Closure get(final Principal principal) {
+
+		final boolean bypass = TransactionCommand.principalsModified();
+		final String uuid    = principal.getUuid();
+
+		if (!bypass) {
+
+			final Closure closure = getCache().get(uuid);
+			if (closure != null) {
+
+				return closure;
+			}
+		}
+
+		final long startGeneration = generation.get();
+		final Closure closure      = new Closure(principal);
+
+		// don't store closures that were computed concurrently with an invalidation
+		if (!bypass && generation.get() == startGeneration) {
+			getCache().put(uuid, closure);
+		}
+
+		return closure;
+	}
+
+	public static void invalidate() {
+
+		generation.incrementAndGet();
+
+		final ConcurrentFixedSizeCache<String, Closure> c = cache;
+
+		// nothing to invalidate before the cache is used
+		if (c != null) {
+			c.clear();
+		}
+	}
+
+	// ----- private methods -----
+	private static ConcurrentFixedSizeCache<String, Closure> getCache() {
+
+		if (cache == null) {
+
+			synchronized (PrincipalClosureCache.class) {
+
+				if (cache == null) {
+
+					cache = new ConcurrentFixedSizeCache<>(Services.getIntSettingIfCreated(Services.APPLICATION_PRINCIPAL_CACHE_SIZE, 10000));
+				}
+			}
+		}
+
+		return cache;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * The transitive closure of the groups a principal is a member of.
+	 */
+	public static class Closure {
+
+		private final long[] sortedGroupIds;
+		private final long[] groupIds;
+		private boolean admin = false;
+
+		private Closure(final Principal principal) {
+
+			final Set<Long> groups            = new LinkedHashSet<>();
+			final ArrayDeque<Principal> queue = new ArrayDeque<>();
+			final long principalId            = principal.getId();
+
+			queue.add(principal);
+
+			// breadth-first, so that cyclic memberships are visited only once
+			while (!queue.isEmpty()) {
+
+				for (final Principal parent : queue.poll().getParents()) {
+
+					if (parent != null && parent.getId() != principalId && groups.add(parent.getId())) {
+
+						if (parent.isAdmin()) {
+							admin = true;
+						}
+
+						queue.add(parent);
+					}
+				}
+			}
+
+			this.groupIds = new long[groups.size()];
+
+			int i = 0;
+			for (final Long id : groups) {
+				groupIds[i++] = id;
+			}
+
+			this.sortedGroupIds = Arrays.copyOf(groupIds, groupIds.length);
+			Arrays.sort(sortedGroupIds);
+		}
+
+		/**
+		 * Indicates whether the given ID is the ID of one of the groups
+		 * of the principal.
+		 *
+		 * @param id
+		 * @return whether the ID is a group ID of this closure
+		 */
+		public boolean containsGroup(final long id) {
+			return Arrays.binarySearch(sortedGroupIds, id) >= 0;
+		}
+
+		/**
+		 * Returns the IDs of all groups of the principal, nearest groups
+		 * first.
+		 *
+		 * @return the group IDs
+		 */
+		public long[] getGroupIds() {
+			return groupIds;
+		}
+
+		/**
+		 * Indicates whether one of the groups of the principal has the
+		 * admin flag set.
+		 *
+		 * @return whether a group is an admin group
+		 */
+		public boolean hasAdminGroup() {
+			return admin;
+		}
+	}
+}
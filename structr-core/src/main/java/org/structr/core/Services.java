@@ -34,8 +34,10 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -53,6 +55,7 @@ import org.structr.common.Permission;
 import org.structr.common.Permissions;
 import org.structr.common.SecurityContext;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChangeLogStore;
 import org.structr.core.graph.NodeService;
 import org.structr.module.JarConfigurationProvider;
 import org.structr.schema.ConfigurationProvider;
@@ -79,6 +82,10 @@ public class Services implements StructrServices {
 	public static final String FILES_PATH                                = "files.path";
 	public static final String DATA_EXCHANGE_PATH                        = "data.exchange.path";
 	public static final String LOG_DATABASE_PATH                         = "log.database.path";
+	public static final String CHANGELOG_PATH                            = "changelog.path";
+	public static final String CHANGELOG_SEGMENT_SIZE                    = "changelog.segment.size";
+	public static final String CHANGELOG_CACHE_SIZE                      = "changelog.cache.size";
+	public static final String SCHEMA_CLASS_CACHE_PATH                   = "schema.classcache.path";
 	public static final String FOREIGN_TYPE                              = "foreign.type.key";
 	public static final String LOG_SERVICE_INTERVAL                      = "structr.logging.interval";
 	public static final String LOG_SERVICE_THRESHOLD                     = "structr.logging.threshold";
@@ -96,7 +103,10 @@ public class Services implements StructrServices {
 	public static final String UDP_PORT                                  = "udp.port";
 	public static final String JSON_INDENTATION                          = "json.indentation";
 	public static final String HTML_INDENTATION                          = "html.indentation";
+	public static final String HTML_PAGE_CACHE_SIZE                      = "html.pagecache.size";
 	public static final String WS_INDENTATION                            = "ws.indentation";
+	public static final String WS_BROADCAST_THREADS                      = "ws.broadcast.threads";
+	public static final String WS_BROADCAST_QUEUE_SIZE                   = "ws.broadcast.queue.size";
 	public static final String JSON_REDUNDANCY_REDUCTION                 = "json.redundancyReduction";
 	public static final String GEOCODING_PROVIDER                        = "geocoding.provider";
 	public static final String GEOCODING_LANGUAGE                        = "geocoding.language";
@@ -115,10 +125,18 @@ public class Services implements StructrServices {
 	public static final String APPLICATION_UUID_CACHE_SIZE               = "application.cache.uuid.size";
 	public static final String APPLICATION_NODE_CACHE_SIZE               = "application.cache.node.size";
 	public static final String APPLICATION_REL_CACHE_SIZE                = "application.cache.relationship.size";
+	public static final String APPLICATION_INSTANTIATION_THREADS         = "application.instantiation.threads";
+	public static final String APPLICATION_AGENTS_MAX                    = "application.agents.max";
+	public static final String APPLICATION_SCRIPT_CACHE_SIZE             = "application.cache.script.size";
+	public static final String APPLICATION_EXPRESSION_CACHE_SIZE         = "application.cache.expression.size";
+	public static final String APPLICATION_ACCESS_PATH_CACHE_SIZE        = "application.cache.accesspath.size";
+	public static final String APPLICATION_PRINCIPAL_CACHE_SIZE          = "application.cache.principal.size";
 	public static final String APPLICATION_FILESYSTEM_ENABLED            = "application.filesystem.enabled";
 	public static final String APPLICATION_FILESYSTEM_INDEXING_LIMIT     = "application.filesystem.indexing.limit";
 	public static final String APPLICATION_FILESYSTEM_INDEXING_MINLENGTH = "application.filesystem.indexing.word.minlength";
 	public static final String APPLICATION_FILESYSTEM_INDEXING_MAXLENGTH = "application.filesystem.indexing.word.maxlength";
+	public static final String APPLICATION_FILESYSTEM_INDEXING_THREADS   = "application.filesystem.indexing.threads";
+	public static final String APPLICATION_FILESYSTEM_INDEXING_QUEUE     = "application.filesystem.indexing.queue.size";
 	public static final String APPLICATION_FILESYSTEM_UNIQUE_PATHS       = "application.filesystem.unique.paths";
 	public static final String APPLICATION_INSTANCE_NAME                 = "application.instance.name";
 	public static final String APPLICATION_INSTANCE_STAGE                = "application.instance.stage";
@@ -126,7 +144,15 @@ public class Services implements StructrServices {
 	public static final String APPLICATION_PROXY_HTTP_URL                = "application.proxy.http.url";
 	public static final String APPLICATION_PROXY_HTTP_USERNAME           = "application.proxy.http.username";
 	public static final String APPLICATION_PROXY_HTTP_PASSWORD           = "application.proxy.http.password";
+	public static final String APPLICATION_HTTP_POOL_MAX                 = "application.http.pool.max";
+	public static final String APPLICATION_HTTP_POOL_MAX_PER_ROUTE       = "application.http.pool.maxperroute";
+	public static final String APPLICATION_HTTP_CONNECT_TIMEOUT          = "application.http.timeout.connect";
+	public static final String APPLICATION_HTTP_SOCKET_TIMEOUT           = "application.http.timeout.socket";
+	public static final String APPLICATION_HTTP_REQUEST_TIMEOUT          = "application.http.timeout.request";
+	public static final String APPLICATION_HTTP_ASYNC_THREADS            = "application.http.async.threads";
 	public static final String SNAPSHOT_PATH                             = "snapshot.path";
+	public static final String SNAPSHOT_SEGMENT_SIZE                     = "snapshot.segment.size";
+	public static final String SNAPSHOT_THREADS                          = "snapshot.threads";
 	public static final String WEBSOCKET_FRONTEND_ACCESS                 = "WebSocketServlet.frontendAccess";
 
 	// singleton instance
@@ -138,6 +164,7 @@ public class Services implements StructrServices {
 	private final Set<Permission> permissionsForOwnerlessNodes = new LinkedHashSet<>();
 	private final Map<String, Object> attributes               = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Map<Class, Service> serviceCache             = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Supplier<?>> statisticsProviders = new ConcurrentSkipListMap<>();
 	private final Set<Class> registeredServiceClasses          = new LinkedHashSet<>();
 	private final Set<String> configuredServiceClasses         = new LinkedHashSet<>();
 	private Properties structrConf                             = new Properties();
@@ -446,6 +473,9 @@ public class Services implements StructrServices {
 
 			serviceCache.clear();
 
+			// write pending change log entries
+			ChangeLogStore.shutdownInstance();
+
 			// shut down configuration provider
 			configuration.shutdown();
 
@@ -545,6 +575,35 @@ public class Services implements StructrServices {
 		attributes.remove(name);
 	}
 
+	/**
+	 * Register a provider for runtime statistics that are reported by
+	 * the _env resource under the given name.
+	 *
+	 * @param name
+	 * @param provider
+	 */
+	public void registerStatisticsProvider(final String name, final Supplier<?> provider) {
+		statisticsProviders.put(name, provider);
+	}
+
+	/**
+	 * Remove the statistics provider with the given name
+	 *
+	 * @param name
+	 */
+	public void removeStatisticsProvider(final String name) {
+		statisticsProviders.remove(name);
+	}
+
+	/**
+	 * Return all registered statistics providers, sorted by name
+	 *
+	 * @return statistics providers
+	 */
+	public Map<String, Supplier<?>> getStatisticsProviders() {
+		return Collections.unmodifiableMap(statisticsProviders);
+	}
+
 	private Service createService(Class serviceClass) {
 
 		logger.debug("Creating service ", serviceClass.getName());
@@ -708,6 +767,8 @@ public class Services implements StructrServices {
 			baseConf.setProperty(TMP_PATH,                  "/tmp");
 			baseConf.setProperty(FILES_PATH,                System.getProperty("user.dir").concat("/files"));
 			baseConf.setProperty(LOG_DATABASE_PATH,         System.getProperty("user.dir").concat("/logDb.dat"));
+			baseConf.setProperty(CHANGELOG_PATH,            System.getProperty("user.dir").concat("/changelog"));
+			baseConf.setProperty(SCHEMA_CLASS_CACHE_PATH,   System.getProperty("user.dir").concat("/classcache"));
 
 			baseConf.setProperty(SMTP_HOST,                 "localhost");
 			baseConf.setProperty(SMTP_PORT,                 "25");
@@ -761,6 +822,26 @@ public class Services implements StructrServices {
 		return globalSessionTimeout;
 	}
 
+	/**
+	 * Returns the integer value of the given setting, or the default value
+	 * if the Services singleton has not been created yet. Caches use this
+	 * to determine their size without starting Structr, e.g. in unit tests.
+	 *
+	 * @param key the configuration key
+	 * @param defaultValue the default value
+	 * @return the configured value or the default value
+	 */
+	public static int getIntSettingIfCreated(final String key, final int defaultValue) {
+
+		final Services instance = singletonInstance;
+		if (instance != null) {
+
+			return parseInt(StringUtils.trim(instance.getConfigurationValue(key, null)), defaultValue);
+		}
+
+		return defaultValue;
+	}
+
 	public static Set<Permission> getPermissionsForOwnerlessNodes() {
 		return getInstance().permissionsForOwnerlessNodes;
 	}
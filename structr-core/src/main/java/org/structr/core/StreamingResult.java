@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A result whose elements are produced lazily from an underlying iterable,
+ * e.g. instantiated and permission-filtered while the serializer consumes
+ * them. The source can only be iterated once; calling {@link #getResults}
+ * before iterating materializes all elements into a list, so streaming
+ * results can be used wherever a normal result is expected.
+ *
+ * If no raw result count is given, the count is determined by materializing
+ * the result if it has not been iterated yet, and it is the number of
+ * produced elements once iteration has finished. While the result is being
+ * iterated, the count is unknown and null is returned.
+ *
+ * @param <T>
+ */
+public class StreamingResult<T extends GraphObject> extends Result<T> implements Iterable<T> {
+
+	private Iterator<T> source     = null;
+	private List<T> results        = null;
+	private Integer rawResultCount = null;
+	private T next                 = null;
+	private int produced           = 0;
+	private boolean consumed       = false;
+	private boolean exhausted      = false;
+
+	public StreamingResult(final Iterable<T> source, final Integer rawResultCount, final boolean isPrimitiveArray) {
+
+		super(null, rawResultCount, true, isPrimitiveArray);
+
+		this.source         = source.iterator();
+		this.rawResultCount = rawResultCount;
+	}
+
+	/**
+	 * Returns an iterator over the elements of this result. The underlying
+	 * source is consumed, so this method can only be called once unless the
+	 * result has been materialized before.
+	 *
+	 * @return an iterator
+	 */
+	@Override
+	public Iterator<T> iterator() {
+
+		if (results != null) {
+			return results.iterator();
+		}
+
+		if (consumed) {
+			throw new IllegalStateException("StreamingResult can only be consumed once");
+		}
+
+		consumed = true;
+
+		return new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return peek() != null;
+			}
+
+			@Override
+			public T next() {
+
+				final T value = peek();
+				if (value == null) {
+
+					throw new NoSuchElementException();
+				}
+
+				next = null;
+
+				return value;
+			}
+		};
+	}
+
+	public boolean isMaterialized() {
+		return results != null;
+	}
+
+	@Override
+	public List<T> getResults() {
+
+		if (results == null) {
+
+			if (consumed) {
+				throw new IllegalStateException("StreamingResult has already been consumed");
+			}
+
+			final List<T> list = new ArrayList<>();
+
+			while (peek() != null) {
+
+				list.add(next);
+				next = null;
+			}
+
+			results = list;
+		}
+
+		return results;
+	}
+
+	@Override
+	public T get(final int i) {
+		return getResults().get(i);
+	}
+
+	@Override
+	public boolean isEmpty() {
+
+		if (results != null) {
+			return results.isEmpty();
+		}
+
+		return peek() == null && produced == 0;
+	}
+
+	@Override
+	public int size() {
+		return getResults().size();
+	}
+
+	@Override
+	public Integer getRawResultCount() {
+
+		if (rawResultCount != null) {
+			return rawResultCount;
+		}
+
+		if (results != null) {
+			return results.size();
+		}
+
+		if (!consumed) {
+			return getResults().size();
+		}
+
+		// count is unknown until iteration has finished
+		return exhausted ? produced : null;
+	}
+
+	@Override
+	public void setRawResultCount(final Integer rawResultCount) {
+		this.rawResultCount = rawResultCount;
+	}
+
+	@Override
+	public String toString() {
+		return "StreamingResult(" + (results != null ? results.size() : produced) + ")";
+	}
+
+	// ----- private methods -----
+	private T peek() {
+
+		while (next == null && source.hasNext()) {
+
+			next = source.next();
+			if (next != null) {
+
+				produced++;
+			}
+		}
+
+		if (next == null) {
+			exhausted = true;
+		}
+
+		return next;
+	}
+}
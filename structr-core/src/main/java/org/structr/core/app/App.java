@@ -46,6 +46,7 @@ public interface App extends Closeable {
 	public Tx tx(final boolean doValidation);
 	public Tx tx(final boolean doValidation, final boolean doCallbacks);
 	public Tx tx(final boolean doValidation, final boolean doCallbacks, final boolean doNotifications);
+	public Tx readOnlyTx();
 
 	public <T extends NodeInterface> T create(final Class<T> type, final String name) throws FrameworkException;
 	public <T extends NodeInterface> T create(final Class<T> type, final PropertyMap properties) throws FrameworkException;
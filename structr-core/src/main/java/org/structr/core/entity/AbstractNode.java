@@ -26,7 +26,6 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -69,8 +68,10 @@ import org.structr.common.IdSorter;
 import org.structr.common.Permission;
 import org.structr.common.PermissionPropagation;
 import org.structr.common.PermissionResolutionMask;
+import org.structr.common.PrincipalClosureCache;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
+import org.structr.common.SecurityDelegate;
 import org.structr.common.ValidationHelper;
 import org.structr.common.View;
 import org.structr.common.error.ErrorBuffer;
@@ -87,6 +88,7 @@ import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.relationship.Ownership;
 import org.structr.core.entity.relationship.PrincipalOwnsNode;
 import org.structr.core.graph.ModificationQueue;
+import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeRelationshipStatisticsCommand;
 import org.structr.core.graph.NodeService;
@@ -801,15 +803,10 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			accessingUser = context.getUser(false);
 		}
 
-		return isGranted(permission, accessingUser, 0, new HashSet<>());
+		return isGranted(permission, accessingUser);
 	}
 
-	private boolean isGranted(final Permission permission, final Principal accessingUser, final int level, final Set<Long> alreadyTraversed) {
-
-		if (level > 100) {
-			logger.warn("Aborting recursive permission resolution because of recursion level > 100, this is quite likely an infinite loop.");
-			return false;
-		}
+	private boolean isGranted(final Permission permission, final Principal accessingUser) {
 
 		// use quick checks for maximum performance
 		if (isCreation && (accessingUser == null || accessingUser.equals(this) || accessingUser.equals(getOwnerNode()) ) ) {
@@ -822,7 +819,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		}
 
 		// allow accessingUser to access itself, but not parents etc.
-		if (this.equals(accessingUser) && (level == 0 || (permission.equals(Permission.read) && level > 0))) {
+		if (this.equals(accessingUser)) {
 			return true;
 		}
 
@@ -855,8 +852,23 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 				return true;
 			}
 
-			final Security security = getSecurityRelationship(accessingUser);
-			if (security != null && security.isAllowed(permission)) {
+			// all groups the user is a (transitive) member of
+			final PrincipalClosureCache.Closure groups = PrincipalClosureCache.get(accessingUser);
+
+			if (groups.hasAdminGroup()) {
+				return true;
+			}
+
+			// members can read their groups
+			if (groups.containsGroup(getId()) && (isCreation || permission.equals(Permission.read))) {
+				return true;
+			}
+
+			if (hasOwner && groups.containsGroup(_owner.getId())) {
+				return true;
+			}
+
+			if (hasSecurityGrant(accessingUser, groups, permission)) {
 				return true;
 			}
 
@@ -865,11 +877,18 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 				return true;
 			}
 
-			// Last: recursively check possible parent principals
-			for (Principal parent : accessingUser.getParents()) {
+			if (!SchemaRelationshipNode.getPropagatingRelationshipTypes().isEmpty()) {
+
+				final NodeFactory<Principal> nodeFactory = new NodeFactory<>(SecurityContext.getSuperUserInstance());
+				final DatabaseService db                 = StructrApp.getInstance().getDatabaseService();
+
+				for (final long groupId : groups.getGroupIds()) {
+
+					final Principal group = nodeFactory.instantiate(db.getNodeById(groupId));
+					if (group != null && hasEffectivePermissions(group, permission)) {
 
-				if (isGranted(permission, parent, level+1, alreadyTraversed)) {
-					return true;
+						return true;
+					}
 				}
 			}
 		}
@@ -877,6 +896,26 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		return false;
 	}
 
+	/**
+	 * Checks the SECURITY relationships of this node for a grant of the
+	 * given permission to the given user or one of its groups.
+	 */
+	private boolean hasSecurityGrant(final Principal accessingUser, final PrincipalClosureCache.Closure groups, final Permission permission) {
+
+		final long userId = accessingUser.getId();
+
+		for (final Relationship rel : getRelationshipForType(Security.class).getSource().getRawSource(SecurityContext.getSuperUserInstance(), dbNode, null)) {
+
+			final long principalId = rel.getStartNode().getId();
+
+			if ((principalId == userId || groups.containsGroup(principalId)) && SecurityDelegate.getPermissionSet(rel, Security.allowed).contains(permission.name())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	private boolean hasEffectivePermissions(final Principal principal, final Permission permission) {
 
 		final boolean doLog = securityContext.hasParameter("debugLoggingEnabled");
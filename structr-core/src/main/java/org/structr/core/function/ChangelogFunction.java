@@ -22,6 +22,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeMap;
@@ -31,6 +32,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChangeLogStore;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 
@@ -63,7 +65,7 @@ public class ChangelogFunction extends Function<Object, Object> {
 				return usage(ctx.isJavaScriptContext());
 			}
 
-			final String changelog = dataObject.getProperty(GraphObject.structrChangeLog);
+			final String changelog = getChangeLog(dataObject);
 			final List list = new ArrayList();
 
 			if (changelog != null) {
@@ -140,6 +142,40 @@ public class ChangelogFunction extends Function<Object, Object> {
 
 	}
 
+	// ----- private methods -----
+	/**
+	 * Returns the legacy change log stored in the object itself, followed
+	 * by the entries from the change log store.
+	 */
+	private String getChangeLog(final GraphObject dataObject) {
+
+		final StringBuilder buf = new StringBuilder();
+		final String legacy     = dataObject.getProperty(GraphObject.structrChangeLog);
+
+		if (legacy != null) {
+			buf.append(legacy);
+		}
+
+		try {
+
+			for (final String entry : ChangeLogStore.getInstance().getEntries(dataObject.getUuid(), 0L, Long.MAX_VALUE, false, Integer.MAX_VALUE, 1)) {
+				buf.append("\n").append(entry);
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to read change log of {}: {}", dataObject.getUuid(), ioex.getMessage());
+		}
+
+		final String changelog = buf.toString().trim();
+		if (changelog.isEmpty()) {
+
+			return null;
+		}
+
+		return changelog;
+	}
+
 	@Override
 	public String usage(boolean inJavaScriptContext) {
 		return (inJavaScriptContext ? ERROR_MESSAGE_CHANGLOG_JS : ERROR_MESSAGE_CHANGLOG);
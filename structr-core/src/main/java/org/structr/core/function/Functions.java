@@ -25,8 +25,10 @@ import java.text.Normalizer;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.Services;
 import org.structr.core.parser.ArrayExpression;
 import org.structr.core.parser.CacheExpression;
 import org.structr.core.parser.ConstantExpression;
@@ -50,14 +52,51 @@ import org.structr.schema.action.Function;
  */
 public class Functions {
 
-	public static final Map<String, Function<Object, Object>> functions = new LinkedHashMap<>();
+	public static final Map<String, Function<Object, Object>> functions = new FunctionMap();
 	public static final String NULL_STRING                              = "___NULL___";
 
+	private static volatile ConcurrentFixedSizeCache<String, Expression> expressionCache = null;
+
 	public static Function<Object, Object> get(final String name) {
 		return functions.get(name);
 	}
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String expression) throws FrameworkException {
+		return getExpression(expression).evaluate(actionContext, entity);
+	}
+
+	/**
+	 * Returns the parsed and sealed expression tree for the given
+	 * expression, from the expression cache if possible.
+	 *
+	 * @param expression
+	 * @return the expression tree
+	 * @throws FrameworkException
+	 */
+	public static Expression getExpression(final String expression) throws FrameworkException {
+
+		final ConcurrentFixedSizeCache<String, Expression> cache = getExpressionCache();
+
+		Expression root = cache.get(expression);
+		if (root == null) {
+
+			root = parse(expression);
+
+			cache.put(expression, root);
+		}
+
+		return root;
+	}
+
+	/**
+	 * Parses the given expression into a new, sealed expression tree
+	 * without using the expression cache.
+	 *
+	 * @param expression
+	 * @return the expression tree
+	 * @throws FrameworkException
+	 */
+	public static Expression parse(final String expression) throws FrameworkException {
 
 		final String expressionWithoutNewlines = expression.replace('\n', ' ');
 		final StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(expressionWithoutNewlines));
@@ -184,7 +223,9 @@ public class Functions {
 			throw new FrameworkException(422, "Invalid expression: mismatched closing bracket after " + lastToken);
 		}
 
-		return root.evaluate(actionContext, entity);
+		root.seal();
+
+		return root;
 	}
 
 	private static Expression checkReservedWords(final String word) throws FrameworkException {
@@ -404,4 +445,84 @@ public class Functions {
 
 		return result;
 	}
+
+	// ----- private methods -----
+	private static ConcurrentFixedSizeCache<String, Expression> getExpressionCache() {
+
+		if (expressionCache == null) {
+
+			synchronized (Functions.class) {
+
+				if (expressionCache == null) {
+
+					expressionCache = new ConcurrentFixedSizeCache<>(Services.getIntSettingIfCreated(Services.APPLICATION_EXPRESSION_CACHE_SIZE, 1000));
+				}
+			}
+		}
+
+		return expressionCache;
+	}
+
+	private static void clearExpressionCache() {
+
+		final ConcurrentFixedSizeCache<String, Expression> cache = expressionCache;
+		if (cache != null) {
+
+			cache.clear();
+		}
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Function map that clears the expression cache when it is modified.
+	 * Functions can be registered by modules after an expression was parsed,
+	 * so a cached expression could refer to a replaced function or shadow a
+	 * newly registered one.
+	 */
+	private static class FunctionMap extends LinkedHashMap<String, Function<Object, Object>> {
+
+		@Override
+		public Function<Object, Object> put(final String key, final Function<Object, Object> value) {
+
+			final Function<Object, Object> previous = super.put(key, value);
+
+			clearExpressionCache();
+
+			return previous;
+		}
+
+		@Override
+		public void putAll(final Map<? extends String, ? extends Function<Object, Object>> map) {
+
+			super.putAll(map);
+			clearExpressionCache();
+		}
+
+		@Override
+		public Function<Object, Object> putIfAbsent(final String key, final Function<Object, Object> value) {
+
+			final Function<Object, Object> previous = super.putIfAbsent(key, value);
+
+			clearExpressionCache();
+
+			return previous;
+		}
+
+		@Override
+		public Function<Object, Object> remove(final Object key) {
+
+			final Function<Object, Object> previous = super.remove(key);
+
+			clearExpressionCache();
+
+			return previous;
+		}
+
+		@Override
+		public void clear() {
+
+			super.clear();
+			clearExpressionCache();
+		}
+	}
 }
@@ -0,0 +1,756 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.BufferedInputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+
+/**
+ * Append-only store for the change log of graph objects.
+ *
+ * Change log entries are appended to segment files on disk by a background
+ * thread in batches. Each segment is accompanied by an index file that maps
+ * the UUID of an object to the commit timestamp, offset and length of each
+ * of its entries, so the history of a single object can be paged through
+ * without scanning the segments or storing the history in the object itself.
+ *
+ * The index files are not kept in memory. The pointers of an object are read
+ * from the index files when its history is requested, and only the pointers
+ * of the most recently requested objects are cached. When a segment is
+ * complete, its index is rewritten sorted by UUID, with a sparse index of
+ * every 128th UUID at the end, so that a lookup reads a single block of
+ * each completed segment instead of the whole index.
+ */
+public class ChangeLogStore {
+
+	private static final Logger logger                    = LoggerFactory.getLogger(ChangeLogStore.class.getName());
+	private static final String SEGMENT_SUFFIX            = ".log";
+	private static final String INDEX_SUFFIX              = ".idx";
+	private static final String SORTED_INDEX_SUFFIX       = ".sidx";
+	private static final int SORTED_INDEX_BLOCK_SIZE      = 128;
+	private static final int MAX_BATCH_SIZE               = 10000;
+	private static final int DEFAULT_CACHE_SIZE           = 1000;
+	private static ChangeLogStore instance                = null;
+
+	private final BlockingQueue<Record> queue             = new LinkedBlockingQueue<>();
+	private final Map<Integer, SortedIndex> sortedIndexes = new HashMap<>();
+	private final Object lock                             = new Object();
+	private Map<String, List<Pointer>> cache              = null;
+	private DataOutputStream indexStream                  = null;
+	private BufferedOutputStream segmentStream            = null;
+	private Thread writer                                 = null;
+	private File directory                                = null;
+	private long maxSegmentSize                           = 0L;
+	private long segmentPosition                          = 0L;
+	private long cacheHits                                = 0L;
+	private long cacheMisses                              = 0L;
+	private long written                                  = 0L;
+	private int segment                                   = 0;
+	private volatile boolean running                      = true;
+
+	public ChangeLogStore(final File directory, final long maxSegmentSize) throws IOException {
+		this(directory, maxSegmentSize, DEFAULT_CACHE_SIZE);
+	}
+
+	public ChangeLogStore(final File directory, final long maxSegmentSize, final int cacheSize) throws IOException {
+
+		this.directory      = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		this.cache          = new LinkedHashMap<String, List<Pointer>>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, List<Pointer>> eldest) {
+				return size() > cacheSize;
+			}
+		};
+
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Unable to create change log directory " + directory.getAbsolutePath());
+		}
+
+		// new entries always go into a new segment so that a partially
+		// written index record at the end of the last segment is harmless
+		while (getIndexFile(segment).exists()) {
+
+			loadSortedIndex(segment);
+			segment++;
+		}
+
+		writer = new Thread(this::run, "ChangeLogWriter");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public static synchronized ChangeLogStore getInstance() throws IOException {
+
+		if (instance == null) {
+
+			final String path = StructrApp.getConfigurationValue(Services.CHANGELOG_PATH, System.getProperty("user.dir").concat("/changelog"));
+			final int size    = Services.parseInt(StructrApp.getConfigurationValue(Services.CHANGELOG_SEGMENT_SIZE), 64);
+			final int objects = Services.parseInt(StructrApp.getConfigurationValue(Services.CHANGELOG_CACHE_SIZE), DEFAULT_CACHE_SIZE);
+
+			instance = new ChangeLogStore(new File(path), size * 1024L * 1024L, objects);
+		}
+
+		return instance;
+	}
+
+	public static synchronized void shutdownInstance() {
+
+		if (instance != null) {
+
+			instance.close();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Enqueues the given change log for asynchronous storage. The change log
+	 * is expected to contain one JSON object per line.
+	 *
+	 * @param uuid the UUID of the object the change log belongs to
+	 * @param changeLog the change log
+	 * @param timestamp the commit time of the change log
+	 */
+	public void append(final String uuid, final String changeLog, final long timestamp) {
+
+		if (uuid != null && StringUtils.isNotBlank(changeLog)) {
+
+			for (final String line : changeLog.split("\n")) {
+
+				if (StringUtils.isNotBlank(line)) {
+					queue.add(new Record(uuid, line, timestamp));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns one page of the change log entries of the object with the
+	 * given UUID whose timestamp lies within the given range. Entries that
+	 * are still pending are written before the query is executed.
+	 *
+	 * @param uuid the UUID
+	 * @param from the lower bound of the timestamp (inclusive)
+	 * @param to the upper bound of the timestamp (inclusive)
+	 * @param descending whether to return the newest entries first
+	 * @param pageSize the page size
+	 * @param page the page, starting with 1
+	 * @return a list of JSON strings
+	 */
+	public List<String> getEntries(final String uuid, final long from, final long to, final boolean descending, final int pageSize, final int page) throws IOException {
+
+		final List<String> entries = new ArrayList<>();
+
+		synchronized (lock) {
+
+			drain();
+
+			final List<Pointer> pointers = getRange(uuid, from, to);
+			final int size               = pointers.size();
+			final int offset             = (int)Math.min((long)Math.max(0, page - 1) * pageSize, size);
+			final int count              = Math.min(size - offset, pageSize);
+			final Map<Integer, RandomAccessFile> files = new HashMap<>();
+
+			try {
+
+				for (int i=0; i<count; i++) {
+
+					final Pointer pointer = pointers.get(descending ? size - 1 - offset - i : offset + i);
+					RandomAccessFile file = files.get(pointer.segment);
+
+					if (file == null) {
+
+						file = new RandomAccessFile(getSegmentFile(pointer.segment), "r");
+						files.put(pointer.segment, file);
+					}
+
+					final byte[] buf = new byte[pointer.length];
+
+					file.seek(pointer.offset);
+					file.readFully(buf);
+
+					entries.add(new String(buf, StandardCharsets.UTF_8));
+				}
+
+			} finally {
+
+				for (final RandomAccessFile file : files.values()) {
+					file.close();
+				}
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Returns the number of change log entries of the object with the given
+	 * UUID whose timestamp lies within the given range.
+	 *
+	 * @param uuid the UUID
+	 * @param from the lower bound of the timestamp (inclusive)
+	 * @param to the upper bound of the timestamp (inclusive)
+	 * @return the number of entries
+	 */
+	public int count(final String uuid, final long from, final long to) throws IOException {
+
+		synchronized (lock) {
+
+			drain();
+
+			return getRange(uuid, from, to).size();
+		}
+	}
+
+	/**
+	 * Writes all pending entries to disk.
+	 */
+	public void flush() throws IOException {
+
+		synchronized (lock) {
+			drain();
+		}
+	}
+
+	public void close() {
+
+		running = false;
+		writer.interrupt();
+
+		try {
+			writer.join(5000);
+
+		} catch (InterruptedException ignore) {}
+
+		synchronized (lock) {
+
+			try {
+				drain();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to write pending change log entries", ioex);
+			}
+
+			closeSegment();
+		}
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		synchronized (lock) {
+
+			statistics.put("cachedObjects", (long)cache.size());
+			statistics.put("cacheHits",     cacheHits);
+			statistics.put("cacheMisses",   cacheMisses);
+			statistics.put("written",       written);
+			statistics.put("segment",       (long)segment);
+		}
+
+		statistics.put("pending", (long)queue.size());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void run() {
+
+		while (running) {
+
+			try {
+
+				final Record first = queue.poll(1, TimeUnit.SECONDS);
+				if (first != null) {
+
+					synchronized (lock) {
+
+						write(Collections.singletonList(first));
+						drain();
+					}
+				}
+
+			} catch (InterruptedException iex) {
+
+				// shutdown, remaining entries are written in close()
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to write change log entries", t);
+			}
+		}
+	}
+
+	private void drain() throws IOException {
+
+		final List<Record> batch = new ArrayList<>();
+
+		while (queue.drainTo(batch, MAX_BATCH_SIZE) > 0) {
+
+			write(batch);
+			batch.clear();
+		}
+
+		if (segmentStream != null) {
+
+			segmentStream.flush();
+			indexStream.flush();
+		}
+	}
+
+	private void write(final List<Record> records) throws IOException {
+
+		for (final Record record : records) {
+
+			if (segmentStream == null) {
+
+				openSegment();
+
+			} else if (segmentPosition >= maxSegmentSize) {
+
+				closeSegment();
+				createSortedIndex(segment);
+				segment++;
+				openSegment();
+			}
+
+			final long timestamp = record.timestamp;
+			final byte[] prefix = (record.uuid + "\t" + timestamp + "\t").getBytes(StandardCharsets.UTF_8);
+			final byte[] data   = record.entry.getBytes(StandardCharsets.UTF_8);
+			final long offset   = segmentPosition + prefix.length;
+
+			segmentStream.write(prefix);
+			segmentStream.write(data);
+			segmentStream.write('\n');
+
+			segmentPosition = offset + data.length + 1;
+
+			indexStream.writeUTF(record.uuid);
+			indexStream.writeLong(timestamp);
+			indexStream.writeLong(offset);
+			indexStream.writeInt(data.length);
+
+			addPointer(record.uuid, new Pointer(segment, offset, data.length, timestamp));
+		}
+	}
+
+	private List<Pointer> getRange(final String uuid, final long from, final long to) throws IOException {
+
+		final List<Pointer> pointers = getPointers(uuid);
+		if (pointers.isEmpty()) {
+
+			return Collections.emptyList();
+		}
+
+		final int start = lowerBound(pointers, from);
+		final int end   = lowerBound(pointers, to == Long.MAX_VALUE ? to : to + 1);
+
+		return pointers.subList(start, Math.max(start, end));
+	}
+
+	private int lowerBound(final List<Pointer> pointers, final long timestamp) {
+
+		int low  = 0;
+		int high = pointers.size();
+
+		while (low < high) {
+
+			final int mid = (low + high) >>> 1;
+
+			if (pointers.get(mid).timestamp < timestamp) {
+
+				low = mid + 1;
+
+			} else {
+
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	private void addPointer(final String uuid, final Pointer pointer) {
+
+		// pointers of objects that are not cached are read from disk on demand
+		final List<Pointer> pointers = cache.get(uuid);
+		if (pointers != null) {
+
+			// concurrent commits may be written out of order
+			pointers.add(lowerBound(pointers, pointer.timestamp + 1), pointer);
+		}
+
+		written++;
+	}
+
+	/**
+	 * Returns the pointers of the given object, sorted by timestamp. Must
+	 * be called with the lock held after all pending entries are written.
+	 */
+	private List<Pointer> getPointers(final String uuid) throws IOException {
+
+		List<Pointer> pointers = cache.get(uuid);
+		if (pointers != null) {
+
+			cacheHits++;
+			return pointers;
+		}
+
+		cacheMisses++;
+		pointers = new ArrayList<>(4);
+
+		for (int i=0; i<=segment; i++) {
+
+			final SortedIndex sortedIndex = sortedIndexes.get(i);
+			if (sortedIndex != null) {
+
+				sortedIndex.read(getSortedIndexFile(i), i, uuid, pointers);
+				continue;
+			}
+
+			// the current segment and segments without sorted index are scanned
+			final File indexFile = getIndexFile(i);
+			if (!indexFile.exists()) {
+				continue;
+			}
+
+			final long segmentLength = getSegmentFile(i).length();
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 65536))) {
+
+				while (true) {
+
+					final String entryUuid = in.readUTF();
+					final long timestamp   = in.readLong();
+					final long offset      = in.readLong();
+					final int length       = in.readInt();
+
+					// ignore entries that were not completely written
+					if (uuid.equals(entryUuid) && offset + length < segmentLength) {
+
+						pointers.add(new Pointer(i, offset, length, timestamp));
+					}
+				}
+
+			} catch (EOFException eof) {
+				// end of index
+			}
+		}
+
+		// stable sort, entries with the same timestamp stay in log order
+		pointers.sort(Comparator.comparingLong(p -> p.timestamp));
+
+		cache.put(uuid, pointers);
+
+		return pointers;
+	}
+
+	/**
+	 * Loads the sparse index of the sorted index of the given completed
+	 * segment, and creates the sorted index if it doesn't exist yet.
+	 */
+	private void loadSortedIndex(final int number) {
+
+		final File file = getSortedIndexFile(number);
+		if (file.exists()) {
+
+			try (final RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+
+				raf.seek(raf.length() - 8);
+				raf.seek(raf.readLong());
+
+				final SortedIndex sortedIndex = new SortedIndex(raf.readInt());
+				final int blocks              = raf.readInt();
+
+				for (int i=0; i<blocks; i++) {
+
+					sortedIndex.uuids.add(raf.readUTF());
+					sortedIndex.offsets.add(raf.readLong());
+				}
+
+				sortedIndexes.put(number, sortedIndex);
+
+				return;
+
+			} catch (IOException ioex) {
+
+				logger.warn("Unable to read sorted change log index {}, recreating it: {}", file.getName(), ioex.getMessage());
+			}
+		}
+
+		createSortedIndex(number);
+	}
+
+	/**
+	 * Writes the index of the given completed segment sorted by UUID. If
+	 * that fails, the index of the segment is scanned on lookups.
+	 */
+	private void createSortedIndex(final int number) {
+
+		final List<IndexEntry> entries = new ArrayList<>();
+		final File indexFile           = getIndexFile(number);
+		final File file                = getSortedIndexFile(number);
+		final File tmp                 = new File(directory, file.getName() + ".tmp");
+		final long segmentLength       = getSegmentFile(number).length();
+
+		try {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 65536))) {
+
+				while (true) {
+
+					final String uuid    = in.readUTF();
+					final long timestamp = in.readLong();
+					final long offset    = in.readLong();
+					final int length     = in.readInt();
+
+					// ignore entries that were not completely written
+					if (offset + length < segmentLength) {
+						entries.add(new IndexEntry(uuid, new Pointer(number, offset, length, timestamp)));
+					}
+				}
+
+			} catch (EOFException eof) {
+				// end of index
+			}
+
+			// stable sort, entries of the same object stay in log order
+			entries.sort(Comparator.comparing(e -> e.uuid));
+
+			final SortedIndex sortedIndex = new SortedIndex(entries.size());
+
+			try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536))) {
+
+				for (int i=0; i<entries.size(); i++) {
+
+					final IndexEntry entry = entries.get(i);
+
+					if (i % SORTED_INDEX_BLOCK_SIZE == 0) {
+
+						sortedIndex.uuids.add(entry.uuid);
+						sortedIndex.offsets.add((long)out.size());
+					}
+
+					out.writeUTF(entry.uuid);
+					out.writeLong(entry.pointer.timestamp);
+					out.writeLong(entry.pointer.offset);
+					out.writeInt(entry.pointer.length);
+				}
+
+				// sparse index and its position at the end of the file
+				final long position = out.size();
+
+				out.writeInt(entries.size());
+				out.writeInt(sortedIndex.uuids.size());
+
+				for (int i=0; i<sortedIndex.uuids.size(); i++) {
+
+					out.writeUTF(sortedIndex.uuids.get(i));
+					out.writeLong(sortedIndex.offsets.get(i));
+				}
+
+				out.writeLong(position);
+			}
+
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			sortedIndexes.put(number, sortedIndex);
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to create sorted change log index {}: {}", file.getName(), ioex.getMessage());
+			tmp.delete();
+		}
+	}
+
+	private void openSegment() throws IOException {
+
+		final File segmentFile = getSegmentFile(segment);
+
+		segmentPosition = segmentFile.length();
+		segmentStream   = new BufferedOutputStream(new FileOutputStream(segmentFile, true), 65536);
+		indexStream     = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile(segment), true), 16384));
+	}
+
+	private void closeSegment() {
+
+		if (segmentStream == null) {
+			return;
+		}
+
+		try {
+
+			segmentStream.close();
+			indexStream.close();
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to close change log segment", ioex);
+		}
+
+		segmentStream = null;
+		indexStream   = null;
+	}
+
+	private File getSegmentFile(final int number) {
+		return new File(directory, String.format("segment-%06d%s", number, SEGMENT_SUFFIX));
+	}
+
+	private File getIndexFile(final int number) {
+		return new File(directory, String.format("segment-%06d%s", number, INDEX_SUFFIX));
+	}
+
+	private File getSortedIndexFile(final int number) {
+		return new File(directory, String.format("segment-%06d%s", number, SORTED_INDEX_SUFFIX));
+	}
+
+	// ----- nested classes -----
+	private static class Record {
+
+		private String uuid    = null;
+		private String entry   = null;
+		private long timestamp = 0L;
+
+		public Record(final String uuid, final String entry, final long timestamp) {
+
+			this.uuid      = uuid;
+			this.entry     = entry;
+			this.timestamp = timestamp;
+		}
+	}
+
+	private static class IndexEntry {
+
+		private String uuid     = null;
+		private Pointer pointer = null;
+
+		public IndexEntry(final String uuid, final Pointer pointer) {
+
+			this.uuid    = uuid;
+			this.pointer = pointer;
+		}
+	}
+
+	/**
+	 * Sparse index of a sorted index file, contains the first UUID and the
+	 * file offset of every block of entries.
+	 */
+	private static class SortedIndex {
+
+		private final List<String> uuids = new ArrayList<>();
+		private final List<Long> offsets = new ArrayList<>();
+		private int size                 = 0;
+
+		public SortedIndex(final int size) {
+			this.size = size;
+		}
+
+		public void read(final File file, final int number, final String uuid, final List<Pointer> pointers) throws IOException {
+
+			if (uuids.isEmpty() || uuid.compareTo(uuids.get(0)) < 0) {
+				return;
+			}
+
+			// entries of the object can start in the last block with a smaller first UUID
+			int low  = 0;
+			int high = uuids.size() - 1;
+
+			while (low < high) {
+
+				final int mid = (low + high + 1) >>> 1;
+
+				if (uuids.get(mid).compareTo(uuid) < 0) {
+
+					low = mid;
+
+				} else {
+
+					high = mid - 1;
+				}
+			}
+
+			try (final FileInputStream fis = new FileInputStream(file)) {
+
+				fis.getChannel().position(offsets.get(low));
+
+				final DataInputStream in = new DataInputStream(new BufferedInputStream(fis, 8192));
+				int remaining            = size - low * SORTED_INDEX_BLOCK_SIZE;
+
+				while (remaining-- > 0) {
+
+					final String entryUuid = in.readUTF();
+					final long timestamp   = in.readLong();
+					final long offset      = in.readLong();
+					final int length       = in.readInt();
+					final int result       = entryUuid.compareTo(uuid);
+
+					if (result > 0) {
+						break;
+					}
+
+					if (result == 0) {
+						pointers.add(new Pointer(number, offset, length, timestamp));
+					}
+				}
+			}
+		}
+	}
+
+	private static class Pointer {
+
+		private long timestamp = 0L;
+		private long offset    = 0L;
+		private int segment    = 0;
+		private int length     = 0;
+
+		public Pointer(final int segment, final long offset, final int length, final long timestamp) {
+
+			this.segment   = segment;
+			this.offset    = offset;
+			this.length    = length;
+			this.timestamp = timestamp;
+		}
+	}
+}
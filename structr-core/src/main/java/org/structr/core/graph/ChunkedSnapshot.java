@@ -0,0 +1,1017 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
+import org.structr.api.RetryException;
+import org.structr.api.graph.Node;
+import org.structr.api.graph.PropertyContainer;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.ErrorBuffer;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractSchemaNode;
+import org.structr.core.entity.SuperUser;
+import org.structr.schema.SchemaHelper;
+
+/**
+ * A database snapshot that is stored as a directory of independently
+ * compressed segments plus a manifest. Segments are compressed and
+ * restored in parallel, and the progress of an import is recorded in
+ * the snapshot directory so that an interrupted import can be resumed.
+ *
+ * Segment records use the value encoding of {@link SyncCommand}.
+ *
+ *
+ */
+public class ChunkedSnapshot {
+
+	private static final Logger logger                     = LoggerFactory.getLogger(ChunkedSnapshot.class.getName());
+	private static final AtomicReference<Progress> current = new AtomicReference<>();
+	private static final String MANIFEST_FILE_NAME         = "manifest.properties";
+	private static final String PROGRESS_FILE_NAME         = "import.progress";
+	private static final String FILES_SEGMENT_NAME         = "files.zip";
+	private static final String FORMAT_VERSION             = "1";
+	private static final String TYPE_FILES                 = "files";
+	private static final String TYPE_NODES                 = "nodes";
+	private static final String TYPE_RELATIONSHIPS         = "relationships";
+	private static final int BUFFER_SIZE                   = 65536;
+	private static final int NODE_ID_CACHE_SIZE            = 100000;
+
+	private final Properties importState = new Properties();
+	private final File directory;
+	private final int segmentSize;
+	private final int threads;
+
+	public ChunkedSnapshot(final File directory) {
+
+		this(
+			directory,
+			Services.parseInt(StructrApp.getConfigurationValue(Services.SNAPSHOT_SEGMENT_SIZE), 50000),
+			Services.parseInt(StructrApp.getConfigurationValue(Services.SNAPSHOT_THREADS), Runtime.getRuntime().availableProcessors())
+		);
+	}
+
+	public ChunkedSnapshot(final File directory, final int segmentSize, final int threads) {
+
+		this.directory   = directory;
+		this.segmentSize = Math.max(1, segmentSize);
+		this.threads     = Math.max(1, threads);
+	}
+
+	/**
+	 * Returns the progress of the currently running (or last) snapshot
+	 * export or import.
+	 *
+	 * @return a map with progress and throughput values
+	 */
+	public static Map<String, Object> getStatistics() {
+
+		final Progress progress = current.get();
+		if (progress != null) {
+
+			return progress.getStatistics();
+		}
+
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Exports the given nodes and relationships into this snapshot. Must be
+	 * called inside a transaction, the graph is read on the calling thread
+	 * while segments are compressed and written by the worker threads.
+	 *
+	 * @param nodes
+	 * @param relationships
+	 * @param includeFiles
+	 * @throws FrameworkException
+	 */
+	public void export(final Iterable<Node> nodes, final Iterable<Relationship> relationships, final boolean includeFiles) throws FrameworkException {
+
+		if (new File(directory, MANIFEST_FILE_NAME).exists()) {
+			throw new FrameworkException(422, "Directory " + directory + " already contains a snapshot.");
+		}
+
+		final ExecutorService executor      = createExecutor("SnapshotWriter");
+		final Semaphore pendingSegments     = new Semaphore(threads * 2);
+		final List<Future<Segment>> futures = new LinkedList<>();
+		final String uuidPropertyName       = GraphObject.id.dbName();
+		final Progress progress             = start("export");
+		int segmentIndex                    = 0;
+
+		try {
+
+			directory.mkdirs();
+
+			if (includeFiles) {
+
+				progress.segmentsTotal.incrementAndGet();
+				futures.add(executor.submit(() -> writeFiles(progress)));
+			}
+
+			SegmentBuffer buffer = new SegmentBuffer(TYPE_NODES, segmentIndex++);
+
+			for (final Node node : nodes) {
+
+				// ignore non-structr nodes
+				if (node.hasProperty(uuidPropertyName)) {
+
+					buffer.writeNode(node);
+
+					if (buffer.count >= segmentSize) {
+
+						futures.add(submit(executor, pendingSegments, buffer, progress));
+						buffer = new SegmentBuffer(TYPE_NODES, segmentIndex++);
+					}
+				}
+			}
+
+			if (buffer.count > 0) {
+				futures.add(submit(executor, pendingSegments, buffer, progress));
+			}
+
+			buffer = new SegmentBuffer(TYPE_RELATIONSHIPS, segmentIndex++);
+
+			for (final Relationship rel : relationships) {
+
+				// ignore non-structr relationships
+				if (rel.hasProperty(uuidPropertyName)) {
+
+					final Node startNode = rel.getStartNode();
+					final Node endNode   = rel.getEndNode();
+
+					if (startNode.hasProperty(uuidPropertyName) && endNode.hasProperty(uuidPropertyName)) {
+
+						buffer.writeRelationship(rel, (String)startNode.getProperty(uuidPropertyName), (String)endNode.getProperty(uuidPropertyName));
+
+						if (buffer.count >= segmentSize) {
+
+							futures.add(submit(executor, pendingSegments, buffer, progress));
+							buffer = new SegmentBuffer(TYPE_RELATIONSHIPS, segmentIndex++);
+						}
+					}
+				}
+			}
+
+			if (buffer.count > 0) {
+				futures.add(submit(executor, pendingSegments, buffer, progress));
+			}
+
+			final List<Segment> segments = new ArrayList<>();
+			for (final Future<Segment> future : futures) {
+
+				segments.add(future.get());
+			}
+
+			// the manifest is written last, a snapshot without manifest is incomplete
+			writeManifest(segments);
+
+			progress.finish("finished");
+
+		} catch (IOException | InterruptedException | ExecutionException ex) {
+
+			progress.finish("failed");
+			logger.warn("", ex);
+
+			throw new FrameworkException(500, "Unable to export snapshot to " + directory + ": " + getMessage(ex));
+
+		} finally {
+
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Imports this snapshot into the database. Node segments are imported
+	 * in parallel, followed by the relationship segments once all nodes
+	 * are committed. Each committed batch is recorded in a progress file
+	 * in the snapshot directory, so an interrupted import can be resumed.
+	 *
+	 * @param securityContext
+	 * @param doValidation
+	 * @param batchSize
+	 * @param resume
+	 * @throws FrameworkException
+	 */
+	public void restore(final SecurityContext securityContext, final boolean doValidation, final int batchSize, final boolean resume) throws FrameworkException {
+
+		final App app                          = StructrApp.getInstance();
+		final File progressFile                = new File(directory, PROGRESS_FILE_NAME);
+		final List<Segment> segments           = readManifest();
+		final List<Callable<Void>> firstPhase  = new LinkedList<>();
+		final List<Callable<Void>> secondPhase = new LinkedList<>();
+		final ImportContext context            = new ImportContext(app.getDatabaseService(), securityContext, doValidation, Math.max(1, batchSize), resume);
+		final Progress progress                = start("import");
+
+		progress.segmentsTotal.set(segments.size());
+
+		try {
+
+			if (resume && progressFile.exists()) {
+
+				try (final InputStream is = new FileInputStream(progressFile)) {
+					importState.load(is);
+				}
+
+				logger.info("Resuming import of snapshot {}", directory);
+
+			} else {
+
+				progressFile.delete();
+			}
+
+			for (final Segment segment : segments) {
+
+				final long committed = Long.valueOf(importState.getProperty(segment.name, "0"));
+
+				if (committed >= segment.records) {
+
+					progress.segmentDone(segment);
+					continue;
+				}
+
+				final Callable<Void> task = () -> {
+
+					importSegment(segment, committed, context, progress);
+					return null;
+				};
+
+				if (TYPE_RELATIONSHIPS.equals(segment.type)) {
+
+					secondPhase.add(task);
+
+				} else {
+
+					firstPhase.add(task);
+				}
+			}
+
+			final ExecutorService executor = createExecutor("SnapshotReader");
+			try {
+
+				// relationships can only be created when both end nodes are committed
+				runAll(executor, firstPhase);
+				runAll(executor, secondPhase);
+
+			} finally {
+
+				executor.shutdownNow();
+			}
+
+		} catch (IOException | InterruptedException | ExecutionException ex) {
+
+			progress.finish("failed");
+			logger.warn("", ex);
+
+			throw new FrameworkException(500, "Unable to import snapshot from " + directory + ", import can be resumed: " + getMessage(ex));
+		}
+
+		// build schema
+		try (final Tx tx = app.tx()) {
+
+			SchemaHelper.reloadSchema(new ErrorBuffer());
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.warn("", fex);
+		}
+
+		// set correct labels after schema has been compiled
+		app.command(BulkCreateLabelsCommand.class).execute(Collections.emptyMap());
+
+		progress.finish("finished");
+	}
+
+	// ----- private methods -----
+	private Progress start(final String mode) {
+
+		final Progress progress = new Progress(mode, directory.getPath());
+
+		current.set(progress);
+
+		return progress;
+	}
+
+	private ExecutorService createExecutor(final String name) {
+
+		final AtomicInteger count = new AtomicInteger();
+
+		return Executors.newFixedThreadPool(threads, r -> {
+
+			final Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	private Future<Segment> submit(final ExecutorService executor, final Semaphore pendingSegments, final SegmentBuffer buffer, final Progress progress) throws InterruptedException {
+
+		// limit the number of uncompressed segments held in memory
+		pendingSegments.acquire();
+		progress.segmentsTotal.incrementAndGet();
+
+		return executor.submit(() -> {
+
+			try {
+
+				return writeSegment(buffer, progress);
+
+			} finally {
+
+				pendingSegments.release();
+			}
+		});
+	}
+
+	private Segment writeSegment(final SegmentBuffer buffer, final Progress progress) throws IOException {
+
+		final String name = String.format("segment-%06d.%s.gz", buffer.index, buffer.type);
+		final File tmp    = new File(directory, name + ".tmp");
+		final File file   = new File(directory, name);
+
+		try (final OutputStream os = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE), BUFFER_SIZE)) {
+
+			buffer.data.writeTo(os);
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		final Segment segment = new Segment(name, buffer.type, buffer.count, file.length());
+
+		if (TYPE_NODES.equals(buffer.type)) {
+
+			progress.nodes.add(buffer.count);
+
+		} else {
+
+			progress.relationships.add(buffer.count);
+		}
+
+		progress.segmentDone(segment);
+
+		return segment;
+	}
+
+	private Segment writeFiles(final Progress progress) throws IOException {
+
+		final File tmp  = new File(directory, FILES_SEGMENT_NAME + ".tmp");
+		final File file = new File(directory, FILES_SEGMENT_NAME);
+
+		try (final ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), BUFFER_SIZE))) {
+
+			zos.setLevel(6);
+
+			SyncCommand.exportDirectory(zos, new File("files"), "", null);
+
+			zos.finish();
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		final Segment segment = new Segment(FILES_SEGMENT_NAME, TYPE_FILES, 1, file.length());
+
+		progress.segmentDone(segment);
+
+		return segment;
+	}
+
+	private void writeManifest(final List<Segment> segments) throws IOException {
+
+		final Properties manifest = new Properties();
+		final File tmp            = new File(directory, MANIFEST_FILE_NAME + ".tmp");
+		int index                 = 0;
+
+		manifest.setProperty("format",   FORMAT_VERSION);
+		manifest.setProperty("created",  Long.toString(System.currentTimeMillis()));
+		manifest.setProperty("segments", Integer.toString(segments.size()));
+
+		for (final Segment segment : segments) {
+
+			final String prefix = "segment." + index++ + ".";
+
+			manifest.setProperty(prefix + "name",    segment.name);
+			manifest.setProperty(prefix + "type",    segment.type);
+			manifest.setProperty(prefix + "records", Long.toString(segment.records));
+			manifest.setProperty(prefix + "size",    Long.toString(segment.size));
+		}
+
+		try (final OutputStream os = new FileOutputStream(tmp)) {
+
+			manifest.store(os, "Structr snapshot");
+		}
+
+		Files.move(tmp.toPath(), new File(directory, MANIFEST_FILE_NAME).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private List<Segment> readManifest() throws FrameworkException {
+
+		final File manifestFile   = new File(directory, MANIFEST_FILE_NAME);
+		final Properties manifest = new Properties();
+		final List<Segment> list  = new ArrayList<>();
+
+		if (!manifestFile.exists()) {
+			throw new FrameworkException(422, "No snapshot manifest found in " + directory + ", snapshot is missing or incomplete.");
+		}
+
+		try (final InputStream is = new FileInputStream(manifestFile)) {
+
+			manifest.load(is);
+
+			if (!FORMAT_VERSION.equals(manifest.getProperty("format"))) {
+				throw new FrameworkException(422, "Unsupported snapshot format " + manifest.getProperty("format"));
+			}
+
+			final int count = Integer.valueOf(manifest.getProperty("segments", "0"));
+			for (int i=0; i<count; i++) {
+
+				final String prefix = "segment." + i + ".";
+
+				list.add(new Segment(
+					manifest.getProperty(prefix + "name"),
+					manifest.getProperty(prefix + "type"),
+					Long.valueOf(manifest.getProperty(prefix + "records")),
+					Long.valueOf(manifest.getProperty(prefix + "size"))
+				));
+			}
+
+		} catch (IOException | NumberFormatException ex) {
+
+			throw new FrameworkException(422, "Unable to read snapshot manifest: " + ex.getMessage());
+		}
+
+		return list;
+	}
+
+	private void runAll(final ExecutorService executor, final List<Callable<Void>> tasks) throws InterruptedException, ExecutionException {
+
+		final List<Future<Void>> futures = new LinkedList<>();
+
+		for (final Callable<Void> task : tasks) {
+			futures.add(executor.submit(task));
+		}
+
+		for (final Future<Void> future : futures) {
+			future.get();
+		}
+	}
+
+	private void importSegment(final Segment segment, final long committed, final ImportContext context, final Progress progress) throws IOException, FrameworkException {
+
+		final File file = new File(directory, segment.name);
+
+		if (file.length() != segment.size) {
+			throw new IOException("Segment " + segment.name + " is missing or incomplete.");
+		}
+
+		if (TYPE_FILES.equals(segment.type)) {
+
+			try (final ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+
+				ZipEntry entry = zis.getNextEntry();
+				while (entry != null) {
+
+					SyncCommand.importDirectory(zis, entry);
+					entry = zis.getNextEntry();
+				}
+			}
+
+			commit(segment, 1);
+			progress.segmentDone(segment);
+
+			return;
+		}
+
+		final boolean isNodeSegment = TYPE_NODES.equals(segment.type);
+		final App app               = StructrApp.getInstance();
+
+		try (final DataInputStream dis = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE)))) {
+
+			// skip records that were committed in a previous run
+			for (long i=0; i<committed; i++) {
+				readRecord(dis);
+			}
+
+			// the batch after the last recorded one may have been committed already
+			boolean checkExisting = context.resume;
+			long position         = committed;
+
+			while (position < segment.records) {
+
+				final long count           = Math.min(context.batchSize, segment.records - position);
+				final List<Record> records = new ArrayList<>((int)count);
+				boolean retry              = true;
+				long created               = 0;
+
+				for (long i=0; i<count; i++) {
+					records.add(readRecord(dis));
+				}
+
+				// a retry replays the records of the current batch only
+				while (retry) {
+
+					try (final Tx tx = app.tx(context.doValidation)) {
+
+						final List<Node> nodes        = new LinkedList<>();
+						final List<Relationship> rels = new LinkedList<>();
+
+						if (isNodeSegment) {
+
+							nodes.addAll(importNodes(app, context, records, checkExisting));
+
+						} else {
+
+							rels.addAll(importRelationships(app, context, records, checkExisting));
+						}
+
+						created = nodes.size() + rels.size();
+
+						notifyCreated(context, nodes, rels);
+
+						tx.success();
+						retry = false;
+
+					} catch (RetryException ddex) {
+
+						logger.info("Retrying batch at record {} of segment {}: {}", new Object[] { position, segment.name, ddex.getMessage() });
+						retry = true;
+					}
+				}
+
+				position      += count;
+				checkExisting  = false;
+
+				commit(segment, position);
+
+				if (isNodeSegment) {
+
+					progress.nodes.add(created);
+
+				} else {
+
+					progress.relationships.add(created);
+				}
+			}
+		}
+
+		progress.segmentDone(segment);
+	}
+
+	private List<Node> importNodes(final App app, final ImportContext context, final List<Record> records, final boolean checkExisting) throws FrameworkException {
+
+		// nodes are created with one statement per type
+		final Map<String, List<Record>> recordsByType = new LinkedHashMap<>();
+		final List<Node> nodes                        = new LinkedList<>();
+
+		for (final Record record : records) {
+
+			final String uuid = (String)record.properties.get(GraphObject.id.dbName());
+
+			if (checkExisting && uuid != null) {
+
+				final NodeInterface existing = app.getNodeById(uuid);
+				if (existing != null) {
+
+					context.nodeIds.put(uuid, existing.getNode().getId());
+					continue;
+				}
+			}
+
+			final Object type = record.properties.get(NodeInterface.type.dbName());
+
+			recordsByType.computeIfAbsent(type instanceof String ? (String)type : "", k -> new LinkedList<>()).add(record);
+		}
+
+		for (final Map.Entry<String, List<Record>> entry : recordsByType.entrySet()) {
+
+			final String type                          = entry.getKey();
+			final Set<String> labels                   = type.isEmpty() ? Collections.emptySet() : Collections.singleton(type);
+			final List<Map<String, Object>> properties = new ArrayList<>(entry.getValue().size());
+
+			for (final Record record : entry.getValue()) {
+				properties.add(getProperties(record));
+			}
+
+			final List<Node> created        = context.graphDb.createNodes(labels, properties);
+			final Iterator<Record> iterator = entry.getValue().iterator();
+
+			for (final Node node : created) {
+
+				final String uuid = (String)iterator.next().properties.get(GraphObject.id.dbName());
+				if (uuid != null) {
+
+					context.nodeIds.put(uuid, node.getId());
+				}
+			}
+
+			nodes.addAll(created);
+		}
+
+		return nodes;
+	}
+
+	private List<Relationship> importRelationships(final App app, final ImportContext context, final List<Record> records, final boolean checkExisting) throws FrameworkException {
+
+		// relationships are created with one statement per type
+		final Map<String, RelationshipBatch> batches = new LinkedHashMap<>();
+		final List<Relationship> rels                = new LinkedList<>();
+
+		for (final Record record : records) {
+
+			final String uuid = (String)record.properties.get(GraphObject.id.dbName());
+
+			if (checkExisting && uuid != null && app.getRelationshipById(uuid) != null) {
+				continue;
+			}
+
+			final Node startNode = resolveNode(app, context, record.startId);
+			final Node endNode   = resolveNode(app, context, record.endId);
+
+			if (startNode != null && endNode != null) {
+
+				final RelationshipBatch batch = batches.computeIfAbsent(record.relType, k -> new RelationshipBatch());
+
+				batch.startNodes.add(startNode);
+				batch.endNodes.add(endNode);
+				batch.properties.add(getProperties(record));
+
+			} else {
+
+				logger.info("Not creating relationship of type {}, start: {}, end: {}", new Object[] { record.relType, record.startId, record.endId });
+			}
+		}
+
+		for (final Map.Entry<String, RelationshipBatch> entry : batches.entrySet()) {
+
+			final RelationshipBatch batch = entry.getValue();
+
+			rels.addAll(context.graphDb.createRelationships(batch.startNodes, batch.endNodes, RelationshipType.forName(entry.getKey()), batch.properties));
+		}
+
+		return rels;
+	}
+
+	private Node resolveNode(final App app, final ImportContext context, final String uuid) throws FrameworkException {
+
+		final Long id = context.nodeIds.get(uuid);
+		if (id != null) {
+
+			if (context.deletedNodes.contains(id)) {
+				return null;
+			}
+
+			return context.graphDb.getNodeById(id);
+		}
+
+		// node was imported by a previous run or existed before
+		final NodeInterface node = app.getNodeById(uuid);
+		if (node != null) {
+
+			return node.getNode();
+		}
+
+		return null;
+	}
+
+	private void notifyCreated(final ImportContext context, final List<Node> nodes, final List<Relationship> rels) throws FrameworkException {
+
+		final NodeFactory nodeFactory        = new NodeFactory(context.securityContext);
+		final RelationshipFactory relFactory = new RelationshipFactory(context.securityContext);
+		final SuperUser superUser            = new SuperUser();
+
+		for (final Node node : nodes) {
+
+			if (!context.deletedNodes.contains(node.getId())) {
+
+				final NodeInterface entity = nodeFactory.instantiate(node);
+
+				// check for existing schema node and merge
+				if (entity instanceof AbstractSchemaNode) {
+					SyncCommand.checkAndMerge(entity, context.deletedNodes, context.deletedRels);
+				}
+
+				if (!context.deletedNodes.contains(node.getId())) {
+
+					TransactionCommand.nodeCreated(superUser, entity);
+					entity.addToIndex();
+				}
+			}
+		}
+
+		for (final Relationship rel : rels) {
+
+			if (!context.deletedRels.contains(rel.getId())) {
+
+				final RelationshipInterface entity = relFactory.instantiate(rel);
+
+				TransactionCommand.relationshipCreated(superUser, entity);
+				entity.addToIndex();
+			}
+		}
+	}
+
+	private Map<String, Object> getProperties(final Record record) {
+
+		final Map<String, Object> properties = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, Object> entry : record.properties.entrySet()) {
+
+			final Object value = entry.getValue();
+			if (value != null) {
+
+				properties.put(entry.getKey(), value);
+			}
+		}
+
+		return properties;
+	}
+
+	private synchronized void commit(final Segment segment, final long position) throws IOException {
+
+		final File tmp = new File(directory, PROGRESS_FILE_NAME + ".tmp");
+
+		importState.setProperty(segment.name, Long.toString(position));
+
+		try (final OutputStream os = new FileOutputStream(tmp)) {
+
+			importState.store(os, "Structr snapshot import progress");
+		}
+
+		Files.move(tmp.toPath(), new File(directory, PROGRESS_FILE_NAME).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private Record readRecord(final DataInputStream dis) throws IOException {
+
+		final byte recordType = dis.readByte();
+		final Record record   = new Record();
+
+		if (recordType == 'R') {
+
+			record.startId = (String)SyncCommand.deserialize(dis);
+			record.endId   = (String)SyncCommand.deserialize(dis);
+			record.relType = (String)SyncCommand.deserialize(dis);
+
+		} else if (recordType != 'N') {
+
+			throw new IOException("Invalid record type " + recordType + " in snapshot segment.");
+		}
+
+		final int count = dis.readInt();
+		for (int i=0; i<count; i++) {
+
+			final String key   = (String)SyncCommand.deserialize(dis);
+			final Object value = SyncCommand.deserialize(dis);
+
+			record.properties.put(key, value);
+		}
+
+		return record;
+	}
+
+	private String getMessage(final Throwable t) {
+
+		if (t instanceof ExecutionException && t.getCause() != null) {
+			return t.getCause().getMessage();
+		}
+
+		return t.getMessage();
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Progress and throughput of a snapshot export or import.
+	 */
+	public static class Progress {
+
+		private final AtomicInteger segmentsTotal = new AtomicInteger();
+		private final AtomicInteger segmentsDone  = new AtomicInteger();
+		private final LongAdder relationships     = new LongAdder();
+		private final LongAdder nodes             = new LongAdder();
+		private final LongAdder bytes             = new LongAdder();
+		private final long startTime              = System.currentTimeMillis();
+		private volatile String status            = "running";
+		private volatile long endTime             = 0L;
+		private final String mode;
+		private final String path;
+
+		public Progress(final String mode, final String path) {
+
+			this.mode = mode;
+			this.path = path;
+		}
+
+		public Map<String, Object> getStatistics() {
+
+			final Map<String, Object> stats = new LinkedHashMap<>();
+			final long end                  = endTime > 0 ? endTime : System.currentTimeMillis();
+			final long elapsed              = Math.max(1L, end - startTime);
+			final long objects              = nodes.sum() + relationships.sum();
+
+			stats.put("mode",             mode);
+			stats.put("path",             path);
+			stats.put("status",           status);
+			stats.put("segments",         segmentsTotal.get());
+			stats.put("segmentsDone",     segmentsDone.get());
+			stats.put("nodes",            nodes.sum());
+			stats.put("relationships",    relationships.sum());
+			stats.put("bytes",            bytes.sum());
+			stats.put("elapsedMs",        elapsed);
+			stats.put("objectsPerSecond", objects * 1000L / elapsed);
+
+			return stats;
+		}
+
+		void segmentDone(final Segment segment) {
+
+			segmentsDone.incrementAndGet();
+			bytes.add(segment.size);
+
+			logger.info("Snapshot {}: {}/{} segments, {} nodes, {} relationships, {} objects/s", new Object[] {
+				mode, segmentsDone.get(), segmentsTotal.get(), nodes.sum(), relationships.sum(), getStatistics().get("objectsPerSecond")
+			});
+		}
+
+		void finish(final String status) {
+
+			this.endTime = System.currentTimeMillis();
+			this.status  = status;
+
+			logger.info("Snapshot {} {} in {} s: {}", new Object[] { mode, status, TimeUnit.MILLISECONDS.toSeconds(endTime - startTime), getStatistics() });
+		}
+	}
+
+	private static class Segment {
+
+		private final String name;
+		private final String type;
+		private final long records;
+		private final long size;
+
+		public Segment(final String name, final String type, final long records, final long size) {
+
+			this.name    = name;
+			this.type    = type;
+			this.records = records;
+			this.size    = size;
+		}
+	}
+
+	private static class SegmentBuffer {
+
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream(BUFFER_SIZE);
+		private final DataOutputStream dos       = new DataOutputStream(data);
+		private final String type;
+		private final int index;
+		private int count                        = 0;
+
+		public SegmentBuffer(final String type, final int index) {
+
+			this.type  = type;
+			this.index = index;
+		}
+
+		public void writeNode(final Node node) throws IOException {
+
+			dos.write('N');
+			writeProperties(node);
+
+			count++;
+		}
+
+		public void writeRelationship(final Relationship rel, final String startId, final String endId) throws IOException {
+
+			dos.write('R');
+			SyncCommand.serialize(dos, startId);
+			SyncCommand.serialize(dos, endId);
+			SyncCommand.serialize(dos, rel.getType().name());
+			writeProperties(rel);
+
+			count++;
+		}
+
+		private void writeProperties(final PropertyContainer container) throws IOException {
+
+			final Map<String, Object> properties = new LinkedHashMap<>();
+
+			for (final String key : container.getPropertyKeys()) {
+
+				final Object value = container.getProperty(key);
+				if (SyncCommand.isSerializable(value)) {
+
+					properties.put(key, value);
+
+				} else {
+
+					logger.warn("Unable to export property {} of type {}, type not supported", key, value.getClass());
+				}
+			}
+
+			dos.writeInt(properties.size());
+
+			for (final Map.Entry<String, Object> entry : properties.entrySet()) {
+
+				SyncCommand.serialize(dos, entry.getKey());
+				SyncCommand.serialize(dos, entry.getValue());
+			}
+		}
+	}
+
+	private static class Record {
+
+		private final Map<String, Object> properties = new LinkedHashMap<>();
+		private String startId                       = null;
+		private String endId                         = null;
+		private String relType                       = null;
+	}
+
+	private static class RelationshipBatch {
+
+		private final List<Map<String, Object>> properties = new ArrayList<>();
+		private final List<Node> startNodes                = new ArrayList<>();
+		private final List<Node> endNodes                  = new ArrayList<>();
+	}
+
+	private static class ImportContext {
+
+		// recently imported nodes, all others are looked up by UUID
+		private final ConcurrentFixedSizeCache<String, Long> nodeIds = new ConcurrentFixedSizeCache<>(NODE_ID_CACHE_SIZE);
+		private final Set<Long> deletedNodes                         = ConcurrentHashMap.newKeySet();
+		private final Set<Long> deletedRels                          = ConcurrentHashMap.newKeySet();
+		private final SecurityContext securityContext;
+		private final DatabaseService graphDb;
+		private final boolean doValidation;
+		private final boolean resume;
+		private final int batchSize;
+
+		public ImportContext(final DatabaseService graphDb, final SecurityContext securityContext, final boolean doValidation, final int batchSize, final boolean resume) {
+
+			this.securityContext = securityContext;
+			this.graphDb         = graphDb;
+			this.doValidation    = doValidation;
+			this.batchSize       = batchSize;
+			this.resume          = resume;
+		}
+	}
+}
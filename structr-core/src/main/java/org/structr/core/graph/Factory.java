@@ -18,16 +18,17 @@
  */
 package org.structr.core.graph;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.slf4j.Logger;
@@ -42,16 +43,20 @@ import org.structr.common.error.IdNotFoundToken;
 import org.structr.core.Adapter;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
+import org.structr.core.Services;
+import org.structr.core.StreamingResult;
 import org.structr.core.app.StructrApp;
 import org.structr.schema.SchemaHelper;
 
 public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>, Function<S, T> {
 
 	private static final Logger logger = LoggerFactory.getLogger(Factory.class.getName());
-	public static final ExecutorService service = Executors.newCachedThreadPool();
 	public static final int DEFAULT_PAGE_SIZE = Integer.MAX_VALUE;
 	public static final int DEFAULT_PAGE      = 1;
 
+	private static final int CHUNK_SIZE            = 1000;
+	private static final int MIN_PARALLEL_SIZE     = 100;
+
 	/**
 	 * This limit is the number of objects up to which the overall count
 	 * will be accurate.
@@ -93,17 +98,27 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 	/**
 	 * Create structr nodes from all given underlying database nodes
-	 * No paging, but security check
+	 * No paging, but security check. The nodes are instantiated lazily
+	 * while the result is consumed.
 	 *
 	 * @param input
 	 * @return result
 	 * @throws org.structr.common.error.FrameworkException
 	 */
 	public Result instantiateAll(final Iterable<S> input) throws FrameworkException {
+		return new StreamingResult<>(instantiateLazily(input), null, false);
+	}
 
-		List<T> objects = bulkInstantiate(input);
-
-		return new Result(objects, objects.size(), true, false);
+	/**
+	 * Create structr nodes from the given underlying database nodes while
+	 * the returned iterable is consumed. Nodes that are not readable in
+	 * the given security context are skipped. No paging.
+	 *
+	 * @param input
+	 * @return an iterable of nodes
+	 */
+	public Iterable<T> instantiateLazily(final Iterable<S> input) {
+		return Iterables.filter(n -> n != null, Iterables.map(this, input));
 	}
 
 	/**
@@ -146,17 +161,12 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	 */
 	public List<T> bulkInstantiate(final Iterable<S> input) throws FrameworkException {
 
-		List<T> nodes = new LinkedList<>();
-
-		if ((input != null) && input.iterator().hasNext()) {
+		final List<T> nodes = new ArrayList<>();
 
-			for (S node : input) {
-
-				T n = instantiate(node);
-				if (n != null) {
+		if (input != null) {
 
-					nodes.add(n);
-				}
+			for (final T n : instantiateLazily(input)) {
+				nodes.add(n);
 			}
 		}
 
@@ -337,95 +347,119 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	protected Result page(final Iterable<S> input, final int offset, final int pageSize) throws FrameworkException {
 
 		final SecurityContext securityContext = factoryProfile.getSecurityContext();
+		final boolean preventFullCount        = securityContext.ignoreResultCount();
+		final long limit                      = (long)offset + pageSize;
+		final Iterator<S> iterator            = input.iterator();
+		final List<T> output                  = new LinkedList<>();
+		int overallCount                      = 0;
+
+		// instantiate chunk by chunk so that neither the raw input nor
+		// the instantiated objects outside of the requested page need
+		// to be held in memory
+		while (iterator.hasNext()) {
+
+			// do not instantiate more nodes than needed if count is not required
+			final int chunkSize = preventFullCount ? (int)Math.min(CHUNK_SIZE, limit + 1 - overallCount) : CHUNK_SIZE;
+			final List<S> chunk = new ArrayList<>(chunkSize);
+
+			while (iterator.hasNext() && chunk.size() < chunkSize) {
+				chunk.add(iterator.next());
+			}
+
+			for (final T n : instantiateChunk(securityContext, chunk)) {
+
+				if (overallCount >= offset && overallCount < limit) {
+					output.add(n);
+				}
 
-		final AtomicBoolean keepRunning            = new AtomicBoolean(true);
-		final AtomicInteger overallCount           = new AtomicInteger();
-		final AtomicInteger processedItems         = new AtomicInteger();
-		final List<Item<T>> nodes                  = new LinkedList<>();
-		final List<Item<S>> failed                 = new LinkedList<>();
-		final boolean preventFullCount             = securityContext.ignoreResultCount();
-		final ConcurrentLinkedQueue<Item<S>> queue = new ConcurrentLinkedQueue<>();
-		final List<Future> futures                 = new LinkedList<>();
-		int threadCount                            = 1;
-		int rawCount                               = 0;
-
-		// fill queue with data and count elements
-		for (final S item : input) {
-			queue.add(new Item<>(rawCount++, item));
+				overallCount++;
+
+				// stop evaluation of new nodes if count is not required
+				if (preventFullCount && overallCount > limit) {
+
+					// The overall count may be inaccurate
+					return new Result(output, overallCount, true, false);
+				}
+			}
 		}
 
-		//if (rawCount < 100) {
+		return new Result(output, overallCount, true, false);
+	}
 
-			// do not use multithreading
-			final InstantiationWorker worker = new InstantiationWorker(securityContext, queue, failed, nodes, offset, pageSize, preventFullCount);
-			worker.setProcessedItems(processedItems);
-			worker.setOverallCount(overallCount);
-			worker.setKeepRunning(keepRunning);
+	// ----- private methods -----
+	private T instantiateOrNull(final S item) {
 
-			worker.doRun();
+		try {
+			return instantiate(item);
 
-		/*
-		} else {
+		} catch (NotFoundException nfe) {
+			logger.debug("Unable to instantiate {}: {}", item, nfe.getMessage());
+		}
+
+		return null;
+	}
 
+	private List<T> instantiateChunk(final SecurityContext securityContext, final List<S> chunk) {
 
-			final double tt0 = System.nanoTime();
-			threadCount     = 8;
+		final int size      = chunk.size();
+		final List<T> nodes = new ArrayList<>(size);
 
-			// submit workers, use multithreading
-			for (int i=0; i<threadCount; i++) {
+		if (size >= MIN_PARALLEL_SIZE && InstantiationPool.THREADS > 1) {
 
-				final InstantiationWorker worker = new InstantiationWorker(securityContext, queue, failed, nodes, offset, pageSize, preventFullCount);
-				worker.setProcessedItems(processedItems);
-				worker.setOverallCount(overallCount);
-				worker.setKeepRunning(keepRunning);
+			final Object[] instantiated           = new Object[size];
+			final boolean[] failed                = new boolean[size];
+			final int partitionSize               = (size + InstantiationPool.THREADS - 1) / InstantiationPool.THREADS;
+			final List<InstantiationWorker> tasks = new LinkedList<>();
+			final List<Future> futures            = new LinkedList<>();
 
-				// first worker logs
-				worker.pleaseLog(i == 0);
+			for (int from = 0; from < size; from += partitionSize) {
 
-				futures.add(service.submit(worker));
+				final InstantiationWorker worker = new InstantiationWorker(securityContext, chunk, instantiated, failed, from, Math.min(size, from + partitionSize));
+
+				tasks.add(worker);
+				futures.add(InstantiationPool.SERVICE.submit(worker));
 			}
 
 			// wait for result..
+			final Iterator<InstantiationWorker> taskIterator = tasks.iterator();
 			for (final Future future : futures) {
 
+				final InstantiationWorker worker = taskIterator.next();
+
 				try {
 
 					future.get();
 
-				} catch (InterruptedException | ExecutionException iex) {
+				} catch (InterruptedException | ExecutionException ex) {
 
-					if (!iex.getMessage().contains("org.neo4j.kernel.api.exceptions.EntityNotFoundException")) {
-						logger.warn("", iex);
-					}
+					logger.warn("Parallel instantiation failed, falling back to sequential instantiation: {}", ex.getMessage());
+					worker.markFailed();
 				}
 			}
 
-			final double tt1 = System.nanoTime();
-			if (tt1-tt0 > 1000000000) {
-				logger.info("Instantiated {} out of {} elements in {} s using {} threads.", new Object[] { nodes.size(), rawCount, (tt1-tt0) / 1000000000.0, threadCount } );
+			for (int i=0; i<size; i++) {
+
+				// manually instantiate entities which couldn't be found due to tx isolation
+				final T n = failed[i] ? instantiateOrNull(chunk.get(i)) : (T)instantiated[i];
+				if (n != null) {
+
+					nodes.add(n);
+				}
 			}
-		}
-		*/
 
-		// manually instantiate entities which couldn't be found due to tx isolation
-		failed.stream().forEach((item) -> {
-			nodes.add(new Item<>(item.index, (T) instantiate((S) item.item)));
-		});
+		} else {
 
-		// keep initial sort order
-		Collections.sort(nodes);
+			for (final S item : chunk) {
 
-		final int size = nodes.size();
-		final int from = Math.min(offset, size);
-		final int to   = Math.min(offset+pageSize, size);
-		final List<T> output = new LinkedList<>();
+				final T n = instantiateOrNull(item);
+				if (n != null) {
 
-		nodes.subList(from, to).stream().forEach((item) -> {
-			output.add(item.item);
-		});
+					nodes.add(n);
+				}
+			}
+		}
 
-		// The overall count may be inaccurate
-		return new Result(output, overallCount.get(), true, false);
+		return nodes;
 	}
 
 	//~--- inner classes --------------------------------------------------
@@ -433,27 +467,20 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	private class InstantiationWorker implements Runnable {
 
 		private final SecurityContext securityContext;
-		private final Queue<Item<S>> source;
-		private final List<Item<T>> nodes;
-		private final List<Item<S>> failed;
-
-		private AtomicInteger processedItems = null;
-		private AtomicInteger overallCount   = null;
-		private AtomicBoolean keepRunning    = null;
-		private boolean dontCheckCount       = false;
-		private boolean doLogOutput          = false;
-		private int pageSize                 = 0;
-		private int offset                   = 0;
+		private final List<S> source;
+		private final Object[] nodes;
+		private final boolean[] failed;
+		private final int from;
+		private final int to;
 
-		public InstantiationWorker(final SecurityContext securityContext, final Queue<Item<S>> source, final List<Item<S>> failed, final List<Item<T>> nodes, final int offset, final int pageSize, final boolean dontCheckCount) {
+		public InstantiationWorker(final SecurityContext securityContext, final List<S> source, final Object[] nodes, final boolean[] failed, final int from, final int to) {
 
 			this.securityContext = securityContext;
-			this.offset          = offset;
 			this.source          = source;
-			this.dontCheckCount  = dontCheckCount;
-			this.pageSize        = pageSize;
 			this.nodes           = nodes;
 			this.failed          = failed;
+			this.from            = from;
+			this.to              = to;
 		}
 
 		@Override
@@ -461,97 +488,65 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 			try (final Tx tx = StructrApp.getInstance(securityContext).tx()) {
 
-				// transaction is only needed if we are running multiple threads
-				doRun();
-
-				tx.success();
-
-			} catch (FrameworkException fex) {
-				logger.warn("", fex);
-			}
-		}
-
-		private void doRun() {
-
-			final long t0 = System.currentTimeMillis();
-			long t1       = t0;
-			Item<S> item;
-
-			do {
-
-				item = source.poll();
-				if (item != null) {
-
-					processedItems.incrementAndGet();
-
-					T n = null;
+				for (int i=from; i<to; i++) {
 
 					try {
-						n = instantiate(item.item);
+						nodes[i] = instantiate(source.get(i));
 
 					} catch (NotFoundException nfe) {
 
-						synchronized(failed) {
-							failed.add(item);
-						}
-					}
-
-					if (n != null) {
-
-						overallCount.incrementAndGet();
-
-						// synchronize access to the target list
-						synchronized (nodes) {
-							nodes.add(new Item<>(item.index, n));
-						}
-
-						// stop evaluation of new nodes if count is not required
-						if (dontCheckCount && overallCount.get() > offset + pageSize) {
-							keepRunning.set(false);
-						}
+						failed[i] = true;
 					}
 				}
 
-				// log output if desired
-				if (doLogOutput && System.currentTimeMillis() - t1 > 2000) {
-
-					t1 = System.currentTimeMillis();
-					logger.info("Parallel instantiation: checked {} nodes so far", processedItems.get());
-				}
+				tx.success();
 
-			} while (item != null && keepRunning.get());
-		}
+			} catch (FrameworkException fex) {
 
-		public void setKeepRunning(final AtomicBoolean keepRunning) {
-			this.keepRunning = keepRunning;
+				logger.warn("", fex);
+				markFailed();
+			}
 		}
 
-		public void setProcessedItems(AtomicInteger processedItems) {
-			this.processedItems = processedItems;
-		}
+		public void markFailed() {
 
-		public void setOverallCount(final AtomicInteger overallCount) {
-			this.overallCount = overallCount;
-		}
+			for (int i=from; i<to; i++) {
 
-		public void pleaseLog(final boolean doLogOutput) {
-			this.doLogOutput = doLogOutput;
+				nodes[i]  = null;
+				failed[i] = true;
+			}
 		}
 	}
 
-	private class Item<X> implements Comparable<Item<X>> {
+	/**
+	 * Holder for the instantiation thread pool, so that the configuration
+	 * is read on first use and not when the Factory class is loaded, which
+	 * can happen before the configuration is loaded.
+	 */
+	private static class InstantiationPool {
+
+		/**
+		 * The number of threads used to instantiate large results. Parallel
+		 * instantiation uses separate transactions, i.e. it does not see
+		 * uncommitted changes of the calling transaction except for the fact
+		 * that newly created nodes are instantiated by the calling thread, so
+		 * it is disabled by default.
+		 */
+		private static final int THREADS             = Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(Services.APPLICATION_INSTANTIATION_THREADS), 1));
+		private static final ExecutorService SERVICE = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(THREADS * 4), new InstantiationThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
 
-		public int index = 0;
-		public X item    = null;
+	private static class InstantiationThreadFactory implements ThreadFactory {
 
-		public Item(final int index, final X item) {
-			this.index = index;
-			this.item  = item;
-		}
+		private final AtomicInteger count = new AtomicInteger();
 
 		@Override
-		public int compareTo(final Item<X> o) {
-			return Integer.valueOf(index).compareTo(o.index);
+		public Thread newThread(final Runnable r) {
+
+			final Thread thread = new Thread(r, "FactoryInstantiation-" + count.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
 		}
 	}
 
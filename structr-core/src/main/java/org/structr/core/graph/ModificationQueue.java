@@ -41,6 +41,7 @@ import org.structr.core.GraphObject;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Principal;
+import org.structr.core.entity.relationship.Groups;
 import org.structr.core.property.PropertyKey;
 
 /**
@@ -58,6 +59,7 @@ public class ModificationQueue {
 	private final Map<String, TransactionPostProcess> postProcesses                         = new LinkedHashMap<>();
 	private final Set<String> alreadyPropagated                                             = new LinkedHashSet<>();
 	private final Set<String> synchronizationKeys                                           = new TreeSet<>();
+	private boolean principalsModified                                                      = false;
 
 	/**
 	 * Returns a set containing the different entity types of
@@ -153,26 +155,21 @@ public class ModificationQueue {
 
 		if (auditLogEnabled && !modificationEvents.isEmpty()) {
 
-			for (final ModificationEvent ev: modificationEvents) {
+			// entries are written asynchronously, so use the commit time
+			final long timestamp = System.currentTimeMillis();
 
-				if (!ev.isDeleted()) {
+			try {
+				final ChangeLogStore store = ChangeLogStore.getInstance();
 
-					try {
-						final GraphObject obj = ev.getGraphObject();
-						if (obj != null) {
+				for (final ModificationEvent ev: modificationEvents) {
 
-							final String existingLog = obj.getProperty(GraphObject.structrChangeLog);
-							final String newLog      = ev.getChangeLog();
-							final String newValue    = existingLog != null ? existingLog + newLog : newLog;
-
-							obj.unlockSystemPropertiesOnce();
-							obj.setProperty(GraphObject.structrChangeLog, newValue);
-						}
-
-					} catch (Throwable t) {
-						logger.warn("", t);
-					}
+					// the change log store is independent of the object, so
+					// the history of deleted objects can be recorded as well
+					store.append(ev.getUuid(), ev.getChangeLog(), timestamp);
 				}
+
+			} catch (Throwable t) {
+				logger.warn("", t);
 			}
 		}
 	}
@@ -204,6 +201,10 @@ public class ModificationQueue {
 
 		getState(relationship).create();
 
+		if (relationship instanceof Groups) {
+			principalsModified = true;
+		}
+
 		final NodeInterface sourceNode = relationship.getSourceNodeAsSuperUser();
 		final NodeInterface targetNode = relationship.getTargetNodeAsSuperUser();
 
@@ -231,6 +232,10 @@ public class ModificationQueue {
 	public void modify(final Principal user, final NodeInterface node, final PropertyKey key, final Object previousValue, final Object newValue) {
 		getState(node).modify(user, key, previousValue, newValue);
 
+		if (node instanceof Principal && Principal.isAdmin.equals(key)) {
+			principalsModified = true;
+		}
+
 		if (key != null&& key.requiresSynchronization()) {
 			synchronizationKeys.add(key.getSynchronizationKey());
 		}
@@ -263,6 +268,10 @@ public class ModificationQueue {
 
 		getState(node).delete(false);
 
+		if (node instanceof Principal) {
+			principalsModified = true;
+		}
+
 		if (auditLogEnabled) {
 
 			// record deletion of objects in audit log of the delting user, if enabled
@@ -282,6 +291,10 @@ public class ModificationQueue {
 
 		getState(relationship).delete(passive);
 
+		if (relationship instanceof Groups) {
+			principalsModified = true;
+		}
+
 		final NodeInterface sourceNode = relationship.getSourceNodeAsSuperUser();
 		final NodeInterface targetNode = relationship.getTargetNodeAsSuperUser();
 
@@ -292,10 +305,24 @@ public class ModificationQueue {
 
 	}
 
+	/**
+	 * Indicates whether group memberships, the admin flag of a principal
+	 * or principals themselves were modified or deleted in this queue.
+	 *
+	 * @return whether principals were modified
+	 */
+	public boolean hasModifiedPrincipals() {
+		return principalsModified;
+	}
+
 	public Collection<ModificationEvent> getModificationEvents() {
 		return modificationEvents;
 	}
 
+	public boolean isEmpty() {
+		return modifications.isEmpty() && modificationEvents.isEmpty();
+	}
+
 	public void postProcess(final String key, final TransactionPostProcess process) {
 
 		if (!postProcesses.containsKey(key)) {
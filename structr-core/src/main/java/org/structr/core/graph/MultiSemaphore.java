@@ -18,65 +18,160 @@
  */
 package org.structr.core.graph;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * A set of named binary semaphores that can be acquired together.
  *
+ * Semaphores are always acquired in the natural order of their keys so
+ * that two threads requesting overlapping key sets can never deadlock,
+ * and no global monitor is held while waiting, i.e. transactions with
+ * disjoint key sets never block each other.
  */
 public class MultiSemaphore {
 
-	private static final Logger logger = LoggerFactory.getLogger(MultiSemaphore.class.getName());
-
 	private final Map<String, Semaphore> semaphoreMap = new ConcurrentHashMap<>();
+	private final Map<String, WaitStatistics> waitMap = new ConcurrentHashMap<>();
+
+	/**
+	 * Acquires the semaphores for the given keys in ascending key order.
+	 * If the calling thread is interrupted while waiting, all semaphores
+	 * acquired so far are released before the exception is propagated.
+	 *
+	 * @param types the keys to acquire
+	 * @return the set of keys that was actually acquired and must be passed to {@link #release}
+	 * @throws InterruptedException
+	 */
+	public Set<String> acquire(final Set<String> types) throws InterruptedException {
+
+		if (types == null || types.isEmpty()) {
+			return Collections.emptySet();
+		}
 
-	public synchronized void acquire(final Set<String> types) throws InterruptedException {
+		final Set<String> sortedTypes = new TreeSet<>();
+		final List<String> acquired   = new ArrayList<>(types.size());
 
-		if (types != null && !types.isEmpty()) {
+		for (final String type : types) {
+
+			if (type != null) {
+				sortedTypes.add(type);
+			}
+		}
+
+		try {
+
+			for (final String type : sortedTypes) {
+
+				final Semaphore semaphore = getSemaphore(type);
+				final WaitStatistics stats = getWaitStatistics(type);
+
+				if (semaphore.tryAcquire()) {
 
-			for (Semaphore semaphore : getSemaphores(types)) {
-				semaphore.acquire();
+					stats.record(0L);
+
+				} else {
+
+					final long t0 = System.nanoTime();
+
+					semaphore.acquire();
+
+					stats.record(System.nanoTime() - t0);
+				}
+
+				acquired.add(type);
 			}
+
+		} catch (InterruptedException iex) {
+
+			release(new LinkedHashSet<>(acquired));
+			throw iex;
 		}
+
+		return sortedTypes;
 	}
 
 	public void release(final Set<String> types) {
 
 		if (types != null && !types.isEmpty()) {
 
-			for (Semaphore semaphore : getSemaphores(types)) {
-				semaphore.release();
+			for (final String type : types) {
+
+				if (type != null) {
+
+					final Semaphore semaphore = semaphoreMap.get(type);
+					if (semaphore != null) {
+
+						semaphore.release();
+					}
+				}
 			}
 		}
 	}
 
-	private Set<Semaphore> getSemaphores(final Set<String> types) {
+	/**
+	 * Returns the number of acquisitions, the number of acquisitions that had
+	 * to wait, and the total and maximum wait time in milliseconds for every
+	 * key that has been acquired so far.
+	 *
+	 * @return a sorted map of lock wait statistics
+	 */
+	public Map<String, Long> getStatistics() {
 
-		Set<Semaphore> semaphores = new LinkedHashSet<>();
+		final Map<String, Long> statistics = new TreeMap<>();
 
-		if (types != null) {
+		for (final Map.Entry<String, WaitStatistics> entry : waitMap.entrySet()) {
 
-			for (String type : types) {
+			final String key           = entry.getKey();
+			final WaitStatistics stats = entry.getValue();
 
-				if (type != null) {
+			statistics.put(key + ".acquired",  stats.acquired.sum());
+			statistics.put(key + ".contended", stats.contended.sum());
+			statistics.put(key + ".waitTime",  TimeUnit.NANOSECONDS.toMillis(stats.waitTime.sum()));
+			statistics.put(key + ".maxWait",   TimeUnit.NANOSECONDS.toMillis(stats.maxWait.get()));
+		}
 
-					Semaphore semaphore = semaphoreMap.get(type);
-					if (semaphore == null) {
+		return statistics;
+	}
 
-						semaphore = new Semaphore(1, true);
-						semaphoreMap.put(type, semaphore);
-					}
+	// ----- private methods -----
+	private Semaphore getSemaphore(final String type) {
+		return semaphoreMap.computeIfAbsent(type, k -> new Semaphore(1, true));
+	}
 
-					semaphores.add(semaphore);
-				}
+	private WaitStatistics getWaitStatistics(final String type) {
+		return waitMap.computeIfAbsent(type, k -> new WaitStatistics());
+	}
+
+	// ----- nested classes -----
+	private static class WaitStatistics {
+
+		private final LongAdder acquired  = new LongAdder();
+		private final LongAdder contended = new LongAdder();
+		private final LongAdder waitTime  = new LongAdder();
+		private final AtomicLong maxWait  = new AtomicLong();
+
+		void record(final long nanos) {
+
+			acquired.increment();
+
+			if (nanos > 0L) {
+
+				contended.increment();
+				waitTime.add(nanos);
+				maxWait.accumulateAndGet(nanos, Math::max);
 			}
 		}
-
-		return semaphores;
 	}
 }
@@ -122,6 +122,7 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 		String validate         = (String)attributes.get("validate");
 		String query            = (String)attributes.get("query");
 		Long batchSize          = (Long)attributes.get("batchSize");
+		boolean resume          = Boolean.valueOf(String.valueOf(attributes.get("resume")));
 		boolean doValidation    = true;
 
 		// should we validate imported nodes?
@@ -154,9 +155,17 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 
 			importFromFile(graphDb, securityContext, fileName, doValidation, batchSize);
 
+		} else if ("exportChunked".equals(mode)) {
+
+			exportToDirectory(graphDb, fileName, query, true);
+
+		} else if ("importChunked".equals(mode)) {
+
+			importFromDirectory(securityContext, fileName, doValidation, batchSize, resume);
+
 		} else {
 
-			throw new FrameworkException(400, "Please specify sync mode (import|export).");
+			throw new FrameworkException(400, "Please specify sync mode (import|export|importChunked|exportChunked).");
 		}
 	}
 
@@ -228,6 +237,65 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 
 	}
 
+	/**
+	 * Exports the whole structr database to a chunked snapshot in the
+	 * directory with the given name, see {@link ChunkedSnapshot}.
+	 *
+	 * @param graphDb
+	 * @param path
+	 * @param query
+	 * @param includeFiles
+	 * @throws FrameworkException
+	 */
+	public static void exportToDirectory(final DatabaseService graphDb, final String path, final String query, final boolean includeFiles) throws FrameworkException {
+
+		final ChunkedSnapshot snapshot = new ChunkedSnapshot(new File(path));
+
+		try (final Tx tx = StructrApp.getInstance().tx()) {
+
+			if (query != null) {
+
+				logger.info("Using Cypher query {} to determine export set, disabling export of files", query);
+
+				final List<Node> nodes        = new LinkedList<>();
+				final List<Relationship> rels = new LinkedList<>();
+
+				for (final GraphObject obj : StructrApp.getInstance().cypher(query, null)) {
+
+					if (obj.isNode()) {
+						nodes.add(obj.getSyncNode().getNode());
+					} else {
+						rels.add(obj.getSyncRelationship().getRelationship());
+					}
+				}
+
+				snapshot.export(nodes, rels, false);
+
+			} else {
+
+				snapshot.export(graphDb.getAllNodes(), graphDb.getAllRelationships(), includeFiles);
+			}
+
+			tx.success();
+		}
+	}
+
+	/**
+	 * Imports a chunked snapshot from the directory with the given name,
+	 * see {@link ChunkedSnapshot}.
+	 *
+	 * @param securityContext
+	 * @param path
+	 * @param doValidation
+	 * @param batchSize
+	 * @param resume
+	 * @throws FrameworkException
+	 */
+	public static void importFromDirectory(final SecurityContext securityContext, final String path, final boolean doValidation, final Long batchSize, final boolean resume) throws FrameworkException {
+
+		new ChunkedSnapshot(new File(path)).restore(securityContext, doValidation, batchSize != null ? batchSize.intValue() : 200, resume);
+	}
+
 	/**
 	 * Exports the given part of the structr database to a file with the given name.
 	 *
@@ -412,6 +480,10 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 		outputStream.flush();
 	}
 
+	public static boolean isSerializable(final Object obj) {
+		return obj == null || typeMap.containsKey(obj.getClass());
+	}
+
 	public static byte[] deserializeData(final DataInputStream inputStream) throws IOException {
 
 		final int len       = inputStream.readInt();
@@ -460,7 +532,7 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 		return serializedObject;
 	}
 
-	private static void exportDirectory(ZipOutputStream zos, File dir, String path, Set<String> filesToInclude) throws IOException {
+	static void exportDirectory(ZipOutputStream zos, File dir, String path, Set<String> filesToInclude) throws IOException {
 
 		final String nestedPath = path + dir.getName() + "/";
 		final ZipEntry dirEntry = new ZipEntry(nestedPath);
@@ -593,7 +665,7 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 		logger.info("Exported {} nodes and {} rels", new Object[] { nodeCount, relCount } );
 	}
 
-	private static void importDirectory(ZipInputStream zis, ZipEntry entry) throws IOException {
+	static void importDirectory(ZipInputStream zis, ZipEntry entry) throws IOException {
 
 		if (entry.isDirectory()) {
 
@@ -946,7 +1018,7 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 		}
 	}
 
-	private static boolean checkAndMerge(final NodeInterface node, final Set<Long> deletedNodes, final Set<Long> deletedRels) throws FrameworkException {
+	static boolean checkAndMerge(final NodeInterface node, final Set<Long> deletedNodes, final Set<Long> deletedRels) throws FrameworkException {
 
 		final Class type                        = node.getClass();
 		final String name                       = node.getName();
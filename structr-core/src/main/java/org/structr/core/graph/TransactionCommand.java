@@ -21,6 +21,7 @@ package org.structr.core.graph;
 
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +29,7 @@ import org.structr.api.DatabaseService;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.common.PrincipalClosureCache;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.StructrTransactionListener;
@@ -62,9 +64,21 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 	private static final ThreadLocal<ErrorBuffer> buffers               = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionCommand> currentCommand = new ThreadLocal<>();
 	private static final ThreadLocal<TransactionReference> transactions = new ThreadLocal<>();
+	private static final ThreadLocal<Set<String>> lockedKeys            = new ThreadLocal<>();
 	private static final MultiSemaphore                    semaphore    = new MultiSemaphore();
 
 	public TransactionCommand beginTx() {
+		return beginTx(false);
+	}
+
+	/**
+	 * Begins a new transaction or joins the transaction of the current
+	 * thread. A read-only flag is only considered for new transactions.
+	 *
+	 * @param readOnly
+	 * @return this command
+	 */
+	public TransactionCommand beginTx(final boolean readOnly) {
 
 		final DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
 		TransactionReference tx       = transactions.get();
@@ -72,7 +86,7 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		if (tx == null) {
 
 			// start new transaction
-			tx = new TransactionReference(graphDb.beginTx());
+			tx = new TransactionReference(readOnly ? graphDb.beginReadOnlyTx() : graphDb.beginTx());
 
 			queues.set(new ModificationQueue());
 			buffers.set(new ErrorBuffer());
@@ -112,7 +126,7 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 			// we need to protect the validation and indexing part of every transaction
 			// from being entered multiple times in the presence of validators
 			// 3. acquire semaphores for each modified type
-			try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
+			try { lockedKeys.set(semaphore.acquire(synchronizationKeys)); } catch (InterruptedException iex) { return; }
 
 			// do validation under the protection of the semaphores for each type
 			if (doValidation && !modificationQueue.doValidation(securityContext, errorBuffer, doValidation)) {
@@ -150,13 +164,16 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 				modificationQueue = queues.get();
 
-				final Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
+				// release exactly the keys that were acquired in commitTx, the
+				// queue may have collected more keys during post-processing
+				final Set<String> synchronizationKeys = lockedKeys.get();
 
 				// cleanup
 				queues.remove();
 				buffers.remove();
 				currentCommand.remove();
 				transactions.remove();
+				lockedKeys.remove();
 
 				try {
 					tx.close();
@@ -165,6 +182,11 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 					// release semaphores as the transaction is now finished
 					semaphore.release(synchronizationKeys);	// careful: this can be null
+
+					// membership closures may have been cached from the old state
+					if (modificationQueue != null && modificationQueue.hasModifiedPrincipals()) {
+						PrincipalClosureCache.invalidate();
+					}
 				}
 
 			} else {
@@ -359,6 +381,16 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		}
 	}
 
+	/**
+	 * Returns the wait statistics of the commit locks that protect the
+	 * validation of unique properties.
+	 *
+	 * @return a map of lock wait statistics, keyed by synchronization key
+	 */
+	public static Map<String, Long> getCommitLockStatistics() {
+		return semaphore.getStatistics();
+	}
+
 	public static void registerTransactionListener(final StructrTransactionListener listener) {
 		listeners.add(listener);
 	}
@@ -389,6 +421,22 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		return false;
 	}
 
+	/**
+	 * Indicates whether the current transaction has modified group
+	 * memberships or the admin flag of a principal.
+	 *
+	 * @return whether principals were modified in this transaction
+	 */
+	public static boolean principalsModified() {
+
+		final ModificationQueue queue = queues.get();
+		if (queue != null) {
+			return queue.hasModifiedPrincipals();
+		}
+
+		return false;
+	}
+
 	public static boolean isDeleted(final Relationship rel) {
 
 		if (!inTransaction()) {
@@ -39,6 +39,7 @@ public class Tx implements AutoCloseable {
 	private boolean doValidation            = true;
 	private boolean doCallbacks             = true;
 	private boolean doNotifications         = true;
+	private boolean readOnly                = false;
 	private TransactionCommand cmd          = null;
 	private StructrApp app                  = null;
 
@@ -61,11 +62,24 @@ public class Tx implements AutoCloseable {
 
 	public Tx begin() {
 
-		cmd = app.command(TransactionCommand.class).beginTx();
+		cmd = app.command(TransactionCommand.class).beginTx(readOnly);
 
 		return this;
 	}
 
+	/**
+	 * Begins a transaction that is expected to only read data, see
+	 * {@link org.structr.api.DatabaseService#beginReadOnlyTx()}.
+	 *
+	 * @return this transaction
+	 */
+	public Tx beginReadOnly() {
+
+		readOnly = true;
+
+		return begin();
+	}
+
 	public void success() throws FrameworkException {
 		cmd.commitTx(doValidation);
 		success = true;
@@ -76,6 +90,14 @@ public class Tx implements AutoCloseable {
 
 		final ModificationQueue modificationQueue = cmd.finishTx();
 
+		// a read-only transaction without modifications needs no second transaction for callbacks
+		if (readOnly && (modificationQueue == null || modificationQueue.isEmpty())) {
+			return;
+		}
+
+		// callbacks may write, so they run in a regular transaction
+		readOnly = false;
+
 		if (success && guard.compareAndSet(false, true)) {
 
 			boolean retry  = true;
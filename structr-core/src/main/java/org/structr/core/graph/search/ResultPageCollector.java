@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.structr.common.GraphObjectComparator;
+import org.structr.core.GraphObject;
+
+/**
+ * Collects a single page of a result that is filtered in memory, without
+ * keeping the whole result. If a comparator is given, the first page *
+ * pageSize elements are kept in a bounded heap, otherwise only the
+ * elements of the requested page are kept. The order of elements that
+ * compare equal is the order in which they were added, like in a stable
+ * sort of the whole result.
+ *
+ *
+ */
+class ResultPageCollector {
+
+	private final List<GraphObject> elements = new ArrayList<>();
+	private GraphObjectComparator comparator = null;
+	private PriorityQueue<Ranked> heap       = null;
+	private int offset                       = 0;
+	private int limit                        = 0;
+	private int count                        = 0;
+
+	public ResultPageCollector(final GraphObjectComparator comparator, final int pageSize, final int page) {
+
+		this.comparator = comparator;
+		this.offset     = (page - 1) * pageSize;
+		this.limit      = offset + pageSize;
+
+		if (comparator != null) {
+
+			// largest element first, so it can be replaced
+			this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, Collections.reverseOrder(new RankedComparator()));
+		}
+	}
+
+	/**
+	 * Checks whether a page can be collected without the whole result,
+	 * which is the case for positive page numbers without an offset id.
+	 *
+	 * @param pageSize
+	 * @param page
+	 * @param offsetId
+	 * @return whether a collector can be used
+	 */
+	public static boolean canCollect(final int pageSize, final int page, final String offsetId) {
+		return offsetId == null && page >= 1 && pageSize > 0 && (long)page * pageSize < Integer.MAX_VALUE;
+	}
+
+	public void add(final GraphObject obj) {
+
+		final int index = count++;
+
+		if (heap != null) {
+
+			final Ranked ranked = new Ranked(obj, obj.getComparableProperty(comparator.getSortKey()), index);
+
+			if (heap.size() < limit) {
+
+				heap.add(ranked);
+
+			} else if (heap.comparator().compare(ranked, heap.peek()) > 0) {
+
+				// ranked is smaller than the largest element of the heap
+				heap.poll();
+				heap.add(ranked);
+			}
+
+		} else if (index >= offset && index < limit) {
+
+			elements.add(obj);
+		}
+	}
+
+	/**
+	 * @return whether further elements can be ignored because they will not be part of the page
+	 */
+	public boolean isPageComplete() {
+		return heap == null && count >= limit;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public List<GraphObject> getPage() {
+
+		if (heap != null) {
+
+			final List<Ranked> sorted = new ArrayList<>(heap);
+			final List<GraphObject> page = new ArrayList<>();
+
+			Collections.sort(sorted, new RankedComparator());
+
+			for (int i=offset; i<sorted.size(); i++) {
+				page.add(sorted.get(i).obj);
+			}
+
+			return page;
+		}
+
+		return elements;
+	}
+
+	// ----- nested classes -----
+	private static class Ranked {
+
+		private GraphObject obj  = null;
+		private Comparable value = null;
+		private int index        = 0;
+
+		public Ranked(final GraphObject obj, final Comparable value, final int index) {
+
+			this.obj   = obj;
+			this.value = value;
+			this.index = index;
+		}
+	}
+
+	private class RankedComparator implements Comparator<Ranked> {
+
+		@Override
+		public int compare(final Ranked r1, final Ranked r2) {
+
+			int result = 0;
+
+			try {
+				result = comparator.compareValues(r1.value, r2.value);
+
+			} catch (Throwable t) {
+
+				// incomparable values are treated as equal, like in GraphObjectComparator
+			}
+
+			return result != 0 ? result : Integer.compare(r1.index, r2.index);
+		}
+	}
+}
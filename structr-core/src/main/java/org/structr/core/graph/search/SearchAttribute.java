@@ -42,6 +42,8 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
 	private Occurrence occur           = null;
 	private PropertyKey sortKey        = null;
 	private boolean sortDescending     = false;
+	private int pageSize               = Integer.MAX_VALUE;
+	private int page                   = 1;
 
 	public abstract boolean includeInResult(GraphObject entity);
 
@@ -89,6 +91,12 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
 		this.sortDescending = sortDescending;
 	}
 
+	public void setPaging(final int pageSize, final int page) {
+
+		this.pageSize = pageSize;
+		this.page     = page;
+	}
+
 	// ----- interface Predicate<GraphObject> -----
 	@Override
 	public boolean accept(final GraphObject obj) {
@@ -142,4 +150,14 @@ public abstract class SearchAttribute<T> extends NodeAttribute<T> implements Pre
 	public boolean sortDescending() {
 		return sortDescending;
 	}
+
+	@Override
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	@Override
+	public int getPage() {
+		return page;
+	}
 }
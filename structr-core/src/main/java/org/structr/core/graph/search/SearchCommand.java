@@ -19,6 +19,8 @@
 package org.structr.core.graph.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -200,17 +202,38 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				rootGroup.sortDescending(sortDescending);
 			}
 
-			// do query
-			final Iterable hits = getIndex().query(rootGroup);
-			intermediateResult  = factory.instantiate(hits);
+			if (canPushDownPaging(hasEmptySearchFields || hasGraphSources || hasSpatialSource)) {
+
+				// let the database do the paging, the factory only needs
+				// to instantiate the requested page
+				rootGroup.setPaging(pageSize, page);
+
+				final Factory<S, T> pageFactory = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, 1, null);
+				final Iterable hits             = getIndex().query(rootGroup);
+
+				intermediateResult = pageFactory.instantiate(hits);
+
+				if (securityContext.ignoreResultCount()) {
+
+					intermediateResult.setRawResultCount((page - 1) * pageSize + intermediateResult.size());
+
+				} else {
+
+					intermediateResult.setRawResultCount((int)getIndex().count(rootGroup));
+				}
+
+			} else {
+
+				// do query
+				final Iterable hits = getIndex().query(rootGroup);
+				intermediateResult  = factory.instantiate(hits);
+			}
 		}
 
 		if (intermediateResult != null && (hasEmptySearchFields || hasGraphSources || hasSpatialSource)) {
 
-			// sorted result set
-			final Set<GraphObject> intermediateResultSet = new LinkedHashSet<>(intermediateResult.getResults());
-			final List<GraphObject> finalResult          = new ArrayList<>();
-			int resultCount                              = 0;
+			final List<SearchAttribute> filters = getFilterAttributes();
+			final List<GraphObject> candidates;
 
 			// We need to find out whether there was a source for any of the possible sets that we want to merge.
 			// If there was only a single source, the final result is the result of that source. If there are
@@ -219,43 +242,66 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			if (hasGraphSources) {
 
 				// merge sources according to their occur flag
-				final Set<GraphObject> mergedSources = mergeSources(sources);
+				final long[] mergedIds = mergeSources(sources);
 
 				if (hasSpatialSource) {
 
 					// CHM 2014-02-24: preserve sorting of intermediate result, might be sorted by distance which we cannot reproduce easily
-					intermediateResultSet.retainAll(mergedSources);
+					candidates = retainIds(intermediateResult.getResults(), mergedIds);
 
 				} else {
 
-					intermediateResultSet.addAll(mergedSources);
+					candidates = getMergedResult(sources, mergedIds);
 				}
+
+			} else {
+
+				candidates = intermediateResult.getResults();
 			}
 
-			// Filter intermediate result
-			for (final GraphObject obj : intermediateResultSet) {
+			final GraphObjectComparator comparator = sortKey != null ? new GraphObjectComparator(sortKey, sortDescending) : null;
+
+			if (ResultPageCollector.canCollect(pageSize, page, offsetId)) {
+
+				// keep only the requested page, using a bounded heap if the result is sorted
+				final ResultPageCollector collector = new ResultPageCollector(comparator, pageSize, page);
+				final boolean stopEarly             = securityContext.ignoreResultCount();
+
+				for (final GraphObject obj : candidates) {
 
-				boolean addToResult = true;
+					if (includeInResult(filters, obj)) {
 
-				// check all attributes before adding a node
-				for (SearchAttribute attr : rootGroup.getSearchAttributes()) {
+						collector.add(obj);
 
-					// check all search attributes
-					addToResult &= attr.includeInResult(obj);
+						if (stopEarly && collector.isPageComplete()) {
+							break;
+						}
+					}
 				}
 
-				if (addToResult) {
+				return new Result(collector.getPage(), collector.getCount(), true, false);
+
+			} else {
+
+				final List<GraphObject> finalResult = new ArrayList<>();
 
-					finalResult.add(obj);
-					resultCount++;
+				for (final GraphObject obj : candidates) {
+
+					if (includeInResult(filters, obj)) {
+
+						finalResult.add(obj);
+					}
 				}
-			}
 
-			// sort list
-			Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
+				if (comparator != null) {
 
-			// return paged final result
-			return new Result(PagingHelper.subList(finalResult, pageSize, page, offsetId), resultCount, true, false);
+					// sort list
+					Collections.sort(finalResult, comparator);
+				}
+
+				// return paged final result
+				return new Result(PagingHelper.subList(finalResult, pageSize, page, offsetId), finalResult.size(), true, false);
+			}
 
 		} else {
 
@@ -264,43 +310,299 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		}
 	}
 
-	private Set<GraphObject> mergeSources(List<SourceSearchAttribute> sources) {
+	/**
+	 * Returns the search attributes that need to be checked for each
+	 * object of an in-memory filtered result, cheap checks first.
+	 * Source attributes are omitted since they have been evaluated in
+	 * mergeSources() already.
+	 *
+	 * @return the filter attributes
+	 */
+	private List<SearchAttribute> getFilterAttributes() {
+
+		final List<SearchAttribute> filters = new ArrayList<>();
+
+		for (final SearchAttribute attr : rootGroup.getSearchAttributes()) {
+
+			if (!(attr instanceof SourceSearchAttribute)) {
+
+				filters.add(attr);
+			}
+		}
+
+		// stable sort, attributes with equal cost are checked in their original order
+		Collections.sort(filters, (a1, a2) -> Integer.compare(getFilterCost(a1), getFilterCost(a2)));
+
+		return filters;
+	}
+
+	private int getFilterCost(final SearchAttribute attr) {
+
+		if (attr instanceof DistanceSearchAttribute) {
+			return 3;
+		}
+
+		if (attr instanceof SearchAttributeGroup) {
+			return 2;
+		}
+
+		if (attr instanceof RangeSearchAttribute || attr instanceof ArraySearchAttribute) {
+			return 1;
+		}
+
+		return 0;
+	}
+
+	private boolean includeInResult(final List<SearchAttribute> filters, final GraphObject obj) {
+
+		for (final SearchAttribute attr : filters) {
+
+			if (!attr.includeInResult(obj)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Paging can only be done by the database if the query result is not
+	 * filtered afterwards, i.e. if there are no graph or spatial sources,
+	 * no in-memory checks for empty fields and no access control checks
+	 * in the factory, and if the query does not need to be split into a
+	 * UNION of multiple type queries.
+	 *
+	 * @param needsFiltering whether the result is filtered in memory
+	 * @return whether paging can be done by the database
+	 */
+	private boolean canPushDownPaging(final boolean needsFiltering) {
+
+		if (needsFiltering || offsetId != null || page < 1 || pageSize == Integer.MAX_VALUE) {
+			return false;
+		}
+
+		// node factories filter by permissions, relationship factories don't
+		if (!isRelationshipSearch() && (publicOnly || !securityContext.isSuperUser())) {
+			return false;
+		}
+
+		return countTypeAttributes(rootGroup) <= 1;
+	}
+
+	private int countTypeAttributes(final SearchAttributeGroup group) {
 
-		final Set<GraphObject> mergedResult = new LinkedHashSet<>();
-		boolean alreadyAdded                = false;
+		int count = 0;
 
-		for (final Iterator<SourceSearchAttribute> it = sources.iterator(); it.hasNext();) {
+		for (final SearchAttribute attr : group.getSearchAttributes()) {
 
-			SourceSearchAttribute attr = it.next();
+			if (attr instanceof TypeSearchAttribute) {
 
-			if (!alreadyAdded) {
+				count++;
 
-				mergedResult.addAll(attr.getResult());
-				alreadyAdded = true;
+			} else if (attr instanceof SearchAttributeGroup) {
+
+				count += countTypeAttributes((SearchAttributeGroup)attr);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Merges the results of the given sources according to their occur
+	 * flag, using sorted arrays of node IDs.
+	 *
+	 * @param sources
+	 * @return the sorted IDs of the merged result
+	 */
+	private long[] mergeSources(final List<SourceSearchAttribute> sources) {
+
+		long[] mergedIds = null;
+
+		for (final SourceSearchAttribute attr : sources) {
+
+			final long[] ids = getSortedIds(attr.getResult());
+
+			if (mergedIds == null) {
+
+				mergedIds = ids;
 
 			} else {
 
 				switch (attr.getOccurrence()) {
 
 					case REQUIRED:
-
-						mergedResult.retainAll(attr.getResult());
+						mergedIds = intersect(mergedIds, ids);
 						break;
 
 					case OPTIONAL:
-
-						mergedResult.addAll(attr.getResult());
+						mergedIds = union(mergedIds, ids);
 						break;
 
 					case FORBIDDEN:
-						mergedResult.removeAll(attr.getResult());
+						mergedIds = subtract(mergedIds, ids);
 						break;
 				}
 			}
 		}
 
+		return mergedIds != null ? mergedIds : new long[0];
+	}
+
+	/**
+	 * Returns the objects of the merged result in the order in which they
+	 * appear in the sources.
+	 */
+	private List<GraphObject> getMergedResult(final List<SourceSearchAttribute> sources, final long[] mergedIds) {
+
+		final List<GraphObject> result = new ArrayList<>(mergedIds.length);
+		final BitSet added             = new BitSet(mergedIds.length);
+		boolean first                  = true;
+
+		for (final SourceSearchAttribute attr : sources) {
+
+			// only the first source and optional sources can contribute objects
+			if (first || Occurrence.OPTIONAL.equals(attr.getOccurrence())) {
+
+				final Set<GraphObject> objects = attr.getResult();
+
+				for (final GraphObject obj : objects) {
+
+					final int index = Arrays.binarySearch(mergedIds, obj.getId());
+					if (index >= 0 && !added.get(index)) {
+
+						added.set(index);
+						result.add(obj);
+					}
+				}
+			}
+
+			first = false;
+		}
+
+		return result;
+	}
+
+	private List<GraphObject> retainIds(final List<GraphObject> source, final long[] ids) {
+
+		final List<GraphObject> result = new ArrayList<>();
+		final BitSet added             = new BitSet(ids.length);
+
+		for (final GraphObject obj : source) {
+
+			final int index = Arrays.binarySearch(ids, obj.getId());
+			if (index >= 0 && !added.get(index)) {
+
+				added.set(index);
+				result.add(obj);
+			}
+		}
+
+		return result;
+	}
+
+	private long[] getSortedIds(final Set<GraphObject> objects) {
+
+		final long[] ids = new long[objects.size()];
+		int count        = 0;
+
+		for (final GraphObject obj : objects) {
+			ids[count++] = obj.getId();
+		}
+
+		Arrays.sort(ids);
+
+		return distinct(ids, count);
+	}
+
+	private long[] distinct(final long[] sorted, final int length) {
+
+		int count = 0;
+
+		for (int i=0; i<length; i++) {
+
+			if (count == 0 || sorted[count-1] != sorted[i]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+
+		return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+	}
+
+	static long[] intersect(final long[] a, final long[] b) {
+
+		final long[] result = new long[Math.min(a.length, b.length)];
+		int count           = 0;
+		int i               = 0;
+		int j               = 0;
+
+		while (i < a.length && j < b.length) {
+
+			if (a[i] < b[j]) {
+
+				i++;
+
+			} else if (a[i] > b[j]) {
+
+				j++;
+
+			} else {
+
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	static long[] union(final long[] a, final long[] b) {
+
+		final long[] result = new long[a.length + b.length];
+		int count           = 0;
+		int i               = 0;
+		int j               = 0;
+
+		while (i < a.length || j < b.length) {
+
+			if (j >= b.length || (i < a.length && a[i] < b[j])) {
+
+				result[count++] = a[i++];
+
+			} else if (i >= a.length || a[i] > b[j]) {
+
+				result[count++] = b[j++];
+
+			} else {
+
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	static long[] subtract(final long[] a, final long[] b) {
+
+		final long[] result = new long[a.length];
+		int count           = 0;
+		int j               = 0;
+
+		for (int i=0; i<a.length; i++) {
+
+			while (j < b.length && b[j] < a[i]) {
+				j++;
+			}
+
+			if (j >= b.length || b[j] != a[i]) {
+				result[count++] = a[i];
+			}
+		}
 
-		return mergedResult;
+		return Arrays.copyOf(result, count);
 	}
 
 	@Override
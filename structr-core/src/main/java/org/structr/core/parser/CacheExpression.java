@@ -67,6 +67,24 @@ public class CacheExpression extends Expression {
 		expression.level  = this.level + 1;
 	}
 
+	@Override
+	public void seal() {
+
+		super.seal();
+
+		if (keyExpression != null) {
+			keyExpression.seal();
+		}
+
+		if (timeoutExpression != null) {
+			timeoutExpression.seal();
+		}
+
+		if (valueExpression != null) {
+			valueExpression.seal();
+		}
+	}
+
 	@Override
 	public Object evaluate(final ActionContext ctx, final GraphObject entity) throws FrameworkException {
 
@@ -75,6 +75,20 @@ public class EachExpression extends Expression {
 		expression.level  = this.level + 1;
 	}
 
+	@Override
+	public void seal() {
+
+		super.seal();
+
+		if (listExpression != null) {
+			listExpression.seal();
+		}
+
+		if (eachExpression != null) {
+			eachExpression.seal();
+		}
+	}
+
 	@Override
 	public Object evaluate(final ActionContext ctx, final GraphObject entity) throws FrameworkException {
 
@@ -18,6 +18,8 @@
  */
 package org.structr.core.parser;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import org.structr.common.error.FrameworkException;
@@ -80,6 +82,19 @@ public abstract class Expression {
 		return !expressions.isEmpty();
 	}
 
+	/**
+	 * Makes this expression and all of its children read-only, so that
+	 * a parsed expression tree can be cached and evaluated concurrently.
+	 */
+	public void seal() {
+
+		for (final Expression expression : expressions) {
+			expression.seal();
+		}
+
+		this.expressions = Collections.unmodifiableList(new ArrayList<>(expressions));
+	}
+
 	public abstract Object evaluate(final ActionContext ctx, final GraphObject entity) throws FrameworkException;
 	public abstract Object transform(final ActionContext ctx, final GraphObject entity, final Object source) throws FrameworkException;
 }
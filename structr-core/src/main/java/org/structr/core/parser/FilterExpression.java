@@ -61,6 +61,20 @@ public class FilterExpression extends Expression {
 		expression.level  = this.level + 1;
 	}
 
+	@Override
+	public void seal() {
+
+		super.seal();
+
+		if (listExpression != null) {
+			listExpression.seal();
+		}
+
+		if (filterExpression != null) {
+			filterExpression.seal();
+		}
+	}
+
 	@Override
 	public Object evaluate(final ActionContext ctx, final GraphObject entity) throws FrameworkException {
 
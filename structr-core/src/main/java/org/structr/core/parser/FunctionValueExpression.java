@@ -47,6 +47,15 @@ public class FunctionValueExpression extends Expression {
 		return buf.toString();
 	}
 
+	@Override
+	public void seal() {
+
+		super.seal();
+
+		functionExpression.seal();
+		valueExpression.seal();
+	}
+
 	@Override
 	public Object evaluate(final ActionContext ctx, final GraphObject entity) throws FrameworkException {
 
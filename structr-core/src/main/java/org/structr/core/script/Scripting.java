@@ -19,9 +19,15 @@
 package org.structr.core.script;
 
 import java.io.StringWriter;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.script.Bindings;
@@ -32,13 +38,19 @@ import javax.script.ScriptException;
 import org.apache.commons.lang.StringUtils;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.renjin.script.RenjinScriptEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.function.Functions;
 import org.structr.core.property.DateProperty;
@@ -53,6 +65,12 @@ public class Scripting {
 
 	private static final Logger logger                  = LoggerFactory.getLogger(Scripting.class.getName());
 	private static final Pattern ScriptEngineExpression = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
+	private static final ContextFactory contextFactory  = new ContextFactory();
+	private static final LongAdder compiledScripts      = new LongAdder();
+	private static final LongAdder scriptCacheHits      = new LongAdder();
+
+	private static ConcurrentFixedSizeCache<String, CachedScript> scriptCache = null;
+	private static volatile ScriptableObject sharedScope                      = null;
 
 	public static String replaceVariables(final ActionContext actionContext, final GraphObject entity, final Object rawValue) throws FrameworkException {
 
@@ -219,7 +237,9 @@ public class Scripting {
 
 		final String entityName        = entity != null ? entity.getProperty(AbstractNode.name) : null;
 		final String entityDescription = entity != null ? ( StringUtils.isNotBlank(entityName) ? "\"" + entityName + "\":" : "" ) + entity.getUuid() : "anonymous";
-		final Context scriptingContext = new ContextFactory().enterContext();
+		final Context scriptingContext = contextFactory.enterContext();
+		final long start               = System.nanoTime();
+		CachedScript cachedScript      = null;
 
 		try {
 
@@ -227,9 +247,11 @@ public class Scripting {
 			// printing instead of "[object Object]"
 			scriptingContext.setLanguageVersion(Context.VERSION_1_2);
 
-			// Initialize the standard objects (Object, Function, etc.)
-			// This must be done before scripts can be executed.
-			Scriptable scope = scriptingContext.initStandardObjects();
+			// use a lightweight scope for each evaluation, the standard objects
+			// (Object, Function, etc.) are shared and sealed
+			final Scriptable scope = scriptingContext.newObject(getSharedScope());
+			scope.setPrototype(getSharedScope());
+			scope.setParentScope(null);
 
 			// set optimization level to interpreter mode to avoid
 			// class loading / PermGen space bug in Rhino
@@ -244,7 +266,9 @@ public class Scripting {
 			// clear output buffer
 			actionContext.clear();
 
-			Object extractedValue = scriptingContext.evaluateString(scope, embedInFunction(actionContext, script), "script source [" + entityDescription + "], line ", 1, null);
+			cachedScript = getCompiledScript(scriptingContext, embedInFunction(actionContext, script));
+
+			Object extractedValue = cachedScript.script.exec(scriptingContext, scope);
 
 			if (scriptable.hasException()) {
 				throw scriptable.getException();
@@ -271,6 +295,14 @@ public class Scripting {
 			// just throw the FrameworkException so we dont lose the information contained
 			throw fex;
 
+		} catch (final RhinoException rex) {
+
+			// compiled scripts are shared, so the entity is not part of the source name
+			final String message = rex.details() + " (script source [" + entityDescription + "], line #" + rex.lineNumber() + ")";
+
+			logger.warn(message, rex);
+			throw new FrameworkException(422, message);
+
 		} catch (final Throwable t) {
 
 			// if any other kind of Throwable is encountered throw a new FrameworkException and be done with it
@@ -280,8 +312,112 @@ public class Scripting {
 		} finally {
 
 			Context.exit();
+
+			if (cachedScript != null) {
+				cachedScript.record(System.nanoTime() - start);
+			}
+		}
+
+	}
+
+	/**
+	 * Returns statistics about the compiled script cache, including the
+	 * scripts with the highest total execution time.
+	 *
+	 * @return the statistics
+	 */
+	public static Map<String, Object> getScriptStatistics() {
+
+		final Map<String, Object> stats      = new LinkedHashMap<>();
+		final List<CachedScript> scripts     = getScriptCache().values();
+		final List<Map<String, Object>> slow = new LinkedList<>();
+
+		Collections.sort(scripts, (s1, s2) -> Long.compare(s2.totalTime.sum(), s1.totalTime.sum()));
+
+		for (final CachedScript script : scripts.subList(0, Math.min(10, scripts.size()))) {
+			slow.add(script.getStatistics());
+		}
+
+		stats.put("cached",    scripts.size());
+		stats.put("compiled",  compiledScripts.sum());
+		stats.put("cacheHits", scriptCacheHits.sum());
+		stats.put("scripts",   slow);
+
+		return stats;
+	}
+
+	// ----- private methods -----
+	private static ScriptableObject getSharedScope() {
+
+		if (sharedScope == null) {
+
+			synchronized (Scripting.class) {
+
+				if (sharedScope == null) {
+
+					final Context context = contextFactory.enterContext();
+
+					try {
+
+						context.setLanguageVersion(Context.VERSION_1_2);
+
+						// initialize all standard objects at once and seal them so
+						// that the scope can be shared between threads
+						final ScriptableObject scope = context.initStandardObjects(null, true);
+						scope.sealObject();
+
+						sharedScope = scope;
+
+					} finally {
+
+						Context.exit();
+					}
+				}
+			}
+		}
+
+		return sharedScope;
+	}
+
+	private static ConcurrentFixedSizeCache<String, CachedScript> getScriptCache() {
+
+		if (scriptCache == null) {
+
+			synchronized (Scripting.class) {
+
+				if (scriptCache == null) {
+
+					scriptCache = new ConcurrentFixedSizeCache<>(Services.parseInt(StructrApp.getConfigurationValue(Services.APPLICATION_SCRIPT_CACHE_SIZE), 1000));
+				}
+			}
+		}
+
+		return scriptCache;
+	}
+
+	private static CachedScript getCompiledScript(final Context context, final String source) {
+
+		final ConcurrentFixedSizeCache<String, CachedScript> cache = getScriptCache();
+		CachedScript cachedScript                                  = cache.get(source);
+
+		if (cachedScript == null) {
+
+			cachedScript = new CachedScript(source, context.compileString(source, "script source", 1, null));
+			compiledScripts.increment();
+
+			// another thread may have compiled the same script in the meantime
+			final CachedScript existing = cache.putIfAbsent(source, cachedScript);
+			if (existing != null) {
+
+				cachedScript = existing;
+			}
+
+		} else {
+
+			scriptCacheHits.increment();
 		}
 
+		return cachedScript;
 	}
 
 	private static String embedInFunction(final ActionContext actionContext, final String source) {
@@ -384,6 +520,40 @@ public class Scripting {
 	}
 
 	// ----- nested classes -----
+	private static class CachedScript {
+
+		private final LongAdder invocations = new LongAdder();
+		private final LongAdder totalTime   = new LongAdder();
+		private final AtomicLong maxTime    = new AtomicLong();
+		private Script script               = null;
+		private String source               = null;
+
+		public CachedScript(final String source, final Script script) {
+
+			this.source = source;
+			this.script = script;
+		}
+
+		public void record(final long nanos) {
+
+			invocations.increment();
+			totalTime.add(nanos);
+			maxTime.accumulateAndGet(nanos, Math::max);
+		}
+
+		public Map<String, Object> getStatistics() {
+
+			final Map<String, Object> stats = new LinkedHashMap<>();
+
+			stats.put("source",      StringUtils.abbreviate(source.replaceAll("\\s+", " "), 100));
+			stats.put("invocations", invocations.sum());
+			stats.put("totalTime",   TimeUnit.NANOSECONDS.toMillis(totalTime.sum()));
+			stats.put("maxTime",     TimeUnit.NANOSECONDS.toMillis(maxTime.get()));
+
+			return stats;
+		}
+	}
+
 	private static class Tuple {
 
 		public String key = null;
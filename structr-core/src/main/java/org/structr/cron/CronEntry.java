@@ -290,8 +290,28 @@ public class CronEntry implements Delayed {
 	//~--- get methods ----------------------------------------------------
 
 	public long getDelayToNextExecutionInMillis() {
+		return getNextExecutionTime(GregorianCalendar.getInstance()) - System.currentTimeMillis();
+	}
+
+	/**
+	 * Returns the time of the first execution that lies at least one
+	 * second after the given timestamp.
+	 *
+	 * @param timestamp
+	 * @return the time of the next execution in milliseconds
+	 */
+	public long getNextExecutionTimeAfter(final long timestamp) {
+
+		final Calendar start = GregorianCalendar.getInstance();
+
+		// cron fields have a granularity of one second
+		start.setTimeInMillis(((timestamp / 1000L) + 1L) * 1000L);
+
+		return getNextExecutionTime(start);
+	}
+
+	private long getNextExecutionTime(final Calendar now) {
 
-		Calendar now       = GregorianCalendar.getInstance();
 		int nowSeconds     = now.get(Calendar.SECOND);
 		int nowMinutes     = now.get(Calendar.MINUTE);
 		int nowHours       = now.get(Calendar.HOUR_OF_DAY);
@@ -361,7 +381,7 @@ public class CronEntry implements Delayed {
 			throw new IllegalArgumentException("Unable to determine next cron date for task " + name + ", aborting.");
 		}
 		
-		return now.getTimeInMillis() - System.currentTimeMillis();
+		return now.getTimeInMillis();
 	}
 
 	public CronField getSeconds() {
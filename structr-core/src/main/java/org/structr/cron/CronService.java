@@ -21,6 +21,8 @@ package org.structr.cron;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Properties;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,8 +51,9 @@ public class CronService extends Thread implements RunnableService {
 	public static final long     GRANULARITY       = 1;
 	public static final int      NUM_FIELDS        = 6;
 
-	private LinkedList<CronEntry> cronEntries = new LinkedList<>();
-	private boolean doRun = false;
+	private final DelayQueue<ScheduledEntry> scheduledEntries = new DelayQueue<>();
+	private LinkedList<CronEntry> cronEntries                 = new LinkedList<>();
+	private volatile boolean doRun                            = false;
 
 	public CronService() {
 		super("CronService");
@@ -70,42 +73,26 @@ public class CronService extends Thread implements RunnableService {
 		// sleep 5 seconds more
 		try { Thread.sleep(5000); } catch(InterruptedException iex) { }
 
-		while (doRun) {
-
-			// sleep for some time
-			try { Thread.sleep(GRANULARITY_UNIT.toMillis(GRANULARITY)); } catch(InterruptedException iex) { }
-
-			for (CronEntry entry : cronEntries) {
-
-				if (entry.getDelayToNextExecutionInMillis() < GRANULARITY_UNIT.toMillis(GRANULARITY)) {
-
-					final String taskClassName = entry.getName();
-					final Class taskClass      = instantiate(taskClassName);
-
-					try {
+		final long now = System.currentTimeMillis();
 
-						if (taskClass != null) {
-
-							Task task = (Task)taskClass.newInstance();
+		for (final CronEntry entry : cronEntries) {
+			schedule(entry, now);
+		}
 
-							logger.debug("Starting task {}", taskClassName);
-							StructrApp.getInstance().processTasks(task);
+		while (doRun) {
 
-						} else {
+			try {
 
-							try (final Tx tx = StructrApp.getInstance().tx()) {
+				// blocks until the next entry is due
+				final ScheduledEntry next = scheduledEntries.take();
 
-								// check for schema method with the given name
-								Actions.call(taskClassName, Collections.EMPTY_MAP);
+				// don't schedule missed executions after a delay, e.g. a long GC pause
+				schedule(next.entry, Math.max(next.executionTime, System.currentTimeMillis()));
+				execute(next.entry);
 
-								tx.success();
-							}
-						}
+			} catch (InterruptedException iex) {
 
-					} catch (Throwable t) {
-						logger.warn("Exception while executing cron task {}: {}", taskClassName, t.getMessage());
-					}
-				}
+				// check run flag
 			}
 		}
 	}
@@ -119,7 +106,9 @@ public class CronService extends Thread implements RunnableService {
 
 	@Override
 	public void stopService() {
+
 		this.doRun = false;
+		this.interrupt();
 	}
 
 	@Override
@@ -172,7 +161,9 @@ public class CronService extends Thread implements RunnableService {
 
 	@Override
 	public void shutdown() {
+
 		this.doRun = false;
+		this.interrupt();
 	}
 
 	@Override
@@ -181,6 +172,47 @@ public class CronService extends Thread implements RunnableService {
 	}
 
 	// ----- private methods -----
+	private void schedule(final CronEntry entry, final long after) {
+
+		try {
+
+			scheduledEntries.add(new ScheduledEntry(entry, entry.getNextExecutionTimeAfter(after)));
+
+		} catch (IllegalArgumentException iex) {
+			logger.warn("Unable to schedule cron task {}: {}", entry.getName(), iex.getMessage());
+		}
+	}
+
+	private void execute(final CronEntry entry) {
+
+		final String taskClassName = entry.getName();
+		final Class taskClass      = instantiate(taskClassName);
+
+		try {
+
+			if (taskClass != null) {
+
+				Task task = (Task)taskClass.newInstance();
+
+				logger.debug("Starting task {}", taskClassName);
+				StructrApp.getInstance().processTasks(task);
+
+			} else {
+
+				try (final Tx tx = StructrApp.getInstance().tx()) {
+
+					// check for schema method with the given name
+					Actions.call(taskClassName, Collections.EMPTY_MAP);
+
+					tx.success();
+				}
+			}
+
+		} catch (Throwable t) {
+			logger.warn("Exception while executing cron task {}: {}", taskClassName, t.getMessage());
+		}
+	}
+
 	private Class instantiate(final String taskClass) {
 
 		try {
@@ -191,4 +223,27 @@ public class CronService extends Thread implements RunnableService {
 
 		return null;
 	}
+
+	// ----- nested classes -----
+	private static class ScheduledEntry implements Delayed {
+
+		private CronEntry entry    = null;
+		private long executionTime = 0L;
+
+		public ScheduledEntry(final CronEntry entry, final long executionTime) {
+
+			this.entry         = entry;
+			this.executionTime = executionTime;
+		}
+
+		@Override
+		public long getDelay(final TimeUnit unit) {
+			return unit.convert(executionTime - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public int compareTo(final Delayed other) {
+			return Long.compare(executionTime, ((ScheduledEntry)other).executionTime);
+		}
+	}
 }
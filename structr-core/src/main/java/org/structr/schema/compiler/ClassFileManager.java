@@ -20,19 +20,26 @@ package org.structr.schema.compiler;
 
 import java.io.IOException;
 import java.security.SecureClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.JavaFileObject.Kind;
 import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.structr.module.JarConfigurationProvider;
 
 /**
  *
  *
  */
-public class ClassFileManager extends ForwardingJavaFileManager {
+public class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
 
 	/**
 	 * Instance of JavaClassObject that will store the compiled byte code of
@@ -60,13 +67,15 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 	 */
 	@Override
 	public ClassLoader getClassLoader(final Location location) {
-		
+
+		final Map<String, JavaClassObject> snapshot = new LinkedHashMap<>(objects);
+
 		return new SecureClassLoader() {
 			
 			@Override
 			protected Class<?> findClass(String name) throws ClassNotFoundException {
 				
-				final JavaClassObject obj = objects.get(name);
+				final JavaClassObject obj = snapshot.get(name);
 				if (obj != null) {
 					
 					byte[] b = obj.getBytes();
@@ -91,10 +100,84 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 	@Override
 	public JavaFileObject getJavaFileForOutput(final Location location, final String className, final Kind kind, final FileObject sibling) throws IOException {
 		
-		JavaClassObject obj = new JavaClassObject(className, kind);
+		final String sourceName = sibling instanceof CharSequenceJavaFileObject ? ((CharSequenceJavaFileObject)sibling).getClassName() : null;
+		final JavaClassObject obj = new JavaClassObject(className, kind, sourceName);
 		
 		objects.put(className, obj);
 		
 		return obj;
 	}
+
+	/**
+	 * Adds the previously compiled classes to the class path of the
+	 * compiler, so that only modified sources need to be compiled.
+	 *
+	 * @param location
+	 * @param packageName
+	 * @param kinds
+	 * @param recurse
+	 * @return the file objects
+	 * @throws IOException
+	 */
+	@Override
+	public Iterable<JavaFileObject> list(final Location location, final String packageName, final Set<Kind> kinds, final boolean recurse) throws IOException {
+
+		final Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+
+		if (StandardLocation.CLASS_PATH.equals(location) && JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE.equals(packageName) && kinds.contains(Kind.CLASS) && !objects.isEmpty()) {
+
+			final List<JavaFileObject> result = new ArrayList<>(objects.values());
+
+			for (final JavaFileObject file : files) {
+				result.add(file);
+			}
+
+			return result;
+		}
+
+		return files;
+	}
+
+	@Override
+	public String inferBinaryName(final Location location, final JavaFileObject file) {
+
+		if (file instanceof JavaClassObject) {
+			return ((JavaClassObject)file).getBinaryName();
+		}
+
+		return super.inferBinaryName(location, file);
+	}
+
+	public Collection<JavaClassObject> getClassObjects() {
+		return objects.values();
+	}
+
+	public void addClassObject(final JavaClassObject obj) {
+		objects.put(obj.getBinaryName(), obj);
+	}
+
+	/**
+	 * Removes all classes that were compiled from the given sources.
+	 *
+	 * @param sourceNames
+	 */
+	public void removeClassObjects(final Set<String> sourceNames) {
+
+		for (final Iterator<JavaClassObject> it = objects.values().iterator(); it.hasNext();) {
+
+			if (sourceNames.contains(it.next().getSourceName())) {
+				it.remove();
+			}
+		}
+	}
+
+	public Map<String, JavaClassObject> getSnapshot() {
+		return new LinkedHashMap<>(objects);
+	}
+
+	public void restoreSnapshot(final Map<String, JavaClassObject> snapshot) {
+
+		objects.clear();
+		objects.putAll(snapshot);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.common.VersionHelper;
+
+/**
+ * On-disk cache for the byte code of compiled dynamic types.
+ *
+ * The cache stores the source hash of each dynamic type together with
+ * the classes compiled from it. It is only used if it was written by
+ * the same Structr version, class path and Java version, so a restart
+ * with an unchanged schema does not need to compile anything.
+ */
+public class CompiledClassCache {
+
+	private static final Logger logger        = LoggerFactory.getLogger(CompiledClassCache.class.getName());
+	private static final String INDEX_FILE    = "index.properties";
+	private static final String ENVIRONMENT   = "environment";
+	private static final String SOURCE_PREFIX = "source.";
+	private static final String CLASS_PREFIX  = "class.";
+	private static final String CLASS_SUFFIX  = ".class";
+
+	private final String environment;
+	private final Path path;
+
+	public CompiledClassCache(final String path) {
+		this(path, VersionHelper.getFullVersionInfo() + "\n" + VersionHelper.getClassPath() + "\n" + System.getProperty("java.version"));
+	}
+
+	CompiledClassCache(final String path, final String environment) {
+
+		this.path        = Paths.get(path);
+		this.environment = DigestUtils.sha256Hex(environment);
+	}
+
+	/**
+	 * Loads all cached classes into the given file manager.
+	 *
+	 * @param fileManager
+	 * @return the source hashes of all dynamic types whose classes were loaded
+	 */
+	public Map<String, String> load(final ClassFileManager fileManager) {
+
+		final Map<String, String> sourceHashes = new LinkedHashMap<>();
+		final Path indexFile                   = path.resolve(INDEX_FILE);
+
+		if (!Files.exists(indexFile)) {
+			return sourceHashes;
+		}
+
+		try (final InputStream is = Files.newInputStream(indexFile)) {
+
+			final Set<String> invalidSources = new HashSet<>();
+			final Properties index           = new Properties();
+
+			index.load(is);
+
+			if (!environment.equals(index.getProperty(ENVIRONMENT))) {
+
+				logger.info("Class cache in {} was created by a different version, ignoring it.", path);
+				return sourceHashes;
+			}
+
+			for (final String key : index.stringPropertyNames()) {
+
+				if (key.startsWith(SOURCE_PREFIX)) {
+
+					sourceHashes.put(key.substring(SOURCE_PREFIX.length()), index.getProperty(key));
+				}
+			}
+
+			for (final String key : index.stringPropertyNames()) {
+
+				if (key.startsWith(CLASS_PREFIX)) {
+
+					final String binaryName = key.substring(CLASS_PREFIX.length());
+					final String sourceName = index.getProperty(key);
+					final Path classFile    = path.resolve(binaryName + CLASS_SUFFIX);
+
+					if (Files.exists(classFile)) {
+
+						fileManager.addClassObject(new JavaClassObject(binaryName, sourceName, Files.readAllBytes(classFile)));
+
+					} else {
+
+						invalidSources.add(sourceName);
+					}
+				}
+			}
+
+			// sources with missing classes must be compiled again
+			fileManager.removeClassObjects(invalidSources);
+			sourceHashes.keySet().removeAll(invalidSources);
+
+		} catch (Throwable t) {
+
+			logger.warn("Unable to read class cache from {}: {}", path, t.getMessage());
+
+			fileManager.restoreSnapshot(new LinkedHashMap<>());
+			sourceHashes.clear();
+		}
+
+		return sourceHashes;
+	}
+
+	/**
+	 * Writes the given classes and source hashes to the cache directory.
+	 * Only the classes of the given modified sources and missing classes
+	 * are written, and classes that no longer exist are removed.
+	 *
+	 * @param sourceHashes
+	 * @param classes
+	 * @param modifiedSources
+	 */
+	public void store(final Map<String, String> sourceHashes, final Collection<JavaClassObject> classes, final Set<String> modifiedSources) {
+
+		try {
+
+			final Properties index       = new Properties();
+			final Set<String> classFiles = new HashSet<>();
+
+			Files.createDirectories(path);
+
+			// the old index must not refer to new class files
+			Files.deleteIfExists(path.resolve(INDEX_FILE));
+
+			index.setProperty(ENVIRONMENT, environment);
+
+			for (final Map.Entry<String, String> entry : sourceHashes.entrySet()) {
+				index.setProperty(SOURCE_PREFIX + entry.getKey(), entry.getValue());
+			}
+
+			for (final JavaClassObject obj : classes) {
+
+				final String sourceName = obj.getSourceName();
+				final String fileName   = obj.getBinaryName() + CLASS_SUFFIX;
+				final Path classFile    = path.resolve(fileName);
+
+				if (sourceName != null) {
+
+					if (modifiedSources.contains(sourceName) || !Files.exists(classFile)) {
+						Files.write(classFile, obj.getBytes());
+					}
+
+					index.setProperty(CLASS_PREFIX + obj.getBinaryName(), sourceName);
+					classFiles.add(fileName);
+				}
+			}
+
+			// remove classes of deleted types
+			try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + CLASS_SUFFIX)) {
+
+				for (final Path file : stream) {
+
+					if (!classFiles.contains(file.getFileName().toString())) {
+						Files.delete(file);
+					}
+				}
+			}
+
+			// replace index atomically so that an interrupted write is not used
+			final Path tmpFile = path.resolve(INDEX_FILE + ".tmp");
+
+			try (final OutputStream os = Files.newOutputStream(tmpFile)) {
+				index.store(os, "Structr dynamic type class cache");
+			}
+
+			Files.move(tmpFile, path.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to write class cache to {}: {}", path, ioex.getMessage());
+		}
+	}
+}
@@ -18,8 +18,10 @@
  */
 package org.structr.schema.compiler;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import javax.tools.SimpleJavaFileObject;
@@ -38,16 +40,45 @@ public class JavaClassObject extends SimpleJavaFileObject {
 	protected final ByteArrayOutputStream bos =
 		new ByteArrayOutputStream();
 
+	private final String binaryName;
+	private final String sourceName;
+
 	/**
 	 * Registers the compiled class object under URI containing the class
 	 * full name
 	 *
 	 * @param name Full name of the compiled class
 	 * @param kind Kind of the data. It will be CLASS in our case
+	 * @param sourceName Name of the source the class was compiled from
 	 */
-	public JavaClassObject(String name, Kind kind) {
+	public JavaClassObject(String name, Kind kind, String sourceName) {
 		super(URI.create("string:///" + name.replace('.', '/')
 			+ kind.extension), kind);
+
+		this.binaryName = name;
+		this.sourceName = sourceName;
+	}
+
+	/**
+	 * Creates a class object from previously compiled byte code.
+	 *
+	 * @param name Full name of the compiled class
+	 * @param sourceName Name of the source the class was compiled from
+	 * @param bytes compiled byte code
+	 */
+	public JavaClassObject(String name, String sourceName, byte[] bytes) {
+
+		this(name, Kind.CLASS, sourceName);
+
+		bos.write(bytes, 0, bytes.length);
+	}
+
+	public String getBinaryName() {
+		return binaryName;
+	}
+
+	public String getSourceName() {
+		return sourceName;
 	}
 
 	/**
@@ -69,4 +100,13 @@ public class JavaClassObject extends SimpleJavaFileObject {
 	public OutputStream openOutputStream() throws IOException {
 		return bos;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Provides the compiler with the byte code of this class, so that
+	 * sources can be compiled against previously compiled classes.
+	 */
+	@Override
+	public InputStream openInputStream() throws IOException {
+		return new ByteArrayInputStream(getBytes());
+	}
+}
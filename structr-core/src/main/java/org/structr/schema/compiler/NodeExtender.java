@@ -21,6 +21,9 @@ package org.structr.schema.compiler;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,14 +31,16 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.ToolProvider;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.DiagnosticErrorToken;
@@ -45,20 +50,29 @@ import org.structr.core.app.StructrApp;
 import org.structr.module.JarConfigurationProvider;
 
 /**
+ * Compiles the dynamic types of the schema.
  *
- *
+ * Only the types whose source changed since the last successful
+ * compilation, and the types that reference them, are compiled again.
+ * All other types are compiled against the byte code of the previous
+ * compilation. The byte code is also stored in a CompiledClassCache on
+ * disk, so that an unchanged schema does not need to be compiled after
+ * a restart.
  */
 public class NodeExtender {
 
 	private static final Logger logger   = LoggerFactory.getLogger(NodeExtender.class.getName());
 
-	private static final JavaCompiler compiler       = ToolProvider.getSystemJavaCompiler();
-	private static final JavaFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
-	private static final ClassLoader classLoader     = fileManager.getClassLoader(null);
-	private static final Map<String, Class> classes  = new TreeMap<>();
+	private static final JavaCompiler compiler        = ToolProvider.getSystemJavaCompiler();
+	private static final ClassFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
+	private static final Map<String, String> hashes   = new LinkedHashMap<>();
+	private static final Map<String, Class> classes   = new TreeMap<>();
+	private static volatile ClassLoader classLoader   = fileManager.getClassLoader(null);
+	private static CompiledClassCache classCache      = null;
+	private static boolean classCacheLoaded           = false;
 
-	private List<JavaFileObject> jfiles  = null;
-	private Set<String> fqcns            = null;
+	private List<CharSequenceJavaFileObject> jfiles = null;
+	private Set<String> fqcns                       = null;
 
 	public NodeExtender() {
 
@@ -95,58 +109,188 @@ public class NodeExtender {
 		}
 	}
 
-	public synchronized Map<String, Class> compile(final ErrorBuffer errorBuffer) throws ClassNotFoundException {
+	public Map<String, Class> compile(final ErrorBuffer errorBuffer) throws ClassNotFoundException {
+
+		synchronized (NodeExtender.class) {
 
-		final Writer errorWriter     = new StringWriter();
-		final List<Class> newClasses = new LinkedList<>();
+			final Writer errorWriter     = new StringWriter();
+			final List<Class> newClasses = new LinkedList<>();
 
-		if (!jfiles.isEmpty()) {
+			if (!jfiles.isEmpty()) {
 
-			logger.debug("Compiling {} dynamic entities...", jfiles.size());
+				loadClassCache();
 
-			Boolean success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, jfiles).call();
+				final Map<String, JavaClassObject> snapshot = fileManager.getSnapshot();
+				final Map<String, String> newHashes         = new LinkedHashMap<>();
 
-			if (success) {
+				for (final CharSequenceJavaFileObject file : jfiles) {
+					newHashes.put(file.getClassName(), DigestUtils.sha256Hex(file.getCharContent(true).toString()));
+				}
 
-				final ClassLoader loader = fileManager.getClassLoader(null);
+				final Set<String> modified                       = getModifiedSources(hashes, fileManager.getClassObjects(), newHashes, jfiles);
+				final Set<String> obsolete                       = new HashSet<>(hashes.keySet());
+				final List<CharSequenceJavaFileObject> toCompile = jfiles.stream().filter(f -> modified.contains(f.getClassName())).collect(Collectors.toList());
 
-				for (final String fqcn : fqcns) {
+				// remove classes of modified and deleted types
+				obsolete.removeAll(newHashes.keySet());
+				obsolete.addAll(modified);
 
-					try {
+				fileManager.removeClassObjects(obsolete);
 
-						newClasses.add(loader.loadClass(fqcn));
+				Boolean success = true;
 
-					} catch (Throwable t) {
+				if (!toCompile.isEmpty()) {
 
-						logger.warn("Unable to load dynamic entity {}: {}", new Object[] { fqcn, t.toString() });
-						logger.warn("", t);
+					logger.debug("Compiling {} of {} dynamic entities...", toCompile.size(), jfiles.size());
 
-						success = false;
-					}
+					success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, toCompile).call();
 				}
 
 				if (success) {
 
-					for (final Class oldType : classes.values()) {
-						StructrApp.getConfiguration().unregisterEntityType(oldType);
+					final ClassLoader loader = fileManager.getClassLoader(null);
+
+					for (final String fqcn : fqcns) {
+
+						try {
+
+							newClasses.add(loader.loadClass(fqcn));
+
+						} catch (Throwable t) {
+
+							logger.warn("Unable to load dynamic entity {}: {}", new Object[] { fqcn, t.toString() });
+							logger.warn("", t);
+
+							success = false;
+						}
 					}
 
-					// clear classes map
-					classes.clear();
+					if (success) {
+
+						for (final Class oldType : classes.values()) {
+							StructrApp.getConfiguration().unregisterEntityType(oldType);
+						}
+
+						// clear classes map
+						classes.clear();
+
+						// add new classes to map
+						for (final Class newType : newClasses) {
+							classes.put(newType.getName(), newType);
+						}
+
+						classLoader = loader;
 
-					// add new classes to map
-					for (final Class newType : newClasses) {
-						classes.put(newType.getName(), newType);
+						hashes.clear();
+						hashes.putAll(newHashes);
+
+						if (classCache != null && (!toCompile.isEmpty() || !obsolete.isEmpty())) {
+							classCache.store(hashes, fileManager.getClassObjects(), modified);
+						}
+
+						if (toCompile.isEmpty()) {
+
+							logger.info("Loaded {} unchanged dynamic entities", jfiles.size());
+
+						} else {
+
+							logger.info("Successfully compiled {} of {} dynamic entities: {}", new Object[] { toCompile.size(), jfiles.size(), toCompile.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
+						}
 					}
+				}
+
+				if (!success) {
 
-					logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { jfiles.size(), jfiles.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
+					// keep the classes of the last successful compilation
+					fileManager.restoreSnapshot(snapshot);
 				}
+			}
+
+			return classes;
+		}
+	}
+
+	// ----- package-private static methods -----
+	/**
+	 * Returns the names of all sources that changed since the last
+	 * successful compilation, and of all sources that reference a
+	 * changed or deleted type, directly or indirectly.
+	 *
+	 * @param oldHashes the source hashes of the last successful compilation
+	 * @param compiledClasses the classes of the last successful compilation
+	 * @param newHashes the source hashes of the given files
+	 * @param files the sources to compile
+	 * @return the names of the sources that must be compiled
+	 */
+	static Set<String> getModifiedSources(final Map<String, String> oldHashes, final Collection<JavaClassObject> compiledClasses, final Map<String, String> newHashes, final List<CharSequenceJavaFileObject> files) {
+
+		final Set<String> compiledSources = new HashSet<>();
+		final Set<String> modified        = new LinkedHashSet<>();
+		Set<String> changed               = new LinkedHashSet<>();
+
+		for (final JavaClassObject obj : compiledClasses) {
+			compiledSources.add(obj.getSourceName());
+		}
+
+		for (final Map.Entry<String, String> entry : newHashes.entrySet()) {
 
+			final String name = entry.getKey();
+
+			if (!entry.getValue().equals(oldHashes.get(name)) || !compiledSources.contains(name)) {
+				changed.add(name);
 			}
+		}
 
+		// deleted types
+		for (final String name : oldHashes.keySet()) {
+
+			if (!newHashes.containsKey(name)) {
+				changed.add(name);
+			}
 		}
 
-		return classes;
+		while (!changed.isEmpty()) {
+
+			final Pattern pattern   = Pattern.compile("\\b(" + changed.stream().map(Pattern::quote).collect(Collectors.joining("|")) + ")\\b");
+			final Set<String> added = new LinkedHashSet<>();
+
+			for (final String name : changed) {
+
+				if (newHashes.containsKey(name)) {
+					modified.add(name);
+				}
+			}
+
+			for (final CharSequenceJavaFileObject file : files) {
+
+				final String name = file.getClassName();
+
+				if (!modified.contains(name) && pattern.matcher(file.getCharContent(true)).find()) {
+					added.add(name);
+				}
+			}
+
+			changed = added;
+		}
+
+		return modified;
+	}
+
+	// ----- private methods -----
+	private static void loadClassCache() {
+
+		if (!classCacheLoaded) {
+
+			classCacheLoaded = true;
+
+			final String path = StructrApp.getConfigurationValue(Services.SCHEMA_CLASS_CACHE_PATH);
+			if (StringUtils.isNotBlank(path)) {
+
+				classCache = new CompiledClassCache(path);
+
+				hashes.putAll(classCache.load(fileManager));
+			}
+		}
 	}
 
 	private static class Listener implements DiagnosticListener<JavaFileObject> {
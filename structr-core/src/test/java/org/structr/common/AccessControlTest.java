@@ -411,6 +411,63 @@ public class AccessControlTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test07aResultCountWithPagingAndIgnoredResultCount() {
+
+		// remove auto-generated resource access objects
+		clearResourceAccess();
+
+		try {
+
+			final Class type = TestOne.class;
+			final List<NodeInterface> nodes = createTestNodes(type, 25);
+			int count = 0;
+
+			try (final Tx tx = app.tx()) {
+
+				// add names to make sorting work...
+				for (final NodeInterface node : nodes) {
+
+					node.setProperty(AbstractNode.name, "node" + (count < 10 ? "0" : "") + count);
+					node.setProperty(AbstractNode.visibleToPublicUsers, count++ % 2 == 1);
+				}
+
+				tx.success();
+			}
+
+			final SecurityContext publicContext = SecurityContext.getInstance(null, AccessMode.Frontend);
+
+			try (final Tx tx = app.tx()) {
+
+				Result result = StructrApp.getInstance(publicContext).nodeQuery(type).sort(AbstractNode.name).page(2).pageSize(3).getResult();
+
+				assertEquals(3, result.size());
+				assertEquals(12, (int) result.getRawResultCount());
+
+				assertEquals(nodes.get(7).getUuid(),  result.get(0).getUuid());
+				assertEquals(nodes.get(11).getUuid(), result.get(2).getUuid());
+
+				// instantiation must stop after the first element of the next page
+				publicContext.ignoreResultCount(true);
+
+				result = StructrApp.getInstance(publicContext).nodeQuery(type).sort(AbstractNode.name).page(2).pageSize(3).getResult();
+
+				assertEquals(3, result.size());
+				assertEquals(7, (int) result.getRawResultCount());
+
+				assertEquals(nodes.get(7).getUuid(),  result.get(0).getUuid());
+				assertEquals(nodes.get(11).getUuid(), result.get(2).getUuid());
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+
+		}
+
+	}
+
 	@Test
 	public void test08WriteAccess() {
 
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import static org.structr.common.TestFixtures.dbNode;
+import static org.structr.common.TestFixtures.dbRelationship;
+import static org.structr.common.TestFixtures.node;
+import org.structr.core.graph.NodeInterface;
+
+/**
+ *
+ *
+ */
+public class AccessPathCacheTest {
+
+	@Before
+	public void clear() {
+		AccessPathCache.invalidate();
+	}
+
+	@Test
+	public void testInvalidateForId() {
+
+		final NodeInterface user  = node("user");
+		final NodeInterface file1 = node("file1");
+		final NodeInterface file2 = node("file2");
+
+		AccessPathCache.put(user, file1, new PermissionResolutionMask());
+		AccessPathCache.update(user, file1, dbNode("folder1"));
+
+		AccessPathCache.put(user, file2, new PermissionResolutionMask());
+		AccessPathCache.update(user, file2, dbNode("folder2"));
+
+		AccessPathCache.invalidateForId("folder1");
+
+		assertNull("Dependent entry was not invalidated", AccessPathCache.get(user, file1));
+		assertNotNull("Unrelated entry was invalidated", AccessPathCache.get(user, file2));
+
+		// unknown UUIDs must not affect the cache
+		AccessPathCache.invalidateForId("unknown");
+
+		assertNotNull("Unrelated entry was invalidated", AccessPathCache.get(user, file2));
+	}
+
+	@Test
+	public void testInvalidateForRelType() {
+
+		final NodeInterface user  = node("user");
+		final NodeInterface file1 = node("file1");
+		final NodeInterface file2 = node("file2");
+
+		AccessPathCache.put(user, file1, new PermissionResolutionMask());
+		AccessPathCache.update(user, file1, dbRelationship("rel1", "OWNS"));
+
+		AccessPathCache.put(user, file2, new PermissionResolutionMask());
+		AccessPathCache.update(user, file2, dbRelationship("rel2", "CONTAINS"));
+
+		AccessPathCache.invalidateForRelType("OWNS");
+
+		assertNull("Dependent entry was not invalidated", AccessPathCache.get(user, file1));
+		assertNotNull("Unrelated entry was invalidated", AccessPathCache.get(user, file2));
+
+		AccessPathCache.invalidateForId("rel2");
+
+		assertNull("Dependent entry was not invalidated", AccessPathCache.get(user, file2));
+		assertEquals("Invalid number of cache entries", 0L, (long)AccessPathCache.getStatistics().get("entries"));
+	}
+
+	@Test
+	public void testReinsertedEntryStaysIndexed() {
+
+		final NodeInterface user = node("user");
+		final NodeInterface file = node("file");
+
+		AccessPathCache.put(user, file, new PermissionResolutionMask());
+		AccessPathCache.update(user, file, dbNode("folder"));
+		AccessPathCache.update(user, file, dbRelationship("rel", "OWNS"));
+
+		AccessPathCache.invalidateForRelType("OWNS");
+
+		AccessPathCache.put(user, file, new PermissionResolutionMask());
+		AccessPathCache.update(user, file, dbNode("folder"));
+
+		AccessPathCache.invalidateForId("folder");
+
+		assertNull("Re-inserted entry was not invalidated", AccessPathCache.get(user, file));
+	}
+}
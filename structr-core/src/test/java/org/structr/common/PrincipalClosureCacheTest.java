@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotSame;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import static org.structr.common.TestFixtures.principal;
+import org.structr.core.entity.Principal;
+
+/**
+ *
+ *
+ */
+public class PrincipalClosureCacheTest {
+
+	@Before
+	public void clear() {
+		PrincipalClosureCache.invalidate();
+	}
+
+	@Test
+	public void testNestedAndCyclicGroups() {
+
+		final List<Principal> userParents   = new ArrayList<>();
+		final List<Principal> group1Parents = new ArrayList<>();
+		final List<Principal> group2Parents = new ArrayList<>();
+		final Principal user                = principal(1, false, userParents);
+		final Principal group1              = principal(2, false, group1Parents);
+		final Principal group2              = principal(3, false, group2Parents);
+		final Principal group3              = principal(4, false, new ArrayList<>());
+
+		userParents.add(group1);
+		group1Parents.add(group2);
+		group2Parents.addAll(Arrays.asList(group1, group3, user));
+
+		final PrincipalClosureCache.Closure closure = PrincipalClosureCache.get(user);
+
+		assertTrue("Invalid group closure", Arrays.equals(new long[] { 2, 3, 4 }, closure.getGroupIds()));
+		assertTrue("Invalid group closure", closure.containsGroup(4));
+		assertFalse("Principal must not be contained in its own group closure", closure.containsGroup(1));
+		assertFalse("Invalid admin flag", closure.hasAdminGroup());
+	}
+
+	@Test
+	public void testAdminGroupAndInvalidation() {
+
+		final List<Principal> userParents = new ArrayList<>();
+		final Principal user              = principal(1, false, userParents);
+
+		userParents.add(principal(2, true, new ArrayList<>()));
+
+		final PrincipalClosureCache.Closure closure = PrincipalClosureCache.get(user);
+
+		assertTrue("Invalid admin flag", closure.hasAdminGroup());
+		assertSame("Closure was not cached", closure, PrincipalClosureCache.get(user));
+
+		userParents.clear();
+		PrincipalClosureCache.invalidate();
+
+		final PrincipalClosureCache.Closure updated = PrincipalClosureCache.get(user);
+
+		assertNotSame("Closure was not invalidated", closure, updated);
+		assertEquals("Invalid group closure", 0, updated.getGroupIds().length);
+		assertFalse("Invalid admin flag", updated.hasAdminGroup());
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import org.structr.api.graph.Node;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.NodeInterface;
+
+/**
+ * Proxy-based fixtures for unit tests that must not start the database
+ * or Services.
+ *
+ *
+ */
+public class TestFixtures {
+
+	public static NodeInterface node(final String uuid) {
+
+		return (NodeInterface)Proxy.newProxyInstance(TestFixtures.class.getClassLoader(), new Class[] { NodeInterface.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+				case "getUuid":
+					return uuid;
+
+				case "equals":
+					return proxy == args[0];
+
+				case "hashCode":
+					return uuid.hashCode();
+			}
+
+			return null;
+		});
+	}
+
+	public static Node dbNode(final String uuid) {
+		return (Node)propertyContainer(Node.class, uuid, null);
+	}
+
+	public static Relationship dbRelationship(final String uuid, final String type) {
+		return (Relationship)propertyContainer(Relationship.class, uuid, type);
+	}
+
+	public static Principal principal(final long id, final boolean isAdmin, final List<Principal> parents) {
+
+		return (Principal)Proxy.newProxyInstance(TestFixtures.class.getClassLoader(), new Class[] { Principal.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+				case "getId":
+					return id;
+
+				case "getUuid":
+					return "principal" + id;
+
+				case "isAdmin":
+					return isAdmin;
+
+				case "getParents":
+					return parents;
+
+				case "equals":
+					return proxy == args[0];
+
+				case "hashCode":
+					return (int)id;
+			}
+
+			return null;
+		});
+	}
+
+	// ----- private methods -----
+	private static Object propertyContainer(final Class type, final String uuid, final String relType) {
+
+		return Proxy.newProxyInstance(TestFixtures.class.getClassLoader(), new Class[] { type }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+				case "hasProperty":
+					return "id".equals(args[0]);
+
+				case "getProperty":
+					return "id".equals(args[0]) ? uuid : null;
+
+				case "getType":
+					return RelationshipType.forName(relType);
+
+				case "equals":
+					return proxy == args[0];
+
+				case "hashCode":
+					return uuid.hashCode();
+			}
+
+			return null;
+		});
+	}
+}
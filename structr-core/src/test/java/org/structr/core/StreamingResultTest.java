@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import org.junit.Test;
+import org.structr.api.util.Iterables;
+import org.structr.common.StructrTest;
+
+/**
+ *
+ *
+ */
+public class StreamingResultTest extends StructrTest {
+
+	@Test
+	public void testLazyConsumption() {
+
+		final AtomicInteger produced            = new AtomicInteger();
+		final Iterable<GraphObject> source      = Iterables.map(i -> { produced.incrementAndGet(); return i % 2 == 0 ? object() : null; }, Arrays.asList(0, 1, 2, 3, 4, 5));
+		final StreamingResult<GraphObject> r    = new StreamingResult<>(source, null, false);
+
+		assertEquals("Streaming result must not consume its source on creation", 0, produced.get());
+		assertFalse(r.isEmpty());
+		assertEquals("isEmpty() must only look at the first element", 1, produced.get());
+
+		int count = 0;
+		for (final Iterator<GraphObject> it = r.iterator(); it.hasNext();) {
+
+			it.next();
+			count++;
+		}
+
+		assertEquals("Null elements must be skipped", 3, count);
+		assertEquals("Invalid result count", Integer.valueOf(3), r.getRawResultCount());
+
+		try {
+
+			r.iterator();
+			fail("Streaming result must only be consumed once");
+
+		} catch (IllegalStateException expected) {}
+	}
+
+	@Test
+	public void testMaterialization() {
+
+		final StreamingResult<GraphObject> r    = new StreamingResult<>(Arrays.asList(object(), object()), 10, false);
+		final List<GraphObject> results         = r.getResults();
+
+		assertTrue(r.isMaterialized());
+		assertEquals(2, results.size());
+		assertEquals(2, r.size());
+		assertEquals("Raw result count must be preserved", Integer.valueOf(10), r.getRawResultCount());
+
+		// materialized results can be iterated multiple times
+		assertEquals(2, Iterables.count(r));
+		assertEquals(2, Iterables.count(r));
+	}
+
+	@Test
+	public void testPartialConsumption() {
+
+		final StreamingResult<GraphObject> r = new StreamingResult<>(Arrays.asList(object(), object(), object()), null, false);
+		final Iterator<GraphObject> it       = r.iterator();
+
+		it.next();
+
+		assertNull("Result count must be unknown during iteration", r.getRawResultCount());
+
+		try {
+
+			r.getResults();
+			fail("Partially consumed streaming result must not be materialized");
+
+		} catch (IllegalStateException expected) {}
+
+		it.next();
+		it.next();
+
+		assertFalse(it.hasNext());
+		assertEquals("Invalid result count", Integer.valueOf(3), r.getRawResultCount());
+	}
+
+	@Test
+	public void testCountBeforeIteration() {
+
+		final StreamingResult<GraphObject> r = new StreamingResult<>(Arrays.asList(object(), object()), null, false);
+
+		assertEquals("Invalid result count", Integer.valueOf(2), r.getRawResultCount());
+		assertTrue("Result must be materialized to determine the count", r.isMaterialized());
+		assertEquals(2, Iterables.count(r));
+	}
+
+	// ----- private methods -----
+	private GraphObject object() {
+		return (GraphObject)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { GraphObject.class }, (proxy, method, args) -> null);
+	}
+}
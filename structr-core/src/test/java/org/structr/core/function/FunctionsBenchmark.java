@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.function;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.schema.action.ActionContext;
+
+/**
+ * Compares the evaluation of StructrScript expressions that are parsed
+ * on every invocation (cold) with the evaluation of the cached, sealed
+ * expression tree.
+ *
+ * Run the main method of this class (or org.openjdk.jmh.Main) with the
+ * test classpath of this module after "mvn test-compile".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionsBenchmark {
+
+	@Param({
+		"concat('test', ' ', upper('string'))",
+		"if(equal(1, 1), 'yes', 'no')",
+		"join(split('one,two,three,four'), ' - ')",
+		"round(add(2.5, mult(3, 4), quot(10, 4)), 2)",
+		"if(empty(null), titleize('a new title', ' '), abbr('a very long text', 5))"
+	})
+	public String expression;
+
+	private ActionContext actionContext = null;
+
+	@Setup
+	public void setup() {
+		actionContext = new ActionContext(SecurityContext.getSuperUserInstance());
+	}
+
+	@Benchmark
+	public Object cold() throws FrameworkException {
+		return Functions.parse(expression).evaluate(actionContext, null);
+	}
+
+	@Benchmark
+	public Object cached() throws FrameworkException {
+		return Functions.evaluate(actionContext, null, expression);
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(FunctionsBenchmark.class.getSimpleName()).build()).run();
+	}
+}
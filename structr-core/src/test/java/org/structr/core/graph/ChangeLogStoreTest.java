@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import static junit.framework.TestCase.assertEquals;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class ChangeLogStoreTest {
+
+	@Test
+	public void testAppendAndPaging() throws Exception {
+
+		final File directory = Files.createTempDirectory("changelog").toFile();
+
+		try {
+
+			final ChangeLogStore store = new ChangeLogStore(directory, 1024L);
+
+			for (int i=0; i<100; i++) {
+
+				store.append("a", entry(i) + "\n" + entry(i + 1000), 1000L + i);
+				store.append("b", entry(i), 1000L + i);
+			}
+
+			assertEquals("Invalid number of change log entries", 200, store.count("a", 0L, Long.MAX_VALUE));
+			assertEquals("Invalid number of change log entries", 100, store.count("b", 0L, Long.MAX_VALUE));
+			assertEquals("Invalid number of change log entries", 0,   store.count("c", 0L, Long.MAX_VALUE));
+
+			final List<String> page2 = store.getEntries("b", 0L, Long.MAX_VALUE, false, 10, 2);
+
+			assertEquals("Invalid page size", 10, page2.size());
+			assertEquals("Invalid change log entry", entry(10), page2.get(0));
+			assertEquals("Invalid change log entry", entry(19), page2.get(9));
+
+			final List<String> last = store.getEntries("b", 0L, Long.MAX_VALUE, true, 3, 1);
+
+			assertEquals("Invalid change log entry", entry(99), last.get(0));
+			assertEquals("Invalid change log entry", entry(97), last.get(2));
+
+			assertEquals("Invalid page size", 0, store.getEntries("b", 0L, Long.MAX_VALUE, false, 10, 11).size());
+			assertEquals("Invalid number of change log entries", 0, store.count("b", Long.MAX_VALUE - 1, Long.MAX_VALUE));
+
+			// time range queries use the commit time
+			assertEquals("Invalid number of change log entries", 10, store.count("b", 1010L, 1019L));
+			assertEquals("Invalid number of change log entries", 20, store.count("a", 1010L, 1019L));
+			assertEquals("Invalid change log entry", entry(10), store.getEntries("b", 1010L, 1019L, false, 1, 1).get(0));
+
+			store.close();
+
+			// re-open with a cache for a single object, so pointers are read from disk
+			final ChangeLogStore reopened = new ChangeLogStore(directory, 1024L, 1);
+
+			assertEquals("Invalid number of change log entries after re-open", 200, reopened.count("a", 0L, Long.MAX_VALUE));
+
+			reopened.append("b", entry(100), 1100L);
+
+			final List<String> all = reopened.getEntries("b", 0L, Long.MAX_VALUE, false, Integer.MAX_VALUE, 1);
+
+			assertEquals("Invalid number of change log entries after re-open", 101, all.size());
+			assertEquals("Invalid change log entry", entry(0),   all.get(0));
+			assertEquals("Invalid change log entry", entry(100), all.get(100));
+
+			// evict b from the cache and read it again
+			assertEquals("Invalid number of change log entries after re-open", 200, reopened.count("a", 0L, Long.MAX_VALUE));
+			assertEquals("Invalid number of change log entries after re-open", 101, reopened.count("b", 0L, Long.MAX_VALUE));
+			assertEquals("Invalid number of cached objects", Long.valueOf(1), reopened.getStatistics().get("cachedObjects"));
+
+			reopened.close();
+
+		} finally {
+
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void testCommitTimeOrder() throws Exception {
+
+		final File directory = Files.createTempDirectory("changelog").toFile();
+
+		try {
+
+			final ChangeLogStore store = new ChangeLogStore(directory, 1024L);
+
+			// load the (empty) pointer list into the cache
+			assertEquals("Invalid number of change log entries", 0, store.count("a", 0L, Long.MAX_VALUE));
+
+			// commits can be written in a different order than they happened
+			store.append("a", entry(2), 2000L);
+			store.append("a", entry(1), 1000L);
+			store.append("a", entry(3), 3000L);
+
+			final List<String> cached = store.getEntries("a", 0L, Long.MAX_VALUE, false, 10, 1);
+
+			assertEquals("Invalid change log entry", entry(1), cached.get(0));
+			assertEquals("Invalid change log entry", entry(2), cached.get(1));
+			assertEquals("Invalid change log entry", entry(3), cached.get(2));
+
+			store.close();
+
+			final ChangeLogStore reopened = new ChangeLogStore(directory, 1024L);
+			final List<String> loaded     = reopened.getEntries("a", 1500L, 3000L, false, 10, 1);
+
+			assertEquals("Invalid number of change log entries", 2, loaded.size());
+			assertEquals("Invalid change log entry", entry(2), loaded.get(0));
+			assertEquals("Invalid change log entry", entry(3), loaded.get(1));
+
+			reopened.close();
+
+		} finally {
+
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	@Test
+	public void testSortedIndex() throws Exception {
+
+		final File directory = Files.createTempDirectory("changelog").toFile();
+
+		try {
+
+			final ChangeLogStore store = new ChangeLogStore(directory, 16384L);
+
+			// enough objects for several blocks of the sparse index per segment
+			for (int i=0; i<3; i++) {
+
+				for (int j=0; j<1000; j++) {
+					store.append(String.format("uuid%04d", j), entry(i), 1000L + i);
+				}
+			}
+
+			store.close();
+
+			final File[] sortedIndexes = directory.listFiles((dir, name) -> name.endsWith(".sidx"));
+			final File[] indexes       = directory.listFiles((dir, name) -> name.endsWith(".idx"));
+
+			assertEquals("Completed segments must have a sorted index", indexes.length - 1, sortedIndexes.length);
+
+			final ChangeLogStore reopened = new ChangeLogStore(directory, 16384L, 1);
+
+			assertEquals("Segments must have a sorted index after re-open", indexes.length, directory.listFiles((dir, name) -> name.endsWith(".sidx")).length);
+
+			for (final int j : new int[] { 0, 1, 127, 128, 129, 500, 998, 999 }) {
+
+				final List<String> entries = reopened.getEntries(String.format("uuid%04d", j), 0L, Long.MAX_VALUE, false, 10, 1);
+
+				assertEquals("Invalid number of change log entries", 3, entries.size());
+				assertEquals("Invalid change log entry", entry(0), entries.get(0));
+				assertEquals("Invalid change log entry", entry(2), entries.get(2));
+			}
+
+			assertEquals("Invalid number of change log entries", 0, reopened.count("uuid", 0L, Long.MAX_VALUE));
+			assertEquals("Invalid number of change log entries", 0, reopened.count("uuid1000", 0L, Long.MAX_VALUE));
+
+			reopened.close();
+
+		} finally {
+
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+
+	// ----- private methods -----
+	private String entry(final int i) {
+		return "{\"verb\":\"change\",\"key\":\"name\",\"val\":\"ü" + i + "\"}";
+	}
+}
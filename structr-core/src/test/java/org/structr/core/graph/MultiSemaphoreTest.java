@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class MultiSemaphoreTest {
+
+	@Test
+	public void testDisjointKeysDoNotBlock() throws Exception {
+
+		final MultiSemaphore semaphore = new MultiSemaphore();
+		final Set<String> first        = semaphore.acquire(keys("A.name"));
+		final CountDownLatch done      = new CountDownLatch(1);
+
+		// a second thread must be able to acquire a disjoint key set while
+		// the first key is held, even when the first key is contended
+		final Thread waiting = new Thread(() -> {
+			try { semaphore.release(semaphore.acquire(keys("A.name"))); } catch (InterruptedException ignore) {}
+		});
+
+		final Thread disjoint = new Thread(() -> {
+			try { semaphore.release(semaphore.acquire(keys("B.name"))); done.countDown(); } catch (InterruptedException ignore) {}
+		});
+
+		waiting.start();
+		Thread.sleep(50);
+		disjoint.start();
+
+		assertTrue("Disjoint key set must not be blocked by a waiting transaction", done.await(5, TimeUnit.SECONDS));
+
+		semaphore.release(first);
+		waiting.join(5000);
+
+		assertFalse("Waiting thread must finish after release", waiting.isAlive());
+	}
+
+	@Test
+	public void testOrderedAcquisitionPreventsDeadlock() throws Exception {
+
+		final MultiSemaphore semaphore = new MultiSemaphore();
+		final AtomicBoolean failed     = new AtomicBoolean(false);
+		final Thread[] threads         = new Thread[8];
+
+		for (int i=0; i<threads.length; i++) {
+
+			// alternate the iteration order of the requested keys
+			final Set<String> keys = (i % 2 == 0) ? keys("A.name", "B.name", "C.name") : keys("C.name", "B.name", "A.name");
+
+			threads[i] = new Thread(() -> {
+
+				try {
+					for (int j=0; j<1000; j++) {
+						semaphore.release(semaphore.acquire(keys));
+					}
+
+				} catch (InterruptedException iex) {
+					failed.set(true);
+				}
+			});
+
+			threads[i].start();
+		}
+
+		for (final Thread thread : threads) {
+
+			thread.join(30000);
+			assertFalse("Deadlock in MultiSemaphore", thread.isAlive());
+		}
+
+		assertFalse(failed.get());
+
+		final Map<String, Long> statistics = semaphore.getStatistics();
+
+		assertEquals(Long.valueOf(8000), statistics.get("A.name.acquired"));
+		assertEquals(Long.valueOf(8000), statistics.get("C.name.acquired"));
+	}
+
+	@Test
+	public void testInterruptReleasesAcquiredKeys() throws Exception {
+
+		final MultiSemaphore semaphore = new MultiSemaphore();
+		final Set<String> held         = semaphore.acquire(keys("B.name"));
+
+		final Thread thread = new Thread(() -> {
+			try { semaphore.acquire(keys("A.name", "B.name")); } catch (InterruptedException ignore) {}
+		});
+
+		thread.start();
+		Thread.sleep(50);
+		thread.interrupt();
+		thread.join(5000);
+
+		// "A.name" was acquired before the thread blocked on "B.name" and must be free again
+		final CountDownLatch done = new CountDownLatch(1);
+
+		new Thread(() -> {
+			try { semaphore.release(semaphore.acquire(keys("A.name"))); done.countDown(); } catch (InterruptedException ignore) {}
+		}).start();
+
+		assertTrue("Interrupted acquisition did not release its keys", done.await(5, TimeUnit.SECONDS));
+
+		semaphore.release(held);
+	}
+
+	// ----- private methods -----
+	private Set<String> keys(final String... keys) {
+		return new LinkedHashSet<>(Arrays.asList(keys));
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+import org.structr.common.GraphObjectComparator;
+import org.structr.common.PagingHelper;
+import org.structr.core.GraphObject;
+
+/**
+ *
+ *
+ */
+public class ResultPageCollectorTest {
+
+	@Test
+	public void testSortedPageEqualsFullSort() {
+
+		final Random random            = new Random(42);
+		final List<GraphObject> source = new ArrayList<>();
+
+		for (int i=0; i<500; i++) {
+
+			// few distinct values and some nulls to check stability
+			source.add(object(i, random.nextInt(10) == 0 ? null : random.nextInt(20)));
+		}
+
+		for (final boolean descending : new boolean[] { false, true }) {
+
+			final GraphObjectComparator comparator = new GraphObjectComparator(GraphObject.id, descending);
+			final List<GraphObject> sorted         = new ArrayList<>(source);
+
+			Collections.sort(sorted, comparator);
+
+			for (final int page : new int[] { 1, 2, 7, 50, 51 }) {
+
+				final ResultPageCollector collector = new ResultPageCollector(comparator, 10, page);
+
+				for (final GraphObject obj : source) {
+					collector.add(obj);
+				}
+
+				assertEquals(500, collector.getCount());
+				assertEquals("Invalid page " + page, PagingHelper.subList(sorted, 10, page, null), collector.getPage());
+			}
+		}
+	}
+
+	@Test
+	public void testUnsortedPage() {
+
+		final ResultPageCollector collector = new ResultPageCollector(null, 3, 2);
+
+		for (int i=0; i<5; i++) {
+
+			collector.add(object(i, null));
+			assertFalse(collector.isPageComplete());
+		}
+
+		collector.add(object(5, null));
+		assertTrue(collector.isPageComplete());
+
+		assertEquals(3, collector.getPage().size());
+		assertEquals(3L, collector.getPage().get(0).getId());
+		assertEquals(5L, collector.getPage().get(2).getId());
+
+		assertFalse(ResultPageCollector.canCollect(10, 1, "offset"));
+		assertFalse(ResultPageCollector.canCollect(10, -1, null));
+		assertFalse(ResultPageCollector.canCollect(Integer.MAX_VALUE, 2, null));
+	}
+
+	@Test
+	public void testSortedIdOperations() {
+
+		final long[] a = new long[] { 1, 3, 5, 7, 9 };
+		final long[] b = new long[] { 2, 3, 4, 9, 11 };
+
+		assertTrue(Arrays.equals(new long[] { 3, 9 }, SearchCommand.intersect(a, b)));
+		assertTrue(Arrays.equals(new long[] { 1, 2, 3, 4, 5, 7, 9, 11 }, SearchCommand.union(a, b)));
+		assertTrue(Arrays.equals(new long[] { 1, 5, 7 }, SearchCommand.subtract(a, b)));
+		assertTrue(Arrays.equals(new long[0], SearchCommand.intersect(a, new long[0])));
+		assertTrue(Arrays.equals(a, SearchCommand.subtract(a, new long[0])));
+	}
+
+	// ----- private methods -----
+	private GraphObject object(final long id, final Integer value) {
+
+		return (GraphObject)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { GraphObject.class }, (proxy, method, args) -> {
+
+			switch (method.getName()) {
+
+				case "getId":
+					return id;
+
+				case "getComparableProperty":
+					return value;
+
+				case "equals":
+					return proxy == args[0];
+
+				case "hashCode":
+					return (int)id;
+
+				case "toString":
+					return "object" + id;
+			}
+
+			return null;
+		});
+	}
+}
@@ -18,6 +18,7 @@
  */
 package org.structr.core.maintenance;
 
+import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,6 +32,7 @@ import java.util.UUID;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertTrue;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,7 +79,7 @@ public class MaintenanceTest extends StructrTest {
 
 				// status: 400
 				assertEquals(400, fex.getStatus());
-				assertEquals("Please specify sync mode (import|export).", fex.getMessage());
+				assertEquals("Please specify sync mode (import|export|importChunked|exportChunked).", fex.getMessage());
 			}
 
 			// test failure with omitted file name
@@ -166,6 +168,47 @@ public class MaintenanceTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void testSyncCommandChunkedExportImport() {
+
+		final String exportDirectory = "___structr-test-export___.data";
+
+		try {
+			// create test nodes
+			createTestNodes(TestOne.class, 100);
+
+			// test export
+			app.command(SyncCommand.class).execute(toMap("mode", "exportChunked", "file", exportDirectory));
+
+			final Path manifestFile = Paths.get(exportDirectory, "manifest.properties");
+
+			assertTrue("Snapshot manifest doesn't exist!", Files.exists(manifestFile));
+
+			cleanDatabase();
+
+			// test import
+			app.command(SyncCommand.class).execute(toMap("mode", "importChunked", "file", exportDirectory, "batchSize", 20L));
+
+			try (final Tx tx = app.tx()) {
+				assertEquals(100, app.nodeQuery(TestOne.class).getResult().size());
+			}
+
+			// resuming a completed import must not create duplicates
+			app.command(SyncCommand.class).execute(toMap("mode", "importChunked", "file", exportDirectory, "resume", true));
+
+			try (final Tx tx = app.tx()) {
+				assertEquals(100, app.nodeQuery(TestOne.class).getResult().size());
+			}
+
+			// clean-up after test
+			FileUtils.deleteDirectory(new File(exportDirectory));
+
+		} catch (Exception ex) {
+			logger.warn("", ex);
+			fail("Unexpected exception.");
+		}
+	}
+
 	@Test
 	public void testSyncCommandInheritance() {
 
@@ -664,6 +664,32 @@ public class ScriptingTest extends StructrTest {
 		}
 	}
 
+	public void testCompiledScriptCache() {
+
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext actionContext = new ActionContext(securityContext);
+			final TestOne test                = createTestNode(TestOne.class);
+
+			assertEquals("Invalid JavaScript evaluation result", "test", Scripting.replaceVariables(actionContext, test, "${{ var leaked = 'test'; return leaked; }}"));
+
+			final long hits = (Long)Scripting.getScriptStatistics().get("cacheHits");
+
+			assertEquals("Invalid JavaScript evaluation result", "test", Scripting.replaceVariables(actionContext, test, "${{ var leaked = 'test'; return leaked; }}"));
+			assertEquals("Compiled script was not reused", hits + 1, (long)(Long)Scripting.getScriptStatistics().get("cacheHits"));
+
+			// variables must not leak between evaluations
+			assertEquals("Invalid JavaScript evaluation result", "undefined", Scripting.replaceVariables(actionContext, test, "${{ return typeof leaked; }}"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
 	public void testPhp() {
 
 		try (final Tx tx = app.tx()) {
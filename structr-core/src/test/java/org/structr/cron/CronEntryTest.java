@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.cron;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class CronEntryTest {
+
+	@Test
+	public void testNextExecutionTimeAfter() {
+
+		final CronEntry entry = CronEntry.parse("test", "*/5 * * * * *");
+		final Calendar cal    = GregorianCalendar.getInstance();
+
+		assertNotNull(entry);
+
+		cal.set(2016, Calendar.MARCH, 1, 12, 0, 3);
+		cal.set(Calendar.MILLISECOND, 250);
+
+		final long first = entry.getNextExecutionTimeAfter(cal.getTimeInMillis());
+		cal.setTimeInMillis(first);
+
+		assertEquals("Next execution should be at the next matching second", 5, cal.get(Calendar.SECOND));
+		assertEquals("Next execution should be at a full second", 0, cal.get(Calendar.MILLISECOND));
+
+		// the next execution after an execution must never be the same one
+		final long second = entry.getNextExecutionTimeAfter(first);
+
+		assertEquals("Executions should be five seconds apart", 5000L, second - first);
+	}
+
+	@Test
+	public void testHourlyExecution() {
+
+		final CronEntry entry = CronEntry.parse("test", "0 0 * * * *");
+		final Calendar cal    = GregorianCalendar.getInstance();
+
+		cal.set(2016, Calendar.MARCH, 1, 12, 0, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+
+		final long next = entry.getNextExecutionTimeAfter(cal.getTimeInMillis());
+		cal.setTimeInMillis(next);
+
+		assertEquals("Hourly task should run at the next full hour", 13, cal.get(Calendar.HOUR_OF_DAY));
+		assertEquals("Hourly task should run at the next full hour", 0,  cal.get(Calendar.MINUTE));
+		assertEquals("Hourly task should run at the next full hour", 0,  cal.get(Calendar.SECOND));
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import javax.tools.ToolProvider;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class CompiledClassCacheTest {
+
+	@Test
+	public void testStoreAndLoad() throws Exception {
+
+		final Path path                  = Files.createTempDirectory("structr-class-cache");
+		final Map<String, String> hashes = getHashes();
+
+		new CompiledClassCache(path.toString(), "env1").store(hashes, getClassObjects(), hashes.keySet());
+
+		final ClassFileManager fileManager = createFileManager();
+
+		assertEquals("Invalid source hashes", hashes, new CompiledClassCache(path.toString(), "env1").load(fileManager));
+		assertEquals("Invalid number of cached classes", 3, fileManager.getClassObjects().size());
+
+		for (final JavaClassObject obj : fileManager.getClassObjects()) {
+
+			assertEquals("Invalid cached byte code", obj.getBinaryName(), new String(obj.getBytes(), "utf-8"));
+		}
+	}
+
+	@Test
+	public void testEnvironmentChange() throws Exception {
+
+		final Path path                  = Files.createTempDirectory("structr-class-cache");
+		final Map<String, String> hashes = getHashes();
+
+		new CompiledClassCache(path.toString(), "env1").store(hashes, getClassObjects(), hashes.keySet());
+
+		final ClassFileManager fileManager = createFileManager();
+
+		assertEquals("Cache of a different environment must be ignored", Collections.emptyMap(), new CompiledClassCache(path.toString(), "env2").load(fileManager));
+		assertTrue("Cache of a different environment must be ignored", fileManager.getClassObjects().isEmpty());
+	}
+
+	@Test
+	public void testMissingClassFile() throws Exception {
+
+		final Path path                  = Files.createTempDirectory("structr-class-cache");
+		final Map<String, String> hashes = getHashes();
+
+		new CompiledClassCache(path.toString(), "env1").store(hashes, getClassObjects(), hashes.keySet());
+
+		Files.delete(path.resolve("org.structr.dynamic.B$Inner.class"));
+
+		final ClassFileManager fileManager = createFileManager();
+		final Map<String, String> loaded   = new CompiledClassCache(path.toString(), "env1").load(fileManager);
+
+		// all classes of a source with a missing class file must be compiled again
+		assertEquals("Invalid source hashes", Collections.singleton("A"), loaded.keySet());
+		assertEquals("Invalid number of cached classes", 1, fileManager.getClassObjects().size());
+	}
+
+	@Test
+	public void testDeletedType() throws Exception {
+
+		final Path path                  = Files.createTempDirectory("structr-class-cache");
+		final Map<String, String> hashes = getHashes();
+		final CompiledClassCache cache   = new CompiledClassCache(path.toString(), "env1");
+
+		cache.store(hashes, getClassObjects(), hashes.keySet());
+
+		hashes.remove("B");
+
+		cache.store(hashes, getClassObjects().subList(0, 1), Collections.emptySet());
+
+		assertTrue("Class file of existing type must be kept", Files.exists(path.resolve("org.structr.dynamic.A.class")));
+		assertFalse("Class file of deleted type must be removed", Files.exists(path.resolve("org.structr.dynamic.B.class")));
+		assertFalse("Class file of deleted type must be removed", Files.exists(path.resolve("org.structr.dynamic.B$Inner.class")));
+
+		final ClassFileManager fileManager = createFileManager();
+
+		assertEquals("Invalid source hashes", hashes, cache.load(fileManager));
+		assertEquals("Invalid number of cached classes", 1, fileManager.getClassObjects().size());
+	}
+
+	@Test
+	public void testModifiedSource() throws Exception {
+
+		final Path path                  = Files.createTempDirectory("structr-class-cache");
+		final Map<String, String> hashes = getHashes();
+		final CompiledClassCache cache   = new CompiledClassCache(path.toString(), "env1");
+
+		cache.store(hashes, getClassObjects(), hashes.keySet());
+
+		// only the class files of modified sources are written again
+		final List<JavaClassObject> classes = Arrays.asList(
+			new JavaClassObject("org.structr.dynamic.A", "A", "modified".getBytes("utf-8")),
+			new JavaClassObject("org.structr.dynamic.B", "B", "modified".getBytes("utf-8")),
+			new JavaClassObject("org.structr.dynamic.B$Inner", "B", "modified".getBytes("utf-8"))
+		);
+
+		hashes.put("A", "a2");
+
+		cache.store(hashes, classes, Collections.singleton("A"));
+
+		assertEquals("Class file of modified source must be written", "modified", new String(Files.readAllBytes(path.resolve("org.structr.dynamic.A.class")), "utf-8"));
+		assertEquals("Class file of unmodified source must be kept", "org.structr.dynamic.B", new String(Files.readAllBytes(path.resolve("org.structr.dynamic.B.class")), "utf-8"));
+		assertEquals("Invalid source hashes", hashes, cache.load(createFileManager()));
+	}
+
+	// ----- private methods -----
+	private ClassFileManager createFileManager() {
+		return new ClassFileManager(ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null));
+	}
+
+	private Map<String, String> getHashes() {
+
+		final Map<String, String> hashes = new LinkedHashMap<>();
+
+		hashes.put("A", "a1");
+		hashes.put("B", "b1");
+
+		return hashes;
+	}
+
+	private List<JavaClassObject> getClassObjects() throws Exception {
+
+		// the byte code is not loaded, so the binary name is sufficient as content
+		return Arrays.asList(
+			new JavaClassObject("org.structr.dynamic.A", "A", "org.structr.dynamic.A".getBytes("utf-8")),
+			new JavaClassObject("org.structr.dynamic.B", "B", "org.structr.dynamic.B".getBytes("utf-8")),
+			new JavaClassObject("org.structr.dynamic.B$Inner", "B", "org.structr.dynamic.B$Inner".getBytes("utf-8"))
+		);
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class NodeExtenderTest {
+
+	@Test
+	public void testUnchangedSources() {
+
+		final List<CharSequenceJavaFileObject> files = getSources("class A {}", "class B extends A {}");
+		final Map<String, String> hashes             = getHashes(files);
+
+		assertEquals("Unchanged sources must not be compiled", Collections.emptySet(), NodeExtender.getModifiedSources(hashes, getClassObjects(files), hashes, files));
+	}
+
+	@Test
+	public void testDependentSources() {
+
+		final List<CharSequenceJavaFileObject> oldFiles = getSources("class A {}", "class B extends A {}", "class C { B b; }", "class D {}");
+		final List<CharSequenceJavaFileObject> newFiles = getSources("class A { int x; }", "class B extends A {}", "class C { B b; }", "class D {}");
+
+		// B references A directly, C references A through B
+		assertEquals("Invalid modified sources", set("A", "B", "C"), NodeExtender.getModifiedSources(getHashes(oldFiles), getClassObjects(oldFiles), getHashes(newFiles), newFiles));
+	}
+
+	@Test
+	public void testDeletedSources() {
+
+		final List<CharSequenceJavaFileObject> oldFiles = getSources("class A {}", "class B extends A {}", "class D {}");
+		final List<CharSequenceJavaFileObject> newFiles = getSources("class B extends A {}", "class D {}");
+
+		assertEquals("Sources referencing a deleted type must be compiled", set("B"), NodeExtender.getModifiedSources(getHashes(oldFiles), getClassObjects(oldFiles), getHashes(newFiles), newFiles));
+	}
+
+	@Test
+	public void testMissingClasses() {
+
+		final List<CharSequenceJavaFileObject> files = getSources("class A {}", "class B extends A {}", "class D {}");
+		final Map<String, String> hashes             = getHashes(files);
+
+		assertEquals("Sources without compiled classes must be compiled", set("D"), NodeExtender.getModifiedSources(hashes, getClassObjects(files.subList(0, 2)), hashes, files));
+	}
+
+	@Test
+	public void testIncrementalCompilation() throws Exception {
+
+		final JavaCompiler compiler                  = ToolProvider.getSystemJavaCompiler();
+		final ClassFileManager fileManager           = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
+		final List<CharSequenceJavaFileObject> files = getSources("public class A { public int value() { return 1; } }", "public class B extends A {}");
+
+		assertTrue("Initial compilation failed", compiler.getTask(new StringWriter(), fileManager, null, null, null, files).call());
+
+		final JavaClassObject compiledA = getClassObject(fileManager, "A");
+
+		// compile only the modified source against the byte code of A
+		final List<CharSequenceJavaFileObject> modified = getSources("public class B extends A { public int value() { return super.value() + 1; } }");
+
+		fileManager.removeClassObjects(set("B"));
+
+		assertTrue("Incremental compilation failed", compiler.getTask(new StringWriter(), fileManager, null, null, null, modified).call());
+		assertSame("Unmodified class must not be compiled again", compiledA, getClassObject(fileManager, "A"));
+		assertEquals("Invalid number of class objects", 2, fileManager.getClassObjects().size());
+
+		final Class type = fileManager.getClassLoader(null).loadClass("org.structr.dynamic.B");
+
+		assertEquals("Invalid super class", "org.structr.dynamic.A", type.getSuperclass().getName());
+		assertEquals("Invalid result of recompiled class", 2, type.getMethod("value").invoke(type.newInstance()));
+	}
+
+	// ----- private methods -----
+	private List<CharSequenceJavaFileObject> getSources(final String... sources) {
+
+		final List<CharSequenceJavaFileObject> files = new LinkedList<>();
+
+		for (final String source : sources) {
+
+			final String className = source.replaceFirst("^(public )?class (\\w+).*$", "$2");
+
+			files.add(new CharSequenceJavaFileObject(className, "package org.structr.dynamic;\n\n" + source));
+		}
+
+		return files;
+	}
+
+	private Map<String, String> getHashes(final List<CharSequenceJavaFileObject> files) {
+
+		final Map<String, String> hashes = new LinkedHashMap<>();
+
+		for (final CharSequenceJavaFileObject file : files) {
+			hashes.put(file.getClassName(), DigestUtils.sha256Hex(file.getCharContent(true).toString()));
+		}
+
+		return hashes;
+	}
+
+	private List<JavaClassObject> getClassObjects(final List<CharSequenceJavaFileObject> files) {
+
+		final List<JavaClassObject> classes = new LinkedList<>();
+
+		for (final CharSequenceJavaFileObject file : files) {
+			classes.add(new JavaClassObject("org.structr.dynamic." + file.getClassName(), file.getClassName(), new byte[0]));
+		}
+
+		return classes;
+	}
+
+	private JavaClassObject getClassObject(final ClassFileManager fileManager, final String sourceName) {
+
+		for (final JavaClassObject obj : fileManager.getClassObjects()) {
+
+			if (sourceName.equals(obj.getSourceName())) {
+				return obj;
+			}
+		}
+
+		return null;
+	}
+
+	private Set<String> set(final String... names) {
+		return new LinkedHashSet<>(Arrays.asList(names));
+	}
+}
@@ -18,12 +18,16 @@
  */
 package org.structr.api;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import org.structr.api.graph.GraphProperties;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
 
 /**
@@ -40,8 +44,72 @@ public interface DatabaseService {
 
 	Transaction beginTx();
 
+	/**
+	 * Begins a transaction that is only used to read data, so the driver
+	 * can skip the bookkeeping for modifications. Writes are still
+	 * allowed, but they are not expected.
+	 *
+	 * @return the transaction
+	 */
+	default Transaction beginReadOnlyTx() {
+		return beginTx();
+	}
+
 	Node createNode(final Set<String> labels, final Map<String, Object> properties);
 
+	/**
+	 * Creates one node with the given labels for each of the given property
+	 * maps, e.g. for bulk imports. Drivers can override this method to
+	 * create all nodes with a single statement.
+	 *
+	 * @param labels the labels of the new nodes
+	 * @param properties the properties of the new nodes
+	 * @return the new nodes, in the order of the given property maps
+	 */
+	default List<Node> createNodes(final Set<String> labels, final List<Map<String, Object>> properties) {
+
+		final List<Node> nodes = new ArrayList<>(properties.size());
+
+		for (final Map<String, Object> map : properties) {
+			nodes.add(createNode(labels, map));
+		}
+
+		return nodes;
+	}
+
+	/**
+	 * Creates one relationship of the given type between each pair of the
+	 * given start and end nodes, e.g. for bulk imports. A new relationship
+	 * is created even if the nodes are already connected. The default
+	 * implementation calls {@link Node#createRelationshipTo} for each pair,
+	 * so drivers whose createRelationshipTo reuses existing relationships
+	 * must override this method. Drivers can also override it to create
+	 * all relationships with a single statement.
+	 *
+	 * @param startNodes the start nodes
+	 * @param endNodes the end nodes
+	 * @param type the relationship type
+	 * @param properties the properties of the new relationships
+	 * @return the new relationships, in the order of the given nodes
+	 */
+	default List<Relationship> createRelationships(final List<Node> startNodes, final List<Node> endNodes, final RelationshipType type, final List<Map<String, Object>> properties) {
+
+		final List<Relationship> relationships        = new ArrayList<>(properties.size());
+		final Iterator<Node> startIterator            = startNodes.iterator();
+		final Iterator<Node> endIterator              = endNodes.iterator();
+		final Iterator<Map<String, Object>> iterator  = properties.iterator();
+
+		while (startIterator.hasNext() && endIterator.hasNext() && iterator.hasNext()) {
+
+			final Relationship relationship = startIterator.next().createRelationshipTo(endIterator.next(), type);
+
+			relationship.setProperties(iterator.next());
+			relationships.add(relationship);
+		}
+
+		return relationships;
+	}
+
 	Node getNodeById(final long id);
 	Relationship getRelationshipById(final long id);
 
@@ -60,4 +128,12 @@ public interface DatabaseService {
 	NativeResult execute(final String nativeQuery);
 
 	void invalidateQueryCache();
+
+	/**
+	 * Returns hit, miss, eviction and invalidation counters of the
+	 * query cache, if the database driver has one.
+	 *
+	 * @return a map of counter names to values
+	 */
+	Map<String, Long> getQueryCacheStatistics();
 }
@@ -18,6 +18,7 @@
  */
 package org.structr.api.index;
 
+import java.util.Collection;
 import org.structr.api.search.QueryPredicate;
 
 /**
@@ -27,8 +28,34 @@ public interface Index<T> {
 
 	void add(final T t, final String key, final Object value, final Class typeHint);
 
+	/**
+	 * Adds all the given values for the given key in a single operation,
+	 * if the underlying implementation supports it. The default
+	 * implementation adds the values one by one.
+	 *
+	 * @param t
+	 * @param key
+	 * @param values
+	 * @param typeHint
+	 */
+	default void addAll(final T t, final String key, final Collection<?> values, final Class typeHint) {
+
+		for (final Object value : values) {
+			add(t, key, value, typeHint);
+		}
+	}
+
 	void remove(final T t);
 	void remove(final T t, final String key);
 
 	Iterable<T> query(final QueryPredicate predicate);
+
+	/**
+	 * Returns the number of results the given predicate would yield,
+	 * ignoring paging.
+	 *
+	 * @param predicate
+	 * @return the number of results
+	 */
+	long count(final QueryPredicate predicate);
 }
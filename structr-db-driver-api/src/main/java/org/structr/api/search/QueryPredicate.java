@@ -46,4 +46,23 @@ public interface QueryPredicate {
 	String getSortKey();
 	SortType getSortType();
 	boolean sortDescending();
+
+	/**
+	 * The desired page size of the query result. Return Integer.MAX_VALUE
+	 * here if the result should not be paged by the indexing system.
+	 *
+	 * @return the page size
+	 */
+	default int getPageSize() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * The desired page of the query result, starting with 1.
+	 *
+	 * @return the page
+	 */
+	default int getPage() {
+		return 1;
+	}
 }
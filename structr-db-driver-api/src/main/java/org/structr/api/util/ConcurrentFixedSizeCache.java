@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe map-like storage structure with a fixed maximum size
+ * that removes a recently unused entry when the insertion of a new
+ * entry causes the map to exceed the specified maximum size.
+ *
+ * In contrast to FixedSizeCache, this cache does not use any locks.
+ * Lookups are plain ConcurrentHashMap reads that mark the entry as
+ * referenced, and eviction uses the CLOCK (second chance) algorithm
+ * as an approximation of LRU: entries are kept in insertion order,
+ * and referenced entries are re-queued once with the flag cleared
+ * instead of being removed.
+ *
+ * Evicted values that implement Cachable are invalidated, just like
+ * in FixedSizeCache.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class ConcurrentFixedSizeCache<K, V> {
+
+	private final ConcurrentLinkedQueue<Entry<K, V>> clock = new ConcurrentLinkedQueue<>();
+	private final ConcurrentHashMap<K, Entry<K, V>> cache;
+	private final AtomicBoolean purging                    = new AtomicBoolean(false);
+	private final AtomicInteger removed                    = new AtomicInteger();
+	private final int maxSize;
+
+	public ConcurrentFixedSizeCache(final int maxSize) {
+
+		this.cache   = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+		this.maxSize = maxSize;
+	}
+
+	public void put(final K key, final V value) {
+
+		final Entry<K, V> entry    = new Entry<>(key, value);
+		final Entry<K, V> previous = cache.put(key, entry);
+
+		if (previous != null) {
+
+			previous.removed = true;
+			removed.incrementAndGet();
+		}
+
+		clock.offer(entry);
+		evict();
+	}
+
+	/**
+	 * Stores the given value if no value is present for the given key.
+	 *
+	 * @param key
+	 * @param value
+	 * @return the existing value, or null if the given value was stored
+	 */
+	public V putIfAbsent(final K key, final V value) {
+
+		final Entry<K, V> entry    = new Entry<>(key, value);
+		final Entry<K, V> existing = cache.putIfAbsent(key, entry);
+
+		if (existing != null) {
+
+			existing.referenced = true;
+			return existing.value;
+		}
+
+		clock.offer(entry);
+		evict();
+
+		return null;
+	}
+
+	public V get(final K key) {
+
+		final Entry<K, V> entry = cache.get(key);
+		if (entry != null) {
+
+			entry.referenced = true;
+			return entry.value;
+		}
+
+		return null;
+	}
+
+	public void remove(final K key) {
+
+		final Entry<K, V> entry = cache.remove(key);
+		if (entry != null) {
+
+			entry.removed = true;
+
+			// removed entries stay in the clock queue until they are polled,
+			// so purge them if there are too many
+			if (removed.incrementAndGet() > maxSize) {
+				purge();
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries from this cache. Entries are removed one by one
+	 * with the same mechanism as remove(), so that entries that are added
+	 * concurrently stay consistent between the map and the clock queue.
+	 */
+	public void clear() {
+
+		for (final Entry<K, V> entry : cache.values()) {
+
+			if (cache.remove(entry.key, entry)) {
+
+				entry.removed = true;
+				removed.incrementAndGet();
+			}
+		}
+
+		purge();
+	}
+
+	/**
+	 * Returns the number of entries in this cache. The size is derived
+	 * from the underlying map so it cannot drift from the actual content.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Returns a snapshot of the values in this cache.
+	 *
+	 * @return the cached values
+	 */
+	public List<V> values() {
+
+		final List<V> values = new ArrayList<>(cache.size());
+
+		for (final Entry<K, V> entry : cache.values()) {
+			values.add(entry.value);
+		}
+
+		return values;
+	}
+
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	// ----- private methods -----
+	private void evict() {
+
+		while (cache.size() > maxSize) {
+
+			final Entry<K, V> entry = clock.poll();
+			if (entry == null) {
+
+				// all remaining entries are being evicted concurrently
+				return;
+			}
+
+			if (entry.removed) {
+
+				removed.decrementAndGet();
+				continue;
+			}
+
+			if (entry.referenced) {
+
+				// second chance
+				entry.referenced = false;
+				clock.offer(entry);
+				continue;
+			}
+
+			if (cache.remove(entry.key, entry)) {
+
+				entry.removed = true;
+
+				if (entry.value instanceof Cachable) {
+
+					((Cachable)entry.value).invalidate();
+				}
+			}
+		}
+	}
+
+	private void purge() {
+
+		if (purging.compareAndSet(false, true)) {
+
+			try {
+
+				clock.removeIf(entry -> entry.removed);
+				removed.set(0);
+
+			} finally {
+
+				purging.set(false);
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	private static class Entry<K, V> {
+
+		private volatile boolean referenced = false;
+		private volatile boolean removed    = false;
+		private final K key;
+		private final V value;
+
+		public Entry(final K key, final V value) {
+
+			this.key   = key;
+			this.value = value;
+		}
+	}
+}
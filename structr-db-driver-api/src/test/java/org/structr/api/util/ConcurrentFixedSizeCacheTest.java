@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+
+/**
+ *
+ */
+public class ConcurrentFixedSizeCacheTest {
+
+	@org.junit.Test
+	public void testConcurrentFixedSizeCache() {
+
+		final ConcurrentFixedSizeCache<Long, Long> test = new ConcurrentFixedSizeCache<>(10);
+
+		for (int i=0; i<100; i++) {
+
+			final Long value = Long.valueOf(i);
+			test.put(value, value);
+		}
+
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache size", 10, test.size());
+
+		// check that only the eldest entries are kept
+		for (int i=0; i<90; i++) {
+
+			final Long value = Long.valueOf(i);
+			Assert.assertNull("Invalid ConcurrentFixedSizeCache contents", test.get(value));
+		}
+
+		// check that only the eldest entries are kept
+		for (int i=90; i<100; i++) {
+
+			final Long value = Long.valueOf(i);
+			Assert.assertEquals("Invalid ConcurrentFixedSizeCache contents", test.get(value), value);
+		}
+	}
+
+	@org.junit.Test
+	public void testSecondChance() {
+
+		final ConcurrentFixedSizeCache<Long, Long> test = new ConcurrentFixedSizeCache<>(10);
+
+		for (int i=0; i<10; i++) {
+
+			final Long value = Long.valueOf(i);
+			test.put(value, value);
+		}
+
+		// access the first entry so it survives the next insertion
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache contents", Long.valueOf(0), test.get(0L));
+
+		test.put(10L, 10L);
+
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache contents", Long.valueOf(0), test.get(0L));
+		Assert.assertNull("Invalid ConcurrentFixedSizeCache contents", test.get(1L));
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache size", 10, test.size());
+	}
+
+	@org.junit.Test
+	public void testInvalidationAndPutIfAbsent() throws InterruptedException {
+
+		final ConcurrentFixedSizeCache<Long, TestCachable> test = new ConcurrentFixedSizeCache<>(100);
+		final AtomicInteger invalidations                       = new AtomicInteger();
+		final AtomicInteger insertions                          = new AtomicInteger();
+
+		runConcurrently(8, () -> {
+
+			for (long i=0; i<10000; i++) {
+
+				final TestCachable value = new TestCachable(i, invalidations);
+				final TestCachable other = test.putIfAbsent(i, value);
+
+				if (other != null) {
+
+					Assert.assertEquals("Invalid ConcurrentFixedSizeCache contents", i, other.key);
+
+				} else {
+
+					insertions.incrementAndGet();
+				}
+			}
+		});
+
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache size", 100, test.size());
+		Assert.assertEquals("Invalid number of invalidations", insertions.get() - 100, invalidations.get());
+
+		test.remove(9999L);
+
+		Assert.assertNull("Invalid ConcurrentFixedSizeCache contents", test.get(9999L));
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache size", 99, test.size());
+
+		test.clear();
+
+		Assert.assertTrue("Invalid ConcurrentFixedSizeCache size", test.isEmpty());
+	}
+
+	@org.junit.Test
+	public void testConcurrentClear() throws InterruptedException {
+
+		final ConcurrentFixedSizeCache<Long, Long> test = new ConcurrentFixedSizeCache<>(100);
+
+		runConcurrently(8, () -> {
+
+			for (long i=0; i<10000; i++) {
+
+				test.put(i, i);
+
+				if (i % 1000 == 0) {
+					test.clear();
+				}
+			}
+		});
+
+		Assert.assertTrue("Invalid ConcurrentFixedSizeCache size", test.size() <= 100);
+
+		// all remaining entries must still be evictable
+		for (long i=10000; i<10200; i++) {
+			test.put(i, i);
+		}
+
+		Assert.assertEquals("Invalid ConcurrentFixedSizeCache size", 100, test.size());
+
+		for (long i=10100; i<10200; i++) {
+			Assert.assertEquals("Invalid ConcurrentFixedSizeCache contents", Long.valueOf(i), test.get(i));
+		}
+	}
+
+	// ----- private methods -----
+	/**
+	 * Runs the given task in the given number of threads and rethrows the
+	 * first failure of a worker thread in the calling thread.
+	 */
+	private void runConcurrently(final int threadCount, final Runnable task) throws InterruptedException {
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final CountDownLatch latch               = new CountDownLatch(threadCount);
+
+		for (int t=0; t<threadCount; t++) {
+
+			new Thread(() -> {
+
+				try {
+					task.run();
+
+				} catch (Throwable throwable) {
+
+					failure.compareAndSet(null, throwable);
+
+				} finally {
+
+					latch.countDown();
+				}
+
+			}).start();
+		}
+
+		Assert.assertTrue("Worker threads did not finish in time", latch.await(60, TimeUnit.SECONDS));
+
+		if (failure.get() != null) {
+			throw new AssertionError("Worker thread failed", failure.get());
+		}
+	}
+
+	// ----- nested classes -----
+	private static class TestCachable implements Cachable {
+
+		private AtomicInteger invalidations = null;
+		private long key                    = 0L;
+
+		public TestCachable(final long key, final AtomicInteger invalidations) {
+
+			this.invalidations = invalidations;
+			this.key           = key;
+		}
+
+		@Override
+		public void invalidate() {
+			invalidations.incrementAndGet();
+		}
+	}
+}
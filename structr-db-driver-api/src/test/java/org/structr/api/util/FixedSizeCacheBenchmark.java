@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the lookup-or-insert throughput of FixedSizeCache (used the
+ * way the Bolt wrappers used to use it, with an additional monitor around
+ * get and put) and ConcurrentFixedSizeCache at 1, 8 and 64 threads.
+ *
+ * Run the main method of this class (or org.openjdk.jmh.Main) with the
+ * test classpath of this module after "mvn test-compile".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedSizeCacheBenchmark {
+
+	private static final int CACHE_SIZE = 100000;
+	private static final int KEY_RANGE  = 150000;
+
+	@Param({ "FixedSizeCache", "ConcurrentFixedSizeCache" })
+	public String implementation;
+
+	private ConcurrentFixedSizeCache<Long, Long> concurrentCache = null;
+	private FixedSizeCache<Long, Long> fixedSizeCache            = null;
+
+	@Setup
+	public void setup() {
+
+		fixedSizeCache  = new FixedSizeCache<>(CACHE_SIZE);
+		concurrentCache = new ConcurrentFixedSizeCache<>(CACHE_SIZE);
+
+		for (long i=0; i<CACHE_SIZE; i++) {
+
+			fixedSizeCache.put(i, i);
+			concurrentCache.put(i, i);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Long threads1() {
+		return lookupOrInsert();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Long threads8() {
+		return lookupOrInsert();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public Long threads64() {
+		return lookupOrInsert();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder().include(FixedSizeCacheBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// ----- private methods -----
+	private Long lookupOrInsert() {
+
+		final long key = nextKey();
+
+		if ("FixedSizeCache".equals(implementation)) {
+
+			synchronized (fixedSizeCache) {
+
+				Long value = fixedSizeCache.get(key);
+				if (value == null) {
+
+					value = key;
+					fixedSizeCache.put(key, value);
+				}
+
+				return value;
+			}
+
+		} else {
+
+			Long value = concurrentCache.get(key);
+			if (value == null) {
+
+				value = key;
+
+				final Long existing = concurrentCache.putIfAbsent(key, value);
+				if (existing != null) {
+
+					value = existing;
+				}
+			}
+
+			return value;
+		}
+	}
+
+	/**
+	 * Returns a skewed key so that most lookups hit a small set of hot
+	 * entries, and some lookups miss and cause evictions.
+	 */
+	private long nextKey() {
+
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final double skewed            = Math.pow(random.nextDouble(), 3.0);
+
+		return (long)(skewed * KEY_RANGE);
+	}
+}
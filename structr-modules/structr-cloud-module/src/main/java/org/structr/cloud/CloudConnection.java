@@ -25,11 +25,13 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.security.InvalidKeyException;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import javax.crypto.Cipher;
@@ -39,6 +41,7 @@ import javax.crypto.spec.SecretKeySpec;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.cloud.message.Ack;
 import org.structr.cloud.message.DataContainer;
 import org.structr.cloud.message.FileNodeChunk;
 import org.structr.cloud.message.FileNodeDataContainer;
@@ -85,25 +88,32 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 	private final Map<String, String> idMap = new LinkedHashMap<>();
 	private final Map<String, Object> data = new LinkedHashMap<>();
 
+	// statistics
+	private final LongAdder messagesSent     = new LongAdder();
+	private final LongAdder messagesReceived = new LongAdder();
+	private final long startTime             = System.currentTimeMillis();
+
 	// private fields
-	private final ConfigurationProvider config = Services.getInstance().getConfigurationProvider();
-	private App app                            = null;
-	private CloudListener listener             = null;
-	private long transmissionAbortTime         = 0L;
-	private boolean authenticated              = false;
-	private String errorMessage                = null;
-	private String remoteAddress               = null;
-	private int errorCode                      = 0;
-	private String password                    = null;
-	private Cipher encrypter                   = null;
-	private Cipher decrypter                   = null;
-	private Receiver receiver                  = null;
-	private Sender sender                      = null;
-	private Socket socket                      = null;
- 	private T payload                          = null;
- 	private Tx tx                              = null;
-	private int count                          = 0;
-	private int total                          = 0;
+	private final ConfigurationProvider config  = Services.getInstance().getConfigurationProvider();
+	private final Object stateLock              = new Object();
+	private Iterator<Message> pendingRequests   = null;
+	private App app                             = null;
+	private CloudListener listener              = null;
+	private volatile long transmissionAbortTime = 0L;
+	private volatile boolean authenticated      = false;
+	private volatile String errorMessage        = null;
+	private String remoteAddress                = null;
+	private int errorCode                       = 0;
+	private String password                     = null;
+	private Cipher encrypter                    = null;
+	private Cipher decrypter                    = null;
+	private Receiver receiver                   = null;
+	private Sender sender                       = null;
+	private Socket socket                       = null;
+ 	private T payload                           = null;
+ 	private Tx tx                               = null;
+	private int count                           = 0;
+	private int total                           = 0;
 
 	public CloudConnection(final SecurityContext securityContext, final Socket socket, final CloudListener listener) {
 
@@ -157,7 +167,7 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 
 			try {
 
-				final Message request = receiver.receive();
+				final Message request = receiver.receive(100);
 				if (request != null) {
 
 					logDebug("RECEIVED ", request);
@@ -173,6 +183,12 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 
 						request.onRequest(this);
 					}
+
+					if (isResponse(request)) {
+
+						// each response makes room for the next request
+						sendPendingRequests(1);
+					}
 				}
 
 				if (count >= 100) {
@@ -201,7 +217,7 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 
 		shutdown();
 
-		logger.info("Transmission finished");
+		logger.info("Transmission finished: {}", getStatistics());
 
 	}
 
@@ -211,6 +227,23 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 		sender.send(message);
 	}
 
+	/**
+	 * Sends the given requests with at most {@link CloudService#REQUEST_WINDOW}
+	 * of them outstanding at any time. A new request is sent each time a
+	 * data container is received in response. This method must be called
+	 * from the connection thread.
+	 *
+	 * @param requests the requests to send
+	 * @throws IOException
+	 * @throws FrameworkException
+	 */
+	public void sendPipelined(final Iterator<Message> requests) throws IOException, FrameworkException {
+
+		pendingRequests = requests;
+
+		sendPendingRequests(CloudService.REQUEST_WINDOW);
+	}
+
 	/**
 	 * This method is private to prevent calling it from a different thread.
 	 */
@@ -229,29 +262,29 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 		} catch (Throwable t) {
 			logger.warn("", t);
 		}
+
+		signal();
 	}
 
 	public void waitForAuthentication() throws FrameworkException {
 
 		final long abortTime = System.currentTimeMillis() + CloudService.AUTH_TIMEOUT;
 
-		while (!authenticated) {
+		synchronized (stateLock) {
 
-			if (errorMessage != null) {
-				throw new FrameworkException(errorCode, errorMessage);
-			}
+			while (!authenticated) {
 
-			if (System.currentTimeMillis() > abortTime) {
-
-				throw new FrameworkException(401, "Authentication failed.");
-			}
+				if (errorMessage != null) {
+					throw new FrameworkException(errorCode, errorMessage);
+				}
 
-			try {
+				final long remaining = abortTime - System.currentTimeMillis();
+				if (remaining <= 0 || !isConnected()) {
 
-				Thread.sleep(10);
+					throw new FrameworkException(401, "Authentication failed.");
+				}
 
-			} catch (Throwable t) {
-				logger.warn("", t);
+				await(remaining);
 			}
 		}
 	}
@@ -264,42 +297,45 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 
 		transmissionAbortTime = System.currentTimeMillis() + CloudService.DEFAULT_TIMEOUT;
 
-		while (isConnected()) {
+		synchronized (stateLock) {
 
-			if (errorMessage != null) {
-				throw new FrameworkException(errorCode, errorMessage);
-			}
+			while (isConnected()) {
 
-			if (System.currentTimeMillis() > transmissionAbortTime) {
-
-				throw new FrameworkException(504, "Timeout while waiting for response.");
-			}
+				if (errorMessage != null) {
+					throw new FrameworkException(errorCode, errorMessage);
+				}
 
-			try {
+				// the abort time is refreshed by each incoming message
+				final long remaining = transmissionAbortTime - System.currentTimeMillis();
+				if (remaining <= 0) {
 
-				Thread.sleep(10);
+					throw new FrameworkException(504, "Timeout while waiting for response.");
+				}
 
-			} catch (Throwable t) {
-				logger.warn("", t);
+				await(remaining);
 			}
 		}
+
+		if (errorMessage != null) {
+			throw new FrameworkException(errorCode, errorMessage);
+		}
 	}
 
 	public void waitForClose(int timeout) throws FrameworkException {
 
 		final long abortTime = System.currentTimeMillis() + CloudService.DEFAULT_TIMEOUT;
 
-		while (isConnected() && System.currentTimeMillis() < abortTime) {
+		synchronized (stateLock) {
 
-			try {
+			long remaining = abortTime - System.currentTimeMillis();
 
-				Thread.sleep(10);
+			while (isConnected() && remaining > 0) {
 
-			} catch (Throwable t) {
-				logger.warn("", t);
+				await(remaining);
+
+				remaining = abortTime - System.currentTimeMillis();
 			}
 		}
-
 	}
 
 	public void setEncryptionKey(final String key, final int keyLength) throws InvalidKeyException {
@@ -321,7 +357,10 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 	}
 
 	public void setAuthenticated() {
+
 		authenticated = true;
+
+		signal();
 	}
 
 	public void setPassword(final String password) {
@@ -728,4 +767,79 @@ public class CloudConnection<T> extends Thread implements TransactionSource {
 	public int getTotal() {
 		return total;
 	}
+
+	public void messageSent() {
+		messagesSent.increment();
+	}
+
+	public void messageReceived() {
+		messagesReceived.increment();
+	}
+
+	/**
+	 * Returns the message counters and throughput of this connection.
+	 *
+	 * @return a map with connection statistics
+	 */
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long duration                  = Math.max(1L, System.currentTimeMillis() - startTime);
+		final long sent                      = messagesSent.sum();
+		final long received                  = messagesReceived.sum();
+
+		statistics.put("sent",              sent);
+		statistics.put("received",          received);
+		statistics.put("duration",          duration);
+		statistics.put("sentPerSecond",     sent * 1000L / duration);
+		statistics.put("receivedPerSecond", received * 1000L / duration);
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void sendPendingRequests(final int num) throws IOException, FrameworkException {
+
+		final Iterator<Message> requests = pendingRequests;
+		if (requests != null) {
+
+			for (int i=0; i<num && requests.hasNext(); i++) {
+				send(requests.next());
+			}
+
+			if (!requests.hasNext()) {
+				pendingRequests = null;
+			}
+		}
+	}
+
+	private boolean isResponse(final Message message) {
+
+		// pull requests the remote host was unable to answer are acknowledged
+		if (message instanceof Ack) {
+			return true;
+		}
+
+		// file data and chunks are followed by an end chunk
+		return message instanceof DataContainer && !(message instanceof FileNodeDataContainer) && !(message instanceof FileNodeChunk);
+	}
+
+	private void await(final long timeout) throws FrameworkException {
+
+		try {
+			stateLock.wait(timeout);
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+			throw new FrameworkException(504, "Interrupted while waiting for response.");
+		}
+	}
+
+	private void signal() {
+
+		synchronized (stateLock) {
+			stateLock.notifyAll();
+		}
+	}
 }
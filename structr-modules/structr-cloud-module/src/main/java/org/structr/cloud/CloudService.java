@@ -59,6 +59,7 @@ public class CloudService extends Thread implements RunnableService {
 	public static final int LIVE_PACKET_COUNT = 200;
 	public static final long AUTH_TIMEOUT     = 10000;
 	public static final long DEFAULT_TIMEOUT  = 10000;
+	public static final int REQUEST_WINDOW    = 1000;
 	public static final String STREAM_CIPHER  = "RC4";
 	public static boolean DEBUG               = false;
 
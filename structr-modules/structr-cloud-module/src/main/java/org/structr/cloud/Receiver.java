@@ -21,6 +21,7 @@ package org.structr.cloud;
 import java.io.DataInputStream;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.structr.cloud.message.Message;
 
 /**
@@ -53,6 +54,7 @@ public class Receiver extends Thread {
 				if (message != null) {
 
 					inputQueue.put(message);
+					connection.messageReceived();
 				}
 
 			} catch (Throwable t) {
@@ -61,7 +63,20 @@ public class Receiver extends Thread {
 		}
 	}
 
-	public Message receive() {
-		return inputQueue.poll();
+	/**
+	 * Returns the next message, waiting up to the given number of
+	 * milliseconds for a message to arrive.
+	 *
+	 * @param timeout the timeout in milliseconds
+	 * @return the next message or null
+	 */
+	public Message receive(final long timeout) {
+
+		try {
+			return inputQueue.poll(timeout, TimeUnit.MILLISECONDS);
+
+		} catch (InterruptedException iex) {
+			return null;
+		}
 	}
 }
@@ -22,6 +22,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.cloud.message.Message;
@@ -63,24 +64,35 @@ public class Sender extends Thread {
 
 			try {
 
-				while (!outputQueue.isEmpty()) {
+				Message message = outputQueue.poll(100, TimeUnit.MILLISECONDS);
+				if (message != null) {
 
-					final Message message = outputQueue.poll();
-					if (message != null) {
+					// write all queued messages and flush once
+					while (message != null) {
 
 						message.serialize(outputStream);
+
+						if (message.requiresFlush()) {
+							outputStream.flush();
+						}
+
 						message.afterSend(connection);
+						connection.messageSent();
+
+						message = outputQueue.poll();
 					}
+
+					outputStream.flush();
 				}
 
-				outputStream.flush();
+			} catch (InterruptedException iex) {
+
+				// check connection state
 
 			} catch (Throwable t) {
 
 				connection.close();
 			}
-
-			try { Thread.yield(); } catch (Throwable t) {}
 		}
 	}
 
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.cloud.message;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.cloud.CloudConnection;
+import org.structr.cloud.CloudListener;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.SyncCommand;
+
+/**
+ * Answers a pull request that could not be answered with data, so that
+ * the requesting side can send its next request.
+ *
+ *
+ */
+public class Ack extends Message {
+
+	private static final Logger logger = LoggerFactory.getLogger(Ack.class.getName());
+
+	private String message = null;
+
+	public Ack() {}
+
+	public Ack(final String message) {
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return "Ack(" + message + ")";
+	}
+
+	@Override
+	public void onRequest(CloudConnection serverConnection) throws IOException, FrameworkException {
+
+		logger.warn("Remote host was unable to answer pull request: {}", message);
+
+		final CloudListener listener = serverConnection.getListener();
+		if (listener != null) {
+
+			listener.transmissionProgress(message);
+		}
+	}
+
+	@Override
+	public void onResponse(CloudConnection clientConnection) throws IOException, FrameworkException {
+	}
+
+	@Override
+	public void afterSend(CloudConnection connection) {
+	}
+
+	@Override
+	protected void deserializeFrom(DataInputStream inputStream) throws IOException {
+		this.message = (String)SyncCommand.deserialize(inputStream);
+	}
+
+	@Override
+	protected void serializeTo(DataOutputStream outputStream) throws IOException {
+		SyncCommand.serialize(outputStream, message);
+	}
+}
@@ -101,6 +101,11 @@ public class AuthenticationResponse extends Message {
 	public void onResponse(CloudConnection clientConnection) throws IOException, FrameworkException {
 	}
 
+	@Override
+	public boolean requiresFlush() {
+		return true;
+	}
+
 	@Override
 	public void afterSend(CloudConnection client) {
 
@@ -58,6 +58,7 @@ public abstract class Message<T> {
 	static {
 
 		// initialize type map, this is basically the instruction set of the CloudService
+		typeMap.put(Ack.class.getSimpleName(),                       Ack.class);
 		typeMap.put(AuthenticationRequest.class.getSimpleName(),     AuthenticationRequest.class);
 		typeMap.put(AuthenticationResponse.class.getSimpleName(),    AuthenticationResponse.class);
 		typeMap.put(Begin.class.getSimpleName(),                     Begin.class);
@@ -129,8 +130,17 @@ public abstract class Message<T> {
 
 		// write attributes
 		serializeTo(outputStream);
+	}
 
-		outputStream.flush();
+	/**
+	 * Indicates whether the output stream must be flushed before
+	 * {@link #afterSend(CloudConnection)} is called, e.g. because
+	 * it changes the encryption key of the connection.
+	 *
+	 * @return whether to flush the output stream after this message
+	 */
+	public boolean requiresFlush() {
+		return false;
 	}
 
 	public boolean wasSentFromHere() {
@@ -22,6 +22,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.structr.cloud.CloudConnection;
 import org.structr.cloud.CloudService;
 import org.structr.cloud.transmission.PushTransmission;
@@ -38,6 +40,8 @@ import org.structr.dynamic.File;
  */
 public class PullNode extends NodeDataContainer {
 
+	private static final Logger logger = LoggerFactory.getLogger(PullNode.class.getName());
+
 	protected String key    = null;
 	protected int nodeIndex = 0;
 
@@ -53,19 +57,33 @@ public class PullNode extends NodeDataContainer {
 	public void onRequest(CloudConnection serverConnection) throws IOException, FrameworkException {
 
 		final Object value = serverConnection.getValue(key + "Nodes");
-		if (value instanceof List) {
+		if (value instanceof List && nodeIndex < ((List)value).size()) {
 
 			final List<NodeInterface> nodes = (List<NodeInterface>)value;
 			final NodeInterface node        = nodes.get(nodeIndex);
 
-			if (node instanceof File) {
+			try {
+
+				if (node instanceof File) {
+
+					PushTransmission.sendFile(serverConnection, (File)node, CloudService.CHUNK_SIZE);
+
+				} else {
 
-				PushTransmission.sendFile(serverConnection, (File)node, CloudService.CHUNK_SIZE);
+					serverConnection.send(new NodeDataContainer(node, nodeIndex));
+				}
 
-			} else {
+			} catch (FrameworkException | RuntimeException ex) {
 
-				serverConnection.send(new NodeDataContainer(node, nodeIndex));
+				logger.warn("Unable to send node {}: {}", node, ex.getMessage());
+
+				// the requesting side waits for an answer to each request
+				serverConnection.send(new Ack("Unable to send node " + nodeIndex + ": " + ex.getMessage()));
 			}
+
+		} else {
+
+			serverConnection.send(new Ack("No node " + nodeIndex + " for pull request " + key));
 		}
 	}
 
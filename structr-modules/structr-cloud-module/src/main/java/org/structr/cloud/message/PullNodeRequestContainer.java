@@ -22,6 +22,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.cloud.CloudConnection;
@@ -109,15 +111,8 @@ public class PullNodeRequestContainer extends Message {
 	@Override
 	public void onResponse(CloudConnection clientConnection) throws IOException, FrameworkException {
 
-		for (int i=0; i<numNodes; i++) {
-			clientConnection.send(new PullNode(key, i));
-		}
-
-		for (int i=0; i<numRels; i++) {
-			clientConnection.send(new PullRelationship(key, i));
-		}
-
-		clientConnection.send(new Finish());
+		// requests are sent as the responses arrive
+		clientConnection.sendPipelined(new PullRequests(key, numNodes, numRels));
 	}
 
 	@Override
@@ -155,4 +150,46 @@ public class PullNodeRequestContainer extends Message {
 		SyncCommand.serialize(outputStream, numNodes);
 		SyncCommand.serialize(outputStream, numRels);
 	}
+
+	// ----- nested classes -----
+	private static class PullRequests implements Iterator<Message> {
+
+		private String key   = null;
+		private int numNodes = 0;
+		private int numRels  = 0;
+		private int index    = 0;
+
+		public PullRequests(final String key, final int numNodes, final int numRels) {
+
+			this.key      = key;
+			this.numNodes = numNodes;
+			this.numRels  = numRels;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index <= numNodes + numRels;
+		}
+
+		@Override
+		public Message next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			final int current = index++;
+
+			if (current < numNodes) {
+				return new PullNode(key, current);
+			}
+
+			if (current < numNodes + numRels) {
+				return new PullRelationship(key, current - numNodes);
+			}
+
+			// finish after the last request
+			return new Finish();
+		}
+	}
 }
@@ -22,6 +22,8 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.structr.cloud.CloudConnection;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.graph.RelationshipInterface;
@@ -35,6 +37,8 @@ import org.structr.core.graph.SyncCommand;
  */
 public class PullRelationship extends RelationshipDataContainer {
 
+	private static final Logger logger = LoggerFactory.getLogger(PullRelationship.class.getName());
+
 	private String key    = null;
 	private int nodeIndex = 0;
 
@@ -50,12 +54,26 @@ public class PullRelationship extends RelationshipDataContainer {
 	public void onRequest(CloudConnection serverConnection) throws IOException, FrameworkException {
 
 		final Object value = serverConnection.getValue(key + "Rels");
-		if (value instanceof List) {
+		if (value instanceof List && nodeIndex < ((List)value).size()) {
 
 			final List<RelationshipInterface> relationships = (List<RelationshipInterface>)value;
 			final RelationshipInterface relationship        = relationships.get(nodeIndex);
 
-			serverConnection.send(new RelationshipDataContainer(relationship, nodeIndex));
+			try {
+
+				serverConnection.send(new RelationshipDataContainer(relationship, nodeIndex));
+
+			} catch (FrameworkException | RuntimeException ex) {
+
+				logger.warn("Unable to send relationship {}: {}", relationship, ex.getMessage());
+
+				// the requesting side waits for an answer to each request
+				serverConnection.send(new Ack("Unable to send relationship " + nodeIndex + ": " + ex.getMessage()));
+			}
+
+		} else {
+
+			serverConnection.send(new Ack("No relationship " + nodeIndex + " for pull request " + key));
 		}
 	}
 
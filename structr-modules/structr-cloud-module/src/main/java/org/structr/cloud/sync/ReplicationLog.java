@@ -0,0 +1,703 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.cloud.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.core.GraphObject;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * Append-only, segmented log of the transactions that need to be replicated
+ * to the slave instances.
+ *
+ * Each transaction is stored with a sequence number, and each slave has a
+ * cursor file that contains the sequence number of the last transaction it
+ * has received, so unsent changes survive a restart and every slave can be
+ * served at its own pace. Segments that have been received by all slaves
+ * are deleted.
+ */
+public class ReplicationLog {
+
+	private static final Logger logger                 = LoggerFactory.getLogger(ReplicationLog.class.getName());
+	private static final String SEGMENT_SUFFIX         = ".log";
+	private static final String CURSOR_SUFFIX          = ".cursor";
+	private static final int MAX_RECORD_SIZE           = 256 * 1024 * 1024;
+
+	private final TreeMap<Long, File> segments         = new TreeMap<>();
+	private final Object lock                          = new Object();
+	private DataOutputStream segmentStream             = null;
+	private FileOutputStream segmentFile               = null;
+	private File directory                             = null;
+	private long maxSegmentSize                        = 0L;
+	private long segmentPosition                       = 0L;
+	private long firstSequence                         = 1L;
+	private long lastSequence                          = 0L;
+
+	public ReplicationLog(final File directory, final long maxSegmentSize) throws IOException {
+
+		this.directory      = directory;
+		this.maxSegmentSize = maxSegmentSize;
+
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Unable to create replication log directory " + directory.getAbsolutePath());
+		}
+
+		loadSegments();
+	}
+
+	/**
+	 * Appends the given modification events as a single transaction and
+	 * returns its sequence number.
+	 *
+	 * @param modificationEvents the modification events
+	 * @return the sequence number of the transaction
+	 * @throws IOException
+	 */
+	public long append(final Collection<ModificationEvent> modificationEvents) throws IOException {
+
+		final List<Entry> entries = new ArrayList<>(modificationEvents.size());
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			String uuid = event.getUuid();
+			if (uuid == null && event.isDeleted()) {
+
+				uuid = event.getRemovedProperties().get(GraphObject.id);
+			}
+
+			if (uuid != null) {
+
+				final Entry entry = new Entry(uuid, event.isNode(), event.isDeleted());
+
+				if (!event.isDeleted()) {
+
+					// collect all possibly modified property keys
+					addPropertyKeys(entry.keys, event.getNewProperties().keySet());
+					addPropertyKeys(entry.keys, event.getModifiedProperties().keySet());
+					addPropertyKeys(entry.keys, event.getRemovedProperties().keySet());
+				}
+
+				entries.add(entry);
+			}
+		}
+
+		return appendEntries(entries);
+	}
+
+	/**
+	 * Appends the given entries as a single transaction and returns its
+	 * sequence number. The transaction is written to disk before this
+	 * method returns.
+	 *
+	 * @param entries the entries
+	 * @return the sequence number of the transaction
+	 * @throws IOException
+	 */
+	public long appendEntries(final List<Entry> entries) throws IOException {
+
+		synchronized (lock) {
+
+			final long sequence = lastSequence + 1;
+			final byte[] data   = serialize(new Transaction(sequence, System.currentTimeMillis(), entries));
+			final CRC32 crc     = new CRC32();
+
+			crc.update(data);
+
+			if (segmentStream == null) {
+
+				openSegment(sequence);
+
+			} else if (segmentPosition >= maxSegmentSize) {
+
+				closeSegment();
+				openSegment(sequence);
+			}
+
+			try {
+
+				segmentStream.writeInt(data.length);
+				segmentStream.write(data);
+				segmentStream.writeInt((int)crc.getValue());
+				segmentStream.flush();
+
+				segmentFile.getChannel().force(false);
+
+			} catch (IOException ioex) {
+
+				// an incomplete record would hide all following records from readers
+				discardSegment();
+
+				throw ioex;
+			}
+
+			segmentPosition += data.length + 8;
+			lastSequence     = sequence;
+
+			lock.notifyAll();
+
+			return sequence;
+		}
+	}
+
+	/**
+	 * Returns up to <code>max</code> transactions with a sequence number
+	 * greater than the given one, in the order they were appended.
+	 *
+	 * @param afterSequence the sequence number of the last transaction received
+	 * @param max the maximum number of transactions to return
+	 * @return a list of transactions
+	 * @throws IOException
+	 */
+	public List<Transaction> read(final long afterSequence, final int max) throws IOException {
+
+		final List<Transaction> transactions = new ArrayList<>();
+		final List<File> files               = new ArrayList<>();
+		final long last;
+
+		synchronized (lock) {
+
+			last = lastSequence;
+
+			if (afterSequence >= last) {
+				return transactions;
+			}
+
+			final Long start = segments.floorKey(afterSequence + 1);
+
+			files.addAll((start != null ? segments.tailMap(start, true) : segments).values());
+		}
+
+		for (final File file : files) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+
+				while (transactions.size() < max) {
+
+					final byte[] data = readRecord(in);
+					if (data == null) {
+						break;
+					}
+
+					// the sequence number is the first field of each record
+					final long sequence = readSequence(data);
+					if (sequence > last) {
+
+						return transactions;
+					}
+
+					if (sequence > afterSequence) {
+
+						transactions.add(deserialize(data));
+					}
+				}
+			}
+
+			if (transactions.size() >= max) {
+				break;
+			}
+		}
+
+		return transactions;
+	}
+
+	/**
+	 * Waits until a transaction with a sequence number greater than the
+	 * given one is available, or the timeout has elapsed.
+	 *
+	 * @param afterSequence the sequence number
+	 * @param timeout the timeout in milliseconds
+	 * @return whether new transactions are available
+	 * @throws InterruptedException
+	 */
+	public boolean await(final long afterSequence, final long timeout) throws InterruptedException {
+
+		final long deadline = System.currentTimeMillis() + timeout;
+
+		synchronized (lock) {
+
+			long remaining = timeout;
+
+			while (lastSequence <= afterSequence && remaining > 0) {
+
+				lock.wait(remaining);
+
+				remaining = deadline - System.currentTimeMillis();
+			}
+
+			return lastSequence > afterSequence;
+		}
+	}
+
+	/**
+	 * Indicates whether all transactions after the given sequence number
+	 * are still contained in this log.
+	 *
+	 * @param afterSequence the sequence number
+	 * @return whether replication can be resumed from the given sequence number
+	 */
+	public boolean canResumeFrom(final long afterSequence) {
+
+		synchronized (lock) {
+			return afterSequence >= firstSequence - 1 && afterSequence <= lastSequence;
+		}
+	}
+
+	public long getLastSequence() {
+
+		synchronized (lock) {
+			return lastSequence;
+		}
+	}
+
+	/**
+	 * Deletes all segments that only contain transactions with a sequence
+	 * number less than or equal to the given one.
+	 *
+	 * @param sequence the sequence number received by all slaves
+	 */
+	public void truncate(final long sequence) {
+
+		synchronized (lock) {
+
+			// a segment can be deleted if the next one starts at or below sequence + 1
+			while (segments.size() > 1) {
+
+				final Map.Entry<Long, File> first = segments.firstEntry();
+				final Long next                   = segments.higherKey(first.getKey());
+
+				if (next > sequence + 1) {
+					break;
+				}
+
+				if (!first.getValue().delete()) {
+
+					logger.warn("Unable to delete replication log segment {}", first.getValue().getAbsolutePath());
+					break;
+				}
+
+				segments.remove(first.getKey());
+				firstSequence = next;
+			}
+		}
+	}
+
+	/**
+	 * Returns the sequence number of the last transaction the given host
+	 * has received, or -1 if there is no cursor for the given host.
+	 *
+	 * @param name the name of the host
+	 * @return the sequence number or -1
+	 */
+	public long readCursor(final String name) {
+
+		final File file = getCursorFile(name);
+		if (file.exists()) {
+
+			try {
+				return Long.parseLong(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim());
+
+			} catch (IOException | NumberFormatException ex) {
+
+				logger.warn("Unable to read replication cursor {}: {}", file.getAbsolutePath(), ex.getMessage());
+			}
+		}
+
+		return -1L;
+	}
+
+	/**
+	 * Stores the sequence number of the last transaction the given host
+	 * has received.
+	 *
+	 * @param name the name of the host
+	 * @param sequence the sequence number
+	 * @throws IOException
+	 */
+	public void writeCursor(final String name, final long sequence) throws IOException {
+
+		final File file = getCursorFile(name);
+		final File tmp  = new File(directory, file.getName() + ".tmp");
+
+		Files.write(tmp.toPath(), Long.toString(sequence).getBytes(StandardCharsets.UTF_8));
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public void close() {
+
+		synchronized (lock) {
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Merges the entries of the given consecutive transactions into a single
+	 * list that contains each object only once. Entries keep the position of
+	 * their first occurrence, except deletions, which are moved to the
+	 * position of the deletion.
+	 *
+	 * @param transactions the transactions
+	 * @return the merged entries
+	 */
+	public static List<Entry> coalesce(final List<Transaction> transactions) {
+
+		final Map<String, Entry> entries = new LinkedHashMap<>();
+
+		for (final Transaction transaction : transactions) {
+
+			for (final Entry entry : transaction.getEntries()) {
+
+				final Entry existing = entries.get(entry.uuid);
+				if (existing == null || entry.deleted || existing.deleted) {
+
+					// deletions and re-creations are moved to the end
+					entries.remove(entry.uuid);
+					entries.put(entry.uuid, new Entry(entry));
+
+				} else {
+
+					existing.keys.addAll(entry.keys);
+				}
+			}
+		}
+
+		return new ArrayList<>(entries.values());
+	}
+
+	// ----- private methods -----
+	private void loadSegments() throws IOException {
+
+		final File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+		if (files != null) {
+
+			for (final File file : files) {
+
+				final String name = file.getName();
+
+				try {
+					segments.put(Long.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+
+				} catch (NumberFormatException nex) {
+					logger.warn("Ignoring unknown file {} in replication log directory", name);
+				}
+			}
+		}
+
+		if (segments.isEmpty()) {
+
+			// continue numbering after the highest known cursor
+			long maxCursor = 0L;
+
+			final File[] cursors = directory.listFiles((dir, name) -> name.endsWith(CURSOR_SUFFIX));
+			if (cursors != null) {
+
+				for (final File cursor : cursors) {
+
+					final String name = cursor.getName();
+					maxCursor         = Math.max(maxCursor, readCursor(name.substring(0, name.length() - CURSOR_SUFFIX.length())));
+				}
+			}
+
+			firstSequence = maxCursor + 1;
+			lastSequence  = maxCursor;
+
+			return;
+		}
+
+		firstSequence = segments.firstKey();
+		lastSequence  = firstSequence - 1;
+
+		for (final Map.Entry<Long, File> segment : segments.entrySet()) {
+
+			final File file = segment.getValue();
+			long position   = 0L;
+
+			// the last sequence is the start of the segment minus one if it is empty
+			lastSequence = Math.max(lastSequence, segment.getKey() - 1);
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+
+				byte[] data = null;
+
+				while ((data = readRecord(in)) != null) {
+
+					lastSequence = readSequence(data);
+					position    += data.length + 8;
+				}
+			}
+
+			if (position < file.length()) {
+
+				logger.warn("Removing incomplete record at the end of replication log segment {}", file.getName());
+
+				try (final RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+					raf.setLength(position);
+				}
+			}
+		}
+
+		// new transactions always go into a new segment
+	}
+
+	private void openSegment(final long sequence) throws IOException {
+
+		final File file = new File(directory, String.format("%020d%s", sequence, SEGMENT_SUFFIX));
+
+		segmentFile     = new FileOutputStream(file, true);
+		segmentStream   = new DataOutputStream(new BufferedOutputStream(segmentFile, 65536));
+		segmentPosition = 0L;
+
+		segments.put(sequence, file);
+	}
+
+	private void closeSegment() {
+
+		if (segmentStream == null) {
+			return;
+		}
+
+		try {
+
+			segmentStream.close();
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to close replication log segment", ioex);
+		}
+
+		segmentStream = null;
+		segmentFile   = null;
+	}
+
+	/**
+	 * Closes the current segment without writing buffered data, and
+	 * removes everything after the last complete record from it.
+	 */
+	private void discardSegment() {
+
+		final Map.Entry<Long, File> segment = segments.lastEntry();
+
+		try {
+
+			segmentFile.close();
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to close replication log segment", ioex);
+		}
+
+		segmentStream = null;
+		segmentFile   = null;
+
+		try (final RandomAccessFile raf = new RandomAccessFile(segment.getValue(), "rw")) {
+
+			raf.setLength(segmentPosition);
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to truncate replication log segment {}: {}", segment.getValue().getName(), ioex.getMessage());
+		}
+	}
+
+	private File getCursorFile(final String name) {
+		return new File(directory, name.replaceAll("[^a-zA-Z0-9\\.\\-_]+", "_") + CURSOR_SUFFIX);
+	}
+
+	private byte[] readRecord(final DataInputStream in) throws IOException {
+
+		try {
+
+			final int length = in.readInt();
+			if (length < 8 || length > MAX_RECORD_SIZE) {
+				return null;
+			}
+
+			final byte[] data = new byte[length];
+			final CRC32 crc   = new CRC32();
+
+			in.readFully(data);
+			crc.update(data);
+
+			if (in.readInt() != (int)crc.getValue()) {
+				return null;
+			}
+
+			return data;
+
+		} catch (EOFException eof) {
+
+			// incomplete record
+			return null;
+		}
+	}
+
+	private long readSequence(final byte[] data) {
+
+		long sequence = 0L;
+
+		for (int i=0; i<8; i++) {
+			sequence = (sequence << 8) | (data[i] & 0xff);
+		}
+
+		return sequence;
+	}
+
+	private byte[] serialize(final Transaction transaction) throws IOException {
+
+		final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		final DataOutputStream out      = new DataOutputStream(buf);
+
+		out.writeLong(transaction.sequence);
+		out.writeLong(transaction.timestamp);
+		out.writeInt(transaction.entries.size());
+
+		for (final Entry entry : transaction.entries) {
+
+			out.writeUTF(entry.uuid);
+			out.writeBoolean(entry.node);
+			out.writeBoolean(entry.deleted);
+			out.writeInt(entry.keys.size());
+
+			for (final String key : entry.keys) {
+				out.writeUTF(key);
+			}
+		}
+
+		out.flush();
+
+		return buf.toByteArray();
+	}
+
+	private Transaction deserialize(final byte[] data) throws IOException {
+
+		final DataInputStream in  = new DataInputStream(new ByteArrayInputStream(data));
+		final long sequence       = in.readLong();
+		final long timestamp      = in.readLong();
+		final int count           = in.readInt();
+		final List<Entry> entries = new ArrayList<>(count);
+
+		for (int i=0; i<count; i++) {
+
+			final Entry entry = new Entry(in.readUTF(), in.readBoolean(), in.readBoolean());
+			final int keys    = in.readInt();
+
+			for (int j=0; j<keys; j++) {
+				entry.keys.add(in.readUTF());
+			}
+
+			entries.add(entry);
+		}
+
+		return new Transaction(sequence, timestamp, entries);
+	}
+
+	private void addPropertyKeys(final Set<String> keys, final Set<PropertyKey> source) {
+
+		for (final PropertyKey key : source) {
+			keys.add(key.dbName());
+		}
+	}
+
+	// ----- nested classes -----
+	public static class Transaction {
+
+		private List<Entry> entries = null;
+		private long timestamp      = 0L;
+		private long sequence       = 0L;
+
+		public Transaction(final long sequence, final long timestamp, final List<Entry> entries) {
+
+			this.sequence  = sequence;
+			this.timestamp = timestamp;
+			this.entries   = entries;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public List<Entry> getEntries() {
+			return entries;
+		}
+	}
+
+	public static class Entry {
+
+		private final Set<String> keys = new LinkedHashSet<>();
+		private String uuid            = null;
+		private boolean deleted        = false;
+		private boolean node           = false;
+
+		public Entry(final String uuid, final boolean node, final boolean deleted) {
+
+			this.uuid    = uuid;
+			this.node    = node;
+			this.deleted = deleted;
+		}
+
+		private Entry(final Entry source) {
+
+			this(source.uuid, source.node, source.deleted);
+
+			keys.addAll(source.keys);
+		}
+
+		public String getUuid() {
+			return uuid;
+		}
+
+		public boolean isNode() {
+			return node;
+		}
+
+		public boolean isDeleted() {
+			return deleted;
+		}
+
+		public Set<String> getPropertyKeys() {
+			return keys;
+		}
+	}
+}
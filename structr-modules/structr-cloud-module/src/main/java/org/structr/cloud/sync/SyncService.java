@@ -18,15 +18,18 @@
  */
 package org.structr.cloud.sync;
 
+import java.io.File;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +42,7 @@ import org.structr.cloud.CloudService;
 import org.structr.cloud.transmission.SingleTransmission;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
 import org.structr.core.StructrTransactionListener;
 import org.structr.core.TransactionSource;
 import org.structr.core.app.App;
@@ -53,7 +57,6 @@ import org.structr.core.graph.Tx;
  */
 public class SyncService extends Thread  implements RunnableService, StructrTransactionListener {
 
-	private static final BlockingQueue<List<ModificationEvent>> syncQueue = new ArrayBlockingQueue<>(1000);
 	private static final Logger logger                                    = LoggerFactory.getLogger(CloudService.class.getName());
 
 	public enum SyncRole {
@@ -62,12 +65,14 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 	};
 
 	private final List<SyncHostInfo> syncHosts = new LinkedList<>();
-	private boolean running                    = false;
+	private final List<SyncWorker> workers     = new CopyOnWriteArrayList<>();
+	private ReplicationLog replicationLog      = null;
+	private volatile boolean running           = false;
 	private boolean active                     = false;
 	private String allowedMaster               = null;
 	private SyncRole role                      = null;
-	private int requiredSyncCount              = 0;
 	private int retryInterval                  = 60;
+	private int batchSize                      = 100;
 
 	public SyncService() {
 
@@ -100,6 +105,9 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 			final String users   = config.getProperty("sync.users");
 			final String pwds    = config.getProperty("sync.passwords");
 			final String ports   = config.getProperty("sync.ports");
+			final String logPath = config.getProperty("sync.log.path", System.getProperty("user.dir").concat("/replication"));
+			final String segment = config.getProperty("sync.log.segment.size", "16");
+			final String batch   = config.getProperty("sync.batch.size", "100");
 
 			// check only if we are a replication master
 			if (SyncRole.master.equals(role)) {
@@ -120,6 +128,14 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 					throw new IllegalStateException("no slave ports set for this master, please set sync.ports in structr.conf.");
 				}
 
+				try {
+
+					replicationLog = new ReplicationLog(new File(logPath), Long.valueOf(segment) * 1024L * 1024L);
+
+				} catch (IOException ioex) {
+					throw new IllegalStateException("unable to open replication log in " + logPath + ": " + ioex.getMessage());
+				}
+
 				final String[] remoteHosts = hosts != null ? hosts.split("[, ]+") : new String[0];
 				final String[] remoteUsers = users != null ? users.split("[, ]+") : new String[0];
 				final String[] remotePwds  = pwds  != null ? pwds.split("[, ]+")  : new String[0];
@@ -172,6 +188,10 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 				this.retryInterval = Integer.valueOf(retry);
 			}
 
+			if (StringUtils.isNotBlank(batch)) {
+				this.batchSize = Math.max(1, Integer.valueOf(batch));
+			}
+
 			logger.info("Retry interval is set to {} seconds", retryInterval);
 		}
 	}
@@ -181,7 +201,20 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 
 	@Override
 	public void shutdown() {
+
 		running = false;
+
+		Services.getInstance().removeStatisticsProvider("replication");
+
+		for (final SyncWorker worker : workers) {
+			worker.interrupt();
+		}
+
+		this.interrupt();
+
+		if (replicationLog != null) {
+			replicationLog.close();
+		}
 	}
 
 	@Override
@@ -193,6 +226,7 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 	public void startService() throws Exception {
 
 		TransactionCommand.registerTransactionListener(this);
+		Services.getInstance().registerStatisticsProvider("replication", this::getStatistics);
 
 		running = true;
 		start();
@@ -203,54 +237,37 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 	@Override
 	public void run() {
 
-		while (running) {
+		// each host is served by its own worker so that a
+		// slow host cannot delay replication to the others
+		for (final SyncHostInfo info : syncHosts) {
 
-			try {
+			final SyncWorker worker = new SyncWorker(info);
 
-				// wait to be notified when new data is available
-				synchronized (syncQueue) {
-
-					while (syncQueue.isEmpty()) {
-						syncQueue.wait();
-					}
-				}
-
-				// load the head of the queue without removing it
-				// (will be removed later if sync was successful)
-				final List<ModificationEvent> transaction = syncQueue.peek();
-				if (transaction != null) {
+			workers.add(worker);
+			worker.start();
+		}
 
-					// define success as "at least one sync process was successful"
-					final SyncListener successListener = new SyncListener(requiredSyncCount);
+		while (running) {
 
-					final SyncTransmission transmission = new SyncTransmission(transaction);
+			try {
 
-					for (final SyncHostInfo info : syncHosts) {
+				Thread.sleep(10000);
 
-						try {
+				// remove segments that have been received by all hosts
+				if (replicationLog != null && !workers.isEmpty()) {
 
-							CloudService.doRemote(SecurityContext.getSuperUserInstance(), transmission, info, successListener);
+					long minimum = Long.MAX_VALUE;
 
-						} catch (FrameworkException fex) {
-							logger.warn("Unable to synchronize with host {}: {}", new Object[] { info, fex.getMessage() } );
-						}
+					for (final SyncWorker worker : workers) {
+						minimum = Math.min(minimum, worker.getCursor());
 					}
 
-					// remove sync changeset from queue when sync
-					// was successful (see above)
-					if (successListener.wasSuccessful()) {
-
-						syncQueue.remove(transaction);
-
-					} else {
+					replicationLog.truncate(minimum);
+				}
 
-						logger.warn("Unable to synchronize with required number of hosts, retrying in {} seconds..", retryInterval);
+			} catch (InterruptedException iex) {
 
-						// sleep
-						try { Thread.sleep(retryInterval * 1000); } catch (Throwable t) {}
-					}
-
-				}
+				// shutdown
 
 			} catch (Throwable t) {
 				logger.warn("", t);
@@ -309,21 +326,44 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 			}
 
 
-			try {
+			if (replicationLog != null) {
 
-				// copy all modification events and return quickly
-				syncQueue.put(new ArrayList<>(modificationEvents));
+				try {
 
-				// notify sync queue of new input
-				synchronized (syncQueue) { syncQueue.notify(); }
+					// store the transaction on disk and return quickly
+					replicationLog.append(modificationEvents);
 
-			} catch (InterruptedException iex) {
-				logger.warn("", iex);
+				} catch (IOException ioex) {
+
+					// the transaction is already committed, so the
+					// slaves can only catch up with a full resync
+					logger.error("Unable to append transaction to replication log, all hosts will be resynchronized.", ioex);
+
+					for (final SyncWorker worker : workers) {
+						worker.requireResync();
+					}
+				}
 			}
 
 		}
 	}
 
+	/**
+	 * Returns the replication backlog and lag of each slave host.
+	 *
+	 * @return a map with replication statistics per host
+	 */
+	public Map<String, Map<String, Object>> getStatistics() {
+
+		final Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+
+		for (final SyncWorker worker : workers) {
+			statistics.put(worker.info.toString(), worker.getStatistics());
+		}
+
+		return statistics;
+	}
+
 	// ----- private methods -----
 	private void initializeSyncHosts(final String minimum) throws FrameworkException {
 
@@ -382,8 +422,8 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 		}
 
 		// check number of synchronization hosts
-		final int numSyncHosts  = syncHosts.size();
-		requiredSyncCount       = Integer.valueOf(minimum);
+		final int numSyncHosts      = syncHosts.size();
+		final int requiredSyncCount = Integer.valueOf(minimum);
 
 		if (numSyncHosts < requiredSyncCount) {
 			throw new IllegalStateException("synchronization policy requires at least " + requiredSyncCount + " hosts, but only " + numSyncHosts + " are reachable.");
@@ -405,6 +445,18 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 		final String masterId         = StructrApp.getInstance().getInstanceId();
 		final SimpleDateFormat df     = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 		final long localSyncTimestamp = StructrApp.getInstance().getGlobalSetting(masterId + ".lastModified", 0L);
+		final long cursor             = replicationLog.readCursor(host.toString());
+
+		if (cursor >= 0 && host.getLastSyncTimestamp() != 0L && replicationLog.canResumeFrom(cursor)) {
+
+			// all changes the host has not received yet are still in the replication log
+			logger.info("Resuming replication to host {} after transaction {} of {}", new Object[] { host, cursor, replicationLog.getLastSequence() } );
+
+			return;
+		}
+
+		// the host receives all transactions after the current one
+		final long sequence = replicationLog.getLastSequence();
 
 		if (localSyncTimestamp == 0L) {
 
@@ -428,9 +480,16 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 				logger.info("Replication host {} is in sync, last update was {}", new Object[] { host, df.format(localSyncTimestamp) } );
 			}
 		}
+
+		try {
+			replicationLog.writeCursor(host.toString(), sequence);
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to store replication cursor for host {}: {}", new Object[] { host, ioex.getMessage() } );
+		}
 	}
 
-	private void synchronizeSlave(final SyncHostInfo info) {
+	private boolean synchronizeSlave(final SyncHostInfo info) {
 
 		logger.info("Establishing initial replication.");
 
@@ -441,13 +500,167 @@ public class SyncService extends Thread  implements RunnableService, StructrTran
 			tx.success();
 
 		} catch (Throwable t) {
+
 			logger.warn("", t);
+			return false;
 		}
 
 		logger.info("Done.");
+
+		return true;
 	}
 
 	// ----- nested classes -----
+	private class SyncWorker extends Thread {
+
+		private final LongAdder transmissions = new LongAdder();
+		private final LongAdder transactions  = new LongAdder();
+		private final LongAdder failures      = new LongAdder();
+		private volatile long pendingSince    = 0L;
+		private volatile long lastSuccess     = 0L;
+		private volatile String lastError     = null;
+		private volatile long cursor          = 0L;
+		private volatile boolean resync       = false;
+		private SyncHostInfo info             = null;
+
+		public SyncWorker(final SyncHostInfo info) {
+
+			super("SyncWorker " + info);
+
+			this.info   = info;
+			this.cursor = Math.max(0L, replicationLog.readCursor(info.toString()));
+
+			this.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+
+			while (running) {
+
+				try {
+
+					if (resync) {
+
+						resync();
+						continue;
+					}
+
+					if (!replicationLog.await(cursor, 1000)) {
+						continue;
+					}
+
+					// consecutive transactions are sent in a single transmission
+					final List<ReplicationLog.Transaction> batch = replicationLog.read(cursor, batchSize);
+					if (batch.isEmpty()) {
+						continue;
+					}
+
+					final long sequence = batch.get(batch.size() - 1).getSequence();
+					pendingSince        = batch.get(0).getTimestamp();
+
+					final SyncListener listener = new SyncListener(1);
+					final Boolean result        = CloudService.doRemote(SecurityContext.getSuperUserInstance(), new SyncTransmission(ReplicationLog.coalesce(batch)), info, listener);
+
+					if (Boolean.TRUE.equals(result) && listener.wasSuccessful()) {
+
+						replicationLog.writeCursor(info.toString(), sequence);
+
+						transmissions.increment();
+						transactions.add(batch.size());
+
+						cursor      = sequence;
+						lastSuccess = System.currentTimeMillis();
+						lastError   = null;
+
+						if (cursor >= replicationLog.getLastSequence()) {
+							pendingSince = 0L;
+						}
+
+					} else {
+
+						failed("transmission not successful");
+					}
+
+				} catch (InterruptedException iex) {
+
+					// shutdown
+
+				} catch (Throwable t) {
+
+					failed(t.getMessage());
+				}
+			}
+		}
+
+		public long getCursor() {
+			return cursor;
+		}
+
+		/**
+		 * Marks this host for a full resync, for example because a
+		 * transaction could not be stored in the replication log.
+		 */
+		public void requireResync() {
+			resync = true;
+		}
+
+		public Map<String, Object> getStatistics() {
+
+			final Map<String, Object> statistics = new LinkedHashMap<>();
+			final long backlog                   = replicationLog.getLastSequence() - cursor;
+			final long since                     = pendingSince;
+
+			statistics.put("sequence",      cursor);
+			statistics.put("backlog",       backlog);
+			statistics.put("lag",           backlog > 0 && since > 0L ? System.currentTimeMillis() - since : 0L);
+			statistics.put("transmissions", transmissions.sum());
+			statistics.put("transactions",  transactions.sum());
+			statistics.put("failures",      failures.sum());
+			statistics.put("lastSuccess",   lastSuccess);
+			statistics.put("lastError",     lastError);
+			statistics.put("resync",        resync);
+
+			return statistics;
+		}
+
+		// ----- private methods -----
+		private void resync() throws IOException {
+
+			// transactions after this one are replayed after the full resync
+			final long sequence = replicationLog.getLastSequence();
+
+			resync = false;
+
+			if (synchronizeSlave(info)) {
+
+				replicationLog.writeCursor(info.toString(), sequence);
+
+				cursor       = sequence;
+				pendingSince = 0L;
+				lastSuccess  = System.currentTimeMillis();
+				lastError    = null;
+
+			} else {
+
+				resync = true;
+
+				failed("full resync not successful");
+			}
+		}
+
+		private void failed(final String message) {
+
+			failures.increment();
+			lastError = message;
+
+			logger.warn("Unable to synchronize with host {}: {}, retrying in {} seconds..", new Object[] { info, message, retryInterval } );
+
+			// only this host is delayed
+			try { Thread.sleep(retryInterval * 1000); } catch (Throwable t) {}
+		}
+	}
+
 	private static class SyncListener implements CloudListener {
 
 		private int successCount         = 0;
@@ -19,7 +19,6 @@
 package org.structr.cloud.sync;
 
 import java.io.IOException;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -36,70 +35,70 @@ import org.structr.cloud.message.NodeDataContainer;
 import org.structr.cloud.message.RelationshipDataContainer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
-import org.structr.core.graph.ModificationEvent;
 import org.structr.core.graph.Tx;
-import org.structr.core.property.PropertyKey;
 import org.structr.dynamic.File;
 
 /**
  *
  *
  */
-public class SyncTransmission implements CloudTransmission {
+public class SyncTransmission implements CloudTransmission<Boolean> {
 
-	private static final Logger logger = LoggerFactory.getLogger(SyncTransmission.class.getName());
-	private List<ModificationEvent> transaction = null;
+	private static final Logger logger                 = LoggerFactory.getLogger(SyncTransmission.class.getName());
+	private List<ReplicationLog.Entry> entries         = null;
 
-	public SyncTransmission(final List<ModificationEvent> transaction) {
+	public SyncTransmission(final List<ReplicationLog.Entry> entries) {
 
-		this.transaction = transaction;
+		this.entries = entries;
 	}
 
 	@Override
 	public Boolean doRemote(final CloudConnection client) throws IOException, FrameworkException {
 
-		int count = 0;
+		final App app = StructrApp.getInstance();
+		int count     = 0;
 
-		try (final Tx tx = StructrApp.getInstance().tx()) {
+		try (final Tx tx = app.tx()) {
 
-			for (final ModificationEvent event : transaction) {
+			for (final ReplicationLog.Entry entry : entries) {
 
-				final GraphObject graphObject  = event.getGraphObject();
+				final String id = entry.getUuid();
 
-				if (event.isDeleted()) {
+				if (entry.isDeleted()) {
 
-					final String id = event.getRemovedProperties().get(GraphObject.id);
-					if (id != null) {
-
-						client.send(new Delete(id));
-					}
+					client.send(new Delete(id));
 
 				} else {
 
 					try {
 
-						final Set<String> propertyKeys = new LinkedHashSet<>();
+						// send the current state of the object
+						final GraphObject graphObject = entry.isNode() ? app.getNodeById(id) : app.getRelationshipById(id);
+						if (graphObject != null) {
+
+							final Set<String> propertyKeys = entry.getPropertyKeys();
+
+							if (graphObject.isNode()) {
 
-						// collect all possibly modified property keys
-						mapPropertyKeysToStrings(propertyKeys, event.getNewProperties().keySet());
-						mapPropertyKeysToStrings(propertyKeys, event.getModifiedProperties().keySet());
-						mapPropertyKeysToStrings(propertyKeys, event.getRemovedProperties().keySet());
+								if (graphObject instanceof File) {
 
-						if (graphObject.isNode()) {
+									sendFile(client, (File)graphObject, CloudService.CHUNK_SIZE);
 
-							if (graphObject instanceof File) {
+								} else {
 
-								sendFile(client, (File)graphObject, CloudService.CHUNK_SIZE);
+									client.send(new NodeDataContainer(graphObject.getSyncNode(), count, propertyKeys));
+								}
 
 							} else {
 
-								client.send(new NodeDataContainer(graphObject.getSyncNode(), count, propertyKeys));
+								client.send(new RelationshipDataContainer(graphObject.getSyncRelationship(), count, propertyKeys));
 							}
 
 						} else {
 
-							client.send(new RelationshipDataContainer(graphObject.getSyncRelationship(), count, propertyKeys));
+							logger.info("Trying to synchronize deleted entity, ignoring");
 						}
 
 					} catch (NotFoundException nfex) {
@@ -116,8 +115,8 @@ public class SyncTransmission implements CloudTransmission {
 
 		// synchronize last sync timestamp with slave instance
 		// (we're sending out own instance ID (master) for the slave to store)
-		final String masterId = StructrApp.getInstance().getInstanceId();
-		client.send(new ReplicationStatus(masterId, StructrApp.getInstance().getGlobalSetting(masterId + ".lastModified", 0L)));
+		final String masterId = app.getInstanceId();
+		client.send(new ReplicationStatus(masterId, app.getGlobalSetting(masterId + ".lastModified", 0L)));
 
 		// wait for end of transmission
 		client.waitForTransmission();
@@ -150,12 +149,4 @@ public class SyncTransmission implements CloudTransmission {
 		// mark end of file with special chunk
 		client.send(new FileNodeEndChunk(container.getSourceNodeId(), container.getFileSize()));
 	}
-
-	// ----- private methods -----
-	private void mapPropertyKeysToStrings(final Set<String> propertyKeys, final Set<PropertyKey> source) {
-
-		for (final PropertyKey key : source) {
-			propertyKeys.add(key.dbName());
-		}
-	}
 }
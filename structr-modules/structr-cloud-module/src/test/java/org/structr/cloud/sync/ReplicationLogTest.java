@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.cloud.sync;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.structr.cloud.sync.ReplicationLog.Entry;
+import org.structr.cloud.sync.ReplicationLog.Transaction;
+
+/**
+ *
+ *
+ */
+public class ReplicationLogTest {
+
+	private File directory = null;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("replication").toFile();
+	}
+
+	@After
+	public void deleteDirectory() {
+
+		final File[] files = directory.listFiles();
+		if (files != null) {
+
+			for (final File file : files) {
+				file.delete();
+			}
+		}
+
+		directory.delete();
+	}
+
+	@Test
+	public void testAppendAndRead() throws IOException {
+
+		final ReplicationLog log = new ReplicationLog(directory, 1024 * 1024);
+
+		assertEquals("Invalid sequence number", 1L, log.appendEntries(Arrays.asList(entry("a", false, "name", "owner"), entry("b", true))));
+		assertEquals("Invalid sequence number", 2L, log.appendEntries(Arrays.asList(entry("c", false))));
+		assertEquals("Invalid sequence number", 3L, log.appendEntries(Collections.emptyList()));
+
+		final List<Transaction> transactions = log.read(0L, 10);
+
+		assertEquals("Invalid number of transactions", 3, transactions.size());
+		assertEquals("Invalid sequence number", 1L, transactions.get(0).getSequence());
+		assertEquals("Invalid sequence number", 3L, transactions.get(2).getSequence());
+		assertEquals("Invalid number of entries", 2, transactions.get(0).getEntries().size());
+		assertEquals("Invalid number of entries", 0, transactions.get(2).getEntries().size());
+
+		final Entry first  = transactions.get(0).getEntries().get(0);
+		final Entry second = transactions.get(0).getEntries().get(1);
+
+		assertEquals("Invalid UUID", "a", first.getUuid());
+		assertTrue("Invalid node flag", first.isNode());
+		assertFalse("Invalid deleted flag", first.isDeleted());
+		assertEquals("Invalid property keys", Arrays.asList("name", "owner"), Arrays.asList(first.getPropertyKeys().toArray()));
+		assertEquals("Invalid UUID", "b", second.getUuid());
+		assertTrue("Invalid deleted flag", second.isDeleted());
+
+		// reads start after the given sequence number and respect the maximum
+		final List<Transaction> partial = log.read(1L, 1);
+
+		assertEquals("Invalid number of transactions", 1, partial.size());
+		assertEquals("Invalid sequence number", 2L, partial.get(0).getSequence());
+		assertEquals("Invalid number of transactions", 0, log.read(3L, 10).size());
+
+		log.close();
+	}
+
+	@Test
+	public void testTruncate() throws IOException {
+
+		// each transaction goes into its own segment
+		final ReplicationLog log = new ReplicationLog(directory, 1);
+
+		for (int i=0; i<5; i++) {
+			log.appendEntries(Arrays.asList(entry("uuid" + i, false)));
+		}
+
+		assertEquals("Invalid number of segments", 5, segmentCount());
+
+		log.truncate(3L);
+
+		assertEquals("Invalid number of segments", 2, segmentCount());
+		assertTrue("Log must be resumable after the truncated sequence", log.canResumeFrom(3L));
+		assertFalse("Log must not be resumable before the truncated sequence", log.canResumeFrom(2L));
+
+		final List<Transaction> transactions = log.read(3L, 10);
+
+		assertEquals("Invalid number of transactions", 2, transactions.size());
+		assertEquals("Invalid sequence number", 4L, transactions.get(0).getSequence());
+
+		// the current segment is never deleted
+		log.truncate(5L);
+
+		assertEquals("Invalid number of segments", 1, segmentCount());
+
+		log.close();
+	}
+
+	@Test
+	public void testRecoveryFromTornRecord() throws IOException {
+
+		final ReplicationLog log = new ReplicationLog(directory, 1024 * 1024);
+
+		log.appendEntries(Arrays.asList(entry("a", false)));
+		log.appendEntries(Arrays.asList(entry("b", false)));
+		log.close();
+
+		final File segment = directory.listFiles((dir, name) -> name.endsWith(".log"))[0];
+		final long length  = segment.length();
+
+		// simulate a crash in the middle of a write
+		try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(segment, true))) {
+
+			out.writeInt(100);
+			out.write(new byte[20]);
+		}
+
+		final ReplicationLog reopened = new ReplicationLog(directory, 1024 * 1024);
+
+		assertEquals("Incomplete record was not removed", length, segment.length());
+		assertEquals("Invalid sequence number", 2L, reopened.getLastSequence());
+		assertEquals("Invalid sequence number", 3L, reopened.appendEntries(Arrays.asList(entry("c", false))));
+
+		final List<Transaction> transactions = reopened.read(0L, 10);
+
+		assertEquals("Invalid number of transactions", 3, transactions.size());
+		assertEquals("Invalid UUID", "c", transactions.get(2).getEntries().get(0).getUuid());
+
+		reopened.close();
+	}
+
+	@Test
+	public void testCoalesce() {
+
+		final List<Entry> entries = ReplicationLog.coalesce(Arrays.asList(
+			new Transaction(1L, 0L, Arrays.asList(entry("a", false, "name"), entry("b", false, "name"))),
+			new Transaction(2L, 0L, Arrays.asList(entry("a", false, "owner"), entry("c", false, "name"))),
+			new Transaction(3L, 0L, Arrays.asList(entry("b", true))),
+			new Transaction(4L, 0L, Arrays.asList(entry("c", false, "size")))
+		));
+
+		assertEquals("Invalid number of entries", 3, entries.size());
+
+		// deletions are moved to the position of the deletion
+		assertEquals("Invalid entry order", "a", entries.get(0).getUuid());
+		assertEquals("Invalid entry order", "c", entries.get(1).getUuid());
+		assertEquals("Invalid entry order", "b", entries.get(2).getUuid());
+
+		assertEquals("Invalid property keys", Arrays.asList("name", "owner"), Arrays.asList(entries.get(0).getPropertyKeys().toArray()));
+		assertEquals("Invalid property keys", Arrays.asList("name", "size"), Arrays.asList(entries.get(1).getPropertyKeys().toArray()));
+		assertTrue("Invalid deleted flag", entries.get(2).isDeleted());
+	}
+
+	@Test
+	public void testCursorResumeAfterReopen() throws IOException {
+
+		final ReplicationLog log = new ReplicationLog(directory, 1024 * 1024);
+
+		for (int i=0; i<3; i++) {
+			log.appendEntries(Arrays.asList(entry("uuid" + i, false)));
+		}
+
+		assertEquals("Invalid cursor of unknown host", -1L, log.readCursor("slave:54555"));
+
+		log.writeCursor("slave:54555", 2L);
+		log.close();
+
+		final ReplicationLog reopened = new ReplicationLog(directory, 1024 * 1024);
+		final long cursor             = reopened.readCursor("slave:54555");
+
+		assertEquals("Invalid cursor", 2L, cursor);
+		assertTrue("Log must be resumable from the cursor", reopened.canResumeFrom(cursor));
+
+		final List<Transaction> transactions = reopened.read(cursor, 10);
+
+		assertEquals("Invalid number of transactions", 1, transactions.size());
+		assertEquals("Invalid sequence number", 3L, transactions.get(0).getSequence());
+
+		// numbering continues after the highest cursor when all segments are gone
+		reopened.writeCursor("slave:54555", 3L);
+		reopened.close();
+
+		for (final File file : directory.listFiles((dir, name) -> name.endsWith(".log"))) {
+			file.delete();
+		}
+
+		final ReplicationLog empty = new ReplicationLog(directory, 1024 * 1024);
+
+		assertEquals("Invalid sequence number", 3L, empty.getLastSequence());
+		assertEquals("Invalid sequence number", 4L, empty.appendEntries(Arrays.asList(entry("uuid", false))));
+
+		empty.close();
+	}
+
+	// ----- private methods -----
+	private Entry entry(final String uuid, final boolean deleted, final String... keys) {
+
+		final Entry entry = new Entry(uuid, true, deleted);
+
+		entry.getPropertyKeys().addAll(Arrays.asList(keys));
+
+		return entry;
+	}
+
+	private int segmentCount() {
+		return directory.listFiles((dir, name) -> name.endsWith(".log")).length;
+	}
+}
@@ -25,6 +25,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.common.fulltext.FulltextIndexer;
 import org.structr.common.fulltext.Indexable;
 import org.structr.core.GraphObjectMap;
+import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractSchemaNode;
 import org.structr.core.property.GenericProperty;
@@ -38,6 +39,7 @@ public class FulltextIndexerModule implements FulltextIndexer, StructrModule {
 
 	@Override
 	public void onLoad() {
+		Services.getInstance().registerStatisticsProvider("fulltextIndexing", FulltextIndexingAgent::getStatistics);
 	}
 
 	@Override
@@ -22,12 +22,16 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import org.apache.commons.lang3.StringUtils;
@@ -44,17 +48,15 @@ import org.apache.tika.sax.BodyContentHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.agent.Agent;
+import org.structr.agent.AgentService;
 import org.structr.agent.ReturnValue;
 import org.structr.agent.Task;
-import org.structr.api.graph.Node;
-import org.structr.api.index.Index;
 import org.structr.common.fulltext.Indexable;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Person;
 import org.structr.core.entity.Principal;
 import static org.structr.core.graph.NodeInterface.owner;
-import org.structr.core.graph.NodeService;
 import org.structr.core.graph.Tx;
 
 /**
@@ -67,16 +69,28 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 	private static final Map<String, Set<String>> languageStopwordMap = new LinkedHashMap<>();
 	public static final String TASK_NAME                              = "FulltextIndexing";
 
+	private static final LongAdder submittedDocuments                 = new LongAdder();
+	private static final LongAdder indexedDocuments                   = new LongAdder();
+	private static final LongAdder failedDocuments                    = new LongAdder();
+	private static final LongAdder indexedWordCount                   = new LongAdder();
+	private static final LongAdder indexingTime                       = new LongAdder();
+	private static final AutoDetectParser parser                      = createParser();
+	private static volatile ThreadPoolExecutor executor               = null;
+
 	@Override
 	public ReturnValue processTask(final Task<Indexable> task) throws Throwable {
 
 		if (TASK_NAME.equals(task.getType())) {
 
+			final ThreadPoolExecutor pool = getExecutor(getBlackboardService());
+
 			for (final Indexable file : task.getNodes()) {
 
-				doIndexing(file);
-			}
+				submittedDocuments.increment();
 
+				// the caller runs the task itself when the queue is full
+				pool.execute(() -> doIndexing(file));
+			}
 
 			return ReturnValue.Success;
 		}
@@ -94,9 +108,34 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 		return false;
 	}
 
+	/**
+	 * Returns the current backlog and throughput figures of the indexing
+	 * worker pool.
+	 *
+	 * @return a map with indexing statistics
+	 */
+	public static Map<String, Object> getStatistics() {
+
+		final Map<String, Object> stats = new LinkedHashMap<>();
+		final ThreadPoolExecutor pool   = executor;
+		final long documents            = indexedDocuments.sum();
+		final long time                 = indexingTime.sum();
+
+		stats.put("submitted", submittedDocuments.sum());
+		stats.put("indexed",   documents);
+		stats.put("failed",    failedDocuments.sum());
+		stats.put("words",     indexedWordCount.sum());
+		stats.put("queued",    pool != null ? pool.getQueue().size() : 0);
+		stats.put("active",    pool != null ? pool.getActiveCount() : 0);
+		stats.put("averageMs", documents > 0 ? TimeUnit.NANOSECONDS.toMillis(time / documents) : 0);
+
+		return stats;
+	}
+
 	// ----- private methods -----
 	private void doIndexing(final Indexable file) {
 
+		final long t0                     = System.nanoTime();
 		boolean parsingSuccessful         = false;
 		InputStream inputStream           = null;
 		String fileName                   = "unknown file";
@@ -117,13 +156,6 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 
 				try (final InputStream is = inputStream) {
 
-					Detector detector = new DefaultDetector(MimeTypes.getDefaultMimeTypes());
-					final AutoDetectParser parser = new AutoDetectParser(detector);
-					
-					final Map<MediaType, Parser> customParsers = new HashMap<>();
-					customParsers.put(MediaType.application("pdf"), new PDFParser());
-					parser.setParsers(customParsers);
-
 					parser.parse(is, new BodyContentHandler(tokenizer), new Metadata());
 					parsingSuccessful = true;
 				}
@@ -131,6 +163,11 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 				// only do indexing when parsing was successful
 				if (parsingSuccessful) {
 
+					logger.info("Indexing {}..", fileName);
+
+					final Set<String> stopWords    = languageStopwordMap.get(tokenizer.getLanguage());
+					final Set<String> indexedWords = new TreeSet<>();
+
 					try (Tx tx = StructrApp.getInstance().tx()) {
 
 						// don't modify access time when indexing is finished
@@ -165,70 +202,104 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 							}
 						}
 
+						// collect words excluding stop words
+						for (final String rawWord : tokenizer.getWords()) {
+
+							// strip double quotes
+							final String word = StringUtils.strip(rawWord, "\"");
+
+							if (stopWords == null || !stopWords.contains(word)) {
+
+								indexedWords.add(word);
+							}
+						}
+
+						// store indexed words, the property is indexed so this
+						// replaces the index entries of previous indexing runs
+						file.setProperty(Indexable.indexedWords, (String[]) indexedWords.toArray(new String[indexedWords.size()]));
+
 						tx.success();
 					}
 
-					// index document excluding stop words
-					final NodeService nodeService       = Services.getInstance().getService(NodeService.class);
-					final Index<Node> fulltextIndex     = nodeService.getNodeIndex();
-					final Set<String> stopWords         = languageStopwordMap.get(tokenizer.getLanguage());
-					final String indexKeyName           = Indexable.indexedWords.jsonName();
-					final Iterator<String> wordIterator = tokenizer.getWords().iterator();
-					final Node node                     = file.getNode();
-					final Set<String> indexedWords      = new TreeSet<>();
+					indexedDocuments.increment();
+					indexedWordCount.add(indexedWords.size());
+					indexingTime.add(System.nanoTime() - t0);
 
-					logger.info("Indexing {}..", fileName);
+					logger.info("Indexing of {} finished, {} words extracted", new Object[] { fileName, tokenizer.getWordCount() } );
+				}
+			}
+
+		} catch (final Throwable t) {
+
+			failedDocuments.increment();
+
+			logger.warn("Indexing of {} failed: {}", new Object[] { fileName, t.getMessage() } );
+			t.printStackTrace();
+		}
+	}
 
-					while (wordIterator.hasNext()) {
+	/**
+	 * Stops the indexing worker pool, documents that are already queued
+	 * are still indexed. A new pool is created for the next task.
+	 */
+	public static void shutdown() {
 
-						try (Tx tx = StructrApp.getInstance().tx()) {
+		synchronized (FulltextIndexingAgent.class) {
 
-							// remove node from index (in case of previous indexing runs)
-							fulltextIndex.remove(node, indexKeyName);
+			if (executor != null) {
 
-							while (wordIterator.hasNext()) {
+				executor.shutdown();
+				executor = null;
+			}
+		}
+	}
 
-								// strip double quotes
-								final String word = StringUtils.strip(wordIterator.next(), "\"");
+	private static ThreadPoolExecutor getExecutor(final AgentService agentService) {
 
-								if (!stopWords.contains(word)) {
+		if (executor == null) {
 
-									indexedWords.add(word);
-									fulltextIndex.add(node, indexKeyName, word, String.class);
+			synchronized (FulltextIndexingAgent.class) {
 
-//									if (indexedWords > 1000) {
-//										indexedWords = 0;
-//										break;
-//									}
-								}
-							}
+				if (executor == null) {
 
-							tx.success();
-						}
-					}
+					final int threads   = Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(Services.APPLICATION_FILESYSTEM_INDEXING_THREADS), Runtime.getRuntime().availableProcessors()));
+					final int queueSize = Math.max(1, Services.parseInt(StructrApp.getConfigurationValue(Services.APPLICATION_FILESYSTEM_INDEXING_QUEUE), 100));
+					final AtomicInteger count = new AtomicInteger();
 
-					// store indexed words separately
-					try (Tx tx = StructrApp.getInstance().tx()) {
+					final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
 
-						// don't modify access time when indexing is finished
-						file.getSecurityContext().preventModificationOfAccessTime();
+						final Thread thread = new Thread(r, "FulltextIndexer-" + count.incrementAndGet());
+						thread.setDaemon(true);
 
-						// store indexed words
-						file.setProperty(Indexable.indexedWords, (String[]) indexedWords.toArray(new String[indexedWords.size()]));
+						return thread;
 
-						tx.success();
-					}
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
 
-					logger.info("Indexing of {} finished, {} words extracted", new Object[] { fileName, tokenizer.getWordCount() } );
+					pool.allowCoreThreadTimeOut(true);
 
+					executor = pool;
+
+					if (agentService != null) {
+						agentService.addShutdownHook(FulltextIndexingAgent::shutdown);
+					}
 				}
 			}
+		}
 
-		} catch (final Throwable t) {
+		return executor;
+	}
 
-			logger.warn("Indexing of {} failed: {}", new Object[] { fileName, t.getMessage() } );
-			t.printStackTrace();
-		}
+	private static AutoDetectParser createParser() {
+
+		// AutoDetectParser is stateless and can be shared between threads
+		final Detector detector                    = new DefaultDetector(MimeTypes.getDefaultMimeTypes());
+		final AutoDetectParser autoDetectParser    = new AutoDetectParser(detector);
+		final Map<MediaType, Parser> customParsers = new HashMap<>();
+
+		customParsers.put(MediaType.application("pdf"), new PDFParser());
+		autoDetectParser.setParsers(customParsers);
+
+		return autoDetectParser;
 	}
 
 	static {
@@ -25,12 +25,16 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,6 +50,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
 import org.structr.api.NativeResult;
+import org.structr.api.NotFoundException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.Transaction;
 import org.structr.api.config.Structr;
@@ -81,6 +86,7 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 	private String databasePath                                       = null;
 	private Driver driver                                             = null;
 	private int queryCacheSize                                        = 1000;
+	private int writeBatchSize                                        = 1000;
 
 	@Override
 	public void initialize(final Properties configuration) {
@@ -134,6 +140,7 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		final int relCacheSize  = Integer.valueOf(configuration.getProperty(Structr.RELATIONSHIP_CACHE_SIZE, "100000"));
 		final int nodeCacheSize = Integer.valueOf(configuration.getProperty(Structr.NODE_CACHE_SIZE, "100000"));
 		this.queryCacheSize     = Integer.valueOf(configuration.getProperty(Structr.QUERY_CACHE_SIZE, "1000"));
+		this.writeBatchSize     = Integer.valueOf(configuration.getProperty(Structr.WRITE_BATCH_SIZE, "1000"));
 
 		NodeWrapper.initialize(nodeCacheSize);
 		logger.info("Node cache size set to {}", nodeCacheSize);
@@ -171,15 +178,12 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 	@Override
 	public Transaction beginTx() {
+		return beginTx(false);
+	}
 
-		SessionTransaction session = sessions.get();
-		if (session == null || session.isClosed()) {
-
-			session = new SessionTransaction(this, driver.session());
-			sessions.set(session);
-		}
-
-		return session;
+	@Override
+	public Transaction beginReadOnlyTx() {
+		return beginTx(true);
 	}
 
 	@Override
@@ -199,7 +203,101 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		// make properties available to Cypher statement
 		map.put("properties", properties);
 
-		return NodeWrapper.newInstance(this, getCurrentTransaction().getNode(buf.toString(), map));
+		final SessionTransaction tx = getCurrentTransaction();
+		final NodeWrapper node      = NodeWrapper.newInstance(this, tx.getNode(buf.toString(), map));
+
+		tx.structureModified(node);
+
+		return node;
+	}
+
+	@Override
+	public List<Node> createNodes(final Set<String> labels, final List<Map<String, Object>> properties) {
+
+		if (properties.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final StringBuilder buf       = new StringBuilder("UNWIND {rows} AS row CREATE (n");
+		final Map<String, Object> map = new HashMap<>();
+		final List<Node> nodes        = new ArrayList<>(properties.size());
+
+		for (final String label : labels) {
+
+			buf.append(":");
+			buf.append(label);
+		}
+
+		buf.append(") SET n = row RETURN n");
+
+		map.put("rows", properties);
+
+		final SessionTransaction tx = getCurrentTransaction();
+
+		for (final org.neo4j.driver.v1.types.Node created : tx.getNodes(buf.toString(), map)) {
+
+			final NodeWrapper node = NodeWrapper.newInstance(this, created);
+
+			tx.structureModified(node);
+			nodes.add(node);
+		}
+
+		return nodes;
+	}
+
+	@Override
+	public List<Relationship> createRelationships(final List<Node> startNodes, final List<Node> endNodes, final RelationshipType type, final List<Map<String, Object>> properties) {
+
+		if (properties.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final List<Map<String, Object>> rows          = new ArrayList<>(properties.size());
+		final List<Relationship> relationships        = new ArrayList<>(properties.size());
+		final Map<String, Object> map                 = new HashMap<>();
+		final Iterator<Node> startIterator            = startNodes.iterator();
+		final Iterator<Node> endIterator              = endNodes.iterator();
+		final Iterator<Map<String, Object>> iterator  = properties.iterator();
+		final SessionTransaction tx                   = getCurrentTransaction();
+
+		while (startIterator.hasNext() && endIterator.hasNext() && iterator.hasNext()) {
+
+			final NodeWrapper startNode    = (NodeWrapper)startIterator.next();
+			final NodeWrapper endNode      = (NodeWrapper)endIterator.next();
+			final Map<String, Object> row  = new HashMap<>();
+
+			row.put("start",      startNode.getId());
+			row.put("end",        endNode.getId());
+			row.put("properties", iterator.next());
+
+			rows.add(row);
+
+			// clear relationship caches now and again on commit
+			startNode.invalidate();
+			endNode.invalidate();
+
+			tx.modified(startNode);
+			tx.modified(endNode);
+		}
+
+		map.put("rows", rows);
+
+		final String statement = "UNWIND {rows} AS row MATCH (n), (m) WHERE ID(n) = row.start AND ID(m) = row.end CREATE (n)-[r:" + type.name() + "]->(m) SET r = row.properties RETURN r";
+
+		for (final org.neo4j.driver.v1.types.Relationship created : tx.getRelationships(statement, map)) {
+
+			final RelationshipWrapper relationship = RelationshipWrapper.newInstance(this, created);
+
+			tx.structureModified(relationship);
+			relationships.add(relationship);
+		}
+
+		// MATCH silently skips rows whose start or end node doesn't exist
+		if (relationships.size() != rows.size()) {
+			throw new NotFoundException("Created " + relationships.size() + " of " + rows.size() + " relationships of type " + type.name() + ", start or end node not found.");
+		}
+
+		return relationships;
 	}
 
 	@Override
@@ -286,6 +384,39 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		}
 	}
 
+	public void invalidateQueryCache(final String label, final Set<String> keys) {
+
+		if (nodeIndex != null) {
+			nodeIndex.invalidateCache(label, keys);
+		}
+
+		if (relationshipIndex != null) {
+			relationshipIndex.invalidateCache(label, keys);
+		}
+	}
+
+	@Override
+	public Map<String, Long> getQueryCacheStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		if (nodeIndex != null) {
+
+			for (final Entry<String, Long> entry : nodeIndex.getCacheStatistics().entrySet()) {
+				statistics.put("node." + entry.getKey(), entry.getValue());
+			}
+		}
+
+		if (relationshipIndex != null) {
+
+			for (final Entry<String, Long> entry : relationshipIndex.getCacheStatistics().entrySet()) {
+				statistics.put("relationship." + entry.getKey(), entry.getValue());
+			}
+		}
+
+		return statistics;
+	}
+
 	public SessionTransaction getCurrentTransaction() {
 
 		final SessionTransaction tx = sessions.get();
@@ -297,6 +428,16 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return tx;
 	}
 
+	/**
+	 * Returns the maximum number of buffered property and delete
+	 * operations per transaction, see SessionTransaction.
+	 *
+	 * @return the write batch size
+	 */
+	public int getWriteBatchSize() {
+		return writeBatchSize;
+	}
+
 	public boolean logQueries() {
 		return debugLogging;
 	}
@@ -372,6 +513,18 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 	}
 
 	// ----- private methods -----
+	private Transaction beginTx(final boolean readOnly) {
+
+		SessionTransaction session = sessions.get();
+		if (session == null || session.isClosed()) {
+
+			session = new SessionTransaction(this, driver.session(), readOnly);
+			sessions.set(session);
+		}
+
+		return session;
+	}
+
 	private Properties getProperties() {
 
 		if (globalGraphProperties == null) {
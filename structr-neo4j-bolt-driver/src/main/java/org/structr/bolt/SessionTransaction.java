@@ -18,10 +18,16 @@
  */
 package org.structr.bolt;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import org.neo4j.driver.v1.Record;
 import org.neo4j.driver.v1.Session;
@@ -42,25 +48,47 @@ import org.structr.bolt.mapper.RecordLongMapper;
 import org.structr.bolt.mapper.RecordNodeMapper;
 import org.structr.bolt.mapper.RecordRelationshipMapper;
 import org.structr.bolt.wrapper.EntityWrapper;
+import org.structr.bolt.wrapper.RelationshipWrapper;
 import org.structr.bolt.wrapper.StatementResultWrapper;
 
 /**
- *
+ * A transaction that buffers property changes and deletions of nodes
+ * and relationships and writes them in batches using UNWIND statements.
+ * Buffered operations are flushed before any other statement is run in
+ * this transaction, when the batch size is reached and on commit.
  */
 public class SessionTransaction implements org.structr.api.Transaction {
 
-	private final Set<EntityWrapper> modifiedEntities = new HashSet<>();
-	private BoltDatabaseService db                    = null;
-	private Session session                           = null;
-	private Transaction tx                            = null;
-	private boolean closed                            = false;
-	private boolean success                           = false;
+	private static final String SET_NODE_PROPERTIES         = "UNWIND {rows} AS row MATCH (n) WHERE ID(n) = row.id SET n += row.properties";
+	private static final String SET_RELATIONSHIP_PROPERTIES = "UNWIND {rows} AS row MATCH ()-[n]->() WHERE ID(n) = row.id SET n += row.properties";
+	private static final String DELETE_NODES                = "UNWIND {ids} AS id MATCH (n) WHERE ID(n) = id DELETE n";
+	private static final String DELETE_RELATIONSHIPS        = "UNWIND {ids} AS id MATCH ()-[n]->() WHERE ID(n) = id DELETE n";
+
+	private final Map<Long, Map<String, Object>> nodeProperties         = new LinkedHashMap<>();
+	private final Map<Long, Map<String, Object>> relationshipProperties = new LinkedHashMap<>();
+	private final Set<Long> deletedNodes                                = new LinkedHashSet<>();
+	private final Set<Long> deletedRelationships                        = new LinkedHashSet<>();
+	private final Map<String, Set<String>> modifiedKeys                 = new HashMap<>();
+	private final Set<String> structurallyModified                      = new HashSet<>();
+	private final Set<EntityWrapper> modifiedEntities                   = new HashSet<>();
+	private BoltDatabaseService db                                      = null;
+	private Session session                                             = null;
+	private Transaction tx                                              = null;
+	private boolean closed                                              = false;
+	private boolean success                                             = false;
+	private boolean readOnly                                            = false;
+	private int pendingOperations                                       = 0;
 
 	public SessionTransaction(final BoltDatabaseService db, final Session session) {
+		this(db, session, false);
+	}
 
-		this.session = session;
-		this.tx      = session.beginTransaction();
-		this.db      = db;
+	public SessionTransaction(final BoltDatabaseService db, final Session session, final boolean readOnly) {
+
+		this.session  = session;
+		this.tx       = session.beginTransaction();
+		this.readOnly = readOnly;
+		this.db       = db;
 	}
 
 	@Override
@@ -80,26 +108,58 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	@Override
 	public void close() {
 
-		if (!success) {
+		RuntimeException flushException = null;
 
-			// We need to invalidate all existing references because we cannot
-			// be sure that they contain the correct values after a rollback.
-			for (final EntityWrapper entity : modifiedEntities) {
-				entity.stale();
-			}
+		// a read-only transaction that did not write anything has nothing
+		// to flush and no cached query results or wrappers to invalidate
+		if (!readOnly || isModified()) {
 
-		} else {
+			if (success) {
+
+				try {
+
+					// write buffered operations before commit
+					flush();
+
+				} catch (RuntimeException rex) {
+
+					tx.failure();
+
+					flushException = rex;
+					success        = false;
+				}
+
+			} else {
+
+				clearPendingOperations();
+			}
 
-			if (!modifiedEntities.isEmpty()) {
+			// data was written, invalidate dependent query cache entries again
+			// so that results that were cached in the meantime (by this or other
+			// transactions) do not survive the commit or rollback
+			for (final String label : structurallyModified) {
+				db.invalidateQueryCache(label, null);
+			}
 
-				// data was written, invalidate query cache
-				db.invalidateQueryCache();
+			for (final Entry<String, Set<String>> entry : modifiedKeys.entrySet()) {
+				db.invalidateQueryCache(entry.getKey(), entry.getValue());
 			}
 
-			// Invalidate all nodes that are modified in this transaction
-			// so that the relationship caches are rebuilt.
-			for (final EntityWrapper entity : modifiedEntities) {
-				entity.invalidate();
+			if (!success) {
+
+				// We need to invalidate all existing references because we cannot
+				// be sure that they contain the correct values after a rollback.
+				for (final EntityWrapper entity : modifiedEntities) {
+					entity.stale();
+				}
+
+			} else {
+
+				// Invalidate all nodes that are modified in this transaction
+				// so that the relationship caches are rebuilt.
+				for (final EntityWrapper entity : modifiedEntities) {
+					entity.invalidate();
+				}
 			}
 		}
 
@@ -124,12 +184,20 @@ public class SessionTransaction implements org.structr.api.Transaction {
 				session.close();
 			}
 		}
+
+		if (flushException != null) {
+			throw flushException;
+		}
 	}
 
 	public boolean isClosed() {
 		return closed;
 	}
 
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
 	public void setClosed(final boolean closed) {
 		this.closed = closed;
 	}
@@ -156,6 +224,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asLong();
@@ -172,6 +241,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			final StatementResult result = tx.run(statement, map);
@@ -194,6 +264,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asEntity();
@@ -210,6 +281,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asNode();
@@ -226,6 +298,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asRelationship();
@@ -242,6 +315,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return Iterables.map(new RecordNodeMapper(), new StatementIterable(tx.run(statement, map)));
@@ -258,6 +332,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return Iterables.map(new RecordRelationshipMapper(), new StatementIterable(tx.run(statement, map)));
@@ -274,6 +349,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return Iterables.map(new RecordLongMapper(), new StatementIterable(tx.run(statement, map)));
@@ -290,6 +366,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			final StatementResult result = tx.run(statement, map);
@@ -310,6 +387,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			return new StatementResultWrapper(db, tx.run(statement, map));
@@ -326,6 +404,7 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
 			logQuery(statement, map);
 
 			tx.run(statement, map).consume();
@@ -338,6 +417,85 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		}
 	}
 
+	/**
+	 * Buffers the given property values of the given entity. A value of
+	 * null removes the property.
+	 *
+	 * @param wrapper the entity
+	 * @param properties the property values to set
+	 */
+	public void setProperties(final EntityWrapper wrapper, final Map<String, Object> properties) {
+
+		final Map<Long, Map<String, Object>> pending = isRelationship(wrapper) ? relationshipProperties : nodeProperties;
+		Map<String, Object> values                   = pending.get(wrapper.getId());
+
+		if (values == null) {
+
+			values = new HashMap<>();
+			pending.put(wrapper.getId(), values);
+
+			pendingOperations++;
+		}
+
+		values.putAll(properties);
+
+		flushIfNecessary();
+	}
+
+	/**
+	 * Buffers the deletion of the given entity.
+	 *
+	 * @param wrapper the entity
+	 */
+	public void delete(final EntityWrapper wrapper) {
+
+		final Long id = wrapper.getId();
+
+		if (isRelationship(wrapper)) {
+
+			relationshipProperties.remove(id);
+			deletedRelationships.add(id);
+
+		} else {
+
+			nodeProperties.remove(id);
+			deletedNodes.add(id);
+		}
+
+		pendingOperations++;
+
+		flushIfNecessary();
+	}
+
+	/**
+	 * Writes all buffered operations to the database. Relationships are
+	 * deleted before nodes, so that nodes whose relationships were
+	 * deleted in the same batch can be deleted as well.
+	 */
+	public void flush() {
+
+		if (pendingOperations == 0) {
+			return;
+		}
+
+		try {
+
+			runBatch(SET_NODE_PROPERTIES, "rows", getRows(nodeProperties));
+			runBatch(SET_RELATIONSHIP_PROPERTIES, "rows", getRows(relationshipProperties));
+			runBatch(DELETE_RELATIONSHIPS, "ids", new ArrayList<>(deletedRelationships));
+			runBatch(DELETE_NODES, "ids", new ArrayList<>(deletedNodes));
+
+		} catch (TransientException tex) {
+			closed = true;
+			throw new RetryException(tex);
+		} catch (NoSuchRecordException nex) {
+			throw new NotFoundException(nex);
+		} finally {
+
+			clearPendingOperations();
+		}
+	}
+
 	public void logQuery(final String statement) {
 
 		logQuery(statement, null);
@@ -362,14 +520,124 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	}
 
+	/**
+	 * Registers the given entity as modified without affecting any cached
+	 * query results, e.g. when only its relationships have changed.
+	 *
+	 * @param wrapper the modified entity
+	 */
 	public void modified(final EntityWrapper wrapper) {
+		modifiedEntities.add(wrapper);
+	}
+
+	/**
+	 * Registers the given entity as modified and invalidates all cached
+	 * query results that depend on one of its labels and one of the given
+	 * property keys.
+	 *
+	 * @param wrapper the modified entity
+	 * @param keys the modified property keys
+	 */
+	public void modified(final EntityWrapper wrapper, final Set<String> keys) {
+
+		final Set<String> labels = wrapper.getLabelNames();
+
+		for (final String label : labels) {
+
+			// data was written, invalidate dependent query cache entries
+			db.invalidateQueryCache(label, keys);
+
+			Set<String> keysForLabel = modifiedKeys.get(label);
+			if (keysForLabel == null) {
+
+				keysForLabel = new HashSet<>();
+				modifiedKeys.put(label, keysForLabel);
+			}
+
+			keysForLabel.addAll(keys);
+		}
+
+		modifiedEntities.add(wrapper);
+	}
+
+	/**
+	 * Registers the given entity as created, deleted or relabeled and
+	 * invalidates all cached query results that depend on one of its
+	 * labels.
+	 *
+	 * @param wrapper the modified entity
+	 */
+	public void structureModified(final EntityWrapper wrapper) {
 
-		// data was written, invalidate query cache
-		db.invalidateQueryCache();
+		final Set<String> labels = wrapper.getLabelNames();
+
+		for (final String label : labels) {
+
+			// data was written, invalidate dependent query cache entries
+			db.invalidateQueryCache(label, null);
+
+			structurallyModified.add(label);
+		}
 
 		modifiedEntities.add(wrapper);
 	}
 
+	// ----- private methods -----
+	private boolean isModified() {
+		return pendingOperations > 0 || !modifiedEntities.isEmpty() || !structurallyModified.isEmpty() || !modifiedKeys.isEmpty();
+	}
+
+	private boolean isRelationship(final EntityWrapper wrapper) {
+		return wrapper instanceof RelationshipWrapper;
+	}
+
+	private void flushIfNecessary() {
+
+		if (pendingOperations >= db.getWriteBatchSize()) {
+			flush();
+		}
+	}
+
+	private void clearPendingOperations() {
+
+		nodeProperties.clear();
+		relationshipProperties.clear();
+		deletedNodes.clear();
+		deletedRelationships.clear();
+
+		pendingOperations = 0;
+	}
+
+	private List<Map<String, Object>> getRows(final Map<Long, Map<String, Object>> pending) {
+
+		final List<Map<String, Object>> rows = new ArrayList<>(pending.size());
+
+		for (final Entry<Long, Map<String, Object>> entry : pending.entrySet()) {
+
+			final Map<String, Object> row = new HashMap<>();
+
+			row.put("id",         entry.getKey());
+			row.put("properties", entry.getValue());
+
+			rows.add(row);
+		}
+
+		return rows;
+	}
+
+	private void runBatch(final String statement, final String key, final List<?> rows) {
+
+		if (!rows.isEmpty()) {
+
+			final Map<String, Object> map = Collections.singletonMap(key, rows);
+
+			logQuery(statement, map);
+
+			tx.run(statement, map).consume();
+		}
+	}
+
+	// ----- nested classes -----
 	private class StatementIterable implements Iterable<Record> {
 
 		private StatementResult result = null;
@@ -18,14 +18,19 @@
  */
 package org.structr.bolt.index;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.QueryResult;
@@ -43,6 +48,7 @@ import org.structr.api.search.SpatialQuery;
 import org.structr.api.search.TypeConverter;
 import org.structr.api.search.TypeQuery;
 import org.structr.api.search.UuidQuery;
+import org.structr.api.util.Cachable;
 import org.structr.api.util.FixedSizeCache;
 import org.structr.api.util.Iterables;
 import org.structr.bolt.*;
@@ -99,7 +105,19 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		CONVERTERS.put(Double.class,  new DoubleTypeConverter());
 	}
 
+	/**
+	 * Label that is used to register cached results of queries that do not
+	 * restrict the type, so they are invalidated by modifications of any
+	 * type.
+	 */
+	private static final String ANY_LABEL = "*";
+
+	protected final Map<String, Set<Integer>> cacheDependencies = new ConcurrentHashMap<>();
 	protected final FixedSizeCache<Integer, CachedQueryResult> queryCache;
+	protected final AtomicLong cacheInvalidations               = new AtomicLong();
+	protected final AtomicLong cacheEvictions                   = new AtomicLong();
+	protected final AtomicLong cacheMisses                      = new AtomicLong();
+	protected final AtomicLong cacheHits                        = new AtomicLong();
 	protected final BoltDatabaseService db;
 
 	public AbstractCypherIndex(final BoltDatabaseService db, final int queryCacheSize) {
@@ -130,6 +148,22 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		t.setProperty(key, indexValue);
 	}
 
+	@Override
+	public void addAll(final T t, final String key, final Collection<?> values, final Class typeHint) {
+
+		// index values are node properties, so the whole list is written at once
+		final List<String> indexValues = new ArrayList<>(values.size());
+
+		for (final Object value : values) {
+
+			if (value != null && (value.getClass().isEnum() || INDEXABLE.contains(value.getClass()))) {
+				indexValues.add(value.toString());
+			}
+		}
+
+		t.setProperty(key, indexValues.toArray(new String[indexValues.size()]));
+	}
+
 	@Override
 	public void remove(final PropertyContainer t) {
 	}
@@ -151,14 +185,150 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 			query.sort(predicate.getSortType(), sortKey, predicate.sortDescending());
 		}
 
+		query.page(predicate.getPageSize(), predicate.getPage());
+
 		return getResult(query);
 	}
 
+	@Override
+	public long count(final QueryPredicate predicate) {
+
+		final CypherQuery query = new CypherQuery(this);
+
+		createQuery(this, predicate, query, true);
+
+		final String statement = query.getCountStatement();
+		if (statement != null) {
+
+			return db.getCurrentTransaction().getLong(statement, query.getParameters());
+		}
+
+		// UNION queries cannot be counted in the database
+		return Iterables.count(getResult(query));
+	}
+
 	public void invalidateCache() {
 
 		if (!queryCache.isEmpty()) {
 
 			queryCache.clear();
+			cacheDependencies.clear();
+		}
+	}
+
+	/**
+	 * Removes all cached query results that depend on the given label and
+	 * on at least one of the given property keys. A key set of null means
+	 * that the set of entities with the given label has changed (creation,
+	 * deletion or label modification), which affects all queries for that
+	 * label.
+	 *
+	 * @param label the label or relationship type of the modified entity
+	 * @param keys the modified property keys, or null
+	 */
+	public void invalidateCache(final String label, final Set<String> keys) {
+
+		if (queryCache.isEmpty()) {
+			return;
+		}
+
+		invalidateDependencies(cacheDependencies.get(label), keys);
+		invalidateDependencies(cacheDependencies.get(ANY_LABEL), keys);
+	}
+
+	public Map<String, Long> getCacheStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          Long.valueOf(queryCache.size()));
+		statistics.put("hits",          cacheHits.get());
+		statistics.put("misses",        cacheMisses.get());
+		statistics.put("evictions",     cacheEvictions.get());
+		statistics.put("invalidations", cacheInvalidations.get());
+
+		return statistics;
+	}
+
+	// ----- protected methods -----
+	protected CachedQueryResult getCachedResult(final int queryHashCode) {
+
+		final CachedQueryResult result = queryCache.get(queryHashCode);
+		if (result != null) {
+
+			cacheHits.incrementAndGet();
+
+		} else {
+
+			cacheMisses.incrementAndGet();
+		}
+
+		return result;
+	}
+
+	protected void cacheResult(final CachedQueryResult result) {
+
+		queryCache.put(result.queryHashCode, result);
+
+		if (result.labels.isEmpty()) {
+
+			addDependency(ANY_LABEL, result.queryHashCode);
+
+		} else {
+
+			for (final String label : result.labels) {
+				addDependency(label, result.queryHashCode);
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private void addDependency(final String label, final int queryHashCode) {
+		cacheDependencies.computeIfAbsent(label, k -> ConcurrentHashMap.newKeySet()).add(queryHashCode);
+	}
+
+	private void removeDependencies(final CachedQueryResult result) {
+
+		if (result.labels.isEmpty()) {
+
+			removeDependency(ANY_LABEL, result.queryHashCode);
+
+		} else {
+
+			for (final String label : result.labels) {
+				removeDependency(label, result.queryHashCode);
+			}
+		}
+	}
+
+	private void removeDependency(final String label, final int queryHashCode) {
+
+		final Set<Integer> dependencies = cacheDependencies.get(label);
+		if (dependencies != null) {
+
+			dependencies.remove(queryHashCode);
+		}
+	}
+
+	private void invalidateDependencies(final Set<Integer> dependencies, final Set<String> keys) {
+
+		if (dependencies != null) {
+
+			for (final Integer queryHashCode : dependencies) {
+
+				final CachedQueryResult result = queryCache.get(queryHashCode);
+				if (result == null) {
+
+					// entry was evicted or removed concurrently
+					dependencies.remove(queryHashCode);
+
+				} else if (result.dependsOn(keys)) {
+
+					queryCache.remove(queryHashCode);
+					removeDependencies(result);
+
+					cacheInvalidations.incrementAndGet();
+				}
+			}
 		}
 	}
 
@@ -184,11 +354,18 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	}
 
 	// ----- nested classes -----
-	protected class CachedQueryResult implements QueryResult<T> {
+	protected class CachedQueryResult implements QueryResult<T>, Cachable {
+
+		private Collection<T> result    = null;
+		private Set<String> labels      = null;
+		private Set<String> keys        = null;
+		private int queryHashCode       = 0;
 
-		private Collection<T> result = null;
+		public CachedQueryResult(final CypherQuery query, final int queryHashCode, final Iterable<T> source) {
 
-		public CachedQueryResult(final Iterable<T> source) {
+			this.queryHashCode = queryHashCode;
+			this.labels        = query.getLabels();
+			this.keys          = query.getPropertyKeys();
 
 			if (source instanceof Collection) {
 
@@ -209,5 +386,33 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		public Iterator<T> iterator() {
 			return result.iterator();
 		}
+
+		/**
+		 * Called by the query cache when this entry is removed due to
+		 * size restrictions.
+		 */
+		@Override
+		public void invalidate() {
+
+			removeDependencies(this);
+			cacheEvictions.incrementAndGet();
+		}
+
+		public boolean dependsOn(final Set<String> modifiedKeys) {
+
+			// structural modification or query with unknown dependencies
+			if (modifiedKeys == null || keys == null) {
+				return true;
+			}
+
+			for (final String key : modifiedKeys) {
+
+				if (keys.contains(key)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
 	}
 }
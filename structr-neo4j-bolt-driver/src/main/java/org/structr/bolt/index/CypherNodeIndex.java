@@ -53,7 +53,7 @@ public class CypherNodeIndex extends AbstractCypherIndex<Node> {
 	public QueryResult<Node> getResult(final CypherQuery query) {
 
 		final int queryHashCode  = query.getHashCode();
-		CachedQueryResult result = queryCache.get(queryHashCode);
+		CachedQueryResult result = getCachedResult(queryHashCode);
 
 		if (result == null) {
 
@@ -61,9 +61,9 @@ public class CypherNodeIndex extends AbstractCypherIndex<Node> {
 			final NodeNodeMapper mapper = new NodeNodeMapper(db);
 			final Iterable<Node> mapped = Iterables.map(mapper, tx.getNodes(query.getStatement(), query.getParameters()));
 
-			result = new CachedQueryResult(mapped);
+			result = new CachedQueryResult(query, queryHashCode, mapped);
 
-			queryCache.put(queryHashCode, result);
+			cacheResult(result);
 		}
 
 		return result;
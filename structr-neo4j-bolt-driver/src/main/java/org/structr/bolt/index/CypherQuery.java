@@ -19,10 +19,12 @@
 package org.structr.bolt.index;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.structr.api.search.SortType;
 
 /**
@@ -32,13 +34,17 @@ public class CypherQuery {
 
 	private final Map<String, Object> parameters = new HashMap<>();
 	private final List<String> typeLabels        = new LinkedList<>();
+	private final Set<String> propertyKeys       = new HashSet<>();
 	private final StringBuilder buffer           = new StringBuilder();
 	private String sourceTypeLabel               = null;
 	private String targetTypeLabel               = null;
 	private AbstractCypherIndex<?> index         = null;
 	private boolean sortDescending               = false;
+	private boolean dependsOnAllKeys             = false;
 	private SortType sortType                    = null;
 	private String sortKey                       = null;
+	private int pageSize                         = Integer.MAX_VALUE;
+	private int page                             = 1;
 	private int count                            = 0;
 
 	public CypherQuery(final AbstractCypherIndex<?> index) {
@@ -55,7 +61,7 @@ public class CypherQuery {
 		int hashCode = 23;
 
 		hashCode += 37 * getStatement().hashCode();
-		hashCode += 47 * parameters.hashCode();
+		hashCode += 47 * getParameters().hashCode();
 		hashCode += 57 * sortKey.hashCode();
 
 		if (sortDescending) {
@@ -74,24 +80,14 @@ public class CypherQuery {
 			case 0:
 
 				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
-
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
-
+				appendWhereClause(buf);
 				buf.append(index.getQuerySuffix());
 				break;
 
 			case 1:
 
 				buf.append(index.getQueryPrefix(typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
-
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
-
+				appendWhereClause(buf);
 				buf.append(index.getQuerySuffix());
 				break;
 
@@ -101,12 +97,7 @@ public class CypherQuery {
 				for (final Iterator<String> it = typeLabels.iterator(); it.hasNext();) {
 
 					buf.append(index.getQueryPrefix(it.next(), sourceTypeLabel, targetTypeLabel));
-
-					if (buffer.length() > 0) {
-						buf.append(" WHERE ");
-						buf.append(buffer);
-					}
-
+					appendWhereClause(buf);
 					buf.append(index.getQuerySuffix());
 
 					if (it.hasNext()) {
@@ -145,10 +136,58 @@ public class CypherQuery {
 			}
 		}
 
+		if (isPaged()) {
+
+			buf.append(" SKIP {skip} LIMIT {limit}");
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Returns a statement that counts the results of this query, ignoring
+	 * sorting and paging. Queries with more than one type label cannot be
+	 * counted this way, so this method returns null for them.
+	 *
+	 * @return the count statement or null
+	 */
+	public String getCountStatement() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		switch (typeLabels.size()) {
+
+			case 0:
+				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
+				break;
+
+			case 1:
+				buf.append(index.getQueryPrefix(typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
+				break;
+
+			default:
+				return null;
+		}
+
+		appendWhereClause(buf);
+
+		buf.append(" RETURN COUNT(DISTINCT n)");
+
 		return buf.toString();
 	}
 
 	public Map<String, Object> getParameters() {
+
+		if (isPaged()) {
+
+			final Map<String, Object> pagedParameters = new HashMap<>(parameters);
+
+			pagedParameters.put("skip",  (page - 1) * pageSize);
+			pagedParameters.put("limit", pageSize);
+
+			return pagedParameters;
+		}
+
 		return parameters;
 	}
 
@@ -190,6 +229,16 @@ public class CypherQuery {
 
 	public void addSimpleParameter(final String key, final String operator, final Object value, final boolean isProperty) {
 
+		if (isProperty) {
+
+			propertyKeys.add(key);
+
+		} else {
+
+			// arbitrary expression, we cannot know which keys it depends on
+			dependsOnAllKeys = true;
+		}
+
 		if (value != null) {
 
 			final String paramKey = "param" + count++;
@@ -235,6 +284,8 @@ public class CypherQuery {
 
 	public void addListParameter(final String key, final String operator, final Object value) {
 
+		propertyKeys.add(key);
+
 		if (value != null) {
 
 			final String paramKey = "param" + count++;
@@ -264,6 +315,8 @@ public class CypherQuery {
 		final String paramKey1 = "param" + count++;
 		final String paramKey2 = "param" + count++;
 
+		propertyKeys.add(key);
+
 		buffer.append("n.`");
 		buffer.append(key);
 		buffer.append("` ");
@@ -289,6 +342,69 @@ public class CypherQuery {
 		this.sortDescending = sortDescending;
 		this.sortType       = sortType;
 		this.sortKey        = sortKey;
+
+		if (sortKey != null) {
+			propertyKeys.add(sortKey);
+		}
+	}
+
+	/**
+	 * Returns the labels this query depends on, i.e. the type labels
+	 * and the source and target type labels. An empty set means that
+	 * the query is not restricted to any type label.
+	 *
+	 * @return the set of labels
+	 */
+	public Set<String> getLabels() {
+
+		final Set<String> labels = new HashSet<>(typeLabels);
+
+		if (labels.isEmpty()) {
+			return labels;
+		}
+
+		if (sourceTypeLabel != null) {
+			labels.add(sourceTypeLabel);
+		}
+
+		if (targetTypeLabel != null) {
+			labels.add(targetTypeLabel);
+		}
+
+		return labels;
+	}
+
+	/**
+	 * Returns the property keys this query depends on, or null if the
+	 * query contains expressions whose dependencies are unknown.
+	 *
+	 * @return the set of property keys or null
+	 */
+	public Set<String> getPropertyKeys() {
+
+		if (dependsOnAllKeys) {
+			return null;
+		}
+
+		return new HashSet<>(propertyKeys);
+	}
+
+	/**
+	 * Sets the page size and page of this query. Paging is only applied
+	 * to queries with at most one type label, because the result of a
+	 * UNION query cannot be paged as a whole.
+	 *
+	 * @param pageSize the page size
+	 * @param page the page, starting with 1
+	 */
+	public void page(final int pageSize, final int page) {
+
+		this.pageSize = pageSize;
+		this.page     = page;
+	}
+
+	public boolean isPaged() {
+		return pageSize > 0 && pageSize < Integer.MAX_VALUE && page > 0 && typeLabels.size() <= 1;
 	}
 
 	public void setSourceType(final String sourceTypeLabel) {
@@ -298,4 +414,13 @@ public class CypherQuery {
 	public void setTargetType(final String targetTypeLabel) {
 		this.targetTypeLabel = targetTypeLabel;
 	}
+
+	// ----- private methods -----
+	private void appendWhereClause(final StringBuilder buf) {
+
+		if (buffer.length() > 0) {
+			buf.append(" WHERE ");
+			buf.append(buffer);
+		}
+	}
 }
@@ -18,10 +18,12 @@
  */
 package org.structr.bolt.wrapper;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
 import org.neo4j.driver.v1.types.Entity;
@@ -51,6 +53,14 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 	protected abstract String getQueryPrefix();
 
+	/**
+	 * Returns the labels (or relationship type) of this entity that are
+	 * used to invalidate dependent entries of the query cache.
+	 *
+	 * @return the set of label names
+	 */
+	public abstract Set<String> getLabelNames();
+
 	@Override
 	public long getId() {
 		return id;
@@ -100,18 +110,16 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		final SessionTransaction tx   = db.getCurrentTransaction();
 		final Map<String, Object> map = new HashMap<>();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = {value}";
 
-		map.put("id", id);
-		map.put("value", value);
+		map.put(key, value);
 
-		// update entity handle
-		tx.set(query, map);
+		// buffer write operation
+		tx.setProperties(this, map);
 
 		// update data
 		update(key, value);
 
-		tx.modified(this);
+		tx.modified(this, Collections.singleton(key));
 	}
 
 	@Override
@@ -119,21 +127,15 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>(values);
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n += {properties}";
-
-		// overwrite a potential "id" property
-		map.put("id", id);
-		map.put("properties", values);
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		// execute query
-		tx.set(query, map);
+		// buffer write operation
+		tx.setProperties(this, values);
 
 		// update data
 		update(values);
 
-		tx.modified(this);
+		tx.modified(this, values.keySet());
 	}
 
 	@Override
@@ -143,17 +145,17 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		final SessionTransaction tx   = db.getCurrentTransaction();
 		final Map<String, Object> map = new HashMap<>();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = Null";
 
-		map.put("id", id);
+		// null values are removed by SET n += {properties}
+		map.put(key, null);
 
-		// execute query
-		tx.set(query, map);
+		// buffer write operation
+		tx.setProperties(this, map);
 
 		// remove key from data
 		data.remove(key);
 
-		tx.modified(this);
+		tx.modified(this, Collections.singleton(key));
 	}
 
 	@Override
@@ -169,13 +171,10 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-
-		map.put("id", id);
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		tx.set(getQueryPrefix() + " WHERE ID(n) = {id} DELETE n", map);
-		tx.modified(this);
+		tx.delete(this);
+		tx.structureModified(this);
 
 		invalidate();
 
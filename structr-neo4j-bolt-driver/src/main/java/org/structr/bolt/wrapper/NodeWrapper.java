@@ -22,12 +22,14 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import org.structr.api.graph.Direction;
 import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.api.util.Iterables;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
@@ -39,14 +41,20 @@ import org.structr.bolt.mapper.RelationshipRelationshipMapper;
 public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> implements Node {
 
 	private final Map<String, Map<String, List<Relationship>>> relationshipCache = new HashMap<>();
-	private static FixedSizeCache<Long, NodeWrapper> nodeCache                   = null;
+	private final Set<String> labelNames                                         = new CopyOnWriteArraySet<>();
+	private static ConcurrentFixedSizeCache<Long, NodeWrapper> nodeCache         = null;
 
 	private NodeWrapper(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
+
 		super(db, node);
+
+		for (final String label : node.labels()) {
+			labelNames.add(label);
+		}
 	}
 
 	public static void initialize(final int cacheSize) {
-		nodeCache = new FixedSizeCache<>(cacheSize);
+		nodeCache = new ConcurrentFixedSizeCache<>(cacheSize);
 	}
 
 	@Override
@@ -59,6 +67,11 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		relationshipCache.clear();
 	}
 
+	@Override
+	public Set<String> getLabelNames() {
+		return labelNames;
+	}
+
 	@Override
 	public Relationship createRelationshipTo(final Node endNode, final RelationshipType relationshipType) {
 
@@ -96,7 +109,11 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		((NodeWrapper)endNode).relationshipCache.clear();
 		relationshipCache.clear();
 
-		return RelationshipWrapper.newInstance(db, rel);
+		final RelationshipWrapper relationship = RelationshipWrapper.newInstance(db, rel);
+
+		tx.structureModified(relationship);
+
+		return relationship;
 	}
 
 	@Override
@@ -110,7 +127,9 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		map.put("id", id);
 
 		tx.set("MATCH (n) WHERE ID(n) = {id} SET n :" + label.name(), map);
-		tx.modified(this);
+
+		labelNames.add(label.name());
+		tx.structureModified(this);
 	}
 
 	@Override
@@ -124,7 +143,11 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		map.put("id", id);
 
 		tx.set("MATCH (n) WHERE ID(n) = {id} REMOVE n:" + label.name(), map);
-		tx.modified(this);
+
+		// invalidate before removing the label so that queries for the
+		// removed label are invalidated as well
+		tx.structureModified(this);
+		labelNames.remove(label.name());
 	}
 
 	@Override
@@ -256,37 +279,43 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 	// ----- public static methods -----
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
 
-		synchronized (nodeCache) {
+		NodeWrapper wrapper = nodeCache.get(node.id());
+		if (wrapper == null) {
 
-			NodeWrapper wrapper = nodeCache.get(node.id());
-			if (wrapper == null) {
+			wrapper = new NodeWrapper(db, node);
 
-				wrapper = new NodeWrapper(db, node);
-				nodeCache.put(node.id(), wrapper);
-			}
+			// another thread may have created a wrapper in the meantime
+			final NodeWrapper existing = nodeCache.putIfAbsent(node.id(), wrapper);
+			if (existing != null) {
 
-			return wrapper;
+				wrapper = existing;
+			}
 		}
+
+		return wrapper;
 	}
 
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		synchronized (nodeCache) {
+		NodeWrapper wrapper = nodeCache.get(id);
+		if (wrapper == null) {
+
+			final SessionTransaction tx   = db.getCurrentTransaction();
+			final Map<String, Object> map = new HashMap<>();
 
-			NodeWrapper wrapper = nodeCache.get(id);
-			if (wrapper == null) {
+			map.put("id", id);
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
+			wrapper = new NodeWrapper(db, tx.getNode("MATCH (n) WHERE ID(n) = {id} RETURN n", map));
 
-				map.put("id", id);
+			// another thread may have created a wrapper in the meantime
+			final NodeWrapper existing = nodeCache.putIfAbsent(id, wrapper);
+			if (existing != null) {
 
-				wrapper = new NodeWrapper(db, tx.getNode("MATCH (n) WHERE ID(n) = {id} RETURN n", map));
-				nodeCache.put(id, wrapper);
+				wrapper = existing;
 			}
-
-			return wrapper;
 		}
+
+		return wrapper;
 	}
 
 	// ----- private methods -----
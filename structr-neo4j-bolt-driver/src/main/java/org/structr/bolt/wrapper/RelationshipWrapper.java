@@ -18,13 +18,15 @@
  */
 package org.structr.bolt.wrapper;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import org.structr.api.NotFoundException;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
 
@@ -33,7 +35,7 @@ import org.structr.bolt.SessionTransaction;
  */
 public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Relationship> implements Relationship {
 
-	private static FixedSizeCache<Long, RelationshipWrapper> relationshipCache = null;
+	private static ConcurrentFixedSizeCache<Long, RelationshipWrapper> relationshipCache = null;
 
 	private long sourceNodeId = -1L;
 	private long targetNodeId = -1L;
@@ -49,7 +51,7 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	public static void initialize(final int cacheSize) {
-		relationshipCache = new FixedSizeCache<>(cacheSize);
+		relationshipCache = new ConcurrentFixedSizeCache<>(cacheSize);
 	}
 
 	@Override
@@ -57,6 +59,11 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 		return "MATCH ()-[n]-()";
 	}
 
+	@Override
+	public Set<String> getLabelNames() {
+		return Collections.singleton(type);
+	}
+
 	@Override
 	public void invalidate() {
 
@@ -128,36 +135,42 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	// ----- public static methods -----
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Relationship relationship) {
 
-		synchronized (relationshipCache) {
+		RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
+		if (wrapper == null) {
 
-			RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
-			if (wrapper == null) {
+			wrapper = new RelationshipWrapper(db, relationship);
 
-				wrapper = new RelationshipWrapper(db, relationship);
-				relationshipCache.put(relationship.id(), wrapper);
-			}
+			// another thread may have created a wrapper in the meantime
+			final RelationshipWrapper existing = relationshipCache.putIfAbsent(relationship.id(), wrapper);
+			if (existing != null) {
 
-			return wrapper;
+				wrapper = existing;
+			}
 		}
+
+		return wrapper;
 	}
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		synchronized (relationshipCache) {
+		RelationshipWrapper wrapper = relationshipCache.get(id);
+		if (wrapper == null) {
 
-			RelationshipWrapper wrapper = relationshipCache.get(id);
-			if (wrapper == null) {
+			final SessionTransaction tx   = db.getCurrentTransaction();
+			final Map<String, Object> map = new HashMap<>();
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
+			map.put("id", id);
 
-				map.put("id", id);
+			wrapper = new RelationshipWrapper(db, tx.getRelationship("MATCH ()-[n]-() WHERE ID(n) = {id} RETURN n", map));
 
-				wrapper = new RelationshipWrapper(db, tx.getRelationship("MATCH ()-[n]-() WHERE ID(n) = {id} RETURN n", map));
-				relationshipCache.put(id, wrapper);
-			}
+			// another thread may have created a wrapper in the meantime
+			final RelationshipWrapper existing = relationshipCache.putIfAbsent(id, wrapper);
+			if (existing != null) {
 
-			return wrapper;
+				wrapper = existing;
+			}
 		}
+
+		return wrapper;
 	}
 }
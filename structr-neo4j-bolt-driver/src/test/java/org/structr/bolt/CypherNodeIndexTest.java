@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.api.Transaction;
+import org.structr.api.config.Structr;
+import org.structr.api.graph.Node;
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.SortType;
+import org.structr.api.search.TypeQuery;
+import org.structr.api.util.Iterables;
+
+public class CypherNodeIndexTest {
+
+	@Test
+	public void testPaging() {
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		final Properties config     = new Properties();
+
+		try {
+			config.put(Structr.DATABASE_PATH, Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+		} catch (IOException ioex) {
+			ioex.printStackTrace();
+		}
+
+		config.setProperty(Structr.DATABASE_CONNECTION_URL, Structr.TEST_DATABASE_URL);
+
+		s.initialize(config);
+
+		try (final Transaction tx = s.beginTx()) {
+
+			for (int i=0; i<5; i++) {
+				s.createNode(Collections.singleton("TestThree"), Collections.singletonMap("name", "node" + i));
+			}
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			final List<Node> result = Iterables.toList(s.nodeIndex().query(new TestTypeQuery("TestThree", 2, 2)));
+
+			Assert.assertEquals("Invalid paged query result", 2, result.size());
+			Assert.assertEquals("Invalid paged query result", "node2", result.get(0).getProperty("name"));
+			Assert.assertEquals("Invalid paged query result", "node3", result.get(1).getProperty("name"));
+
+			Assert.assertEquals("Invalid count result", 5, s.nodeIndex().count(new TestTypeQuery("TestThree", 2, 2)));
+
+			tx.success();
+		}
+
+		s.shutdown();
+	}
+
+	// ----- nested classes -----
+	private static class TestTypeQuery implements TypeQuery {
+
+		private String type  = null;
+		private int pageSize = Integer.MAX_VALUE;
+		private int page     = 1;
+
+		public TestTypeQuery(final String type) {
+			this.type = type;
+		}
+
+		public TestTypeQuery(final String type, final int pageSize, final int page) {
+
+			this.type     = type;
+			this.pageSize = pageSize;
+			this.page     = page;
+		}
+
+		@Override
+		public Class getSourceType() {
+			return null;
+		}
+
+		@Override
+		public Class getTargetType() {
+			return null;
+		}
+
+		@Override
+		public Class getQueryType() {
+			return TypeQuery.class;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+
+		@Override
+		public Class getType() {
+			return String.class;
+		}
+
+		@Override
+		public Object getValue() {
+			return type;
+		}
+
+		@Override
+		public Occurrence getOccurrence() {
+			return Occurrence.REQUIRED;
+		}
+
+		@Override
+		public boolean isExactMatch() {
+			return true;
+		}
+
+		@Override
+		public String getSortKey() {
+			return "name";
+		}
+
+		@Override
+		public SortType getSortType() {
+			return SortType.Default;
+		}
+
+		@Override
+		public boolean sortDescending() {
+			return false;
+		}
+
+		@Override
+		public int getPageSize() {
+			return pageSize;
+		}
+
+		@Override
+		public int getPage() {
+			return page;
+		}
+	}
+}
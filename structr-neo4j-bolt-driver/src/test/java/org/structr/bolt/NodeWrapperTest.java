@@ -21,10 +21,13 @@ package org.structr.bolt;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import org.junit.Assert;
 import org.junit.Test;
+import org.structr.api.NativeResult;
 import org.structr.api.Transaction;
 import org.structr.api.config.Structr;
 import org.structr.api.graph.Node;
@@ -165,4 +168,148 @@ public class NodeWrapperTest {
 		s.shutdown();
 	}
 
+	@Test
+	public void testBatchedWrites() {
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		final Properties config     = new Properties();
+		final List<Long> ids        = new LinkedList<>();
+
+		try {
+			config.put(Structr.DATABASE_PATH, Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+		} catch (IOException ioex) {
+			ioex.printStackTrace();
+		}
+
+		config.setProperty(Structr.DATABASE_CONNECTION_URL, Structr.TEST_DATABASE_URL);
+		config.setProperty(Structr.WRITE_BATCH_SIZE, "10");
+
+		s.initialize(config);
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Node previous = null;
+
+			for (int i=0; i<25; i++) {
+
+				final Node node = s.createNode(Collections.singleton("BatchTest"), Collections.EMPTY_MAP);
+
+				node.setProperty("index", i);
+				node.setProperty("name", "node" + i);
+				node.removeProperty("name");
+
+				if (previous != null) {
+					previous.createRelationshipTo(node, s.forName(RelationshipType.class, "NEXT"));
+				}
+
+				ids.add(node.getId());
+				previous = node;
+			}
+
+			// buffered writes must be visible to queries in the same transaction
+			Assert.assertEquals("Invalid batched write result", 25L, count(s, "MATCH (n:BatchTest) WHERE EXISTS(n.index) AND NOT EXISTS(n.name) RETURN count(n)"));
+
+			tx.success();
+		}
+
+		// delete the first node and its relationship
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node = s.getNodeById(ids.get(0));
+
+			for (final Relationship rel : node.getRelationships()) {
+				rel.delete();
+			}
+
+			node.delete();
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid batched delete result", 24L, count(s, "MATCH (n:BatchTest) RETURN count(n)"));
+			Assert.assertEquals("Invalid batched delete result", 23L, count(s, "MATCH (:BatchTest)-[r:NEXT]->(:BatchTest) RETURN count(r)"));
+
+			tx.success();
+		}
+
+		// buffered writes of a failed transaction must be discarded
+		try (final Transaction tx = s.beginTx()) {
+
+			s.getNodeById(ids.get(1)).setProperty("index", 100);
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid rollback result", 0L, count(s, "MATCH (n:BatchTest) WHERE n.index = 100 RETURN count(n)"));
+
+			tx.success();
+		}
+
+		s.shutdown();
+	}
+
+	@Test
+	public void testBatchedCreates() {
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		final Properties config     = new Properties();
+
+		try {
+			config.put(Structr.DATABASE_PATH, Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+		} catch (IOException ioex) {
+			ioex.printStackTrace();
+		}
+
+		config.setProperty(Structr.DATABASE_CONNECTION_URL, Structr.TEST_DATABASE_URL);
+
+		s.initialize(config);
+
+		try (final Transaction tx = s.beginTx()) {
+
+			final List<Map<String, Object>> properties = new LinkedList<>();
+
+			for (int i=0; i<10; i++) {
+				properties.add(Collections.singletonMap("index", i));
+			}
+
+			final List<Node> nodes = s.createNodes(Collections.singleton("CreateTest"), properties);
+
+			Assert.assertEquals("Invalid batched create result", 10, nodes.size());
+			Assert.assertEquals("Invalid batched create result", 0L, ((Number)nodes.get(0).getProperty("index")).longValue());
+			Assert.assertEquals("Invalid batched create result", 9L, ((Number)nodes.get(9).getProperty("index")).longValue());
+
+			final List<Relationship> rels = s.createRelationships(nodes.subList(0, 9), nodes.subList(1, 10), s.forName(RelationshipType.class, "NEXT"), properties.subList(0, 9));
+
+			Assert.assertEquals("Invalid batched create result", 9, rels.size());
+			Assert.assertEquals("Invalid batched create result", nodes.get(0).getId(), rels.get(0).getStartNode().getId());
+			Assert.assertEquals("Invalid batched create result", nodes.get(1).getId(), rels.get(0).getEndNode().getId());
+
+			// relationship caches of the nodes must be cleared
+			Assert.assertEquals("Invalid batched create result", 1, Iterables.count(nodes.get(0).getRelationships()));
+			Assert.assertEquals("Invalid batched create result", 2, Iterables.count(nodes.get(5).getRelationships()));
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid batched create result", 10L, count(s, "MATCH (n:CreateTest) RETURN count(n)"));
+			Assert.assertEquals("Invalid batched create result", 9L,  count(s, "MATCH (:CreateTest)-[r:NEXT]->(:CreateTest) WHERE EXISTS(r.index) RETURN count(r)"));
+
+			tx.success();
+		}
+
+		s.shutdown();
+	}
+
+	// ----- private methods -----
+	private long count(final BoltDatabaseService s, final String query) {
+
+		final NativeResult result = s.execute(query);
+		final Object value        = result.next().values().iterator().next();
+
+		return ((Number)value).longValue();
+	}
 }
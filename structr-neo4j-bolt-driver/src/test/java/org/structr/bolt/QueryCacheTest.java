@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.api.Transaction;
+import org.structr.api.config.Structr;
+import org.structr.api.graph.Node;
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.SortType;
+import org.structr.api.search.TypeQuery;
+import org.structr.api.util.Iterables;
+
+public class QueryCacheTest {
+
+	@Test
+	public void testTypeScopedInvalidation() {
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		final Properties config     = new Properties();
+
+		try {
+			config.put(Structr.DATABASE_PATH, Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+		} catch (IOException ioex) {
+			ioex.printStackTrace();
+		}
+
+		config.setProperty(Structr.DATABASE_CONNECTION_URL, Structr.TEST_DATABASE_URL);
+
+		s.initialize(config);
+
+		final TestTypeQuery query = new TestTypeQuery("TestOne");
+		long id1                  = 0L;
+		long id2                  = 0L;
+
+		try (final Transaction tx = s.beginTx()) {
+
+			id1 = s.createNode(Collections.singleton("TestOne"), Collections.singletonMap("name", "one")).getId();
+			id2 = s.createNode(Collections.singleton("TestTwo"), Collections.singletonMap("name", "two")).getId();
+
+			tx.success();
+		}
+
+		// first query is a miss, second one a hit
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid query result", 1, Iterables.count(s.nodeIndex().query(query)));
+			Assert.assertEquals("Invalid query result", 1, Iterables.count(s.nodeIndex().query(query)));
+
+			tx.success();
+		}
+
+		assertStatistics(s, 1, 1, 0);
+
+		// modification of a different type must not invalidate the cached result
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node = s.getNodeById(id2);
+			node.setProperty("name", "changed");
+
+			tx.success();
+		}
+
+		// modification of a property the query does not depend on must not invalidate the cached result
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node = s.getNodeById(id1);
+			node.setProperty("other", "changed");
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid query result", 1, Iterables.count(s.nodeIndex().query(query)));
+
+			tx.success();
+		}
+
+		assertStatistics(s, 2, 1, 0);
+
+		// modification of the sort key must invalidate the cached result
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node = s.getNodeById(id1);
+			node.setProperty("name", "changed");
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid query result", 1, Iterables.count(s.nodeIndex().query(query)));
+
+			tx.success();
+		}
+
+		assertStatistics(s, 2, 2, 1);
+
+		// creation of a node with the same label must invalidate the cached result
+		try (final Transaction tx = s.beginTx()) {
+
+			s.createNode(Collections.singleton("TestOne"), Collections.singletonMap("name", "three"));
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			Assert.assertEquals("Invalid query result", 2, Iterables.count(s.nodeIndex().query(query)));
+
+			tx.success();
+		}
+
+		assertStatistics(s, 2, 3, 2);
+
+		s.shutdown();
+	}
+
+	// ----- private methods -----
+	private void assertStatistics(final BoltDatabaseService s, final long hits, final long misses, final long invalidations) {
+
+		final Map<String, Long> statistics = s.getQueryCacheStatistics();
+
+		Assert.assertEquals("Invalid number of cache hits",          Long.valueOf(hits),          statistics.get("node.hits"));
+		Assert.assertEquals("Invalid number of cache misses",        Long.valueOf(misses),        statistics.get("node.misses"));
+		Assert.assertEquals("Invalid number of cache invalidations", Long.valueOf(invalidations), statistics.get("node.invalidations"));
+	}
+
+	// ----- nested classes -----
+	private static class TestTypeQuery implements TypeQuery {
+
+		private String type = null;
+
+		public TestTypeQuery(final String type) {
+			this.type = type;
+		}
+
+		@Override
+		public Class getSourceType() {
+			return null;
+		}
+
+		@Override
+		public Class getTargetType() {
+			return null;
+		}
+
+		@Override
+		public Class getQueryType() {
+			return TypeQuery.class;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+
+		@Override
+		public Class getType() {
+			return String.class;
+		}
+
+		@Override
+		public Object getValue() {
+			return type;
+		}
+
+		@Override
+		public Occurrence getOccurrence() {
+			return Occurrence.REQUIRED;
+		}
+
+		@Override
+		public boolean isExactMatch() {
+			return true;
+		}
+
+		@Override
+		public String getSortKey() {
+			return "name";
+		}
+
+		@Override
+		public SortType getSortType() {
+			return SortType.Default;
+		}
+
+		@Override
+		public boolean sortDescending() {
+			return false;
+		}
+	}
+}
@@ -54,6 +54,7 @@ public class DefaultResourceProvider implements ResourceProvider {
 		resourceMap.put(Pattern.compile("[a-zA-Z]+"),		MaintenanceParameterResource.class);	// maintenance parameter
 
 		resourceMap.put(Pattern.compile("_schema"),		SchemaResource.class);			// special resource for schema information
+		resourceMap.put(Pattern.compile("_changelog"),		ChangelogResource.class);		// special resource for the change log of an object
 		resourceMap.put(Pattern.compile("[a-z_A-Z][a-z_A-Z0-9]*"), TypeResource.class);			// any type match
 
 		return resourceMap;
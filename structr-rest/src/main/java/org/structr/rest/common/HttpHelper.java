@@ -19,15 +19,26 @@
 package org.structr.rest.common;
 
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
@@ -40,33 +51,45 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.config.ConnectionConfig;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
 
 /**
- * Helper class for outbound HTTP requests
+ * Helper class for outbound HTTP requests. All requests share one client
+ * with a pooled connection manager, so connections are kept alive and
+ * reused across requests and threads.
  */
 public class HttpHelper {
 
-	private static final Logger logger = LoggerFactory.getLogger(HttpHelper.class.getName());
+	private static final Logger logger                                               = LoggerFactory.getLogger(HttpHelper.class.getName());
+	private static final int MAX_HOST_STATISTICS                                     = 1000;
+	private static final ConcurrentFixedSizeCache<String, HostStatistics> statistics = new ConcurrentFixedSizeCache<>(MAX_HOST_STATISTICS);
+	private static final String USER_AGENT                                           = "curl/7.35.0";
+	private static final long IDLE_CONNECTION_TIMEOUT                                = 30L;
 
-	private static String proxyUrl;
-	private static String proxyUsername;
-	private static String proxyPassword;
-	private static String cookie;
+	private static volatile PoolingHttpClientConnectionManager connectionManager     = null;
+	private static volatile CloseableHttpClient client                               = null;
+	private static volatile ThreadPoolExecutor asyncExecutor                         = null;
 
-	private static CloseableHttpClient client;
-	private static RequestConfig reqConfig;
+	private static HttpClientContext configure(final HttpRequestBase req, final String username, final String password, final String proxyUrlParameter, final String proxyUsernameParameter, final String proxyPasswordParameter, final String cookie, final Map<String, String> headers, final boolean followRedirects) {
 
-	private static void configure(final HttpRequestBase req, final String username, final String password, final String proxyUrlParameter, final String proxyUsernameParameter, final String proxyPasswordParameter, final String cookieParameter, final Map<String, String> headers, final boolean followRedirects) {
+		final String proxyUrl;
+		final String proxyUsername;
+		final String proxyPassword;
 
 		if (StringUtils.isBlank(proxyUrlParameter)) {
 			proxyUrl = Services.getBaseConfiguration().getProperty(Services.APPLICATION_PROXY_HTTP_URL);
@@ -86,13 +109,10 @@ public class HttpHelper {
 			proxyPassword = proxyPasswordParameter;
 		}
 
-		if (!StringUtils.isBlank(cookieParameter)) {
-			cookie = cookieParameter;
-		}
-
-		//final HttpHost target             = HttpHost.create(url.getHost());
-		HttpHost proxy                    = null;
+		// credentials are set per request, the client is shared
+		final HttpClientContext context         = HttpClientContext.create();
 		final CredentialsProvider credsProvider = new BasicCredentialsProvider();
+		HttpHost proxy                          = null;
 
 		if (StringUtils.isNoneBlank(username, password)) {
 
@@ -116,19 +136,17 @@ public class HttpHelper {
 
 		}
 
-		client = HttpClients.custom()
-			.setDefaultConnectionConfig(ConnectionConfig.DEFAULT)
-			.setUserAgent("curl/7.35.0")
-			.setDefaultCredentialsProvider(credsProvider)
-			.build();
+		context.setCredentialsProvider(credsProvider);
 
-		reqConfig = RequestConfig.custom()
+		req.setConfig(RequestConfig.custom()
 			.setProxy(proxy)
 			.setRedirectsEnabled(followRedirects)
 			.setCookieSpec(CookieSpecs.DEFAULT)
-			.build();
-
-		req.setConfig(reqConfig);
+			.setConnectTimeout(getConfigurationValue(Services.APPLICATION_HTTP_CONNECT_TIMEOUT, 10000))
+			.setSocketTimeout(getConfigurationValue(Services.APPLICATION_HTTP_SOCKET_TIMEOUT, 60000))
+			.setConnectionRequestTimeout(getConfigurationValue(Services.APPLICATION_HTTP_REQUEST_TIMEOUT, 10000))
+			.build()
+		);
 
 		if (StringUtils.isNotBlank(cookie)) {
 
@@ -136,12 +154,12 @@ public class HttpHelper {
 			req.getParams().setParameter("http.protocol.single-cookie-header", true);
 		}
 
-		req.addHeader("Connection", "close");
-
 		// add request headers from context
 		for (final Map.Entry<String, String> header : headers.entrySet()) {
 			req.addHeader(header.getKey(), header.getValue());
 		}
+
+		return context;
 	}
 
 	public static String get(final String address)
@@ -167,30 +185,34 @@ public class HttpHelper {
 	public static String get(final String address, final String username, final String password, final String proxyUrl, final String proxyUsername, final String proxyPassword, final String cookie, final Map<String, String> headers)
 	throws FrameworkException {
 
-		String content = "";
-
 		try {
 
-			final URI     url = URI.create(address);
-			final HttpGet req = new HttpGet(url);
-
-			configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
+			final URI     url                = URI.create(address);
+			final HttpGet req                = new HttpGet(url);
+			final HttpClientContext context  = configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
 
-			final CloseableHttpResponse resp = client.execute(req);
+			try (final CloseableHttpResponse resp = execute(req, context)) {
 
-			content = IOUtils.toString(resp.getEntity().getContent(), charset(resp));
-
-			// Skip BOM to workaround this Jsoup bug: https://github.com/jhy/jsoup/issues/348
-			if (content.charAt(0) == 65279) {
-				content = content.substring(1);
+				return readContent(resp);
 			}
 
 		} catch (final Throwable t) {
 			//t.printStackTrace();
 			throw new FrameworkException(422, "Unable to fetch content from address " + address + ": " + t.getMessage());
 		}
+	}
 
-		return content;
+	/**
+	 * Executes a GET request in a background thread.
+	 *
+	 * @param address
+	 * @param username
+	 * @param password
+	 * @param headers
+	 * @return a future that returns the response body
+	 */
+	public static Future<String> getAsync(final String address, final String username, final String password, final Map<String, String> headers) {
+		return getAsyncExecutor().submit(() -> get(address, username, password, headers));
 	}
 
 	public static Map<String, String> head(final String address) {
@@ -210,17 +232,17 @@ public class HttpHelper {
 		final Map<String, String> responseHeaders = new HashMap<>();
 
 		try {
-			final URI      url = URI.create(address);
-			final HttpHead req = new HttpHead(url);
-
-			configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, false);
+			final URI      url               = URI.create(address);
+			final HttpHead req               = new HttpHead(url);
+			final HttpClientContext context  = configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, false);
 
-			final CloseableHttpResponse response = client.execute(req);
+			try (final CloseableHttpResponse response = execute(req, context)) {
 
-			responseHeaders.put("status", Integer.toString(response.getStatusLine().getStatusCode()));
-			for (final Header header : response.getAllHeaders()) {
+				responseHeaders.put("status", Integer.toString(response.getStatusLine().getStatusCode()));
+				for (final Header header : response.getAllHeaders()) {
 
-				responseHeaders.put(header.getName(), header.getValue());
+					responseHeaders.put(header.getName(), header.getValue());
+				}
 			}
 
 		} catch (final Throwable t) {
@@ -245,32 +267,25 @@ public class HttpHelper {
 
 	public static Map<String, String> post(final String address, final String requestBody, final String username, final String password, final String proxyUrl, final String proxyUsername, final String proxyPassword, final String cookie, final Map<String, String> headers) {
 
-		final Map<String, String> responseData = new HashMap<>();;
+		final Map<String, String> responseData = new HashMap<>();
 
 		try {
 
-			final URI      url = URI.create(address);
-			final HttpPost req = new HttpPost(url);
-
-			configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
+			final URI      url               = URI.create(address);
+			final HttpPost req               = new HttpPost(url);
+			final HttpClientContext context  = configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
 
 			req.setEntity(new StringEntity(requestBody));
 
-			final CloseableHttpResponse response = client.execute(req);
+			try (final CloseableHttpResponse response = execute(req, context)) {
 
-			String content = IOUtils.toString(response.getEntity().getContent(), charset(response));
-
-			// Skip BOM to workaround this Jsoup bug: https://github.com/jhy/jsoup/issues/348
-			if (content.charAt(0) == 65279) {
-				content = content.substring(1);
-			}
+				responseData.put("body", readContent(response));
 
-			responseData.put("body", content);
+				responseData.put("status", Integer.toString(response.getStatusLine().getStatusCode()));
+				for (final Header header : response.getAllHeaders()) {
 
-			responseData.put("status", Integer.toString(response.getStatusLine().getStatusCode()));
-			for (final Header header : response.getAllHeaders()) {
-
-				responseData.put(header.getName(), header.getValue());
+					responseData.put(header.getName(), header.getValue());
+				}
 			}
 
 		} catch (final Throwable t) {
@@ -281,23 +296,44 @@ public class HttpHelper {
 		return responseData;
 	}
 
+	/**
+	 * Executes a POST request in a background thread.
+	 *
+	 * @param address
+	 * @param requestBody
+	 * @param username
+	 * @param password
+	 * @param headers
+	 * @return a future that returns the response data
+	 */
+	public static Future<Map<String, String>> postAsync(final String address, final String requestBody, final String username, final String password, final Map<String, String> headers) {
+		return getAsyncExecutor().submit(() -> post(address, requestBody, username, password, headers));
+	}
+
 	public static InputStream getAsStream(final String address) {
 
 		return getAsStream(address, null, null, null, null, null, null, Collections.EMPTY_MAP);
 	}
 
+	/**
+	 * Returns the content stream of the given address. The pooled connection
+	 * is released when the stream is closed, so callers must close it.
+	 */
 	public static InputStream getAsStream(final String address, final String username, final String password, final String proxyUrl, final String proxyUsername, final String proxyPassword, final String cookie, final Map<String, String> headers) {
 
 		try {
 
-			final URI     url = URI.create(address);
-			final HttpGet req = new HttpGet(url);
+			final URI     url                = URI.create(address);
+			final HttpGet req                = new HttpGet(url);
+			final HttpClientContext context  = configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
+			final CloseableHttpResponse resp = execute(req, context);
+			final HttpEntity entity          = resp.getEntity();
 
-			configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
-
-			final CloseableHttpResponse resp = client.execute(req);
+			if (entity != null) {
+				return entity.getContent();
+			}
 
-			return resp.getEntity().getContent();
+			resp.close();
 
 		} catch (final Throwable t) {
 
@@ -350,35 +386,31 @@ public class HttpHelper {
 
 			logger.info("Downloading from {}", address);
 
-			configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
+			final HttpClientContext context = configure(req, username, password, proxyUrl, proxyUsername, proxyPassword, cookie, headers, true);
 
-			req.addHeader("User-Agent", "curl/7.35.0");
+			req.addHeader("User-Agent", USER_AGENT);
 
-			final CloseableHttpResponse resp = client.execute(req);
+			try (final CloseableHttpResponse resp = execute(req, context)) {
 
-			final int statusCode = resp.getStatusLine().getStatusCode();
+				final int statusCode = resp.getStatusLine().getStatusCode();
 
-			if (statusCode == 200) {
+				if (statusCode == 200) {
 
-				try (final InputStream is = resp.getEntity().getContent()) {
+					try (final InputStream is = resp.getEntity().getContent()) {
 
-					try (final OutputStream os = new FileOutputStream(fileOnDisk)) {
+						try (final OutputStream os = new FileOutputStream(fileOnDisk)) {
 
-						IOUtils.copy(is, os);
+							IOUtils.copy(is, os);
+						}
 					}
-				}
 
-			} else {
+				} else {
 
-				String content = IOUtils.toString(resp.getEntity().getContent(), HttpHelper.charset(resp));
+					final String content = readContent(resp);
 
-				// Skip BOM to workaround this Jsoup bug: https://github.com/jhy/jsoup/issues/348
-				if (content.charAt(0) == 65279) {
-					content = content.substring(1);
+					System.out.println("Response body: " + content);
+					logger.warn("Unable to create file from URI {}: status code was {}", new Object[]{ address, statusCode });
 				}
-
-				System.out.println("Response body: " + content);
-				logger.warn("Unable to create file from URI {}: status code was {}", new Object[]{ address, statusCode });
 			}
 
 		} catch (final Throwable t) {
@@ -387,4 +419,234 @@ public class HttpHelper {
 		}
 
 	}
+
+	/**
+	 * Returns request and error counts and latencies per remote host, and
+	 * the state of the connection pool.
+	 *
+	 * @return the statistics
+	 */
+	public static Map<String, Object> getStatistics() {
+
+		final Map<String, Object> stats                     = new LinkedHashMap<>();
+		final Map<String, Object> hosts                     = new TreeMap<>();
+		final PoolingHttpClientConnectionManager manager    = connectionManager;
+		final ThreadPoolExecutor executor                   = asyncExecutor;
+
+		if (manager != null) {
+
+			final PoolStats poolStats        = manager.getTotalStats();
+			final Map<String, Object> pool   = new LinkedHashMap<>();
+
+			pool.put("leased",    poolStats.getLeased());
+			pool.put("available", poolStats.getAvailable());
+			pool.put("pending",   poolStats.getPending());
+			pool.put("max",       poolStats.getMax());
+
+			stats.put("pool", pool);
+		}
+
+		if (executor != null) {
+
+			stats.put("asyncQueued", executor.getQueue().size());
+			stats.put("asyncActive", executor.getActiveCount());
+		}
+
+		for (final HostStatistics hostStatistics : statistics.values()) {
+			hosts.put(hostStatistics.host, hostStatistics.toMap());
+		}
+
+		stats.put("hosts", hosts);
+
+		return stats;
+	}
+
+	/**
+	 * Closes the pooled connections and stops the threads of asynchronous
+	 * requests. Both are created again on the next request.
+	 */
+	public static void shutdown() {
+
+		synchronized (HttpHelper.class) {
+
+			if (client != null) {
+
+				try {
+					client.close();
+
+				} catch (IOException ioex) {
+					logger.warn("Unable to close HTTP client: {}", ioex.getMessage());
+				}
+
+				client            = null;
+				connectionManager = null;
+			}
+
+			if (asyncExecutor != null) {
+
+				asyncExecutor.shutdown();
+				asyncExecutor = null;
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private static CloseableHttpResponse execute(final HttpRequestBase req, final HttpClientContext context) throws IOException {
+
+		final HostStatistics hostStatistics = getHostStatistics(req.getURI());
+		final long t0                       = System.nanoTime();
+
+		try {
+
+			final CloseableHttpResponse response = getClient().execute(req, context);
+
+			hostStatistics.record(System.nanoTime() - t0, response.getStatusLine().getStatusCode() >= 500);
+
+			return response;
+
+		} catch (IOException | RuntimeException ex) {
+
+			hostStatistics.record(System.nanoTime() - t0, true);
+
+			throw ex;
+		}
+	}
+
+	private static String readContent(final HttpResponse response) throws IOException {
+
+		final HttpEntity entity = response.getEntity();
+		if (entity == null) {
+			return "";
+		}
+
+		// reading the entity completely allows the connection to be reused
+		String content = EntityUtils.toString(entity, charset(response));
+
+		// Skip BOM to workaround this Jsoup bug: https://github.com/jhy/jsoup/issues/348
+		if (!content.isEmpty() && content.charAt(0) == 65279) {
+			content = content.substring(1);
+		}
+
+		return content;
+	}
+
+	private static HostStatistics getHostStatistics(final URI uri) {
+
+		final String host = uri.getPort() != -1 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+
+		final String key              = String.valueOf(host);
+		final HostStatistics existing = statistics.get(key);
+
+		if (existing != null) {
+			return existing;
+		}
+
+		// statistics of the least recently used hosts are evicted
+		final HostStatistics created = new HostStatistics(key);
+		final HostStatistics other   = statistics.putIfAbsent(key, created);
+
+		return other != null ? other : created;
+	}
+
+	private static CloseableHttpClient getClient() {
+
+		if (client == null) {
+
+			synchronized (HttpHelper.class) {
+
+				if (client == null) {
+
+					final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+
+					manager.setMaxTotal(Math.max(1, getConfigurationValue(Services.APPLICATION_HTTP_POOL_MAX, 200)));
+					manager.setDefaultMaxPerRoute(Math.max(1, getConfigurationValue(Services.APPLICATION_HTTP_POOL_MAX_PER_ROUTE, 20)));
+					manager.setDefaultConnectionConfig(ConnectionConfig.DEFAULT);
+
+					connectionManager = manager;
+
+					client = HttpClients.custom()
+						.setConnectionManager(manager)
+						.setUserAgent(USER_AGENT)
+						.evictExpiredConnections()
+						.evictIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+						.build();
+				}
+			}
+		}
+
+		return client;
+	}
+
+	private static ThreadPoolExecutor getAsyncExecutor() {
+
+		if (asyncExecutor == null) {
+
+			synchronized (HttpHelper.class) {
+
+				if (asyncExecutor == null) {
+
+					final int threads         = Math.max(1, getConfigurationValue(Services.APPLICATION_HTTP_ASYNC_THREADS, 16));
+					final AtomicInteger count = new AtomicInteger();
+
+					final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), r -> {
+
+						final Thread thread = new Thread(r, "HttpHelper-" + count.incrementAndGet());
+						thread.setDaemon(true);
+
+						return thread;
+
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+
+					pool.allowCoreThreadTimeOut(true);
+
+					asyncExecutor = pool;
+				}
+			}
+		}
+
+		return asyncExecutor;
+	}
+
+	private static int getConfigurationValue(final String key, final int defaultValue) {
+		return Services.parseInt(StructrApp.getConfigurationValue(key), defaultValue);
+	}
+
+	// ----- nested classes -----
+	private static class HostStatistics {
+
+		private final AtomicLong maxTime   = new AtomicLong();
+		private final LongAdder requests   = new LongAdder();
+		private final LongAdder errors     = new LongAdder();
+		private final LongAdder totalTime  = new LongAdder();
+		private String host                = null;
+
+		public HostStatistics(final String host) {
+			this.host = host;
+		}
+
+		public void record(final long time, final boolean error) {
+
+			requests.increment();
+			totalTime.add(time);
+
+			if (error) {
+				errors.increment();
+			}
+
+			maxTime.accumulateAndGet(time, Math::max);
+		}
+
+		public Map<String, Object> toMap() {
+
+			final Map<String, Object> map = new LinkedHashMap<>();
+			final long count              = requests.sum();
+
+			map.put("requests",  count);
+			map.put("errors",    errors.sum());
+			map.put("averageMs", count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalTime.sum() / count) : 0);
+			map.put("maxMs",     TimeUnit.NANOSECONDS.toMillis(maxTime.get()));
+
+			return map;
+		}
+	}
 }
@@ -38,8 +38,10 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChunkedSnapshot;
 import org.structr.core.graph.MaintenanceCommand;
 import org.structr.core.graph.NodeServiceCommand;
+import org.structr.core.graph.SyncCommand;
 import org.structr.core.graph.Tx;
 import org.structr.schema.export.StructrSchema;
 import org.structr.schema.json.InvalidSchemaException;
@@ -59,8 +61,9 @@ public class SnapshotCommand extends NodeServiceCommand implements MaintenanceCo
 		final String       mode  = (String) attributes.get("mode");
 		final String       name  = (String) attributes.get("name");
 		final List<String> types = (List<String>) attributes.get("types");
+		final Object resume      = attributes.get("resume");
 
-		execute(mode, name, types);
+		execute(mode, name, types, resume != null && Boolean.valueOf(resume.toString()));
 	}
 
 	@Override
@@ -73,6 +76,10 @@ public class SnapshotCommand extends NodeServiceCommand implements MaintenanceCo
 	}
 
 	public void execute(final String mode, final String name, final List<String> types) throws FrameworkException {
+		execute(mode, name, types, false);
+	}
+
+	public void execute(final String mode, final String name, final List<String> types, final boolean resume) throws FrameworkException {
 
 		if (mode != null) {
 
@@ -94,8 +101,16 @@ public class SnapshotCommand extends NodeServiceCommand implements MaintenanceCo
 					deleteSnapshot(name);
 					break;
 
+				case "exportData":
+					createDataSnapshot(name);
+					break;
+
+				case "restoreData":
+					restoreDataSnapshot(name, resume);
+					break;
+
 				default:
-					throw new FrameworkException(422, "Invalid mode supplied, valid values are export, restore, add or delete.");
+					throw new FrameworkException(422, "Invalid mode supplied, valid values are export, restore, add, delete, exportData or restoreData.");
 			}
 
 		} else {
@@ -209,6 +224,37 @@ public class SnapshotCommand extends NodeServiceCommand implements MaintenanceCo
 		}
 	}
 
+	private void createDataSnapshot(final String name) throws FrameworkException {
+
+		final File directory = locateDataDirectory(name, true);
+
+		SyncCommand.exportToDirectory(StructrApp.getInstance().getDatabaseService(), directory.getPath(), null, true);
+	}
+
+	private void restoreDataSnapshot(final String name, final boolean resume) throws FrameworkException {
+
+		if (name != null) {
+
+			final File directory = locateDataDirectory(name, false);
+
+			SyncCommand.importFromDirectory(securityContext, directory.getPath(), true, null, resume);
+
+		} else {
+
+			throw new FrameworkException(422, "Please supply snapshot name to import.");
+		}
+	}
+
+	/**
+	 * Returns the progress and throughput of the currently running (or
+	 * last) data snapshot export or import.
+	 *
+	 * @return the progress report
+	 */
+	public static Map<String, Object> getDataSnapshotStatus() {
+		return ChunkedSnapshot.getStatistics();
+	}
+
 	public static List<String> listSnapshots() {
 
 		final File baseDir       = new File(getBasePath());
@@ -262,6 +308,32 @@ public class SnapshotCommand extends NodeServiceCommand implements MaintenanceCo
 		return path;
 	}
 
+	public static File locateDataDirectory(final String name, final boolean addTimestamp) throws FrameworkException {
+
+		String fileName = name;
+		if (StringUtils.isBlank(fileName)) {
+
+			// create default value
+			fileName = "data";
+		}
+
+		if (fileName.contains(System.getProperty("dir.separator", "/"))) {
+			throw new FrameworkException(422, "Only relative file names are allowed, please use the snapshot.path configuration setting to supply a custom path for snapshots.");
+		}
+
+		if (addTimestamp) {
+			final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmmss");
+			fileName = format.format(System.currentTimeMillis()) + "-" + fileName;
+		}
+
+		// data snapshots are directories
+		if (!fileName.endsWith(".data")) {
+			fileName = fileName + ".data";
+		}
+
+		return new File(getBasePath() + fileName);
+	}
+
 	public static String getBasePath() {
 
 		String basePath = StructrApp.getConfigurationValue(Services.SNAPSHOT_PATH, "snapshots/");
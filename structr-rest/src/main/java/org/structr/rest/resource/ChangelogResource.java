@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.resource;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.Result;
+import org.structr.core.graph.ChangeLogStore;
+import org.structr.core.property.GenericProperty;
+import org.structr.core.property.LongProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
+import org.structr.rest.RestMethodResult;
+import org.structr.rest.exception.IllegalMethodException;
+import org.structr.rest.exception.IllegalPathException;
+import org.structr.rest.exception.SystemException;
+
+/**
+ * Pages through the change log of a single object, e.g.
+ * <code>/_changelog/&lt;uuid&gt;?from=&lt;ms&gt;&amp;to=&lt;ms&gt;&amp;pageSize=50&amp;page=1</code>
+ *
+ * The change log of deleted objects is only available to admin users.
+ */
+public class ChangelogResource extends Resource {
+
+	public enum UriPart {
+		_changelog
+	}
+
+	private static final LongProperty timeProperty = new LongProperty("time");
+
+	private UuidResource uuidResource = null;
+	private long from                 = 0L;
+	private long to                   = Long.MAX_VALUE;
+
+	@Override
+	public boolean checkAndConfigure(String part, SecurityContext securityContext, HttpServletRequest request) throws FrameworkException {
+
+		this.securityContext = securityContext;
+
+		if (UriPart._changelog.name().equals(part)) {
+
+			this.from = parseLong(request.getParameter("from"), 0L);
+			this.to   = parseLong(request.getParameter("to"), Long.MAX_VALUE);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public Result doGet(PropertyKey sortKey, boolean sortDescending, int pageSize, int page, String offsetId) throws FrameworkException {
+
+		if (uuidResource == null) {
+			throw new IllegalPathException(getResourceSignature() + " requires a UUID");
+		}
+
+		// make sure the object exists and is visible, only admins
+		// can see the change log of objects that have been deleted
+		if (!securityContext.isSuperUser()) {
+			uuidResource.getEntity();
+		}
+
+		final List<GraphObjectMap> resultList = new LinkedList<>();
+		final String uuid                     = uuidResource.getUuid();
+		final JsonParser parser               = new JsonParser();
+		final Gson gson                       = new GsonBuilder().disableHtmlEscaping().create();
+
+		try {
+
+			final ChangeLogStore store = ChangeLogStore.getInstance();
+			final int count            = store.count(uuid, from, to);
+
+			for (final String entry : store.getEntries(uuid, from, to, sortDescending, pageSize, page)) {
+
+				final JsonObject json     = parser.parse(entry).getAsJsonObject();
+				final GraphObjectMap item = new GraphObjectMap();
+
+				for (final Map.Entry<String, JsonElement> field : json.entrySet()) {
+
+					final String key         = field.getKey();
+					final JsonElement value  = field.getValue();
+
+					if ("time".equals(key)) {
+
+						item.setProperty(timeProperty, value.getAsLong());
+
+					} else if ("prev".equals(key) || "val".equals(key)) {
+
+						item.setProperty(new GenericProperty(key), gson.toJson(value));
+
+					} else if (!value.isJsonNull()) {
+
+						item.setProperty(new StringProperty(key), value.getAsString());
+					}
+				}
+
+				resultList.add(item);
+			}
+
+			return new Result(resultList, count, true, false);
+
+		} catch (IOException ioex) {
+
+			throw new SystemException("Unable to read change log of " + uuid + ": " + ioex.getMessage());
+		}
+	}
+
+	@Override
+	public RestMethodResult doPost(Map<String, Object> propertySet) throws FrameworkException {
+		throw new IllegalMethodException("POST not allowed on " + getResourceSignature());
+	}
+
+	@Override
+	public RestMethodResult doPut(Map<String, Object> propertySet) throws FrameworkException {
+		throw new IllegalMethodException("PUT not allowed on " + getResourceSignature());
+	}
+
+	@Override
+	public RestMethodResult doDelete() throws FrameworkException {
+		throw new IllegalMethodException("DELETE not allowed on " + getResourceSignature());
+	}
+
+	@Override
+	public Resource tryCombineWith(Resource next) throws FrameworkException {
+
+		if (uuidResource == null && next instanceof UuidResource) {
+
+			uuidResource = (UuidResource)next;
+			return this;
+		}
+
+		throw new IllegalPathException(getResourceSignature() + " has no subresources");
+	}
+
+	@Override
+	public String getUriPart() {
+		return getResourceSignature();
+	}
+
+	@Override
+	public Class getEntityClass() {
+		return null;
+	}
+
+	@Override
+	public String getResourceSignature() {
+		return UriPart._changelog.name();
+	}
+
+	@Override
+	public boolean isCollectionResource() throws FrameworkException {
+		return true;
+	}
+
+	// ----- private methods -----
+	private long parseLong(final String value, final long defaultValue) throws FrameworkException {
+
+		if (StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+
+		try {
+			return Long.parseLong(value);
+
+		} catch (NumberFormatException nfex) {
+
+			throw new IllegalPathException("Invalid timestamp " + value);
+		}
+	}
+}
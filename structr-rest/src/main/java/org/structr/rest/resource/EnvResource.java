@@ -21,16 +21,26 @@ package org.structr.rest.resource;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
 import javax.servlet.http.HttpServletRequest;
+import org.structr.agent.AgentService;
+import org.structr.common.AccessPathCache;
 import org.structr.common.SecurityContext;
 import org.structr.common.VersionHelper;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.Result;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChunkedSnapshot;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.StringProperty;
+import org.structr.core.script.Scripting;
 import org.structr.rest.RestMethodResult;
+import org.structr.rest.common.HttpHelper;
 import org.structr.rest.exception.IllegalMethodException;
 import org.structr.rest.exception.IllegalPathException;
 
@@ -68,6 +78,23 @@ public class EnvResource extends Resource {
 		info.setProperty(new StringProperty("classPath"),     VersionHelper.getClassPath());
 		info.setProperty(new StringProperty("instanceName"),  VersionHelper.getInstanceName());
 		info.setProperty(new StringProperty("instanceStage"), VersionHelper.getInstanceStage());
+		info.setProperty(new GenericProperty("queryCache"),   StructrApp.getInstance(securityContext).getDatabaseService().getQueryCacheStatistics());
+		info.setProperty(new GenericProperty("commitLocks"),  TransactionCommand.getCommitLockStatistics());
+		info.setProperty(new GenericProperty("scripting"),    Scripting.getScriptStatistics());
+		info.setProperty(new GenericProperty("accessPaths"),  AccessPathCache.getStatistics());
+		info.setProperty(new GenericProperty("snapshot"),     ChunkedSnapshot.getStatistics());
+		info.setProperty(new GenericProperty("outboundHttp"), HttpHelper.getStatistics());
+
+		final AgentService agentService = Services.getInstance().getService(AgentService.class);
+		if (agentService != null) {
+
+			info.setProperty(new GenericProperty("agents"), agentService.getTaskStatistics());
+		}
+
+		for (final Entry<String, Supplier<?>> provider : Services.getInstance().getStatisticsProviders().entrySet()) {
+
+			info.setProperty(new GenericProperty(provider.getKey()), provider.getValue().get());
+		}
 
 		resultList.add(info);
 
@@ -41,6 +41,7 @@ import org.structr.common.View;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
 import org.structr.core.Services;
+import org.structr.core.StreamingResult;
 import org.structr.core.Value;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
@@ -143,13 +144,17 @@ public abstract class StreamingWriter {
 			writer.setIndent("	");
 		}
 
+		// streaming results are serialized while they are produced, so the
+		// result count is only known after the results have been written
+		final boolean streaming = result instanceof StreamingResult && !((StreamingResult)result).isMaterialized() && result.isCollection() && !result.isPrimitiveArray();
+
 		// result fields in alphabetical order
-		List<? extends GraphObject> results = result.getResults();
+		List<? extends GraphObject> results = streaming ? null : result.getResults();
 		Integer page = result.getPage();
 		Integer pageCount = result.getPageCount();
 		Integer pageSize = result.getPageSize();
 		String queryTime = result.getQueryTime();
-		Integer resultCount = result.getRawResultCount();
+		Integer resultCount = streaming ? null : result.getRawResultCount();
 		String searchString = result.getSearchString();
 		String sortKey = result.getSortKey();
 		String sortOrder = result.getSortOrder();
@@ -180,7 +185,41 @@ public abstract class StreamingWriter {
 			writer.name("result_count").value(resultCount);
 		}
 
-		if (results != null) {
+		if (streaming) {
+
+			// keep track of serialization time
+			long startTime            = System.currentTimeMillis();
+			String localPropertyView  = propertyView.get(null);
+			int serialized            = 0;
+
+			writer.name(resultKeyName).beginArray();
+
+			for (final Object graphObject : (StreamingResult)result) {
+
+				root.serialize(writer, (GraphObject)graphObject, localPropertyView, 0);
+				serialized++;
+
+				// check for timeout
+				if (System.currentTimeMillis() > startTime + MAX_SERIALIZATION_TIME) {
+
+					// the total result count is not known before the result is consumed completely
+					logger.error("JSON serialization of {} took more than {} ms after {} results, aborted. Please review output view size or adjust timeout.", new Object[] { securityContext.getCompoundRequestURI(), MAX_SERIALIZATION_TIME, serialized } );
+
+					// TODO: create some output indicating that streaming was interrupted
+					break;
+				}
+			}
+
+			writer.endArray();
+
+			// null if serialization was aborted before the result was consumed completely
+			final Integer streamedResultCount = result.getRawResultCount();
+
+			if (streamedResultCount != null && renderResultCount) {
+				writer.name("result_count").value(streamedResultCount);
+			}
+
+		} else if (results != null) {
 
 			if (results.isEmpty() && result.isPrimitiveArray()) {
 
@@ -72,6 +72,7 @@ import org.structr.core.Services;
 import org.structr.core.auth.SuperUserAuthenticator;
 import org.structr.rest.DefaultResourceProvider;
 import org.structr.rest.ResourceProvider;
+import org.structr.rest.common.HttpHelper;
 import org.structr.rest.servlet.JsonRestServlet;
 import org.tuckey.web.filters.urlrewrite.UrlRewriteFilter;
 
@@ -494,6 +495,9 @@ public class HttpService implements RunnableService {
 			}
 		}
 
+		// close outbound connections of scripts
+		HttpHelper.shutdown();
+
 		// send lifecycle event that the server has been stopped
 		sendLifecycleEvent(LifecycleEvent.Stopped);
 	}
@@ -42,6 +42,7 @@ public class StructrHttpServiceConfig {
 	private Class authenticatorClass                  = null;
 	private boolean userAutoCreate                    = false;
 	private boolean userAutoLogin                     = false;
+	private boolean readOnlyTransactions              = false;
 	private int outputNestingDepth                    = 3;
 
 	public ResourceProvider getResourceProvider() {
@@ -60,6 +61,16 @@ public class StructrHttpServiceConfig {
 		return outputNestingDepth;
 	}
 
+	/**
+	 * Indicates whether read requests of this servlet run in a single,
+	 * request-scoped read-only transaction.
+	 *
+	 * @return whether to use read-only request transactions
+	 */
+	public boolean useReadOnlyTransactions() {
+		return readOnlyTransactions;
+	}
+
 	public void initializeFromProperties(final Properties properties, final String servletName, final Set<ResourceProvider> resourceProviders) throws InstantiationException, IllegalAccessException {
 
 		final String resourceProviderKeyName = servletName.concat(".resourceprovider");
@@ -68,6 +79,7 @@ public class StructrHttpServiceConfig {
 		final String userAutoLoginKeyName    = servletName.concat(".user.autologin");
 		final String defaultPropertyKeyName  = servletName.concat(".defaultview");
 		final String nestingDepthKeyName     = servletName.concat(".outputdepth");
+		final String readOnlyTxKeyName       = servletName.concat(".transaction.readonly");
 
 		final String resourceProviderValue   = properties.getProperty(resourceProviderKeyName);
 		final String authenticatorValue      = properties.getProperty(authenticatorKeyName);
@@ -75,6 +87,7 @@ public class StructrHttpServiceConfig {
 		final String userAutoLoginValue      = properties.getProperty(userAutoLoginKeyName);
 		final String defaultPropertyKeyValue = properties.getProperty(defaultPropertyKeyName);
 		final String outputDepthValue        = properties.getProperty(nestingDepthKeyName);
+		final String readOnlyTxValue         = properties.getProperty(readOnlyTxKeyName);
 
 		if (StringUtils.isBlank(resourceProviderValue)) {
 
@@ -127,6 +140,10 @@ public class StructrHttpServiceConfig {
 		if (StringUtils.isNotBlank(outputDepthValue)) {
 			this.outputNestingDepth = Services.parseInt(outputDepthValue, 3);
 		}
+
+		if (StringUtils.isNotBlank(readOnlyTxValue)) {
+			this.readOnlyTransactions = Services.parseBoolean(readOnlyTxValue, false);
+		}
 	}
 
 	public Authenticator getAuthenticator() {
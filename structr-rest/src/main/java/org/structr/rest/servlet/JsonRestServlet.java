@@ -18,12 +18,21 @@
  */
 package org.structr.rest.servlet;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -52,6 +61,7 @@ import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.PropertyKey;
+import org.structr.rest.JsonInputGSONAdapter;
 import org.structr.rest.ResourceProvider;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.resource.Resource;
@@ -72,6 +82,7 @@ import org.tuckey.web.filters.urlrewrite.utils.StringUtils;
 public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 	public static final int DEFAULT_VALUE_PAGE_SIZE                     = 20;
+	public static final int DEFAULT_VALUE_CHUNK_SIZE                    = 1000;
 	public static final String DEFAULT_VALUE_SORT_ORDER                 = "asc";
 	public static final String REQUEST_PARAMETER_LOOSE_SEARCH           = "loose";
 	public static final String REQUEST_PARAMETER_PAGE_NUMBER            = "page";
@@ -79,6 +90,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 	public static final String REQUEST_PARAMETER_OFFSET_ID              = "pageStartId";
 	public static final String REQUEST_PARAMETER_SORT_KEY               = "sort";
 	public static final String REQUEST_PARAMETER_SORT_ORDER             = "order";
+	public static final String REQUEST_PARAMETER_STREAM                 = "stream";
+	public static final String REQUEST_PARAMETER_CHUNK_SIZE             = "chunkSize";
 	public static final Set<String> commonRequestParameters             = new LinkedHashSet<>();
 	private static final Logger logger                                  = LoggerFactory.getLogger(JsonRestServlet.class.getName());
 
@@ -90,6 +103,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		commonRequestParameters.add(REQUEST_PARAMETER_OFFSET_ID);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_KEY);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_ORDER);
+		commonRequestParameters.add(REQUEST_PARAMETER_STREAM);
+		commonRequestParameters.add(REQUEST_PARAMETER_CHUNK_SIZE);
 		commonRequestParameters.add("debugLoggingEnabled");
 		commonRequestParameters.add("ignoreResultCount");
 
@@ -395,8 +410,12 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			response.setCharacterEncoding("UTF-8");
 			response.setContentType("application/json; charset=utf-8");
 
+			// streaming mode parses and commits large arrays in chunks
+			final boolean streaming = Boolean.parseBoolean(request.getParameter(REQUEST_PARAMETER_STREAM));
+
 			// get reader before initalizing security context
-			final String input = IOUtils.toString(request.getReader());
+			final Reader reader = request.getReader();
+			final String input  = streaming ? null : IOUtils.toString(reader);
 
 			// isolate request authentication in a transaction
 			try (final Tx tx = StructrApp.getInstance().tx()) {
@@ -406,7 +425,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			}
 
 			final App app              = StructrApp.getInstance(securityContext);
-			final IJsonInput jsonInput = cleanAndParseJsonString(app, input);
+			final IJsonInput jsonInput = streaming ? null : cleanAndParseJsonString(app, input);
 
 			if (securityContext != null) {
 
@@ -418,6 +437,12 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 					tx.success();
 				}
 
+				if (streaming) {
+
+					doStreamingPost(app, resource, reader, response, Math.max(1, Services.parseInt(request.getParameter(REQUEST_PARAMETER_CHUNK_SIZE), DEFAULT_VALUE_CHUNK_SIZE)));
+					return;
+				}
+
 				// isolate doPost
 				boolean retry = true;
 				while (retry) {
@@ -740,6 +765,223 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 	}
 
+	/**
+	 * Creates the objects of a JSON array that is parsed incrementally
+	 * from the given reader, committing every chunkSize objects in a
+	 * separate transaction. The IDs of the created objects are streamed
+	 * back per chunk, followed by the total count and the throughput.
+	 * If a chunk fails after the response was started, the error is
+	 * appended to the response; chunks committed before stay committed.
+	 */
+	private void doStreamingPost(final App app, final Resource resource, final Reader input, final HttpServletResponse response, final int chunkSize) throws FrameworkException, IOException {
+
+		final JsonReader reader = new JsonReader(input);
+		final JsonParser parser = new JsonParser();
+		final double t0         = System.nanoTime();
+		JsonWriter writer       = null;
+		boolean hasMore         = true;
+		boolean failed          = false;
+		long count              = 0;
+		int chunk               = 0;
+
+		reader.setLenient(true);
+
+		if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+			throw new FrameworkException(422, "Streaming POST requires a JSON array.");
+		}
+
+		reader.beginArray();
+
+		while (hasMore) {
+
+			final List<JsonInput> inputs = new ArrayList<>();
+			final List<String> ids;
+
+			try {
+
+				while (inputs.size() < chunkSize && (hasMore = reader.hasNext())) {
+
+					final JsonElement element = parser.parse(reader);
+					if (!element.isJsonObject()) {
+						throw new JsonSyntaxException("Invalid JSON, expecting object");
+					}
+
+					inputs.add(JsonInputGSONAdapter.deserialize(element, null));
+				}
+
+				if (inputs.isEmpty()) {
+					break;
+				}
+
+				ids = doPostChunk(app, resource, inputs);
+
+			} catch (FrameworkException | RuntimeException | IOException ex) {
+
+				if (writer == null) {
+					throw ex;
+				}
+
+				// response was already started, report the error at the end
+				final FrameworkException fex = getStreamingError(ex);
+
+				logger.warn("Streaming POST failed after {} objects: {}", count, fex.getMessage());
+
+				writer.endArray();
+				writer.name("error");
+				gson.get().toJson(fex, FrameworkException.class, writer);
+
+				failed = true;
+				break;
+			}
+
+			if (writer == null) {
+				writer = beginStreamingResponse(response, HttpServletResponse.SC_CREATED);
+			}
+
+			writer.beginObject();
+			writer.name("chunk").value(chunk++);
+			writer.name("count").value(inputs.size());
+			writer.name("result");
+			writer.beginArray();
+
+			for (final String id : ids) {
+				writer.value(id);
+			}
+
+			writer.endArray();
+			writer.endObject();
+			writer.flush();
+
+			count += inputs.size();
+
+			// release parsed input of committed chunks
+			inputs.clear();
+		}
+
+		if (writer == null) {
+
+			// empty array
+			writer = beginStreamingResponse(response, HttpServletResponse.SC_OK);
+		}
+
+		if (!failed) {
+			writer.endArray();
+		}
+
+		writer.name("count").value(count);
+
+		final double seconds = (System.nanoTime() - t0) / 1000000000.0;
+
+		writer.name("time").value(new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH)).format(seconds));
+		writer.name("objectsPerSecond").value(seconds > 0 ? (long)(count / seconds) : count);
+		writer.endObject();
+		writer.flush();
+
+		response.getWriter().append("\n");
+
+		logger.info("Streaming POST created {} objects in {} chunks, {} objects/s", new Object[] { count, chunk, seconds > 0 ? (long)(count / seconds) : count });
+	}
+
+	private FrameworkException getStreamingError(final Exception ex) {
+
+		if (ex instanceof FrameworkException) {
+			return (FrameworkException)ex;
+		}
+
+		if (ex instanceof JsonSyntaxException) {
+			return new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "JsonSyntaxException in POST: " + ex.getMessage());
+		}
+
+		if (ex instanceof JsonParseException || ex instanceof MalformedJsonException) {
+			return new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "JsonParseException in POST: " + ex.getMessage());
+		}
+
+		if (ex instanceof EOFException) {
+			return new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "Unexpected end of input in POST: " + ex.getMessage());
+		}
+
+		if (ex instanceof UnsupportedOperationException) {
+			return new FrameworkException(HttpServletResponse.SC_BAD_REQUEST, "POST not supported: " + ex.getMessage());
+		}
+
+		logger.warn("Exception in POST", ex);
+
+		return new FrameworkException(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Exception in POST: " + ex.getMessage());
+	}
+
+	private JsonWriter beginStreamingResponse(final HttpServletResponse response, final int status) throws IOException {
+
+		response.setStatus(status);
+
+		final JsonWriter writer = new JsonWriter(response.getWriter());
+
+		if (indentJson) {
+			writer.setIndent("	");
+		}
+
+		writer.beginObject();
+		writer.name("chunks");
+		writer.beginArray();
+
+		return writer;
+	}
+
+	private List<String> doPostChunk(final App app, final Resource resource, final List<JsonInput> inputs) throws FrameworkException {
+
+		final List<String> ids = new ArrayList<>(inputs.size());
+
+		// a retry only repeats the current chunk
+		boolean retry = true;
+		while (retry) {
+
+			ids.clear();
+
+			if (resource.createPostTransaction()) {
+
+				try (final Tx tx = app.tx()) {
+
+					for (final JsonInput propertySet : inputs) {
+
+						addCreatedIds(ids, resource.doPost(convertPropertySetToMap(propertySet)));
+					}
+
+					tx.success();
+					retry = false;
+
+				} catch (RetryException ddex) {
+					retry = true;
+				}
+
+			} else {
+
+				try {
+
+					for (final JsonInput propertySet : inputs) {
+
+						addCreatedIds(ids, resource.doPost(convertPropertySetToMap(propertySet)));
+					}
+
+					retry = false;
+
+				} catch (RetryException ddex) {
+					retry = true;
+				}
+			}
+		}
+
+		return ids;
+	}
+
+	private void addCreatedIds(final List<String> ids, final RestMethodResult result) {
+
+		if (result != null && result.getContent() != null) {
+
+			for (final GraphObject obj : result.getContent()) {
+				ids.add(obj.getUuid());
+			}
+		}
+	}
+
 	private Map<String, Object> convertPropertySetToMap(JsonInput propertySet) {
 
 		if (propertySet != null) {
@@ -756,7 +998,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		Result result                   = null;
 		Resource resource               = null;
 
-		try {
+		// with a request-scoped transaction, all transactions below join this one
+		try (final Tx requestTx = config.useReadOnlyTransactions() ? StructrApp.getInstance().readOnlyTx() : null) {
 
 			// first thing to do!
 			request.setCharacterEncoding("UTF-8");
@@ -822,6 +1065,12 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 					retry = false;
 
 				} catch (RetryException ddex) {
+
+					// the request-scoped transaction cannot be retried here
+					if (requestTx != null) {
+						throw ddex;
+					}
+
 					retry = true;
 				}
 			}
@@ -893,6 +1142,10 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				}
 			}
 
+			if (requestTx != null) {
+				requestTx.success();
+			}
+
 			response.setStatus(HttpServletResponse.SC_OK);
 
 		} catch (FrameworkException frameworkException) {
@@ -359,6 +359,8 @@ public class StructrRestTest {
 		config.setProperty(Structr.NODE_CACHE_SIZE, "1000");
 		config.setProperty(Services.FILES_PATH, basePath + "/files");
 		config.setProperty(Services.LOG_DATABASE_PATH, basePath + "/logDb.dat");
+		config.setProperty(Services.SCHEMA_CLASS_CACHE_PATH, basePath + "/classcache");
+		config.setProperty(Services.CHANGELOG_PATH, basePath + "/changelog");
 		config.setProperty(Services.TCP_PORT, (System.getProperty("tcpPort") != null ? System.getProperty("tcpPort") : "13465"));
 		config.setProperty(Services.UDP_PORT, (System.getProperty("udpPort") != null ? System.getProperty("udpPort") : "13466"));
 		config.setProperty(Services.SUPERUSER_USERNAME, "superadmin");
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.structr.rest.common.HttpHelper;
+import org.structr.rest.common.StructrRestTest;
+
+/**
+ * Tests for outbound HTTP requests against a local HTTP endpoint.
+ *
+ *
+ */
+public class HttpHelperTest extends StructrRestTest {
+
+	private HttpServer server = null;
+	private String baseUrl    = null;
+
+	@Before
+	public void startEndpoint() throws IOException {
+
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+
+		server.createContext("/hello", exchange -> respond(exchange, 200, "hello"));
+		server.createContext("/error", exchange -> respond(exchange, 500, "error"));
+		server.createContext("/echo", exchange -> respond(exchange, 200, IOUtils.toString(exchange.getRequestBody(), StandardCharsets.UTF_8)));
+		server.createContext("/header", exchange -> respond(exchange, 200, String.valueOf(exchange.getRequestHeaders().getFirst("X-Test"))));
+
+		server.createContext("/auth", exchange -> {
+
+			final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+			if (authorization == null) {
+
+				exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"test\"");
+				respond(exchange, 401, "unauthorized");
+
+			} else {
+
+				respond(exchange, 200, authorization);
+			}
+		});
+
+		server.createContext("/redirect", exchange -> {
+
+			exchange.getResponseHeaders().add("Location", baseUrl + "/hello");
+			respond(exchange, 302, "");
+		});
+
+		server.start();
+
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stopEndpoint() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testPooledClientAndStatistics() throws Exception {
+
+		for (int i=0; i<5; i++) {
+			assertEquals("Invalid response body", "hello", HttpHelper.get(baseUrl + "/hello"));
+		}
+
+		assertEquals("Invalid response body", "error", HttpHelper.get(baseUrl + "/error"));
+
+		final Map<String, Object> statistics = HttpHelper.getStatistics();
+		final Map<String, Object> pool       = (Map<String, Object>)statistics.get("pool");
+		final Map<String, Object> hosts      = (Map<String, Object>)statistics.get("hosts");
+		final Map<String, Object> host       = (Map<String, Object>)hosts.get("127.0.0.1:" + server.getAddress().getPort());
+
+		assertNotNull("Missing connection pool statistics", pool);
+		assertEquals("Connections must be released after the response was read", 0, pool.get("leased"));
+		assertTrue("Connections must be kept alive for reuse", (Integer)pool.get("available") >= 1);
+
+		assertNotNull("Missing host statistics", host);
+		assertEquals("Invalid number of requests", 6L, host.get("requests"));
+		assertEquals("Invalid number of errors", 1L, host.get("errors"));
+	}
+
+	@Test
+	public void testRequestIsolation() throws Exception {
+
+		final String credentials = "Basic " + Base64.getEncoder().encodeToString("tester:secret".getBytes(StandardCharsets.UTF_8));
+
+		// credentials of one request must not be used for the next request of the shared client
+		assertEquals("Invalid authorization", credentials, HttpHelper.get(baseUrl + "/auth", "tester", "secret", Collections.emptyMap()));
+		assertEquals("Credentials leaked to another request", "unauthorized", HttpHelper.get(baseUrl + "/auth", Collections.emptyMap()));
+
+		// the same applies to request headers
+		assertEquals("Invalid request header", "1", HttpHelper.get(baseUrl + "/header", Collections.singletonMap("X-Test", "1")));
+		assertEquals("Request header leaked to another request", "null", HttpHelper.get(baseUrl + "/header", Collections.emptyMap()));
+
+		// HEAD requests don't follow redirects, GET requests do
+		assertEquals("Invalid status code", "302", HttpHelper.head(baseUrl + "/redirect").get("status"));
+		assertEquals("Invalid response body", "hello", HttpHelper.get(baseUrl + "/redirect"));
+		assertEquals("Invalid status code", "302", HttpHelper.head(baseUrl + "/redirect").get("status"));
+	}
+
+	@Test
+	public void testAsyncRequests() throws Exception {
+
+		final Future<String> get               = HttpHelper.getAsync(baseUrl + "/hello", null, null, Collections.emptyMap());
+		final Future<Map<String, String>> post = HttpHelper.postAsync(baseUrl + "/echo", "payload", null, null, Collections.emptyMap());
+
+		assertEquals("Invalid response body", "hello", get.get(10, TimeUnit.SECONDS));
+
+		final Map<String, String> response = post.get(10, TimeUnit.SECONDS);
+
+		assertEquals("Invalid status code", "200", response.get("status"));
+		assertEquals("Invalid response body", "payload", response.get("body"));
+		assertNotNull("Missing async executor statistics", HttpHelper.getStatistics().get("asyncActive"));
+
+		// shutdown releases the pool, which is created again on the next request
+		HttpHelper.shutdown();
+
+		assertNull("Connection pool was not shut down", HttpHelper.getStatistics().get("pool"));
+		assertNull("Async executor was not shut down", HttpHelper.getStatistics().get("asyncActive"));
+		assertEquals("Invalid response body", "hello", HttpHelper.getAsync(baseUrl + "/hello", null, null, Collections.emptyMap()).get(10, TimeUnit.SECONDS));
+	}
+
+	// ----- private methods -----
+	private void respond(final HttpExchange exchange, final int status, final String body) throws IOException {
+
+		final byte[] data = body.getBytes(StandardCharsets.UTF_8);
+
+		exchange.sendResponseHeaders(status, data.length > 0 ? data.length : -1);
+
+		try (final OutputStream out = exchange.getResponseBody()) {
+			out.write(data);
+		}
+	}
+}
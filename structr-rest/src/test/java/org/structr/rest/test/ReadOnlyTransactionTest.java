@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.test;
+
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.filter.log.ResponseLoggingFilter;
+import java.util.HashMap;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import static org.hamcrest.Matchers.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.auth.SuperUserAuthenticator;
+import org.structr.rest.common.StructrRestTest;
+import org.structr.rest.entity.TestOne;
+
+/**
+ * Tests for GET requests with <code>JsonRestServlet.transaction.readonly = true</code>.
+ *
+ *
+ */
+public class ReadOnlyTransactionTest extends StructrRestTest {
+
+	@BeforeClass
+	public static void start() {
+
+		final Map<String, Object> config = new HashMap<>();
+
+		config.put("JsonRestServlet.transaction.readonly", "true");
+		config.put("JsonRestServlet.authenticator", WritingAuthenticator.class.getName());
+
+		start(config);
+	}
+
+	@Test
+	public void testReadOnlyGet() {
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.body(" { 'name' : 'test' } ")
+		.expect()
+			.statusCode(201)
+		.when()
+			.post("/test_ones");
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+		.expect()
+			.statusCode(200)
+			.body("result_count", equalTo(1))
+			.body("result[0].name", equalTo("test"))
+		.when()
+			.get("/test_ones");
+	}
+
+	@Test
+	public void testGetWithWriteDuringAuthentication() {
+
+		// the authenticator creates an object in the read-only request transaction
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.header("X-Create", "created")
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+		.expect()
+			.statusCode(200)
+			.body("result_count", equalTo(1))
+			.body("result[0].name", equalTo("created"))
+		.when()
+			.get("/test_ones");
+
+		// the modification must be committed and visible to later requests
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+		.expect()
+			.statusCode(200)
+			.body("result_count", equalTo(1))
+			.body("result[0].name", equalTo("created"))
+		.when()
+			.get("/test_ones");
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Authenticator that creates an object if the request contains an
+	 * X-Create header, like a login that updates the user.
+	 */
+	public static class WritingAuthenticator extends SuperUserAuthenticator {
+
+		@Override
+		public SecurityContext initializeAndExamineRequest(final HttpServletRequest request, final HttpServletResponse response) throws FrameworkException {
+
+			final SecurityContext securityContext = super.initializeAndExamineRequest(request, response);
+			final String name                     = request.getHeader("X-Create");
+
+			if (name != null) {
+				StructrApp.getInstance(securityContext).create(TestOne.class, name);
+			}
+
+			return securityContext;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.test;
+
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.filter.log.ResponseLoggingFilter;
+import static org.hamcrest.Matchers.*;
+import org.junit.Test;
+import org.structr.rest.common.StructrRestTest;
+
+/**
+ *
+ *
+ */
+public class StreamingPostTest extends StructrRestTest {
+
+	@Test
+	public void testStreamingPostInChunks() {
+
+		final StringBuilder body = new StringBuilder("[");
+
+		for (int i=0; i<25; i++) {
+
+			if (i > 0) {
+				body.append(",");
+			}
+
+			body.append("{ 'name': 'test").append(i).append("' }");
+		}
+
+		body.append("]");
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.body(body.toString())
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+		.expect()
+			.statusCode(201)
+			.body("count",           equalTo(25))
+			.body("chunks",          hasSize(3))
+			.body("chunks[0].count", equalTo(10))
+			.body("chunks[2].count", equalTo(5))
+			.body("chunks[2].result", hasSize(5))
+		.when()
+			.post("/test_threes?stream=true&chunkSize=10");
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+		.expect()
+			.statusCode(200)
+			.body("result_count", equalTo(25))
+		.when()
+			.get("/test_threes");
+	}
+
+	@Test
+	public void testStreamingPostInvalidElementAfterFirstChunk() {
+
+		final StringBuilder body = new StringBuilder("[");
+
+		for (int i=0; i<10; i++) {
+			body.append("{ 'name': 'test").append(i).append("' },");
+		}
+
+		body.append("'invalid', { 'name': 'test10' }]");
+
+		// the response was already started, so the error is reported at the end
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.body(body.toString())
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+		.expect()
+			.statusCode(201)
+			.body("count",      equalTo(10))
+			.body("chunks",     hasSize(1))
+			.body("error.code", equalTo(400))
+		.when()
+			.post("/test_threes?stream=true&chunkSize=10");
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+		.expect()
+			.statusCode(200)
+			.body("result_count", equalTo(10))
+		.when()
+			.get("/test_threes");
+	}
+
+	@Test
+	public void testStreamingPostTruncatedBody() {
+
+		final StringBuilder body = new StringBuilder("[");
+
+		// body ends after the first chunk, without closing the array
+		for (int i=0; i<10; i++) {
+			body.append("{ 'name': 'test").append(i).append("' },");
+		}
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.body(body.toString())
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+		.expect()
+			.statusCode(201)
+			.body("count",      equalTo(10))
+			.body("chunks",     hasSize(1))
+			.body("error.code", equalTo(400))
+		.when()
+			.post("/test_threes?stream=true&chunkSize=10");
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+		.expect()
+			.statusCode(200)
+			.body("result_count", equalTo(10))
+		.when()
+			.get("/test_threes");
+	}
+
+	@Test
+	public void testStreamingPostRequiresArray() {
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.body("{ 'name': 'test' }")
+		.expect()
+			.statusCode(422)
+		.when()
+			.post("/test_threes?stream=true");
+	}
+}
@@ -18,7 +18,9 @@
  */
 package org.structr.web.common;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -28,6 +30,8 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 import javax.activation.MimetypesFileTypeMap;
 import net.sf.jmimemagic.Magic;
 import net.sf.jmimemagic.MagicException;
@@ -133,9 +137,46 @@ public class FileHelper {
 	public static <T extends org.structr.web.entity.FileBase> T createFile(final SecurityContext securityContext, final InputStream fileStream, final String contentType, final Class<T> fileType, final String name)
 		throws FrameworkException, IOException {
 
-		final byte[] data = IOUtils.toByteArray(fileStream);
-		return createFile(securityContext, data, contentType, fileType, name);
+		final PropertyMap props = new PropertyMap();
 
+		props.put(AbstractNode.name, name);
+
+		final T newFile = (T) StructrApp.getInstance(securityContext).create(fileType, props);
+
+		setFileData(newFile, fileStream, contentType);
+
+		return newFile;
+	}
+
+	/**
+	 * Create a new file node for data that has already been written to
+	 * the storage path of the given UUID, see {@link #getFile(String)}.
+	 *
+	 * @param <T>
+	 * @param securityContext
+	 * @param uuid
+	 * @param checksum the checksum returned by {@link #writeToFile(File, InputStream)}
+	 * @param contentType if null, try to auto-detect content type
+	 * @param t
+	 * @param name
+	 * @return file
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	public static <T extends org.structr.web.entity.FileBase> T createFile(final SecurityContext securityContext, final String uuid, final long checksum, final String contentType, final Class<T> t, final String name)
+		throws FrameworkException, IOException {
+
+		final java.io.File fileOnDisk = getFile(uuid);
+		final PropertyMap props       = new PropertyMap();
+
+		props.put(GraphObject.id,           uuid);
+		props.put(AbstractNode.name,        name);
+		props.put(FileBase.contentType,     contentType != null ? contentType : getContentMimeType(fileOnDisk, name));
+		props.put(FileBase.checksum,        checksum);
+		props.put(FileBase.size,            fileOnDisk.length());
+		props.put(FileBase.version,         1);
+
+		return (T) StructrApp.getInstance(securityContext).create(t, props);
 	}
 
 	/**
@@ -223,6 +264,29 @@ public class FileHelper {
 		file.setProperties(file.getSecurityContext(), map);
 	}
 
+	/**
+	 * Stream data to the given file node and set checksum and size. The
+	 * checksum is computed while writing, the data is never held in memory.
+	 *
+	 * @param file
+	 * @param fileStream
+	 * @param contentType if null, try to auto-detect content type
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	public static void setFileData(final FileBase file, final InputStream fileStream, final String contentType) throws FrameworkException, IOException {
+
+		final long checksum   = writeToFile(prepareFileOnDisk(file), fileStream);
+		final PropertyMap map = new PropertyMap();
+
+		map.put(FileBase.contentType, contentType != null ? contentType : getContentMimeType(file));
+		map.put(FileBase.checksum, checksum);
+		map.put(FileBase.size, FileHelper.getSize(file));
+		map.put(FileBase.version, 1);
+
+		file.setProperties(file.getSecurityContext(), map);
+	}
+
 	/**
 	 * Update checksum content type and size of the given file
 	 *
@@ -307,8 +371,8 @@ public class FileHelper {
 	}
 
 	/**
-	 * Write binary data to a file and reference the file on disk at the
-	 * given file node
+	 * Stream binary data to a file, reference the file on disk at the
+	 * given file node and update its checksum and size.
 	 *
 	 * @param fileNode
 	 * @param inStream
@@ -317,8 +381,35 @@ public class FileHelper {
 	 */
 	public static void writeToFile(final org.structr.dynamic.File fileNode, final InputStream inStream) throws FrameworkException, IOException {
 
-		writeToFile(fileNode, IOUtils.toByteArray(inStream));
+		final long checksum   = writeToFile(prepareFileOnDisk(fileNode), inStream);
+		final PropertyMap map = new PropertyMap();
+
+		map.put(FileBase.checksum, checksum);
+		map.put(FileBase.size, FileHelper.getSize(fileNode));
+
+		fileNode.setProperties(fileNode.getSecurityContext(), map);
+	}
+
+	/**
+	 * Stream binary data to the given file on disk and compute its CRC32
+	 * checksum in the same pass.
+	 *
+	 * @param fileOnDisk
+	 * @param inStream
+	 * @return the checksum
+	 * @throws IOException
+	 */
+	public static long writeToFile(final java.io.File fileOnDisk, final InputStream inStream) throws IOException {
+
+		fileOnDisk.getParentFile().mkdirs();
+
+		try (final CheckedOutputStream out = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(fileOnDisk)), new CRC32())) {
 
+			IOUtils.copyLarge(inStream, out);
+			out.flush();
+
+			return out.getChecksum().getValue();
+		}
 	}
 
 	/**
@@ -333,26 +424,7 @@ public class FileHelper {
 	 */
 	public static File writeToFile(final FileBase fileNode, final byte[] data) throws FrameworkException, IOException {
 
-		final PropertyMap properties = new PropertyMap();
-
-		String id = fileNode.getProperty(GraphObject.id);
-		if (id == null) {
-
-			final String newUuid = UUID.randomUUID().toString().replaceAll("[\\-]+", "");
-			id = newUuid;
-
-			fileNode.unlockSystemPropertiesOnce();
-			properties.put(GraphObject.id, newUuid);
-		}
-
-		properties.put(FileBase.relativeFilePath, FileBase.getDirectoryPath(id) + "/" + id);
-
-		fileNode.unlockSystemPropertiesOnce();
-		fileNode.setProperties(fileNode.getSecurityContext(), properties);
-
-		final String filesPath = Services.getInstance().getConfigurationValue(Services.FILES_PATH);
-
-		java.io.File fileOnDisk = new java.io.File(filesPath + "/" + fileNode.getRelativeFilePath());
+		final java.io.File fileOnDisk = prepareFileOnDisk(fileNode);
 
 		fileOnDisk.getParentFile().mkdirs();
 		FileUtils.writeByteArrayToFile(fileOnDisk, data);
@@ -367,6 +439,16 @@ public class FileHelper {
 		return new java.io.File(getFilePath(file.getRelativeFilePath()));
 	}
 
+	/**
+	 * Return the storage path of the file node with the given UUID.
+	 *
+	 * @param uuid
+	 * @return the file on disk
+	 */
+	public static File getFile(final String uuid) {
+		return new java.io.File(getFilePath(FileBase.getDirectoryPath(uuid), "/", uuid));
+	}
+
 	public static Path getPath(final FileBase file) {
 		return Paths.get(getFilePath(file.getRelativeFilePath()));
 	}
@@ -678,4 +760,33 @@ public class FileHelper {
 	public static String getDateString() {
 		return new SimpleDateFormat("yyyy-MM-dd-HHmmss").format(new Date());
 	}
+
+	// ----- private methods -----
+	/**
+	 * Assign a storage path to the given file node and return the file on
+	 * disk.
+	 */
+	private static File prepareFileOnDisk(final FileBase fileNode) throws FrameworkException {
+
+		final PropertyMap properties = new PropertyMap();
+
+		String id = fileNode.getProperty(GraphObject.id);
+		if (id == null) {
+
+			final String newUuid = UUID.randomUUID().toString().replaceAll("[\\-]+", "");
+			id = newUuid;
+
+			fileNode.unlockSystemPropertiesOnce();
+			properties.put(GraphObject.id, newUuid);
+		}
+
+		properties.put(FileBase.relativeFilePath, FileBase.getDirectoryPath(id) + "/" + id);
+
+		fileNode.unlockSystemPropertiesOnce();
+		fileNode.setProperties(fileNode.getSecurityContext(), properties);
+
+		final String filesPath = Services.getInstance().getConfigurationValue(Services.FILES_PATH);
+
+		return new java.io.File(filesPath + "/" + fileNode.getRelativeFilePath());
+	}
 }
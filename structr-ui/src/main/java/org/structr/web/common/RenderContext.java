@@ -18,8 +18,10 @@
  */
 package org.structr.web.common;
 
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -68,6 +70,8 @@ public class RenderContext extends ActionContext {
 	private Result result                              = null;
 	private boolean anyChildNodeCreatesNewLine         = false;
 	private boolean indentHtml                         = true;
+	private Set<String> dependencies                   = null;
+	private Set<String> dependentTypes                 = null;
 
 	public enum EditMode {
 
@@ -107,6 +111,8 @@ public class RenderContext extends ActionContext {
 		this.anyChildNodeCreatesNewLine = other.anyChildNodeCreatesNewLine;
 		this.locale = other.locale;
 		this.indentHtml = other.indentHtml;
+		this.dependencies = other.dependencies;
+		this.dependentTypes = other.dependentTypes;
 
 	}
 
@@ -133,6 +139,7 @@ public class RenderContext extends ActionContext {
 
 	public void setDetailsDataObject(GraphObject detailsDataObject) {
 		this.detailsDataObject = detailsDataObject;
+		addDependency(detailsDataObject);
 	}
 
 	public GraphObject getDetailsDataObject() {
@@ -141,6 +148,7 @@ public class RenderContext extends ActionContext {
 
 	public void setDataObject(GraphObject currentDataObject) {
 		this.currentDataObject = currentDataObject;
+		addDependency(currentDataObject);
 	}
 
 	public GraphObject getDataObject() {
@@ -312,6 +320,46 @@ public class RenderContext extends ActionContext {
 		return appLibRendered;
 	}
 
+	/**
+	 * Enables recording of the objects used for rendering, see
+	 * RenderedPageCache.
+	 */
+	public void trackDependencies() {
+
+		if (dependencies == null) {
+
+			dependencies   = new HashSet<>();
+			dependentTypes = new HashSet<>();
+
+			addDependency(detailsDataObject);
+			addDependency(currentDataObject);
+		}
+	}
+
+	public void addDependency(final GraphObject obj) {
+
+		if (dependencies != null && obj != null) {
+
+			dependencies.add(obj.getUuid());
+			dependentTypes.add(obj.getType());
+		}
+	}
+
+	public void addRenderedNode(final DOMNode node) {
+
+		if (dependencies != null && node != null) {
+			dependencies.add(node.getUuid());
+		}
+	}
+
+	public Set<String> getDependencies() {
+		return dependencies;
+	}
+
+	public Set<String> getDependentTypes() {
+		return dependentTypes;
+	}
+
 	public GraphObject getDataNode(String key) {
 		return dataObjects.get(key);
 	}
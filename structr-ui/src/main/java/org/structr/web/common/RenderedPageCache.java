@@ -0,0 +1,455 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.core.GraphObject;
+import org.structr.core.Services;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * Server-side cache for the rendered output of pages that have the
+ * cacheRenderedOutput flag set.
+ *
+ * Each entry records the UUIDs of the DOM nodes and data objects that
+ * were used to render it, as well as the types of the data objects.
+ * Entries are invalidated after each commit that modifies one of those
+ * objects, modifies a DOM node of the page, or creates an object of one
+ * of the recorded types.
+ *
+ * Objects that are only accessed from scripts are not recorded, so pages
+ * that use them should either not be cached or set cacheForSeconds,
+ * which limits the lifetime of the cached output as well.
+ *
+ * Every invalidation of an object or type is stamped with a sequence
+ * number. The sequence number is obtained before rendering starts, and
+ * the rendered output is only stored if none of its own dependencies
+ * were invalidated in the meantime, so unrelated commits do not prevent
+ * pages from being cached.
+ */
+public class RenderedPageCache implements StructrTransactionListener {
+
+	private static final Logger logger                    = LoggerFactory.getLogger(RenderedPageCache.class.getName());
+	private static final String TYPE_PREFIX               = "type:";
+	private static RenderedPageCache instance             = null;
+
+	private final Map<String, Set<String>> dependents     = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> typeDependents = new ConcurrentHashMap<>();
+	private final AtomicLong sequence                     = new AtomicLong();
+	private final AtomicLong evictedStamp                 = new AtomicLong();
+	private final LongAdder hits                          = new LongAdder();
+	private final LongAdder misses                        = new LongAdder();
+	private final LongAdder stored                        = new LongAdder();
+	private final LongAdder skipped                       = new LongAdder();
+	private final LongAdder invalidated                   = new LongAdder();
+	private final ConcurrentFixedSizeCache<String, Entry> cache;
+	private final ConcurrentFixedSizeCache<String, Stamp> stamps;
+
+	public RenderedPageCache(final int maxSize) {
+
+		this.cache  = new ConcurrentFixedSizeCache<>(maxSize);
+		this.stamps = new ConcurrentFixedSizeCache<>(Math.max(10000, maxSize * 16));
+	}
+
+	public static synchronized RenderedPageCache getInstance() {
+
+		if (instance == null) {
+
+			instance = new RenderedPageCache(Services.parseInt(StructrApp.getConfigurationValue(Services.HTML_PAGE_CACHE_SIZE), 1000));
+
+			TransactionCommand.registerTransactionListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Creates the cache key for the given page and request parameters.
+	 *
+	 * @param pageId
+	 * @param path
+	 * @param queryString
+	 * @param locale
+	 * @return the cache key
+	 */
+	public static String getKey(final String pageId, final String path, final String queryString, final String locale) {
+		return pageId + "\n" + path + "?" + (queryString != null ? queryString : "") + "\n" + locale;
+	}
+
+	/**
+	 * Returns the current invalidation sequence number of this cache. It
+	 * must be obtained before rendering starts and passed to put(), so that
+	 * output that was rendered concurrently with a commit that modified one
+	 * of its dependencies is not stored.
+	 *
+	 * @return the current sequence number
+	 */
+	public long getSequence() {
+		return sequence.get();
+	}
+
+	public Entry get(final String key) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+
+			if (entry.expires > 0 && entry.expires < System.currentTimeMillis()) {
+
+				remove(key);
+
+			} else {
+
+				hits.increment();
+				return entry;
+			}
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	/**
+	 * Stores the given rendered output, unless one of the given dependencies
+	 * was invalidated since the given sequence number was obtained.
+	 *
+	 * @param key
+	 * @param content
+	 * @param maxAge the maximum age in seconds, or a value <= 0 for no limit
+	 * @param dependencies the UUIDs of the objects used for rendering
+	 * @param types the types of the data objects used for rendering
+	 * @param renderSequence the sequence number obtained before rendering
+	 *
+	 * @return whether the output was stored
+	 */
+	public boolean put(final String key, final byte[] content, final int maxAge, final Set<String> dependencies, final Set<String> types, final long renderSequence) {
+
+		final long expires = maxAge > 0 ? System.currentTimeMillis() + maxAge * 1000L : 0L;
+		final Entry entry  = new Entry(key, content, expires, dependencies, types);
+
+		if (isModifiedSince(entry, renderSequence)) {
+
+			skipped.increment();
+			return false;
+		}
+
+		for (final String uuid : entry.dependencies) {
+			dependents.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+
+		for (final String type : entry.types) {
+			typeDependents.computeIfAbsent(type, k -> ConcurrentHashMap.newKeySet()).add(key);
+		}
+
+		cache.put(key, entry);
+
+		// a dependency may have been invalidated before the reverse index was
+		// updated, invalidations after this check find the key in the index
+		if (isModifiedSince(entry, renderSequence)) {
+
+			remove(key);
+			skipped.increment();
+
+			return false;
+		}
+
+		stored.increment();
+
+		return true;
+	}
+
+	/**
+	 * Removes all entries that depend on the object with the given UUID.
+	 *
+	 * @param uuid
+	 */
+	public void invalidate(final String uuid) {
+
+		stamp(uuid);
+
+		removeAll(dependents.get(uuid));
+	}
+
+	/**
+	 * Removes all entries that use data objects of the given type.
+	 *
+	 * @param type
+	 */
+	public void invalidateType(final String type) {
+
+		stamp(TYPE_PREFIX + type);
+
+		removeAll(typeDependents.get(type));
+	}
+
+	public void clear() {
+
+		// all renderings that are in progress depend on a cleared object
+		evictedStamp.accumulateAndGet(sequence.incrementAndGet(), Math::max);
+
+		invalidated.add(cache.size());
+
+		cache.clear();
+		dependents.clear();
+		typeDependents.clear();
+	}
+
+	public int size() {
+		return cache.size();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> stats = new TreeMap<>();
+		final long hitCount           = hits.sum();
+		final long total              = hitCount + misses.sum();
+
+		stats.put("entries",     (long)cache.size());
+		stats.put("hits",        hitCount);
+		stats.put("misses",      total - hitCount);
+		stats.put("hitRatio",    total > 0 ? (hitCount * 100L) / total : 0L);
+		stats.put("stored",      stored.sum());
+		stats.put("skipped",     skipped.sum());
+		stats.put("invalidated", invalidated.sum());
+
+		return stats;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+		// invalidation stamps are recorded even if the cache is empty,
+		// so that concurrent renderings are not stored
+		for (final ModificationEvent event : modificationEvents) {
+
+			invalidate(event.getUuid());
+
+			if (event.isNode() && !event.isDeleted()) {
+
+				final GraphObject obj = event.getGraphObject();
+
+				if (obj instanceof DOMNode) {
+
+					try {
+
+						final Page ownerDocument = ((DOMNode)obj).getProperty(DOMNode.ownerDocument);
+						if (ownerDocument != null) {
+
+							invalidate(ownerDocument.getUuid());
+						}
+
+					} catch (Throwable t) {
+
+						logger.warn("Unable to determine owner document of {}, clearing page cache: {}", event.getUuid(), t.getMessage());
+						clear();
+
+						return;
+					}
+				}
+
+				if (event.isCreated() && obj != null) {
+
+					// queries for a supertype include the new object as well
+					Class type = obj.getClass();
+					while (type != null && !AbstractNode.class.equals(type)) {
+
+						invalidateType(type.getSimpleName());
+						type = type.getSuperclass();
+					}
+				}
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private void stamp(final String key) {
+
+		final long value = sequence.incrementAndGet();
+		Stamp stamp      = stamps.get(key);
+
+		if (stamp == null) {
+
+			final Stamp newStamp = new Stamp(value);
+
+			stamp = stamps.putIfAbsent(key, newStamp);
+			if (stamp == null) {
+
+				return;
+			}
+		}
+
+		stamp.update(value);
+
+		// the stamp may have been evicted concurrently
+		if (stamps.get(key) != stamp) {
+
+			evictedStamp.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	private long getStamp(final String key) {
+
+		final Stamp stamp = stamps.get(key);
+		if (stamp != null) {
+
+			return stamp.value.get();
+		}
+
+		// the object may have been invalidated before its stamp was evicted
+		return evictedStamp.get();
+	}
+
+	private boolean isModifiedSince(final Entry entry, final long renderSequence) {
+
+		for (final String uuid : entry.dependencies) {
+
+			if (getStamp(uuid) > renderSequence) {
+				return true;
+			}
+		}
+
+		for (final String type : entry.types) {
+
+			if (getStamp(TYPE_PREFIX + type) > renderSequence) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void removeAll(final Set<String> keys) {
+
+		if (keys != null) {
+
+			for (final String key : keys) {
+				remove(key);
+			}
+		}
+	}
+
+	private void remove(final String key) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+
+			cache.remove(key);
+			entry.invalidate();
+			invalidated.increment();
+		}
+	}
+
+	// ----- nested classes -----
+	private class Stamp implements Cachable {
+
+		private final AtomicLong value;
+
+		private Stamp(final long value) {
+			this.value = new AtomicLong(value);
+		}
+
+		private void update(final long newValue) {
+			value.accumulateAndGet(newValue, Math::max);
+		}
+
+		/**
+		 * Called when the stamp is evicted, objects without a stamp are
+		 * treated as if they were invalidated at the latest evicted stamp.
+		 */
+		@Override
+		public void invalidate() {
+			evictedStamp.accumulateAndGet(value.get(), Math::max);
+		}
+	}
+
+	public class Entry implements Cachable {
+
+		private final Set<String> dependencies;
+		private final Set<String> types;
+		private final byte[] content;
+		private final long expires;
+		private final String key;
+
+		private Entry(final String key, final byte[] content, final long expires, final Set<String> dependencies, final Set<String> types) {
+
+			this.dependencies = dependencies != null ? dependencies : Collections.emptySet();
+			this.types        = types != null ? types : Collections.emptySet();
+			this.content      = content;
+			this.expires      = expires;
+			this.key          = key;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+
+		/**
+		 * Removes this entry from the reverse indexes, called on
+		 * invalidation and when the entry is evicted.
+		 */
+		@Override
+		public void invalidate() {
+
+			for (final String uuid : dependencies) {
+				removeFromIndex(dependents, uuid, key);
+			}
+
+			for (final String type : types) {
+				removeFromIndex(typeDependents, type, key);
+			}
+		}
+
+		private void removeFromIndex(final Map<String, Set<String>> index, final String indexKey, final String key) {
+
+			index.computeIfPresent(indexKey, (k, keys) -> {
+
+				// don't remove the key if it was stored again in the meantime
+				if (cache.get(key) == null) {
+					keys.remove(key);
+				}
+
+				return keys.isEmpty() ? null : keys;
+			});
+		}
+	}
+}
@@ -28,6 +28,7 @@ import org.structr.web.resource.LoginResource;
 import org.structr.web.resource.LogoutResource;
 import org.structr.web.resource.RegistrationResource;
 import org.structr.web.resource.ResetPasswordResource;
+import org.structr.web.resource.UiEnvResource;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -73,7 +74,8 @@ public class UiResourceProvider implements ResourceProvider {
 		resourceMap.put(Pattern.compile("[0-9]+"), UuidResource.class);                       // this matches the ID resource
 
 		resourceMap.put(Pattern.compile("_schema"), SchemaResource.class);	               // special resource for schema information
-		resourceMap.put(Pattern.compile("_env"), EnvResource.class);	                       // special resource for environment information
+		resourceMap.put(Pattern.compile("_env"), UiEnvResource.class);                       // special resource for environment information
+		resourceMap.put(Pattern.compile("_changelog"), ChangelogResource.class);             // special resource for the change log of an object
 
 		resourceMap.put(Pattern.compile("[a-z_A-Z][a-z_A-Z0-9]*"), TypeResource.class);	       // any type match
 
@@ -23,9 +23,11 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.zip.CRC32;
 import org.apache.chemistry.opencmis.commons.data.AllowableActions;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
 import org.apache.commons.io.FileUtils;
@@ -429,7 +431,39 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 				// Return file output stream and save checksum and size after closing
 				final FileOutputStream fos = new FileOutputStream(fileOnDisk, append) {
 
-					private boolean closed = false;
+					// the checksum is computed while writing unless the existing
+					// content is appended to or the channel is used directly
+					private final CRC32 crc       = new CRC32();
+					private boolean digestValid   = !append;
+					private boolean closed        = false;
+
+					@Override
+					public void write(final int b) throws IOException {
+
+						super.write(b);
+						crc.update(b);
+					}
+
+					@Override
+					public void write(final byte[] b) throws IOException {
+
+						super.write(b);
+						crc.update(b);
+					}
+
+					@Override
+					public void write(final byte[] b, final int off, final int len) throws IOException {
+
+						super.write(b, off, len);
+						crc.update(b, off, len);
+					}
+
+					@Override
+					public FileChannel getChannel() {
+
+						digestValid = false;
+						return super.getChannel();
+					}
 
 					@Override
 					public void close() throws IOException {
@@ -445,7 +479,7 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 							final String _contentType = FileHelper.getContentMimeType(FileBase.this);
 
 							final PropertyMap changedProperties = new PropertyMap();
-							changedProperties.put(checksum, FileHelper.getChecksum(FileBase.this));
+							changedProperties.put(checksum, digestValid ? crc.getValue() : FileHelper.getChecksum(FileBase.this));
 							changedProperties.put(size, FileHelper.getSize(FileBase.this));
 							changedProperties.put(contentType, _contentType);
 
@@ -98,8 +98,10 @@ import org.structr.web.function.FromXmlFunction;
 import org.structr.web.function.GetContentFunction;
 import org.structr.web.function.GetRequestHeaderFunction;
 import org.structr.web.function.GetSessionAttributeFunction;
+import org.structr.web.function.HttpGetAsyncFunction;
 import org.structr.web.function.HttpGetFunction;
 import org.structr.web.function.HttpHeadFunction;
+import org.structr.web.function.HttpPostAsyncFunction;
 import org.structr.web.function.HttpPostFunction;
 import org.structr.web.function.IncludeFunction;
 import org.structr.web.function.IsLocaleFunction;
@@ -208,6 +210,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 		Functions.functions.put("GET", new HttpGetFunction());
 		Functions.functions.put("HEAD", new HttpHeadFunction());
 		Functions.functions.put("POST", new HttpPostFunction());
+		Functions.functions.put("GET_ASYNC", new HttpGetAsyncFunction());
+		Functions.functions.put("POST_ASYNC", new HttpPostAsyncFunction());
 		Functions.functions.put("include", new IncludeFunction());
 		Functions.functions.put("is_locale", new IsLocaleFunction());
 		Functions.functions.put("log_event", new LogEventFunction());
@@ -359,6 +363,8 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 	@Override
 	public void render(final RenderContext renderContext, final int depth) throws FrameworkException {
 
+		renderContext.addRenderedNode(this);
+
 		if (!securityContext.isVisible(this)) {
 			return;
 		}
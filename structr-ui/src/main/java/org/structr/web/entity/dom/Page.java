@@ -107,16 +107,19 @@ public class Page extends DOMNode implements Linkable, Document, DOMImplementati
 	// if enabled, prevents asynchronous page rendering; enable this flag when using the stream() builtin method
 	public static final Property<Boolean> pageCreatesRawData = new BooleanProperty("pageCreatesRawData").defaultValue(false);
 
+	// if enabled, the rendered output is cached on the server for anonymous requests, see RenderedPageCache
+	public static final Property<Boolean> cacheRenderedOutput = new BooleanProperty("cacheRenderedOutput").defaultValue(false);
+
 
         public static final Property<String> path = new StringProperty("path").indexed();
 	public static final Property<Site> site = new StartNode<>("site", Pages.class, new UiNotion()).indexedWhenEmpty();
 
 	public static final org.structr.common.View publicView = new org.structr.common.View(Page.class, PropertyView.Public,
-		path, children, linkingElements, contentType, owner, cacheForSeconds, version, showOnErrorCodes, isPage, site, dontCache, pageCreatesRawData, enableBasicAuth, basicAuthRealm
+		path, children, linkingElements, contentType, owner, cacheForSeconds, version, showOnErrorCodes, isPage, site, dontCache, pageCreatesRawData, cacheRenderedOutput, enableBasicAuth, basicAuthRealm
 	);
 
 	public static final org.structr.common.View uiView = new org.structr.common.View(Page.class, PropertyView.Ui,
-		path, children, linkingElements, contentType, owner, cacheForSeconds, version, position, showOnErrorCodes, isPage, site, dontCache, pageCreatesRawData, enableBasicAuth, basicAuthRealm
+		path, children, linkingElements, contentType, owner, cacheForSeconds, version, position, showOnErrorCodes, isPage, site, dontCache, pageCreatesRawData, cacheRenderedOutput, enableBasicAuth, basicAuthRealm
 	);
 
 	private Html5DocumentType docTypeNode               = null;
@@ -682,6 +685,7 @@ public class Page extends DOMNode implements Linkable, Document, DOMImplementati
 	public void render(RenderContext renderContext, int depth) throws FrameworkException {
 
 		renderContext.setPage(this);
+		renderContext.addRenderedNode(this);
 
 		// Skip DOCTYPE node
 		DOMNode subNode = (DOMNode) this.getFirstChild().getNextSibling();
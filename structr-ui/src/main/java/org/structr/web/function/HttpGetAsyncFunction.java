@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.function;
+
+import java.util.HashMap;
+import org.structr.core.GraphObject;
+import org.structr.rest.common.HttpHelper;
+import org.structr.schema.action.ActionContext;
+import org.structr.schema.action.Function;
+
+/**
+ * Sends a GET request in the background and returns a future whose get()
+ * method returns the response body.
+ */
+public class HttpGetAsyncFunction extends Function<Object, Object> {
+
+	public static final String ERROR_MESSAGE_GET_ASYNC    = "GET_ASYNC() can only be used in JavaScript. Usage: ${{Structr.GET_ASYNC(URL[, username, password])}}. Example: ${{var f = Structr.GET_ASYNC('http://structr.org'); f.get();}}";
+	public static final String ERROR_MESSAGE_GET_ASYNC_JS = "Usage: ${{Structr.GET_ASYNC(URL[, username, password])}}. Example: ${{var f = Structr.GET_ASYNC('http://structr.org'); f.get();}}";
+
+	@Override
+	public String getName() {
+		return "GET_ASYNC()";
+	}
+
+	@Override
+	public Object apply(ActionContext ctx, final GraphObject entity, final Object[] sources) {
+
+		// the returned future is only useful in scripts
+		if (!ctx.isJavaScriptContext()) {
+
+			logger.warn("{}: {}", getName(), ERROR_MESSAGE_GET_ASYNC);
+			return usage(false);
+		}
+
+		if (sources != null && sources.length >= 1 && sources.length <= 3 && sources[0] != null) {
+
+			final String address = sources[0].toString();
+			String username      = null;
+			String password      = null;
+
+			switch (sources.length) {
+
+				case 3: password = sources[2] != null ? sources[2].toString() : null;
+				case 2: username = sources[1] != null ? sources[1].toString() : null;
+					break;
+			}
+
+			// the request is sent by a different thread
+			return HttpHelper.getAsync(address, username, password, new HashMap<>(ctx.getHeaders()));
+
+		} else {
+
+			logParameterError(entity, sources, ctx.isJavaScriptContext());
+		}
+
+		return usage(ctx.isJavaScriptContext());
+	}
+
+	@Override
+	public String usage(boolean inJavaScriptContext) {
+		return (inJavaScriptContext ? ERROR_MESSAGE_GET_ASYNC_JS : ERROR_MESSAGE_GET_ASYNC);
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Sends an HTTP GET request to the given URL in the background and returns a future for the response body (JavaScript only)";
+	}
+}
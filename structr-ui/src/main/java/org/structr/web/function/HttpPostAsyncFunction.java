@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.function;
+
+import java.util.HashMap;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.rest.common.HttpHelper;
+import org.structr.schema.action.ActionContext;
+import org.structr.schema.action.Function;
+
+/**
+ * Sends a POST request in the background and returns a future whose get()
+ * method returns a map with status, body and response headers.
+ */
+public class HttpPostAsyncFunction extends Function<Object, Object> {
+
+	public static final String ERROR_MESSAGE_POST_ASYNC    = "POST_ASYNC() can only be used in JavaScript. Usage: ${{Structr.POST_ASYNC(URL, body)}}. Example: ${{var f = Structr.POST_ASYNC('http://localhost:8082/structr/rest/folders', '{name:\"Test\"}'); f.get().status;}}";
+	public static final String ERROR_MESSAGE_POST_ASYNC_JS = "Usage: ${{Structr.POST_ASYNC(URL, body)}}. Example: ${{var f = Structr.POST_ASYNC('http://localhost:8082/structr/rest/folders', '{name:\"Test\"}'); f.get().status;}}";
+
+	@Override
+	public String getName() {
+		return "POST_ASYNC()";
+	}
+
+	@Override
+	public Object apply(ActionContext ctx, final GraphObject entity, final Object[] sources) throws FrameworkException {
+
+		// the returned future is only useful in scripts
+		if (!ctx.isJavaScriptContext()) {
+
+			logger.warn("{}: {}", getName(), ERROR_MESSAGE_POST_ASYNC);
+			return usage(false);
+		}
+
+		if (arrayHasMinLengthAndAllElementsNotNull(sources, 2)) {
+
+			// the request is sent by a different thread
+			return HttpHelper.postAsync(sources[0].toString(), sources[1].toString(), null, null, new HashMap<>(ctx.getHeaders()));
+
+		} else {
+
+			logParameterError(entity, sources, ctx.isJavaScriptContext());
+			return usage(ctx.isJavaScriptContext());
+		}
+	}
+
+	@Override
+	public String usage(boolean inJavaScriptContext) {
+		return (inJavaScriptContext ? ERROR_MESSAGE_POST_ASYNC_JS : ERROR_MESSAGE_POST_ASYNC);
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Sends an HTTP POST request to the given URL in the background and returns a future for the response (JavaScript only)";
+	}
+}
@@ -738,6 +738,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 			putIf(config, "dontCache",               node.getProperty(Page.dontCache));
 			putIf(config, "cacheForSeconds",         node.getProperty(Page.cacheForSeconds));
 			putIf(config, "pageCreatesRawData",      node.getProperty(Page.pageCreatesRawData));
+			putIf(config, "cacheRenderedOutput",     node.getProperty(Page.cacheRenderedOutput));
 			putIf(config, "basicAuthRealm",          node.getProperty(Page.basicAuthRealm));
 			putIf(config, "enableBasicAuth",         node.getProperty(Page.enableBasicAuth));
 		}
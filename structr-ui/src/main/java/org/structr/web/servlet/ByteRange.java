@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.servlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * A satisfiable byte range of an HTTP range request, see RFC 7233.
+ */
+public class ByteRange implements Comparable<ByteRange> {
+
+	public static final int MAX_RANGES = 16;
+
+	private long start = 0L;
+	private long end   = 0L;
+
+	public ByteRange(final long start, final long end) {
+
+		this.start = start;
+		this.end   = end;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	public String getContentRange(final long length) {
+		return "bytes " + start + "-" + end + "/" + length;
+	}
+
+	@Override
+	public int compareTo(final ByteRange other) {
+		return Long.compare(start, other.start);
+	}
+
+	@Override
+	public String toString() {
+		return start + "-" + end;
+	}
+
+	/**
+	 * Parses the given Range header for a resource of the given length.
+	 * Overlapping and adjacent ranges are coalesced.
+	 *
+	 * @param header the value of the Range header
+	 * @param length the length of the resource
+	 * @return the satisfiable ranges in ascending order, an empty list if
+	 * no range is satisfiable, or null if the header is invalid and must
+	 * be ignored
+	 */
+	public static List<ByteRange> parse(final String header, final long length) {
+
+		if (header == null || !header.startsWith("bytes=")) {
+			return null;
+		}
+
+		final List<ByteRange> ranges = new ArrayList<>();
+		final String[] parts         = StringUtils.split(header.substring(6), ',');
+
+		// a header without ranges is invalid, not unsatisfiable
+		if (parts.length == 0) {
+			return null;
+		}
+
+		for (final String part : parts) {
+
+			final String spec = part.trim();
+			final int pos     = spec.indexOf('-');
+
+			if (pos < 0) {
+				return null;
+			}
+
+			final String first = spec.substring(0, pos).trim();
+			final String last  = spec.substring(pos + 1).trim();
+
+			try {
+
+				if (first.isEmpty()) {
+
+					// suffix range: the last n bytes
+					if (last.isEmpty()) {
+						return null;
+					}
+
+					final long suffix = Long.parseLong(last);
+					if (suffix < 0) {
+						return null;
+					}
+
+					if (suffix > 0 && length > 0) {
+						ranges.add(new ByteRange(Math.max(0L, length - suffix), length - 1));
+					}
+
+				} else {
+
+					final long start = Long.parseLong(first);
+					final long end   = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+
+					if (start < 0 || end < start) {
+						return null;
+					}
+
+					if (start < length) {
+						ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+					}
+				}
+
+			} catch (NumberFormatException nfex) {
+				return null;
+			}
+		}
+
+		return coalesce(ranges);
+	}
+
+	// ----- private methods -----
+	private static List<ByteRange> coalesce(final List<ByteRange> ranges) {
+
+		if (ranges.size() < 2) {
+			return ranges;
+		}
+
+		final List<ByteRange> result = new ArrayList<>();
+		ByteRange current            = null;
+
+		Collections.sort(ranges);
+
+		for (final ByteRange range : ranges) {
+
+			if (current != null && range.start <= current.end + 1) {
+
+				current.end = Math.max(current.end, range.end);
+
+			} else {
+
+				current = new ByteRange(range.start, range.end);
+				result.add(current);
+			}
+		}
+
+		// too many distinct ranges, ignore the header and send the whole resource
+		if (result.size() > MAX_RANGES) {
+			return null;
+		}
+
+		return result;
+	}
+}
@@ -19,8 +19,11 @@
 package org.structr.web.servlet;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -29,19 +32,23 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
@@ -53,6 +60,7 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
+import org.eclipse.jetty.server.HttpOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.AccessMode;
@@ -85,6 +93,7 @@ import org.structr.web.auth.UiAuthenticator;
 import org.structr.web.common.FileHelper;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.RenderedPageCache;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
@@ -103,7 +112,9 @@ import org.structr.web.entity.dom.Page;
  */
 public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
-	private static final Logger logger = LoggerFactory.getLogger(HtmlServlet.class.getName());
+	private static final Logger logger                           = LoggerFactory.getLogger(HtmlServlet.class.getName());
+	private static final BlockingQueue<ByteBuffer> directBuffers = new ArrayBlockingQueue<>(32);
+	private static final int DIRECT_BUFFER_SIZE                 = 64 * 1024;
 
 	public static final String CONFIRM_REGISTRATION_PAGE = "/confirm_registration";
 	public static final String RESET_PASSWORD_PAGE       = "/reset-password";
@@ -129,6 +140,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 	private final StructrHttpServiceConfig config = new StructrHttpServiceConfig();
 	private final Set<String> possiblePropertyNamesForEntityResolving   = new LinkedHashSet<>();
+	private final RenderedPageCache pageCache                           = RenderedPageCache.getInstance();
 
 	private boolean isAsync = false;
 
@@ -205,6 +217,9 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 			app = StructrApp.getInstance(securityContext);
 
+			// must be obtained before any data is read, see RenderedPageCache.put()
+			final long cacheSequence = pageCache.getSequence();
+
 			try (final Tx tx = app.tx()) {
 
 				// Ensure access mode is frontend
@@ -424,9 +439,23 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 						setCustomResponseHeaders(response);
 
 						final boolean createsRawData = rootElement.getProperty(Page.pageCreatesRawData);
+						final String cacheKey        = getPageCacheKey(request, response, rootElement, user, edit, dontCache, renderContext);
+						final RenderedPageCache.Entry cachedPage = cacheKey != null ? pageCache.get(cacheKey) : null;
+
+						if (cachedPage != null) {
 
-						// async or not?
-						if (isAsync && !createsRawData) {
+							try {
+
+								response.getOutputStream().write(cachedPage.getContent());
+								response.getOutputStream().flush();
+								response.getOutputStream().close();
+
+							} catch (IOException ioex) {
+								logger.warn("", ioex);
+							}
+
+						// async or not? (cached output is rendered synchronously)
+						} else if (isAsync && !createsRawData && cacheKey == null) {
 
 							final AsyncContext async = request.startAsync();
 							final ServletOutputStream out = async.getResponse().getOutputStream();
@@ -520,12 +549,26 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 							final StringRenderBuffer buffer = new StringRenderBuffer();
 							renderContext.setBuffer(buffer);
 
+							if (cacheKey != null) {
+								renderContext.trackDependencies();
+							}
+
 							// render
 							rootElement.render(renderContext, 0);
 
+							final byte[] content = buffer.getBuffer().toString().getBytes("utf-8");
+
+							// status or redirect may have been set by the page
+							if (cacheKey != null && response.getStatus() == HttpServletResponse.SC_OK) {
+
+								final Integer seconds = rootElement.getProperty(Page.cacheForSeconds);
+
+								pageCache.put(cacheKey, content, seconds != null ? seconds : 0, renderContext.getDependencies(), renderContext.getDependentTypes(), cacheSequence);
+							}
+
 							try {
 
-								response.getOutputStream().write(buffer.getBuffer().toString().getBytes("utf-8"));
+								response.getOutputStream().write(content);
 								response.getOutputStream().flush();
 								response.getOutputStream().close();
 
@@ -1288,6 +1331,26 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 	}
 
+	/**
+	 * Returns the key for the rendered output of the given page in the
+	 * page cache, or null if the output must not be cached.
+	 */
+	private String getPageCacheKey(final HttpServletRequest request, final HttpServletResponse response, final DOMNode rootElement, final Principal user, final EditMode edit, final boolean dontCache, final RenderContext renderContext) {
+
+		// only anonymous GET requests for regular pages are cached
+		if (user != null || dontCache || !EditMode.NONE.equals(edit) || !"GET".equals(request.getMethod()) || response.getStatus() != HttpServletResponse.SC_OK) {
+			return null;
+		}
+
+		if (!(rootElement instanceof Page) || !rootElement.getProperty(Page.cacheRenderedOutput) || rootElement.getProperty(Page.pageCreatesRawData) || rootElement.getProperty(Page.enableBasicAuth)) {
+			return null;
+		}
+
+		final Locale locale = renderContext.getLocale();
+
+		return RenderedPageCache.getKey(rootElement.getUuid(), request.getPathInfo(), request.getQueryString(), locale != null ? locale.toString() : null);
+	}
+
 	private static boolean notModifiedSince(final HttpServletRequest request, HttpServletResponse response, final AbstractNode node, final boolean dontCache) {
 
 		boolean notModified = false;
@@ -1383,7 +1446,28 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 			callbackMap.put("requestedFileName", downloadAsFilename);
 		}
 
-		if (!EditMode.WIDGET.equals(edit) && notModifiedSince(request, response, file, false)) {
+		final String etag    = getETag(file);
+		boolean notModified = false;
+
+		if (etag != null) {
+			response.setHeader("ETag", etag);
+		}
+
+		if (!EditMode.WIDGET.equals(edit)) {
+
+			notModified = notModifiedSince(request, response, file, false);
+
+			// If-None-Match takes precedence over If-Modified-Since and is
+			// answered from the stored checksum without touching the file
+			final String ifNoneMatch = request.getHeader("If-None-Match");
+			if (etag != null && ifNoneMatch != null) {
+
+				notModified = matchesETag(ifNoneMatch, etag);
+				response.setStatus(notModified ? HttpServletResponse.SC_NOT_MODIFIED : HttpServletResponse.SC_OK);
+			}
+		}
+
+		if (notModified) {
 
 			out.flush();
 			out.close();
@@ -1406,84 +1490,80 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 			} else {
 
-				// 2b: stream file to response
-				final InputStream in = file.getInputStream();
-				final String contentType = file.getContentType();
+				final java.io.File fileOnDisk = FileHelper.getFile(file);
 
-				if (contentType != null) {
+				if (!fileOnDisk.isFile()) {
 
-					response.setContentType(contentType);
+					response.sendError(HttpServletResponse.SC_NOT_FOUND);
+					return;
+				}
 
-				} else {
+				// 2b: stream file to response
+				final String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
 
-					// Default
-					response.setContentType("application/octet-stream");
-				}
+				try (final FileChannel channel = FileChannel.open(fileOnDisk.toPath(), StandardOpenOption.READ)) {
 
-				final String range = request.getHeader("Range");
+					final long len         = channel.size();
+					final String range     = request.getHeader("Range");
+					final String ifRange   = request.getHeader("If-Range");
+					List<ByteRange> ranges = null;
 
-				try {
+					// Tell the client that we support byte ranges
+					response.setHeader("Accept-Ranges", "bytes");
 
-					if (StringUtils.isNotEmpty(range)) {
+					// a range request is only served if the client's copy is still current
+					if (StringUtils.isNotEmpty(range) && (ifRange == null || ifRange.equals(etag) || ifRange.equals(response.getHeader("Last-Modified")))) {
+						ranges = ByteRange.parse(range, len);
+					}
 
-						final long len = file.getSize();
-						long start     = 0;
-						long end       = len - 1;
+					if (ranges == null) {
 
-						final Matcher matcher = Pattern.compile("bytes=(?<start>\\d*)-(?<end>\\d*)").matcher(range);
+						response.setContentType(contentType);
+						response.setHeader("Content-Length", Long.toString(len));
+						response.setStatus(HttpServletResponse.SC_OK);
+						callbackMap.put("statusCode", HttpServletResponse.SC_OK);
 
-						if (matcher.matches()) {
-							String startGroup = matcher.group("start");
-							start = startGroup.isEmpty() ? start : Long.valueOf(startGroup);
-							start = Math.max(0, start);
+						writeRegion(channel, out, 0L, len);
 
-							String endGroup = matcher.group("end");
-							end = endGroup.isEmpty() ? end : Long.valueOf(endGroup);
-							end = end > len - 1 ? len - 1 : end;
-						}
+					} else if (ranges.isEmpty()) {
 
-						long contentLength = end - start + 1;
+						response.setHeader("Content-Range", "bytes */" + len);
+						response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+						callbackMap.put("statusCode", HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
 
-						// Tell the client that we support byte ranges
-						response.setHeader("Accept-Ranges", "bytes");
-						response.setHeader("Content-Range", String.format("bytes %s-%s/%s", start, end, len));
-						response.setHeader("Content-Length", String.format("%s", contentLength));
+					} else if (ranges.size() == 1) {
 
+						final ByteRange byteRange = ranges.get(0);
+
+						response.setContentType(contentType);
+						response.setHeader("Content-Range", byteRange.getContentRange(len));
+						response.setHeader("Content-Length", Long.toString(byteRange.getLength()));
 						response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
 						callbackMap.put("statusCode", HttpServletResponse.SC_PARTIAL_CONTENT);
 
-						IOUtils.copyLarge(in, out, start, contentLength);
+						writeRegion(channel, out, byteRange.getStart(), byteRange.getLength());
 
 					} else {
 
-						response.setStatus(HttpServletResponse.SC_OK);
-						callbackMap.put("statusCode", HttpServletResponse.SC_OK);
-
-						IOUtils.copyLarge(in, out);
+						response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+						callbackMap.put("statusCode", HttpServletResponse.SC_PARTIAL_CONTENT);
 
+						writeMultipartRanges(channel, response, out, ranges, contentType, len);
 					}
 
-
 				} catch (Throwable t) {
 
-				} finally {
+					logger.debug("Unable to stream file {}: {}", file.getUuid(), t.getMessage());
 
-					if (out != null) {
-
-						try {
-							// 3: output content
-							out.flush();
-							out.close();
+				} finally {
 
-						} catch (Throwable t) {
-						}
-					}
+					try {
+						// 3: output content
+						out.flush();
+						out.close();
 
-					if (in != null) {
-						in.close();
+					} catch (Throwable t) {
 					}
-
-					response.setStatus(HttpServletResponse.SC_OK);
 				}
 			}
 		}
@@ -1713,6 +1793,134 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 		}
 	}
 
+	/**
+	 * Returns a strong entity tag for the given file, built from the
+	 * stored checksum and size, or null if the checksum is unknown.
+	 */
+	private static String getETag(final FileBase file) {
+
+		final Long checksum = file.getChecksum();
+		final Long size     = file.getSize();
+
+		if (checksum != null && size != null) {
+			return "\"" + Long.toHexString(checksum) + "-" + Long.toHexString(size) + "\"";
+		}
+
+		return null;
+	}
+
+	private static boolean matchesETag(final String header, final String etag) {
+
+		for (final String value : StringUtils.split(header, ',')) {
+
+			final String tag = StringUtils.removeStart(value.trim(), "W/");
+
+			if ("*".equals(tag) || etag.equals(tag)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Writes the given region of the file to the response using positioned
+	 * reads, so the file is never read from the start to reach the region.
+	 * The Jetty output writes pooled direct buffers without copying them,
+	 * other outputs get a small heap buffer.
+	 */
+	private static void writeRegion(final FileChannel channel, final ServletOutputStream out, final long start, final long length) throws IOException {
+
+		long position  = start;
+		long remaining = length;
+
+		if (out instanceof HttpOutput) {
+
+			final HttpOutput httpOutput = (HttpOutput) out;
+			ByteBuffer buffer           = directBuffers.poll();
+
+			if (buffer == null) {
+				buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+			}
+
+			try {
+
+				while (remaining > 0) {
+
+					buffer.clear();
+					buffer.limit((int) Math.min(buffer.capacity(), remaining));
+
+					final int read = channel.read(buffer, position);
+					if (read < 0) {
+						break;
+					}
+
+					buffer.flip();
+
+					// blocking write, the buffer can be reused afterwards
+					httpOutput.write(buffer);
+
+					position  += read;
+					remaining -= read;
+				}
+
+			} finally {
+
+				buffer.clear();
+				directBuffers.offer(buffer);
+			}
+
+		} else {
+
+			final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+			while (remaining > 0) {
+
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), remaining));
+
+				final int read = channel.read(buffer, position);
+				if (read < 0) {
+					break;
+				}
+
+				out.write(buffer.array(), 0, read);
+
+				position  += read;
+				remaining -= read;
+			}
+		}
+	}
+
+	private static void writeMultipartRanges(final FileChannel channel, final HttpServletResponse response, final ServletOutputStream out, final List<ByteRange> ranges, final String contentType, final long len) throws IOException {
+
+		final String boundary     = UUID.randomUUID().toString().replace("-", "");
+		final List<byte[]> heads  = new LinkedList<>();
+		final byte[] tail         = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+		long contentLength        = tail.length;
+
+		for (final ByteRange range : ranges) {
+
+			final byte[] head = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: " + range.getContentRange(len) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+			heads.add(head);
+			contentLength += head.length + range.getLength();
+		}
+
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		response.setHeader("Content-Length", Long.toString(contentLength));
+
+		final Iterator<byte[]> headIterator = heads.iterator();
+
+		for (final ByteRange range : ranges) {
+
+			out.write(headIterator.next());
+			writeRegion(channel, out, range.getStart(), range.getLength());
+		}
+
+		out.write(tail);
+	}
+
 	// ----- nested classes -----
 	private enum AuthState {
 		NoBasicAuth, MustAuthenticate, Authenticated
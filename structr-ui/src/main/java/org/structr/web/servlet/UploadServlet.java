@@ -20,10 +20,8 @@ package org.structr.web.servlet;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.InputStream;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import javax.servlet.ServletException;
@@ -31,10 +29,11 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.fileupload.util.Streams;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -53,6 +52,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.auth.exception.AuthenticationException;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.rest.service.HttpServiceServlet;
@@ -76,13 +76,11 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 	private static final String REDIRECT_AFTER_UPLOAD_PARAMETER    = "redirectOnSuccess";
 	private static final String APPEND_UUID_ON_REDIRECT            = "appendUuidOnRedirect";
 	private static final int MEGABYTE                              = 1024 * 1024;
-	private static final int MEMORY_THRESHOLD                      = 10 * MEGABYTE;  // above 10 MB, files are stored on disk
 	private static final String MAX_FILE_SIZE                      = "1000"; // unit is MB
 	private static final String MAX_REQUEST_SIZE                   = "1000"; // unit is MB
 
 	// non-static fields
 	private ServletFileUpload uploader = null;
-	private File filesDir = null;
 	private final StructrHttpServiceConfig config = new StructrHttpServiceConfig();
 
 	public UploadServlet() {
@@ -97,24 +95,8 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 	@Override
 	public void init() {
 
-		try (final Tx tx = StructrApp.getInstance().tx()) {
-			DiskFileItemFactory fileFactory = new DiskFileItemFactory();
-			fileFactory.setSizeThreshold(MEMORY_THRESHOLD);
-
-			filesDir = new File(Services.getInstance().getConfigurationValue(Services.TMP_PATH)); // new File(Services.getInstance().getTmpPath());
-			if (!filesDir.exists()) {
-				filesDir.mkdir();
-			}
-
-			fileFactory.setRepository(filesDir);
-			uploader = new ServletFileUpload(fileFactory);
-
-			tx.success();
-
-		} catch (FrameworkException t) {
-
-			logger.warn("", t);
-		}
+		// use the streaming API, uploaded files are written to their storage path directly
+		uploader = new ServletFileUpload();
 	}
 
 	@Override
@@ -202,30 +184,30 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 
 			response.setContentType("text/html");
 
-			List<FileItem> fileItemsList = uploader.parseRequest(request);
-			Iterator<FileItem> fileItemsIterator = fileItemsList.iterator();
-
-			final Map<String, Object> params = new HashMap<>();
+			final FileItemIterator fileItemsIterator = uploader.getItemIterator(request);
+			final Map<String, Object> params         = new HashMap<>();
 
+			// form fields must precede the file in the request body to be applied to it
 			while (fileItemsIterator.hasNext()) {
 
-				final FileItem item = fileItemsIterator.next();
+				final FileItemStream item = fileItemsIterator.next();
 
 				if (item.isFormField()) {
 
 					final String fieldName = item.getFieldName();
+					final String value     = getString(item);
 
 					if (REDIRECT_AFTER_UPLOAD_PARAMETER.equals(fieldName)) {
 
-						redirectUrl = item.getString();
+						redirectUrl = value;
 
 					} else if (APPEND_UUID_ON_REDIRECT.equals(fieldName)) {
 
-						appendUuidOnRedirect = "true".equalsIgnoreCase(item.getString());
+						appendUuidOnRedirect = "true".equalsIgnoreCase(value);
 
 					} else {
 
-						params.put(item.getFieldName(), item.getString());
+						params.put(fieldName, value);
 					}
 
 				} else {
@@ -266,10 +248,24 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 							}
 						}
 
-						final String name = item.getName().replaceAll("\\\\", "/");
-						FileBase newFile  = null;
-						String uuid       = null;
-						boolean retry     = true;
+						final String name       = item.getName().replaceAll("\\\\", "/");
+						final String uuid       = NodeServiceCommand.getNextUuid();
+						final File fileOnDisk   = FileHelper.getFile(uuid);
+						FileBase newFile        = null;
+						boolean retry           = true;
+						long checksum           = 0L;
+
+						// stream the upload to its storage path before the transaction
+						// so that a retry does not need to read the request again
+						try (final InputStream is = item.openStream()) {
+
+							checksum = FileHelper.writeToFile(fileOnDisk, is);
+
+						} catch (IOException ioex) {
+
+							fileOnDisk.delete();
+							throw ioex;
+						}
 
 						while (retry) {
 
@@ -277,7 +273,7 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 
 							try (final Tx tx = StructrApp.getInstance().tx()) {
 
-								newFile = FileHelper.createFile(securityContext, IOUtils.toByteArray(item.getInputStream()), contentType, cls);
+								newFile = FileHelper.createFile(securityContext, uuid, checksum, contentType, cls, null);
 
 								final PropertyMap changedProperties = new PropertyMap();
 
@@ -303,12 +299,16 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 									newFile.setProperty(AbstractNode.name, PathHelper.getName(name).concat("_").concat(FileHelper.getDateString()));
 								}
 
-								uuid = newFile.getUuid();
-
 								tx.success();
 
 							} catch (RetryException rex) {
+
 								retry = true;
+
+							} catch (FrameworkException | IOException ex) {
+
+								fileOnDisk.delete();
+								throw ex;
 							}
 						}
 
@@ -410,12 +410,15 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 			uploader.setFileSizeMax(MEGABYTE * Long.parseLong(StructrApp.getConfigurationValue("UploadServlet.maxFileSize", MAX_FILE_SIZE)));
 			uploader.setSizeMax(MEGABYTE * Long.parseLong(StructrApp.getConfigurationValue("UploadServlet.maxRequestSize", MAX_REQUEST_SIZE)));
 
-			List<FileItem> fileItemsList = uploader.parseRequest(request);
-			Iterator<FileItem> fileItemsIterator = fileItemsList.iterator();
+			final FileItemIterator fileItemsIterator = uploader.getItemIterator(request);
 
 			while (fileItemsIterator.hasNext()) {
 
-				final FileItem fileItem = fileItemsIterator.next();
+				final FileItemStream fileItem = fileItemsIterator.next();
+
+				if (fileItem.isFormField()) {
+					continue;
+				}
 
 				try {
 
@@ -433,7 +436,11 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 						final org.structr.dynamic.File file = (org.structr.dynamic.File) node;
 						if (file.isGranted(Permission.write, securityContext)) {
 
-							FileHelper.writeToFile(file, fileItem.getInputStream());
+							try (final InputStream is = fileItem.openStream()) {
+
+								FileHelper.writeToFile(file, is);
+							}
+
 							file.increaseVersion();
 
 							// upload trigger
@@ -462,6 +469,15 @@ public class UploadServlet extends HttpServlet implements HttpServiceServlet {
 		}
 	}
 
+	// ----- private methods -----
+	private String getString(final FileItemStream item) throws IOException {
+
+		try (final InputStream is = item.openStream()) {
+
+			return Streams.asString(is, "UTF-8");
+		}
+	}
+
 	private String errorPage(final Throwable t) {
 		return "<html><head><title>Error in Upload</title></head><body><h1>Error in Upload</h1><p>" + t.toString() + "</p>\n<!--" + ExceptionUtils.getStackTrace(t) + "--></body></html>";
 	}
@@ -0,0 +1,285 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.websocket;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous dispatcher for serialized websocket broadcast messages.
+ *
+ * Every client has its own bounded send queue which is drained by a small,
+ * fixed pool of worker threads, so a slow client can never block the
+ * committing thread or other clients. Messages for a single client are
+ * always sent in order.
+ *
+ * When the queue of a client is full, a queued update for the same object
+ * is dropped in favour of the new one; if there is none, the oldest queued
+ * update is dropped, and if the queue contains no updates at all, the new
+ * message is discarded.
+ */
+public class WebSocketBroadcastDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(WebSocketBroadcastDispatcher.class.getName());
+
+	private final Map<StructrWebSocket, ClientQueue> queues = new ConcurrentHashMap<>();
+	private final LongAdder sent                            = new LongAdder();
+	private final LongAdder coalesced                       = new LongAdder();
+	private final LongAdder dropped                         = new LongAdder();
+	private WebsocketController controller                  = null;
+	private ExecutorService executor                        = null;
+	private int queueSize                                   = 0;
+
+	public WebSocketBroadcastDispatcher(final WebsocketController controller, final int threads, final int queueSize) {
+
+		final AtomicInteger count = new AtomicInteger();
+
+		this.controller = controller;
+		this.queueSize  = Math.max(1, queueSize);
+		this.executor   = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+
+			final Thread thread = new Thread(r, "WebSocketBroadcast-" + count.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * Enqueues the given message for the given client.
+	 *
+	 * @param socket the client
+	 * @param message the serialized message
+	 * @param coalesceKey key of messages that can be superseded by a newer message with the same key, or null
+	 */
+	public void dispatch(final StructrWebSocket socket, final String message, final String coalesceKey) {
+
+		final ClientQueue queue = queues.computeIfAbsent(socket, ClientQueue::new);
+
+		queue.offer(new Entry(coalesceKey, message));
+		queue.schedule();
+	}
+
+	public void remove(final StructrWebSocket socket) {
+		queues.remove(socket);
+	}
+
+	public void shutdown() {
+
+		executor.shutdownNow();
+		queues.clear();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+		long queued                        = 0L;
+
+		for (final ClientQueue queue : queues.values()) {
+			queued += queue.size();
+		}
+
+		statistics.put("clients",   (long)queues.size());
+		statistics.put("queued",    queued);
+		statistics.put("sent",      sent.sum());
+		statistics.put("coalesced", coalesced.sum());
+		statistics.put("dropped",   dropped.sum());
+
+		return statistics;
+	}
+
+	// ----- protected methods -----
+	/**
+	 * Sends the given message to the given client.
+	 *
+	 * @param socket the client
+	 * @param message the serialized message
+	 * @return false if the client is gone and should be unregistered
+	 */
+	protected boolean send(final StructrWebSocket socket, final String message) {
+
+		final Session session = socket.getSession();
+		if (session != null) {
+
+			try {
+
+				session.getRemote().sendString(message);
+				sent.increment();
+
+			} catch (Throwable t) {
+
+				if (t instanceof WebSocketException) {
+
+					WebSocketException wse = (WebSocketException) t;
+
+					if ("RemoteEndpoint unavailable, current state [CLOSED], expecting [OPEN or CONNECTED]".equals(wse.getMessage())) {
+						return false;
+					}
+				}
+
+				logger.debug("Error sending message to client.", t);
+			}
+		}
+
+		return true;
+	}
+
+	// ----- nested classes -----
+	private static class Entry {
+
+		private String key     = null;
+		private String message = null;
+
+		public Entry(final String key, final String message) {
+
+			this.key     = key;
+			this.message = message;
+		}
+	}
+
+	private class ClientQueue {
+
+		private final Deque<Entry> entries     = new ArrayDeque<>();
+		private final AtomicBoolean scheduled  = new AtomicBoolean(false);
+		private StructrWebSocket socket        = null;
+
+		public ClientQueue(final StructrWebSocket socket) {
+			this.socket = socket;
+		}
+
+		public synchronized int size() {
+			return entries.size();
+		}
+
+		public synchronized void offer(final Entry entry) {
+
+			if (entries.size() >= queueSize) {
+
+				if (!removeStale(entry.key)) {
+
+					// nothing can be dropped, discard new message
+					dropped.increment();
+					return;
+				}
+			}
+
+			entries.add(entry);
+		}
+
+		public void schedule() {
+
+			if (scheduled.compareAndSet(false, true)) {
+
+				try {
+					executor.execute(this::drain);
+
+				} catch (Throwable t) {
+
+					scheduled.set(false);
+					logger.debug("Unable to schedule websocket broadcast.", t);
+				}
+			}
+		}
+
+		// ----- private methods -----
+		private synchronized Entry poll() {
+			return entries.poll();
+		}
+
+		private synchronized boolean isEmpty() {
+			return entries.isEmpty();
+		}
+
+		private boolean removeStale(final String key) {
+
+			Entry oldestUpdate = null;
+
+			if (key != null) {
+
+				for (final Iterator<Entry> it = entries.iterator(); it.hasNext();) {
+
+					final Entry queued = it.next();
+					if (key.equals(queued.key)) {
+
+						it.remove();
+						coalesced.increment();
+						return true;
+					}
+				}
+			}
+
+			for (final Entry queued : entries) {
+
+				if (queued.key != null) {
+
+					oldestUpdate = queued;
+					break;
+				}
+			}
+
+			if (oldestUpdate != null) {
+
+				entries.remove(oldestUpdate);
+				dropped.increment();
+				return true;
+			}
+
+			return false;
+		}
+
+		private void drain() {
+
+			Entry entry = poll();
+
+			while (entry != null) {
+
+				if (!send(socket, entry.message)) {
+
+					// client is gone, discard everything
+					controller.unregisterClient(socket);
+					logger.warn("Client removed from broadcast list: {}", socket);
+
+					return;
+				}
+
+				entry = poll();
+			}
+
+			scheduled.set(false);
+
+			// a message may have been enqueued after the last poll
+			if (!isEmpty()) {
+				schedule();
+			}
+		}
+	}
+}
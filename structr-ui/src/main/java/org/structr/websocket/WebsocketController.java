@@ -19,8 +19,11 @@
 package org.structr.websocket;
 
 import com.google.gson.Gson;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,16 +32,18 @@ import java.util.Set;
 import org.eclipse.jetty.util.ConcurrentHashSet;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.WebSocketException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.graph.RelationshipType;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.Services;
 import org.structr.core.StructrTransactionListener;
 import org.structr.core.TransactionSource;
+import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.Principal;
 import org.structr.core.graph.ModificationEvent;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
@@ -56,13 +61,26 @@ public class WebsocketController implements StructrTransactionListener {
 	private static final Logger logger                 = LoggerFactory.getLogger(WebsocketController.class.getName());
 	private static final Set<String> BroadcastCommands = new HashSet<>(Arrays.asList(new String[] { "UPDATE", "ADD", "CREATE" } ));
 
-	private final Set<StructrWebSocket> clients = new ConcurrentHashSet<>();
-	private Gson gson = null;
+	private final Set<StructrWebSocket> clients        = new ConcurrentHashSet<>();
+	private WebSocketBroadcastDispatcher dispatcher    = null;
+	private Gson gson                                  = null;
 
 	public WebsocketController(final Gson gson) {
 
-		this.gson = gson;
+		this.gson       = gson;
+		this.dispatcher = new WebSocketBroadcastDispatcher(this,
+			Services.parseInt(StructrApp.getConfigurationValue(Services.WS_BROADCAST_THREADS), 4),
+			Services.parseInt(StructrApp.getConfigurationValue(Services.WS_BROADCAST_QUEUE_SIZE), 1000)
+		);
 
+		Services.getInstance().registerStatisticsProvider("websocketBroadcast", this::getBroadcastStatistics);
+	}
+
+	public void shutdown() {
+
+		Services.getInstance().removeStatisticsProvider("websocketBroadcast");
+		dispatcher.shutdown();
+		clients.clear();
 	}
 
 	public void registerClient(final StructrWebSocket client) {
@@ -74,7 +92,12 @@ public class WebsocketController implements StructrTransactionListener {
 	public void unregisterClient(final StructrWebSocket client) {
 
 		clients.remove(client);
+		dispatcher.remove(client);
+
+	}
 
+	public Map<String, Long> getBroadcastStatistics() {
+		return dispatcher.getStatistics();
 	}
 
 	// ----- private methods -----
@@ -84,16 +107,19 @@ public class WebsocketController implements StructrTransactionListener {
 		// session must be valid to be received by the client
 		webSocketData.setSessionValid(true);
 
-		final String pagePath                        = (String) webSocketData.getNodeData().get("pagePath");
-		final String encodedPath                     = URIUtil.encodePath(pagePath);
-		final List<StructrWebSocket> clientsToRemove = new LinkedList<>();
-		final List<? extends GraphObject> result     = webSocketData.getResult();
-		final String command                         = webSocketData.getCommand();
-		final GraphObject obj                        = webSocketData.getGraphObject();
+		final String pagePath                    = (String) webSocketData.getNodeData().get("pagePath");
+		final String encodedPath                 = URIUtil.encodePath(pagePath);
+		final List<? extends GraphObject> result = webSocketData.getResult();
+		final String command                     = webSocketData.getCommand();
+		final GraphObject obj                    = webSocketData.getGraphObject();
+		final String coalesceKey                 = "UPDATE".equals(command) ? webSocketData.getId() : null;
 
-		String message;
+		// clients with the same effective permissions receive the same message,
+		// and clients with different permissions but identical visible results
+		// share the same serialized payload
+		final Map<String, String> messagesByPrincipal = new HashMap<>();
+		final Map<List<String>, String> payloads      = new HashMap<>();
 
-		// create message
 		for (StructrWebSocket socket : clients) {
 
 			String clientPagePath = socket.getPagePath();
@@ -105,68 +131,87 @@ public class WebsocketController implements StructrTransactionListener {
 
 			if (session != null && socket.isAuthenticated()) {
 
-				final SecurityContext securityContext = socket.getSecurityContext();
-
-				// if the object IS NOT of type AbstractNode AND the client is NOT priviledged OR
-				// if the object IS of type AbstractNode AND the client has no access to the node
-				// THEN skip sending a message
-				if (obj instanceof AbstractNode) {
+				final String principalKey = getPrincipalKey(socket);
+				final String message;
 
-					final AbstractNode node = (AbstractNode)obj;
+				if (messagesByPrincipal.containsKey(principalKey)) {
 
-					if (node.isHidden() || !securityContext.isVisible(node)) {
-						continue;
-					}
+					message = messagesByPrincipal.get(principalKey);
 
 				} else {
 
-					if (!socket.isPrivilegedUser(socket.getCurrentUser())) {
-						continue;
-					}
+					message = serialize(socket, webSocketData, obj, result, command, payloads);
+					messagesByPrincipal.put(principalKey, message);
 				}
 
-				if (result != null && !result.isEmpty() && BroadcastCommands.contains(command)) {
+				if (message != null) {
+					dispatcher.dispatch(socket, message, coalesceKey);
+				}
+			}
+		}
+	}
 
-					final WebSocketMessage clientData = webSocketData.copy();
+	private String serialize(final StructrWebSocket socket, final WebSocketMessage webSocketData, final GraphObject obj, final List<? extends GraphObject> result, final String command, final Map<List<String>, String> payloads) {
 
-					clientData.setResult(filter(securityContext, result));
+		final SecurityContext securityContext = socket.getSecurityContext();
 
-					message = gson.toJson(clientData, WebSocketMessage.class);
+		// if the object IS NOT of type AbstractNode AND the client is NOT priviledged OR
+		// if the object IS of type AbstractNode AND the client has no access to the node
+		// THEN skip sending a message
+		if (obj instanceof AbstractNode) {
 
-				} else {
+			final AbstractNode node = (AbstractNode)obj;
 
-					message = gson.toJson(webSocketData, WebSocketMessage.class);
-				}
+			if (node.isHidden() || !securityContext.isVisible(node)) {
+				return null;
+			}
 
-				try {
+		} else {
 
-					session.getRemote().sendString(message);
+			if (!socket.isPrivilegedUser(socket.getCurrentUser())) {
+				return null;
+			}
+		}
 
-				} catch (Throwable t) {
+		if (result != null && !result.isEmpty() && BroadcastCommands.contains(command)) {
 
-					if (t instanceof WebSocketException) {
+			final List<? extends GraphObject> filteredResult = filter(securityContext, result);
+			final List<String> payloadKey                    = new ArrayList<>(filteredResult.size());
 
-						WebSocketException wse = (WebSocketException) t;
+			for (final GraphObject graphObject : filteredResult) {
+				payloadKey.add(graphObject.getUuid());
+			}
 
-						if ("RemoteEndpoint unavailable, current state [CLOSED], expecting [OPEN or CONNECTED]".equals(wse.getMessage())) {
-							clientsToRemove.add(socket);
-						}
-					}
+			String message = payloads.get(payloadKey);
+			if (message == null) {
 
-					logger.debug("Error sending message to client.", t);
-				}
+				final WebSocketMessage clientData = webSocketData.copy();
+
+				clientData.setResult(filteredResult);
 
+				message = gson.toJson(clientData, WebSocketMessage.class);
+				payloads.put(payloadKey, message);
 			}
 
+			return message;
 		}
 
-		for (StructrWebSocket s : clientsToRemove) {
+		String message = payloads.get(Collections.<String>emptyList());
+		if (message == null) {
 
-			unregisterClient(s);
-
-			logger.warn("Client removed from broadcast list: {}", s);
+			message = gson.toJson(webSocketData, WebSocketMessage.class);
+			payloads.put(Collections.<String>emptyList(), message);
 		}
 
+		return message;
+	}
+
+	private String getPrincipalKey(final StructrWebSocket socket) {
+
+		final SecurityContext securityContext = socket.getSecurityContext();
+		final Principal user                  = socket.getCurrentUser();
+
+		return (user != null ? user.getUuid() : "anonymous") + ":" + securityContext.getAccessMode() + ":" + securityContext.isSuperUser();
 	}
 
 	private <T extends GraphObject> List<T> filter(final SecurityContext securityContext, final List<T> all) {
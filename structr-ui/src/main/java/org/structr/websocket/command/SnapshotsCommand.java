@@ -52,6 +52,7 @@ public class SnapshotsCommand extends AbstractCommand {
 	private static final Logger logger                            = LoggerFactory.getLogger(SnapshotsCommand.class.getName());
 	private static final Property<List<String>> snapshotsProperty = new GenericProperty<>("snapshots");
 	private static final Property<String> statusProperty          = new GenericProperty<>("status");
+	private static final Property<Map> progressProperty           = new GenericProperty<>("progress");
 
 	static {
 
@@ -94,6 +95,14 @@ public class SnapshotsCommand extends AbstractCommand {
 					}
 					break;
 
+				case "status":
+
+					final GraphObjectMap progressContainer = new GraphObjectMap();
+
+					progressContainer.put(progressProperty, SnapshotCommand.getDataSnapshotStatus());
+					result.add(progressContainer);
+					break;
+
 				case "get":
 
 					final Path snapshotFile = Paths.get(SnapshotCommand.getBasePath() + name);
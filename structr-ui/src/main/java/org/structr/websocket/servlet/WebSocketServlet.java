@@ -44,6 +44,7 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.servlet.WebSoc
 	private static final int MAX_TEXT_MESSAGE_SIZE = 1024 * 1024;
 
 	private final StructrHttpServiceConfig config = new StructrHttpServiceConfig();
+	private WebsocketController syncController    = null;
 
 	@Override
 	public StructrHttpServiceConfig getConfig() {
@@ -71,7 +72,7 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.servlet.WebSoc
 
 		final Gson gson = gsonBuilder.create();
 
-		final WebsocketController syncController = new WebsocketController(gson);
+		syncController = new WebsocketController(gson);
 
 		// register (Structr) transaction listener
 		TransactionCommand.registerTransactionListener(syncController);
@@ -87,4 +88,18 @@ public class WebSocketServlet extends org.eclipse.jetty.websocket.servlet.WebSoc
 		factory.getPolicy().setMaxTextMessageSize(MAX_TEXT_MESSAGE_SIZE);
 
 	}
+
+	@Override
+	public void destroy() {
+
+		if (syncController != null) {
+
+			TransactionCommand.removeTransactionListener(syncController);
+			syncController.shutdown();
+
+			syncController = null;
+		}
+
+		super.destroy();
+	}
 }
@@ -53,6 +53,8 @@ import org.structr.web.entity.User;
 import org.structr.web.entity.dom.DOMElement;
 import org.structr.web.entity.dom.DOMNode;
 import org.structr.web.entity.dom.Page;
+import org.structr.web.function.HttpGetAsyncFunction;
+import org.structr.web.function.HttpPostAsyncFunction;
 import org.w3c.dom.NodeList;
 
 
@@ -527,6 +529,10 @@ public class RenderContextTest extends StructrUiTest {
 			// test GET REST access
 			assertEquals("Invalid GET notation result", page.getName(), Scripting.replaceVariables(ctx, p1, "${from_json(GET('http://localhost:" + httpPort + "/structr/rest/pages/ui')).result[0].name}"));
 
+			// test asynchronous GET, the returned future can only be used in JavaScript
+			assertEquals("Invalid GET_ASYNC result", page.getName(), Scripting.replaceVariables(ctx, p1, "${{ return JSON.parse(Structr.GET_ASYNC('http://localhost:" + httpPort + "/structr/rest/pages/ui').get()).result[0].name; }}"));
+			assertEquals("Invalid GET_ASYNC result", HttpGetAsyncFunction.ERROR_MESSAGE_GET_ASYNC, Scripting.replaceVariables(ctx, p1, "${GET_ASYNC('http://localhost:" + httpPort + "/structr/rest/pages/ui')}"));
+
 			grant("Folder", 64, true);
 			grant("_login", 64, false);
 
@@ -534,6 +540,10 @@ public class RenderContextTest extends StructrUiTest {
 			assertEquals("Invalid POST result", "1.0",                             Scripting.replaceVariables(ctx, page, "${POST('http://localhost:" + httpPort + "/structr/rest/folders', '{name:result_count}').body.result_count}"));
 			assertEquals("Invalid POST result", "application/json; charset=utf-8", Scripting.replaceVariables(ctx, page, "${POST('http://localhost:" + httpPort + "/structr/rest/folders', '{name:content-type}').headers.Content-Type}"));
 
+			// test asynchronous POST
+			assertEquals("Invalid POST_ASYNC result", "201",                       Scripting.replaceVariables(ctx, page, "${{ return Structr.POST_ASYNC('http://localhost:" + httpPort + "/structr/rest/folders', '{name:async}').get().get('status'); }}"));
+			assertEquals("Invalid POST_ASYNC result", HttpPostAsyncFunction.ERROR_MESSAGE_POST_ASYNC, Scripting.replaceVariables(ctx, page, "${POST_ASYNC('http://localhost:" + httpPort + "/structr/rest/folders', '{name:async2}')}"));
+
 			// test POST with invalid name containing curly braces to provoke 422
 			assertEquals("Invalid POST result", "422",                             Scripting.replaceVariables(ctx, page, "${POST('http://localhost:" + httpPort + "/structr/rest/folders', '{name:\"ShouldFail/xyz\"}').status}"));
 
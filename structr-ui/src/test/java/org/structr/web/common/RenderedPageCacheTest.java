@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class RenderedPageCacheTest {
+
+	@Test
+	public void testInvalidation() {
+
+		final RenderedPageCache cache = new RenderedPageCache(10);
+		final String key1             = RenderedPageCache.getKey("page1", "/index", null, "en");
+		final String key2             = RenderedPageCache.getKey("page1", "/index", "a=b", "en");
+
+		assertTrue(cache.put(key1, bytes("one"), 0, set("page1", "node1", "data1"), set("Article"), cache.getSequence()));
+		assertTrue(cache.put(key2, bytes("two"), 0, set("page1", "node1", "data2"), set("Comment"), cache.getSequence()));
+
+		assertEquals("one", new String(cache.get(key1).getContent()));
+		assertEquals("two", new String(cache.get(key2).getContent()));
+
+		// unrelated object
+		cache.invalidate("data3");
+		assertEquals(2, cache.size());
+
+		cache.invalidate("data1");
+		assertNull(cache.get(key1));
+		assertNotNull(cache.get(key2));
+
+		cache.invalidateType("Article");
+		assertNotNull(cache.get(key2));
+
+		cache.invalidateType("Comment");
+		assertNull(cache.get(key2));
+		assertEquals(0, cache.size());
+
+		final Map<String, Long> stats = cache.getStatistics();
+
+		assertEquals(Long.valueOf(4), stats.get("hits"));
+		assertEquals(Long.valueOf(2), stats.get("misses"));
+		assertEquals(Long.valueOf(66), stats.get("hitRatio"));
+		assertEquals(Long.valueOf(2), stats.get("invalidated"));
+	}
+
+	@Test
+	public void testConcurrentModification() {
+
+		final RenderedPageCache cache = new RenderedPageCache(10);
+		final String key              = RenderedPageCache.getKey("page1", "/index", null, "en");
+		final long sequence           = cache.getSequence();
+
+		// a commit happens while the page is rendered
+		cache.invalidate("data1");
+
+		assertFalse(cache.put(key, bytes("stale"), 0, set("page1", "data1"), set(), sequence));
+		assertNull(cache.get(key));
+		assertEquals(Long.valueOf(1), cache.getStatistics().get("skipped"));
+	}
+
+	@Test
+	public void testUnrelatedModification() {
+
+		final RenderedPageCache cache = new RenderedPageCache(10);
+		final String key              = RenderedPageCache.getKey("page1", "/index", null, "en");
+		final long sequence           = cache.getSequence();
+
+		// commits that modify other objects and types while the page is rendered
+		cache.invalidate("data2");
+		cache.invalidateType("Comment");
+
+		assertTrue(cache.put(key, bytes("content"), 0, set("page1", "data1"), set("Article"), sequence));
+		assertNotNull(cache.get(key));
+
+		// a modified type of the page prevents storage as well
+		final long next = cache.getSequence();
+
+		cache.invalidateType("Article");
+
+		assertFalse(cache.put(key, bytes("stale"), 0, set("page1", "data1"), set("Article"), next));
+	}
+
+	@Test
+	public void testClear() {
+
+		final RenderedPageCache cache = new RenderedPageCache(10);
+		final long sequence           = cache.getSequence();
+
+		cache.clear();
+
+		assertFalse(cache.put("key", bytes("content"), 0, set("page1"), set(), sequence));
+		assertTrue(cache.put("key", bytes("content"), 0, set("page1"), set(), cache.getSequence()));
+	}
+
+	@Test
+	public void testEviction() {
+
+		final RenderedPageCache cache = new RenderedPageCache(2);
+
+		for (int i=0; i<5; i++) {
+			cache.put("key" + i, bytes("content" + i), 0, set("page", "data" + i), set(), cache.getSequence());
+		}
+
+		assertEquals(2, cache.size());
+
+		// invalidating the shared page must remove the remaining entries
+		cache.invalidate("page");
+		assertEquals(0, cache.size());
+	}
+
+	// ----- private methods -----
+	private byte[] bytes(final String content) {
+		return content.getBytes();
+	}
+
+	private Set<String> set(final String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+}
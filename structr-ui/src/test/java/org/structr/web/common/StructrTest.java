@@ -107,6 +107,8 @@ public class StructrTest {
 		config.setProperty(Structr.NODE_CACHE_SIZE, "1000");
 		config.setProperty(Services.FILES_PATH, "/tmp/structr-test-" + timestamp + "/files");
 		config.setProperty(Services.LOG_DATABASE_PATH, "/tmp/structr-test-" + timestamp + "/logDb.dat");
+		config.setProperty(Services.SCHEMA_CLASS_CACHE_PATH, "/tmp/structr-test-" + timestamp + "/classcache");
+		config.setProperty(Services.CHANGELOG_PATH, "/tmp/structr-test-" + timestamp + "/changelog");
 		config.setProperty(Services.TCP_PORT, (System.getProperty("tcpPort") != null ? System.getProperty("tcpPort") : "13465"));
 		config.setProperty(Services.UDP_PORT, (System.getProperty("udpPort") != null ? System.getProperty("udpPort") : "13466"));
 		config.setProperty(Services.SERVER_IP, "127.0.0.1");
@@ -18,10 +18,12 @@
  */
 package org.structr.web.common;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -34,6 +36,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.dynamic.File;
@@ -398,6 +401,47 @@ public class UiTest extends StructrUiTest {
 
 	}
 
+	@Test
+	public void testCreateFileFromStream() {
+
+		final byte[] content = "Streamed file content, checksum and size are computed while writing.".getBytes();
+
+		try (final Tx tx = app.tx()) {
+
+			final FileBase file = FileHelper.createFile(securityContext, new ByteArrayInputStream(content), "text/plain", File.class, "streamed.txt");
+
+			assertEquals("Invalid checksum of streamed file", FileUtils.checksumCRC32(FileHelper.getFile(file)), file.getChecksum().longValue());
+			assertEquals("Invalid size of streamed file", content.length, file.getSize().longValue());
+			assertEquals("Invalid content of streamed file", new String(content), IOUtils.toString(file.getInputStream()));
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final String uuid        = NodeServiceCommand.getNextUuid();
+			final long checksum      = FileHelper.writeToFile(FileHelper.getFile(uuid), new ByteArrayInputStream(content));
+			final FileBase file      = FileHelper.createFile(securityContext, uuid, checksum, null, File.class, "prewritten.txt");
+
+			assertEquals("Invalid uuid of pre-written file", uuid, file.getUuid());
+			assertEquals("Invalid checksum of pre-written file", FileUtils.checksumCRC32(FileHelper.getFile(file)), file.getChecksum().longValue());
+			assertEquals("Invalid size of pre-written file", content.length, file.getSize().longValue());
+			assertEquals("MIME type detection failed", "text/plain", file.getContentType());
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+	}
+
 	@Test
 	public void testExtensionBasedMimeTypeDetection() {
 
@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.servlet;
+
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class ByteRangeTest {
+
+	@Test
+	public void testSingleRanges() {
+
+		assertRanges("[0-499]",     ByteRange.parse("bytes=0-499", 10000));
+		assertRanges("[500-999]",   ByteRange.parse("bytes=500-999", 10000));
+		assertRanges("[9500-9999]", ByteRange.parse("bytes=-500", 10000));
+		assertRanges("[9500-9999]", ByteRange.parse("bytes=9500-", 10000));
+		assertRanges("[9500-9999]", ByteRange.parse("bytes=9500-20000", 10000));
+		assertRanges("[0-9999]",    ByteRange.parse("bytes=-20000", 10000));
+	}
+
+	@Test
+	public void testMultipleRanges() {
+
+		assertRanges("[0-0, 9999-9999]", ByteRange.parse("bytes=0-0,-1", 10000));
+		assertRanges("[0-99, 200-299]",  ByteRange.parse("bytes=200-299, 0-99", 10000));
+
+		// overlapping and adjacent ranges are coalesced
+		assertRanges("[500-799]",        ByteRange.parse("bytes=500-600,601-700,650-799", 10000));
+		assertRanges("[0-199]",          ByteRange.parse("bytes=0-99,100-199", 10000));
+	}
+
+	@Test
+	public void testUnsatisfiableRanges() {
+
+		assertTrue(ByteRange.parse("bytes=10000-", 10000).isEmpty());
+		assertTrue(ByteRange.parse("bytes=-0", 10000).isEmpty());
+		assertTrue(ByteRange.parse("bytes=0-10", 0).isEmpty());
+
+		// unsatisfiable parts are dropped
+		assertRanges("[0-9]", ByteRange.parse("bytes=20000-30000,0-9", 10000));
+	}
+
+	@Test
+	public void testInvalidRanges() {
+
+		assertNull(ByteRange.parse(null, 10000));
+		assertNull(ByteRange.parse("items=0-9", 10000));
+		assertNull(ByteRange.parse("bytes=9-0", 10000));
+		assertNull(ByteRange.parse("bytes=abc-", 10000));
+		assertNull(ByteRange.parse("bytes=-", 10000));
+		assertNull(ByteRange.parse("bytes=", 10000));
+		assertNull(ByteRange.parse("bytes= , ", 10000));
+		assertNull(ByteRange.parse("bytes=10", 10000));
+
+		// too many distinct ranges
+		final StringBuilder buf = new StringBuilder("bytes=0-0");
+		for (int i=1; i<=ByteRange.MAX_RANGES; i++) {
+			buf.append(",").append(i * 10).append("-").append(i * 10);
+		}
+
+		assertNull(ByteRange.parse(buf.toString(), 10000));
+	}
+
+	// ----- private methods -----
+	private void assertRanges(final String expected, final List<ByteRange> ranges) {
+		assertEquals("Invalid range parsing result", expected, ranges.toString());
+	}
+}
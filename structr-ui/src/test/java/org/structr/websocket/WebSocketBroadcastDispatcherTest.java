@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2010-2016 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.websocket;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class WebSocketBroadcastDispatcherTest {
+
+	@Test
+	public void testCoalesce() throws InterruptedException {
+
+		final TestDispatcher dispatcher = new TestDispatcher(2, 3);
+		final StructrWebSocket socket   = new StructrWebSocket();
+
+		dispatcher.block(socket);
+
+		dispatcher.dispatch(socket, "update1a", "a");
+		dispatcher.dispatch(socket, "update1b", "b");
+
+		// queue is full, the queued update for a is replaced
+		dispatcher.dispatch(socket, "update2a", "a");
+
+		final Map<String, Long> statistics = dispatcher.release();
+
+		assertEquals("[blocker, update1b, update2a]", dispatcher.messages.toString());
+		assertEquals(Long.valueOf(1), statistics.get("coalesced"));
+		assertEquals(Long.valueOf(0), statistics.get("dropped"));
+
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void testDropOldestUpdate() throws InterruptedException {
+
+		final TestDispatcher dispatcher = new TestDispatcher(2, 3);
+		final StructrWebSocket socket   = new StructrWebSocket();
+
+		dispatcher.block(socket);
+
+		dispatcher.dispatch(socket, "update1a", "a");
+		dispatcher.dispatch(socket, "update1b", "b");
+
+		// queue is full and holds no update for c, so the oldest update is dropped
+		dispatcher.dispatch(socket, "update1c", "c");
+
+		final Map<String, Long> statistics = dispatcher.release();
+
+		assertEquals("[blocker, update1b, update1c]", dispatcher.messages.toString());
+		assertEquals(Long.valueOf(0), statistics.get("coalesced"));
+		assertEquals(Long.valueOf(1), statistics.get("dropped"));
+
+		dispatcher.shutdown();
+	}
+
+	@Test
+	public void testBackPressure() throws InterruptedException {
+
+		final TestDispatcher dispatcher = new TestDispatcher(2, 3);
+		final StructrWebSocket socket   = new StructrWebSocket();
+
+		dispatcher.block(socket);
+
+		dispatcher.dispatch(socket, "create1", null);
+		dispatcher.dispatch(socket, "create2", null);
+
+		// queue is full and holds no updates, so new messages are discarded
+		dispatcher.dispatch(socket, "update1a", "a");
+		dispatcher.dispatch(socket, "create3", null);
+
+		final Map<String, Long> statistics = dispatcher.release();
+
+		assertEquals("[blocker, create1, create2]", dispatcher.messages.toString());
+		assertEquals(Long.valueOf(0), statistics.get("coalesced"));
+		assertEquals(Long.valueOf(2), statistics.get("dropped"));
+		assertEquals(Long.valueOf(2), statistics.get("queued"));
+
+		dispatcher.shutdown();
+	}
+
+	// ----- nested classes -----
+	private static class TestDispatcher extends WebSocketBroadcastDispatcher {
+
+		private final List<String> messages  = new CopyOnWriteArrayList<>();
+		private final CountDownLatch sending = new CountDownLatch(1);
+		private final CountDownLatch blocked = new CountDownLatch(1);
+		private CountDownLatch done          = null;
+
+		public TestDispatcher(final int queueSize, final int expectedMessages) {
+
+			super(null, 1, queueSize);
+
+			this.done = new CountDownLatch(expectedMessages);
+		}
+
+		/**
+		 * Sends a first message and waits until the worker thread is
+		 * blocked sending it, so that subsequent messages stay queued.
+		 */
+		public void block(final StructrWebSocket socket) throws InterruptedException {
+
+			dispatch(socket, "blocker", null);
+
+			assertTrue("Worker did not start sending", sending.await(10, TimeUnit.SECONDS));
+		}
+
+		/**
+		 * Unblocks the worker thread and waits until all expected
+		 * messages are sent. Returns the statistics from before the
+		 * worker was unblocked.
+		 */
+		public Map<String, Long> release() throws InterruptedException {
+
+			final Map<String, Long> statistics = getStatistics();
+
+			blocked.countDown();
+
+			assertTrue("Messages were not sent", done.await(10, TimeUnit.SECONDS));
+
+			return statistics;
+		}
+
+		@Override
+		protected boolean send(final StructrWebSocket socket, final String message) {
+
+			sending.countDown();
+
+			try {
+				blocked.await();
+
+			} catch (InterruptedException iex) {
+				return true;
+			}
+
+			messages.add(message);
+			done.countDown();
+
+			return true;
+		}
+	}
+}